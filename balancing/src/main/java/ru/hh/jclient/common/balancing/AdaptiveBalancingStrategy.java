@@ -3,10 +3,12 @@ package ru.hh.jclient.common.balancing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongUnaryOperator;
 
 final class AdaptiveBalancingStrategy {
   private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveBalancingStrategy.class);
@@ -16,10 +18,23 @@ final class AdaptiveBalancingStrategy {
   static final int RESPONSE_TIME_TRACKER_WINDOW = 500;
   private static final int lowestHealthPercent = 2;
   private static final int lowestHealth = lowestHealthPercent * DOWNTIME_DETECTOR_WINDOW / 100;
+  static final LongUnaryOperator DEFAULT_RANDOM = bound -> ThreadLocalRandom.current().nextLong(bound);
 
   static List<Integer> getServers(List<Server> servers, int retriesCount) {
-    int n = servers.size();
-    int count = Math.max(n, retriesCount);
+    return getServers(servers, retriesCount, DEFAULT_RANDOM);
+  }
+
+  /**
+   * @param random returns random value between zero (inclusive) and the given bound (exclusive)
+   */
+  static List<Integer> getServers(List<Server> servers, int retriesCount, LongUnaryOperator random) {
+    return getServers(servers, retriesCount, random, null);
+  }
+
+  /**
+   * @param trace if not null, receives scores of servers
+   */
+  static List<Integer> getServers(List<Server> servers, int retriesCount, LongUnaryOperator random, @Nullable BalancingTrace trace) {
     if (servers.isEmpty()) {
       return Collections.emptyList();
     }
@@ -28,9 +43,22 @@ final class AdaptiveBalancingStrategy {
       return Collections.singletonList(0);
     }
 
+    long[] scores = getScores(servers, System.nanoTime());
+    if (trace != null) {
+      trace.setAdaptiveScores(servers, scores);
+    }
+    return pickServers(servers, scores, retriesCount, random);
+  }
+
+  /**
+   * Scores servers by response time, downtime detector health and load reported by server, a server is picked
+   * with probability proportional to its score.
+   */
+  private static long[] getScores(List<Server> servers, long nowNanos) {
+    int n = servers.size();
     long[] scores = new long[n];
-    int[] ids = new int[n];
     int[] healths = new int[n];
+    double[] reportedLoads = new double[n];
 
     // gather statistics
     int i = 0;
@@ -39,6 +67,7 @@ final class AdaptiveBalancingStrategy {
     long max = 0;
     for (Server server : servers) {
       healths[i] = server.getDowntimeDetector().successCount();
+      reportedLoads[i] = server.getLoadTracker().load(nowNanos);
 
       var tracker = server.getResponseTimeTracker();
       LOGGER.debug("gathering stats {}, warmUp:{}, time:{}, successCount:{}", server, tracker.isWarmUp(),
@@ -60,22 +89,32 @@ final class AdaptiveBalancingStrategy {
       scores[j] = isAnyWarmingUp ? time : (long) Math.round((float) min * max / time);
     }
 
-    // adjust scores based on downtime detector health and response time tracker score
-    long total = 0;
+    // adjust scores based on downtime detector health, response time tracker score and load reported by server
     for (int j = 0; j < n; j++) {
       long invertedTime = scores[j];
       int health = Math.max(healths[j], lowestHealth);
-      long score = invertedTime * health;
-      LOGGER.debug("balancer stats for {}, health:{}, inverted_time_score:{}, final_score:{}", servers.get(j), health, invertedTime, score);
-      total += score;
+      long score = Math.max(1, Math.round(invertedTime * health / (1 + reportedLoads[j])));
+      LOGGER.debug("balancer stats for {}, health:{}, inverted_time_score:{}, reported_load:{}, final_score:{}",
+          servers.get(j), health, invertedTime, reportedLoads[j], score);
       scores[j] = score;
+    }
+    return scores;
+  }
+
+  private static List<Integer> pickServers(List<Server> servers, long[] scores, int retriesCount, LongUnaryOperator random) {
+    int n = servers.size();
+    int count = Math.max(n, retriesCount);
+    int[] ids = new int[n];
+    long total = 0;
+    for (int j = 0; j < n; j++) {
+      total += scores[j];
       ids[j] = j;
     }
 
     // weighted-randomly pick count elements
     List<Integer> shuffled = new ArrayList<>(count);
     for (int j = n - 1, r = count - 1; j >= 0 && r >= 0; j--, r--) { // index to put new random element
-      long pick = ThreadLocalRandom.current().nextLong(total);
+      long pick = random.applyAsLong(total);
       long sum = 0L;
       for (int k = 0; k <= j; k++) { // random index of element to swap
         sum += scores[k];
@@ -0,0 +1,84 @@
+package ru.hh.jclient.common.balancing;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of recent response times of an upstream, used to derive request timeout from a high percentile.
+ * Only responses below 500 are recorded: errors and timeouts mapped from transport failures do not measure the upstream.
+ * Response times are counted in exponential buckets. Counts are halved once there are enough samples,
+ * so recent response times weigh more than old ones.
+ */
+final class AdaptiveTimeout {
+  static final int MIN_SAMPLES = 100;
+  static final int RECOMPUTE_INTERVAL = 64;
+  static final long MAX_SAMPLES = 10_000;
+  private static final long[] BUCKET_BOUNDS_MICROS = createBucketBounds(TimeUnit.MILLISECONDS.toMicros(1), TimeUnit.MINUTES.toMicros(2), 1.1);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+  private final AtomicLong samples = new AtomicLong();
+  private volatile long percentileMicros = -1;
+
+  /**
+   * @param percentile percentile to keep up to date, from 0 to 100
+   */
+  void record(long responseTimeMicros, double percentile) {
+    int index = Arrays.binarySearch(BUCKET_BOUNDS_MICROS, responseTimeMicros);
+    counts.incrementAndGet(index >= 0 ? index : -index - 1);
+    long count = samples.incrementAndGet();
+    if (count % RECOMPUTE_INTERVAL == 0) {
+      if (count >= MAX_SAMPLES) {
+        decay();
+      }
+      percentileMicros = computePercentile(percentile);
+    }
+  }
+
+  /**
+   * @return upper bound of the percentile or -1 if there are not enough samples yet
+   */
+  long getPercentileMicros() {
+    return percentileMicros;
+  }
+
+  private void decay() {
+    long removed = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      long count = counts.getAndUpdate(i, c -> c / 2);
+      removed += count - count / 2;
+    }
+    samples.addAndGet(-removed);
+  }
+
+  private long computePercentile(double percentile) {
+    long total = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      total += counts.get(i);
+    }
+    if (total < MIN_SAMPLES) {
+      return -1;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return i < BUCKET_BOUNDS_MICROS.length ? BUCKET_BOUNDS_MICROS[i] : BUCKET_BOUNDS_MICROS[BUCKET_BOUNDS_MICROS.length - 1];
+      }
+    }
+    return BUCKET_BOUNDS_MICROS[BUCKET_BOUNDS_MICROS.length - 1];
+  }
+
+  private static long[] createBucketBounds(long min, long max, double factor) {
+    int count = (int) Math.ceil(Math.log((double) max / min) / Math.log(factor)) + 1;
+    long[] bounds = new long[count];
+    double bound = min;
+    for (int i = 0; i < count; i++) {
+      bounds[i] = Math.min(max, (long) Math.ceil(bound));
+      bound *= factor;
+    }
+    return bounds;
+  }
+}
@@ -13,13 +13,25 @@ final class BalancingStrategy {
   private static final Logger LOGGER = LoggerFactory.getLogger(BalancingStrategy.class);
 
   static int getLeastLoadedServer(List<Server> servers, Set<Integer> excludedServers, String datacenter, boolean allowCrossDCRequests) {
+    return getLeastLoadedServer(servers, excludedServers, datacenter, allowCrossDCRequests, false);
+  }
+
+  /**
+   * @param preferRemote prefer servers of other datacenters to local ones, used to spill requests over
+   */
+  static int getLeastLoadedServer(List<Server> servers,
+                                  Set<Integer> excludedServers,
+                                  String datacenter,
+                                  boolean allowCrossDCRequests,
+                                  boolean preferRemote) {
     int minIndex = -1;
     Weight minWeight = null;
+    long now = System.nanoTime();
 
     for (int index = 0; index < servers.size(); index++) {
       Server server = servers.get(index);
 
-      if (server == null || !server.isActive()) {
+      if (server == null || !server.isActive() || server.isBackedOff(now)) {
         continue;
       }
 
@@ -29,12 +41,14 @@ final class BalancingStrategy {
         continue;
       }
 
-      float currentLoad = (float) server.getRequests() / server.getWeight();
-      float statLoad = (float) server.getStatsRequests() / server.getWeight();
-      Weight weight = new Weight(isDifferentDC, currentLoad, statLoad);
+      // load reported by the server makes it look proportionally more busy
+      float reportedLoadFactor = 1 + (float) server.getLoadTracker().load(now);
+      float currentLoad = reportedLoadFactor * server.getRequests() / server.getWeight();
+      float statLoad = reportedLoadFactor * server.getStatsRequests() / server.getWeight();
+      Weight weight = new Weight(isDifferentDC != preferRemote, currentLoad, statLoad);
 
-      LOGGER.debug("static balancer stats for {}, differentDC:{}, load:{}, stat_load:{}", server,
-              weight.isDifferentDC(), weight.getCurrentLoad(), weight.getStatLoad());
+      LOGGER.debug("static balancer stats for {}, notPreferredDC:{}, load:{}, stat_load:{}", server,
+              weight.isNotPreferredDC(), weight.getCurrentLoad(), weight.getStatLoad());
 
       if (!excludedServers.contains(index) && (minIndex < 0 || minWeight.compareTo(weight) > 0)) {
         minIndex = index;
@@ -43,8 +57,8 @@ final class BalancingStrategy {
     }
 
     if (minIndex != -1) {
-      LOGGER.debug("static balancer pick for {}, differentDC:{}, load:{}, stat_load:{}", minIndex,
-              minWeight.isDifferentDC(), minWeight.getCurrentLoad(), minWeight.getStatLoad());
+      LOGGER.debug("static balancer pick for {}, notPreferredDC:{}, load:{}, stat_load:{}", minIndex,
+              minWeight.isNotPreferredDC(), minWeight.getCurrentLoad(), minWeight.getStatLoad());
     } else {
       LOGGER.debug("no server available");
     }
@@ -55,21 +69,21 @@ final class BalancingStrategy {
   }
 
   private static class Weight implements Comparable<Weight> {
-    private static final Comparator<Weight> weightComparator = Comparator.comparing(Weight::isDifferentDC)
+    private static final Comparator<Weight> weightComparator = Comparator.comparing(Weight::isNotPreferredDC)
         .thenComparingDouble(Weight::getCurrentLoad)
         .thenComparingDouble(Weight::getStatLoad);
-    private final boolean differentDC;
+    private final boolean notPreferredDC;
     private final float currentLoad;
     private final float statLoad;
 
-    Weight(boolean differentDC, float currentLoad, float statLoad) {
-      this.differentDC = differentDC;
+    Weight(boolean notPreferredDC, float currentLoad, float statLoad) {
+      this.notPreferredDC = notPreferredDC;
       this.currentLoad = currentLoad;
       this.statLoad = statLoad;
     }
 
-    public boolean isDifferentDC() {
-      return differentDC;
+    public boolean isNotPreferredDC() {
+      return notPreferredDC;
     }
 
     public float getCurrentLoad() {
@@ -0,0 +1,277 @@
+package ru.hh.jclient.common.balancing;
+
+import ru.hh.jclient.common.RequestBalancingTrace;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balancing decisions made for a single sampled request: candidates seen on each attempt, the chosen server,
+ * attempt timings and the reason of every retry.
+ * <p>
+ * Attempts are recorded from the threads that send requests and complete them, and may be read by the caller at any time.
+ */
+public final class BalancingTrace implements RequestBalancingTrace {
+  private final String upstreamName;
+  private final String url;
+  private final boolean adaptive;
+  private final long startNanos = System.nanoTime();
+  private final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+  private volatile Map<String, Long> adaptiveScores = Map.of();
+
+  BalancingTrace(String upstreamName, String url, boolean adaptive) {
+    this.upstreamName = upstreamName;
+    this.url = url;
+    this.adaptive = adaptive;
+  }
+
+  void startAttempt(List<Server> servers, @Nullable ServerEntry chosen) {
+    long now = System.nanoTime();
+    List<Candidate> candidates = new ArrayList<>(servers.size());
+    for (Server server : servers) {
+      if (server != null) {
+        candidates.add(new Candidate(server, now, adaptiveScores.getOrDefault(server.getAddress(), -1L)));
+      }
+    }
+    String address = chosen == null || chosen.getIndex() < 0 ? null : chosen.getAddress();
+    String datacenter = chosen == null ? null : chosen.getDatacenter();
+    attempts.add(new Attempt(candidates, address, datacenter, TimeUnit.NANOSECONDS.toMicros(now - startNanos)));
+  }
+
+  /**
+   * Adaptive strategy orders servers for all attempts at once, so the same scores apply to every following attempt.
+   */
+  void setAdaptiveScores(List<Server> servers, long[] scores) {
+    Map<String, Long> scoresByAddress = new HashMap<>();
+    for (int i = 0; i < servers.size(); i++) {
+      scoresByAddress.put(servers.get(i).getAddress(), scores[i]);
+    }
+    adaptiveScores = scoresByAddress;
+  }
+
+  void finishAttempt(int statusCode, long responseTimeMicros) {
+    Attempt attempt = getLastAttempt();
+    if (attempt != null) {
+      attempt.statusCode = statusCode;
+      attempt.responseTimeMicros = responseTimeMicros;
+      attempt.elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos) - attempt.startOffsetMicros;
+    }
+  }
+
+  void retry(String reason) {
+    Attempt attempt = getLastAttempt();
+    if (attempt != null) {
+      attempt.retryReason = reason;
+    }
+  }
+
+  @Nullable
+  private Attempt getLastAttempt() {
+    return attempts.isEmpty() ? null : attempts.get(attempts.size() - 1);
+  }
+
+  @Override
+  public String getUpstreamName() {
+    return upstreamName;
+  }
+
+  @Override
+  public String getUrl() {
+    return url;
+  }
+
+  @Override
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  public List<Attempt> getAttempts() {
+    return Collections.unmodifiableList(attempts);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder()
+        .append("upstream: ").append(upstreamName)
+        .append(", url: ").append(url)
+        .append(", adaptive: ").append(adaptive);
+    for (int i = 0; i < attempts.size(); i++) {
+      sb.append("\n  attempt ").append(i).append(": ").append(attempts.get(i));
+    }
+    return sb.toString();
+  }
+
+  public static final class Attempt {
+    private final List<Candidate> candidates;
+    private final String chosenAddress;
+    private final String chosenDatacenter;
+    private final long startOffsetMicros;
+    private volatile int statusCode = -1;
+    private volatile long responseTimeMicros = -1;
+    private volatile long elapsedMicros = -1;
+    private volatile String retryReason;
+
+    Attempt(List<Candidate> candidates, String chosenAddress, String chosenDatacenter, long startOffsetMicros) {
+      this.candidates = candidates;
+      this.chosenAddress = chosenAddress;
+      this.chosenDatacenter = chosenDatacenter;
+      this.startOffsetMicros = startOffsetMicros;
+    }
+
+    public List<Candidate> getCandidates() {
+      return Collections.unmodifiableList(candidates);
+    }
+
+    /**
+     * @return address of the chosen server or null if no server was available
+     */
+    @Nullable
+    public String getChosenAddress() {
+      return chosenAddress;
+    }
+
+    @Nullable
+    public String getChosenDatacenter() {
+      return chosenDatacenter;
+    }
+
+    /**
+     * @return time from the start of the request to the start of this attempt
+     */
+    public long getStartOffsetMicros() {
+      return startOffsetMicros;
+    }
+
+    /**
+     * @return status code or -1 if the attempt did not finish
+     */
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    /**
+     * @return response time as measured by transport
+     */
+    public long getResponseTimeMicros() {
+      return responseTimeMicros;
+    }
+
+    /**
+     * @return time from the start to the end of this attempt including time spent in queues and callbacks
+     */
+    public long getElapsedMicros() {
+      return elapsedMicros;
+    }
+
+    /**
+     * @return reason of the retry that followed this attempt or null if there was no retry
+     */
+    @Nullable
+    public String getRetryReason() {
+      return retryReason;
+    }
+
+    @Override
+    public String toString() {
+      return "server: " + chosenAddress + " (dc=" + chosenDatacenter + ")"
+          + ", start: " + startOffsetMicros
+          + ", elapsed: " + elapsedMicros
+          + ", response time: " + responseTimeMicros
+          + ", status: " + statusCode
+          + (retryReason != null ? ", retry: " + retryReason : "")
+          + ", candidates: " + candidates;
+    }
+  }
+
+  /**
+   * Server statistics the balancing strategies used to choose among candidates.
+   */
+  public static final class Candidate {
+    private final String address;
+    private final String datacenter;
+    private final boolean active;
+    private final boolean backedOff;
+    private final float load;
+    private final float statLoad;
+    private final double reportedLoad;
+    private final long meanResponseTimeMicros;
+    private final int health;
+    private final long adaptiveScore;
+
+    Candidate(Server server, long nowNanos, long adaptiveScore) {
+      address = server.getAddress();
+      datacenter = server.getDatacenter();
+      active = server.isActive();
+      backedOff = server.isBackedOff(nowNanos);
+      reportedLoad = server.getLoadTracker().load(nowNanos);
+      float reportedLoadFactor = 1 + (float) reportedLoad;
+      load = reportedLoadFactor * server.getRequests() / server.getWeight();
+      statLoad = reportedLoadFactor * server.getStatsRequests() / server.getWeight();
+      meanResponseTimeMicros = server.getResponseTimeTracker().isWarmUp() ? -1 : server.getResponseTimeTracker().mean();
+      health = server.getDowntimeDetector().successCount();
+      this.adaptiveScore = adaptiveScore;
+    }
+
+    public String getAddress() {
+      return address;
+    }
+
+    public String getDatacenter() {
+      return datacenter;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public boolean isBackedOff() {
+      return backedOff;
+    }
+
+    /**
+     * @return requests in flight per weight unit, scaled by reported load, as seen by the static strategy
+     */
+    public float getLoad() {
+      return load;
+    }
+
+    public float getStatLoad() {
+      return statLoad;
+    }
+
+    public double getReportedLoad() {
+      return reportedLoad;
+    }
+
+    /**
+     * @return mean response time used by the adaptive strategy or -1 if the server is warming up
+     */
+    public long getMeanResponseTimeMicros() {
+      return meanResponseTimeMicros;
+    }
+
+    public int getHealth() {
+      return health;
+    }
+
+    /**
+     * @return score the adaptive strategy gave to the server or -1 if the server was not scored
+     */
+    public long getAdaptiveScore() {
+      return adaptiveScore;
+    }
+
+    @Override
+    public String toString() {
+      return address + " (dc=" + datacenter + ", active=" + active + ", backedOff=" + backedOff
+          + ", load=" + load + ", statLoad=" + statLoad + ", reportedLoad=" + reportedLoad
+          + ", mean=" + meanResponseTimeMicros + ", health=" + health + ", score=" + adaptiveScore + ")";
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package ru.hh.jclient.common.balancing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Samples requests for {@link BalancingTrace} and keeps the most recent traces in a fixed size ring buffer.
+ * Requests that are not sampled allocate nothing.
+ */
+public final class BalancingTracer {
+  private final double sampleRate;
+  private final AtomicReferenceArray<BalancingTrace> traces;
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * @param capacity number of most recent traces to keep
+   * @param sampleRate part of requests to trace, from 0 to 1
+   */
+  public BalancingTracer(int capacity, double sampleRate) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    if (!(sampleRate >= 0 && sampleRate <= 1)) {
+      throw new IllegalArgumentException("sampleRate must be between 0 and 1: " + sampleRate);
+    }
+    this.sampleRate = sampleRate;
+    this.traces = new AtomicReferenceArray<>(capacity);
+  }
+
+  boolean sample() {
+    return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  void record(BalancingTrace trace) {
+    int index = (int) (sequence.getAndIncrement() % traces.length());
+    traces.set(index, trace);
+  }
+
+  /**
+   * @return recorded traces, most recent first
+   */
+  public List<BalancingTrace> getRecentTraces() {
+    long last = sequence.get();
+    int count = (int) Math.min(last, traces.length());
+    List<BalancingTrace> result = new ArrayList<>(count);
+    for (long i = last - 1; i >= last - count; i--) {
+      BalancingTrace trace = traces.get((int) (i % traces.length()));
+      if (trace != null) {
+        result.add(trace);
+      }
+    }
+    return result;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+}
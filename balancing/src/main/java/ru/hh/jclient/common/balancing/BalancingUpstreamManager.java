@@ -2,7 +2,6 @@ package ru.hh.jclient.common.balancing;
 
 import com.google.common.annotations.VisibleForTesting;
 import static java.util.Objects.requireNonNull;
-import static java.util.Optional.ofNullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.hh.jclient.common.Monitoring;
@@ -13,6 +12,7 @@ import ru.hh.jclient.consul.ValueNode;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,12 +26,15 @@ public class BalancingUpstreamManager extends UpstreamManager {
   private static final int SCHEMA_SEPARATOR_LEN = 3;
 
   private final Map<String, UpstreamGroup> upstreams = new ConcurrentHashMap<>();
+  private volatile Map<String, ServiceRoutes> routingTable = Map.of();
   private final ScheduledExecutorService scheduledExecutor;
   private final Set<Monitoring> monitoring;
   private final String datacenter;
   private final boolean allowCrossDCRequests;
   private final UpstreamConfigService upstreamConfigService;
   private final UpstreamService upstreamService;
+  @Nullable
+  private final Integer subsettingClientId;
 
   public BalancingUpstreamManager(ScheduledExecutorService scheduledExecutor, Set<Monitoring> monitoring,
                                   String datacenter,
@@ -46,12 +49,30 @@ public class BalancingUpstreamManager extends UpstreamManager {
                                   String datacenter,
                                   boolean allowCrossDCRequests, UpstreamConfigService upstreamConfigService,
                                   UpstreamService upstreamService) {
+    this(upstreamsList, scheduledExecutor, monitoring, datacenter, allowCrossDCRequests, upstreamConfigService, upstreamService, null);
+  }
+
+  /**
+   * @param subsettingClientId non negative id of this client, distinct ids of clients give even distribution of subsets;
+   *                           subsetting is enabled only if it is set and subset_size is configured for the upstream
+   */
+  public BalancingUpstreamManager(Collection<String> upstreamsList,
+                                  ScheduledExecutorService scheduledExecutor,
+                                  Set<Monitoring> monitoring,
+                                  String datacenter,
+                                  boolean allowCrossDCRequests, UpstreamConfigService upstreamConfigService,
+                                  UpstreamService upstreamService,
+                                  @Nullable Integer subsettingClientId) {
+    if (subsettingClientId != null && subsettingClientId < 0) {
+      throw new IllegalArgumentException("subsettingClientId must not be negative");
+    }
     this.scheduledExecutor = requireNonNull(scheduledExecutor, "scheduledExecutor must not be null");
     this.monitoring = requireNonNull(monitoring, "monitorings must not be null");
     this.datacenter = datacenter;
     this.allowCrossDCRequests = allowCrossDCRequests;
     this.upstreamService = upstreamService;
     this.upstreamConfigService = upstreamConfigService;
+    this.subsettingClientId = subsettingClientId;
 
     requireNonNull(upstreamsList, "upstreamsList must not be null");
     upstreamsList.forEach(this::updateUpstream);
@@ -76,16 +97,41 @@ public class BalancingUpstreamManager extends UpstreamManager {
           (profileName, config) -> createUpstream(upstreamKey, newConfig)
       );
     });
+    updateRoutes(upstreamKey.getServiceName());
+  }
+
+  private synchronized void updateRoutes(String serviceName) {
+    Map<String, ServiceRoutes> newRoutingTable = new HashMap<>(routingTable);
+    UpstreamGroup group = upstreams.get(serviceName);
+    if (group == null || group.isEmpty()) {
+      newRoutingTable.remove(serviceName);
+    } else {
+      newRoutingTable.put(serviceName, new ServiceRoutes(serviceName, group));
+    }
+    routingTable = Map.copyOf(newRoutingTable);
   }
 
   private Upstream createUpstream(Upstream.UpstreamKey key, UpstreamConfig config) {
-    return new Upstream(key, config, scheduledExecutor, datacenter, allowCrossDCRequests, true);
+    return new Upstream(key, config, scheduledExecutor, datacenter, allowCrossDCRequests, true, subsettingClientId);
   }
 
   @Override
   public Upstream getUpstream(String serviceName, @Nullable String profile) {
-    return ofNullable(upstreams.get(getNameWithoutScheme(serviceName)))
-        .map(group -> group.getUpstreamOrDefault(profile)).orElse(null);
+    UpstreamRoute route = getRoute(serviceName, profile);
+    return route == null ? null : route.getUpstream();
+  }
+
+  @Override
+  @Nullable
+  UpstreamRoute getRoute(String host, @Nullable String profile) {
+    ServiceRoutes routes = routingTable.get(host);
+    if (routes == null) {
+      routes = routingTable.get(getNameWithoutScheme(host));
+      if (routes == null) {
+        return null;
+      }
+    }
+    return routes.get(profile);
   }
 
   @Override
@@ -103,4 +149,26 @@ public class BalancingUpstreamManager extends UpstreamManager {
   Map<String, UpstreamGroup> getUpstreams() {
     return upstreams;
   }
+
+  private static final class ServiceRoutes {
+    private final String serviceName;
+    private final Map<String, UpstreamRoute> routesByProfile;
+    private final UpstreamRoute defaultRoute;
+
+    ServiceRoutes(String serviceName, UpstreamGroup group) {
+      this.serviceName = serviceName;
+      Map<String, UpstreamRoute> routes = new HashMap<>();
+      group.getUpstreamsByProfile().forEach((profile, upstream) -> routes.put(profile, new UpstreamRoute(upstream)));
+      this.routesByProfile = Map.copyOf(routes);
+      this.defaultRoute = routes.get(UpstreamGroup.DEFAULT_PROFILE);
+    }
+
+    UpstreamRoute get(@Nullable String profile) {
+      UpstreamRoute route = profile == null ? defaultRoute : routesByProfile.getOrDefault(profile, defaultRoute);
+      if (route == null) {
+        throw new IllegalStateException("No " + UpstreamGroup.DEFAULT_PROFILE + " profile for service <" + serviceName + '>');
+      }
+      return route;
+    }
+  }
 }
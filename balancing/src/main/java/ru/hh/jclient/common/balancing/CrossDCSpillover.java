@@ -0,0 +1,86 @@
+package ru.hh.jclient.common.balancing;
+
+import static ru.hh.jclient.common.balancing.AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Decides which part of requests should go to other datacenters. Spillover grows gradually as health of local servers
+ * drops below the threshold or as their load (requests in flight per weight unit) grows above the threshold,
+ * and it is reduced proportionally to the latency penalty of remote servers.
+ */
+final class CrossDCSpillover {
+  static final float DEFAULT_HEALTH_THRESHOLD = 0.5f;
+  static final float DEFAULT_LOAD_THRESHOLD = 0;
+  static final long SHARE_PRECISION = 1_000_000;
+
+  /**
+   * @return part of requests to send to other datacenters, from 0 to 1
+   */
+  static double getRemoteShare(List<Server> servers, String datacenter, float healthThreshold, float loadThreshold, long nowNanos) {
+    long localWeight = 0;
+    long availableWeight = 0;
+    double healthyWeight = 0;
+    long inFlight = 0;
+    long localTime = 0;
+    int localTimeCount = 0;
+    long remoteTime = 0;
+    int remoteTimeCount = 0;
+    boolean isRemoteAvailable = false;
+
+    for (Server server : servers) {
+      if (server == null) {
+        continue;
+      }
+      boolean isAvailable = server.isActive() && !server.isBackedOff(nowNanos);
+      ResponseTimeTracker tracker = server.getResponseTimeTracker();
+      if (Objects.equals(datacenter, server.getDatacenter())) {
+        localWeight += server.getWeight();
+        if (isAvailable) {
+          availableWeight += server.getWeight();
+          healthyWeight += (double) server.getWeight() * server.getDowntimeDetector().successCount() / DOWNTIME_DETECTOR_WINDOW;
+          inFlight += server.getRequests();
+          if (!tracker.isWarmUp()) {
+            localTime += tracker.mean();
+            localTimeCount++;
+          }
+        }
+      } else if (isAvailable) {
+        isRemoteAvailable = true;
+        if (!tracker.isWarmUp()) {
+          remoteTime += tracker.mean();
+          remoteTimeCount++;
+        }
+      }
+    }
+
+    if (!isRemoteAvailable) {
+      return 0;
+    }
+    if (availableWeight == 0 || healthyWeight <= 0) {
+      return 1;
+    }
+
+    double share = 0;
+    if (healthThreshold > 0) {
+      double health = healthyWeight / localWeight;
+      share = Math.max(0, (healthThreshold - health) / healthThreshold);
+    }
+    if (loadThreshold > 0) {
+      double load = (double) inFlight / availableWeight;
+      if (load > loadThreshold) {
+        share = Math.max(share, (load - loadThreshold) / load);
+      }
+    }
+    if (share > 0 && localTimeCount > 0 && remoteTimeCount > 0) {
+      double localMean = Math.max(1, (double) localTime / localTimeCount);
+      double remoteMean = (double) remoteTime / remoteTimeCount;
+      share /= Math.max(1, remoteMean / localMean);
+    }
+    return Math.min(1, share);
+  }
+
+  private CrossDCSpillover() {
+  }
+}
@@ -26,6 +26,15 @@ final class DowntimeDetector {
     current = (current + 1) % n;
   }
 
+  synchronized void seed(int failedCount) {
+    int failed = Math.max(0, Math.min(failedCount, n));
+    for (int i = 0; i < n; i++) {
+      errors[i] = i < failed ? 1 : 0;
+    }
+    errorsCount = failed;
+    current = 0;
+  }
+
   public int successCount() {
     return n - errorsCount;
   }
@@ -0,0 +1,62 @@
+package ru.hh.jclient.common.balancing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Load reported by the server itself. Reports are smoothed with a time based moving average
+ * and the value decays to zero when the server stops reporting.
+ */
+public final class LoadTracker {
+  static final long DEFAULT_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final double MAX_PREVIOUS_WEIGHT = 0.7;
+
+  private final long decayNanos;
+  private final AtomicReference<Report> lastReport = new AtomicReference<>();
+
+  LoadTracker(long decayNanos) {
+    this.decayNanos = decayNanos;
+  }
+
+  void report(double load, long nowNanos) {
+    if (!(load >= 0) || Double.isInfinite(load)) {
+      return;
+    }
+    lastReport.updateAndGet(previous -> {
+      if (previous == null) {
+        return new Report(load, nowNanos);
+      }
+      double previousWeight = Math.min(MAX_PREVIOUS_WEIGHT, decayFactor(nowNanos - previous.timeNanos));
+      return new Report(previous.load * previousWeight + load * (1 - previousWeight), Math.max(nowNanos, previous.timeNanos));
+    });
+  }
+
+  /**
+   * @return decayed load or zero if the server did not report load
+   */
+  public double load(long nowNanos) {
+    Report report = lastReport.get();
+    if (report == null) {
+      return 0;
+    }
+    return report.load * decayFactor(nowNanos - report.timeNanos);
+  }
+
+  public double load() {
+    return load(System.nanoTime());
+  }
+
+  private double decayFactor(long ageNanos) {
+    return ageNanos <= 0 ? 1 : Math.exp(-(double) ageNanos / decayNanos);
+  }
+
+  private static final class Report {
+    final double load;
+    final long timeNanos;
+
+    Report(double load, long timeNanos) {
+      this.load = load;
+      this.timeNanos = timeNanos;
+    }
+  }
+}
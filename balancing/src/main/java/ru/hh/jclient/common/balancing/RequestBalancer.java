@@ -5,6 +5,7 @@ import static java.util.concurrent.CompletableFuture.completedFuture;
 import com.sun.istack.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.hh.jclient.common.Criticality;
 import ru.hh.jclient.common.MappedTransportErrorResponse;
 import ru.hh.jclient.common.Monitoring;
 import ru.hh.jclient.common.Request;
@@ -16,6 +17,9 @@ import ru.hh.jclient.common.Response;
 import ru.hh.jclient.common.ResponseConverterUtils;
 
 import static ru.hh.jclient.common.HttpStatuses.BAD_GATEWAY;
+import static ru.hh.jclient.common.HttpStatuses.INTERNAL_SERVER_ERROR;
+import static ru.hh.jclient.common.HttpStatuses.SERVICE_UNAVAILABLE;
+import static ru.hh.jclient.common.HttpStatuses.TOO_MANY_REQUESTS;
 import static ru.hh.jclient.common.JClientBase.HTTP_POST;
 import static ru.hh.jclient.common.balancing.AdaptiveBalancingStrategy.WARM_UP_DEFAULT_TIME_MICROS;
 
@@ -26,7 +30,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static ru.hh.jclient.common.balancing.BalancingUpstreamManager.SCHEMA_SEPARATOR;
 
@@ -35,6 +41,7 @@ public class RequestBalancer implements RequestEngine {
 
   private final Request request;
   private final Upstream upstream;
+  private final UpstreamConfig config;
   private final UpstreamManager upstreamManager;
   private final RequestStrategy.RequestExecutor requestExecutor;
   private final Set<Integer> triedServers = new HashSet<>();
@@ -42,6 +49,9 @@ public class RequestBalancer implements RequestEngine {
   private final int maxTries;
   private final boolean adaptive;
   private final boolean forceIdempotence;
+  private final Criticality criticality;
+  private final BalancingTracer tracer;
+  private final BalancingTrace trace;
 
   private ServerEntry currentServer;
   private int triesLeft;
@@ -50,6 +60,7 @@ public class RequestBalancer implements RequestEngine {
   private Iterator<ServerEntry> serverEntryIterator;
   private String upstreamName;
   private boolean adaptiveFailed;
+  private boolean inFlight;
 
   RequestBalancer(Request request,
                          UpstreamManager upstreamManager,
@@ -58,25 +69,36 @@ public class RequestBalancer implements RequestEngine {
                          List<Server> servers,
                          boolean forceIdempotence,
                          boolean adaptive,
-                         @Nullable String profile) {
+                         @Nullable UpstreamRoute route,
+                         Criticality criticality) {
     this.request = request;
     this.upstreamManager = upstreamManager;
     this.requestExecutor = requestExecutor;
     this.servers = servers;
     this.adaptive = adaptive;
     this.forceIdempotence = forceIdempotence;
-    String host = request.getUri().getHost();
-    upstream = upstreamManager.getUpstream(host, profile);
+    this.criticality = criticality;
+    upstream = route == null ? null : route.getUpstream();
+    config = route == null ? null : route.getConfig();
     upstreamName = upstream == null ? null : upstream.getName();
     int requestTimeoutMs = request.getRequestTimeout() > 0 ? request.getRequestTimeout() :
-      upstream != null ? upstream.getConfig().getRequestTimeoutMs() : requestExecutor.getDefaultRequestTimeoutMs();
+      upstream != null ? config.getRequestTimeoutMs() : requestExecutor.getDefaultRequestTimeoutMs();
 
     int requestTimeoutTries = maxRequestTimeoutTries != null ? maxRequestTimeoutTries :
-      upstream != null ? upstream.getConfig().getMaxTimeoutTries() : UpstreamConfig.DEFAULT_MAX_TIMEOUT_TRIES;
+      upstream != null ? config.getMaxTimeoutTries() : UpstreamConfig.DEFAULT_MAX_TIMEOUT_TRIES;
     requestTimeLeftMs = requestTimeoutMs * requestTimeoutTries;
-    maxTries = upstream != null ? upstream.getConfig().getMaxTries() : UpstreamConfig.DEFAULT_MAX_TRIES;
+    maxTries = upstream != null ? config.getMaxTries() : UpstreamConfig.DEFAULT_MAX_TRIES;
 
-    triesLeft = upstream != null ? upstream.getConfig().getMaxTries() : UpstreamConfig.DEFAULT_MAX_TRIES;
+    triesLeft = upstream != null ? config.getMaxTries() : UpstreamConfig.DEFAULT_MAX_TRIES;
+
+    BalancingTracer balancingTracer = upstreamManager.getBalancingTracer();
+    if (balancingTracer != null && upstream != null && balancingTracer.sample()) {
+      tracer = balancingTracer;
+      trace = new BalancingTrace(upstreamName, request.getUrl(), adaptive);
+    } else {
+      tracer = null;
+      trace = null;
+    }
   }
 
   @Override
@@ -84,15 +106,33 @@ public class RequestBalancer implements RequestEngine {
     Request balancedRequest = request;
     RequestContext context = RequestContext.EMPTY_CONTEXT;
     if (isUpstreamAvailable()) {
+      if (criticality == Criticality.SHEDDABLE && triedServers.isEmpty() && upstream.isSaturated(servers)) {
+        logger.debug("upstream {} is saturated, shedding request {}", upstreamName, request.getUrl());
+        recordTrace();
+        return completedFuture(getShedResponse(request, upstreamName));
+      }
       balancedRequest = getBalancedRequest(request);
       if (!isServerAvailable()) {
+        recordTrace();
         return completedFuture(getServerNotAvailableResponse(request, upstreamName));
       }
-      context = new RequestContext(upstreamName, currentServer.getDatacenter());
+      context = new RequestContext(upstreamName, currentServer.getDatacenter(), trace);
+      upstream.startRequest();
+      inFlight = true;
     }
 
     return requestExecutor.executeRequest(balancedRequest, triedServers.size(), context)
-        .whenComplete((wrapper, throwable) -> finishRequest(wrapper))
+        .whenComplete((wrapper, throwable) -> {
+          if (wrapper == null) {
+            finishRequest(null, WARM_UP_DEFAULT_TIME_MICROS, null);
+          } else if (!wrapper.isBodyStreamed()) {
+            finishRequest(wrapper, wrapper.getTimeToLastByteMicros(), null);
+          } else {
+            // streamed body is read after the response is returned, the server is busy until then
+            wrapper.getBodyCompletion().whenComplete((timeToLastByteMicros, bodyFailure) ->
+                finishRequest(wrapper, bodyFailure == null ? timeToLastByteMicros : wrapper.getTimeToLastByteMicros(), bodyFailure));
+          }
+        })
         .thenCompose(this::unwrapOrRetry);
   }
 
@@ -101,6 +141,9 @@ public class RequestBalancer implements RequestEngine {
     countStatistics(wrapper, doRetry);
     Response response = wrapper.getResponse();
     if (doRetry) {
+      if (trace != null) {
+        trace.retry("status " + response.getStatusCode());
+      }
       if (triedServers.isEmpty()) {
         firstStatusCode = response.getStatusCode();
       }
@@ -110,9 +153,16 @@ public class RequestBalancer implements RequestEngine {
       }
       return execute();
     }
+    recordTrace();
     return completedFuture(response);
   }
 
+  private void recordTrace() {
+    if (trace != null) {
+      tracer.record(trace);
+    }
+  }
+
   private void countStatistics(ResponseWrapper wrapper, boolean doRetry) {
     Set<Monitoring> monitoringSet = upstreamManager.getMonitoring();
     for (Monitoring monitoring : monitoringSet) {
@@ -147,6 +197,13 @@ public class RequestBalancer implements RequestEngine {
     );
   }
 
+  private static Response getShedResponse(Request request, String upstreamName) {
+    Uri uri = request.getUri();
+    return ResponseConverterUtils.convert(
+        new MappedTransportErrorResponse(SERVICE_UNAVAILABLE, "Sheddable request rejected, upstream is saturated: " + upstreamName, uri)
+    );
+  }
+
   private Request getBalancedRequest(Request request) {
     if (adaptive && !adaptiveFailed) {
       try {
@@ -159,12 +216,15 @@ public class RequestBalancer implements RequestEngine {
     } else {
       currentServer = upstream.acquireServer(triedServers, servers);
     }
+    if (trace != null) {
+      trace.startAttempt(servers, currentServer);
+    }
     if (currentServer == null) {
       return request;
     }
 
     int requestTimeout = request.getRequestTimeout() > 0 ? request.getRequestTimeout()
-        : upstream.getConfig().getRequestTimeoutMs();
+        : getUpstreamRequestTimeoutMs();
 
     RequestBuilder requestBuilder = new RequestBuilder(request);
     requestBuilder.setUrl(getBalancedUrl(request, currentServer.getAddress()));
@@ -172,26 +232,95 @@ public class RequestBalancer implements RequestEngine {
     return requestBuilder.build();
   }
 
+  private int getUpstreamRequestTimeoutMs() {
+    if (config.getAdaptiveTimeoutPercentile() <= 0) {
+      return config.getRequestTimeoutMs();
+    }
+    long percentileMicros = upstream.getAdaptiveTimeout().getPercentileMicros();
+    if (percentileMicros < 0) {
+      return config.getRequestTimeoutMs();
+    }
+    long timeoutMs = Math.round(percentileMicros / 1000.0 * config.getAdaptiveTimeoutFactor());
+    timeoutMs = Math.max(config.getAdaptiveTimeoutMinMs(), Math.min(config.getAdaptiveTimeoutMaxMs(), timeoutMs));
+    if (requestTimeLeftMs > 0) {
+      timeoutMs = Math.min(requestTimeLeftMs, timeoutMs);
+    }
+    for (Monitoring monitoring : upstreamManager.getMonitoring()) {
+      monitoring.countAdaptiveTimeout(upstreamName, currentServer.getDatacenter(), timeoutMs);
+    }
+    return (int) timeoutMs;
+  }
+
   private ServerEntry acquireAdaptiveServer() {
     if (serverEntryIterator == null) {
-      List<ServerEntry> entries = upstream.acquireAdaptiveServers(maxTries, servers);
+      List<ServerEntry> entries = upstream.acquireAdaptiveServers(maxTries, servers, trace);
       serverEntryIterator = entries.iterator();
     }
 
-    return serverEntryIterator.next();
+    // servers are exhausted or all of them asked to back off
+    return serverEntryIterator.hasNext() ? serverEntryIterator.next() : null;
   }
 
-  private void finishRequest(ResponseWrapper wrapper) {
-    long timeToLastByteMicros = WARM_UP_DEFAULT_TIME_MICROS;
+  /**
+   * @param bodyFailure failure to read a streamed body, the response itself is received
+   */
+  private void finishRequest(@Nullable ResponseWrapper wrapper, long timeToLastByteMicros, @Nullable Throwable bodyFailure) {
+    if (inFlight) {
+      upstream.finishRequest();
+      inFlight = false;
+    }
     if (wrapper != null) {
-      timeToLastByteMicros = wrapper.getTimeToLastByteMicros();
       updateLeftTriesAndTime((int) timeToLastByteMicros);
     }
+    if (trace != null) {
+      if (wrapper != null) {
+        trace.finishAttempt(wrapper.getResponse().getStatusCode(), timeToLastByteMicros);
+      } else {
+        trace.finishAttempt(-1, -1);
+        recordTrace();
+      }
+    }
 
     if (isServerAvailable()) {
-      boolean isError = wrapper != null && upstream.getConfig().getRetryPolicy().isServerError(wrapper.getResponse());
+      // time of a timed out attempt is the timeout itself, recording it would keep the percentile at the current timeout
+      if (wrapper != null && bodyFailure == null && config.getAdaptiveTimeoutPercentile() > 0
+          && wrapper.getResponse().getStatusCode() < INTERNAL_SERVER_ERROR) {
+        upstream.getAdaptiveTimeout().record(timeToLastByteMicros, config.getAdaptiveTimeoutPercentile());
+      }
+      boolean isError = wrapper != null && (isBodyError(bodyFailure) || config.getRetryPolicy().isServerError(wrapper.getResponse()));
       upstream.releaseServer(currentServer.getIndex(), isError, timeToLastByteMicros,
               adaptive && !adaptiveFailed, servers);
+      Server server = servers.get(currentServer.getIndex());
+      if (wrapper != null && server != null) {
+        if (config.getLoadReportHeader() != null) {
+          reportLoad(server, wrapper.getResponse(), config.getLoadReportHeader());
+        }
+        int statusCode = wrapper.getResponse().getStatusCode();
+        if (statusCode == SERVICE_UNAVAILABLE || statusCode == TOO_MANY_REQUESTS) {
+          long delayMs = RetryAfter.parseDelayMs(wrapper.getResponse().getHeader(RetryAfter.HEADER), System.currentTimeMillis());
+          if (delayMs > 0) {
+            server.backoff(delayMs);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isBodyError(@Nullable Throwable bodyFailure) {
+    Throwable cause = bodyFailure instanceof CompletionException && bodyFailure.getCause() != null ? bodyFailure.getCause() : bodyFailure;
+    // reading cancelled by the caller is not a failure of the server
+    return cause != null && !(cause instanceof CancellationException);
+  }
+
+  private static void reportLoad(Server server, Response response, String loadReportHeader) {
+    String value = response.getHeader(loadReportHeader);
+    if (value == null) {
+      return;
+    }
+    try {
+      server.reportLoad(Double.parseDouble(value.trim()));
+    } catch (NumberFormatException e) {
+      logger.debug("failed to parse load report {}: {} from {}", loadReportHeader, value, server);
     }
   }
 
@@ -211,7 +340,8 @@ public class RequestBalancer implements RequestEngine {
       return false;
     }
     boolean isIdempotent = forceIdempotence || !HTTP_POST.equals(request.getMethod());
-    return upstream.getConfig().getRetryPolicy().isRetriable(response, isIdempotent);
+    return config.getRetryPolicy().isRetriable(response, isIdempotent) && !upstream.isMostServersBackedOff(servers)
+        && (criticality == Criticality.CRITICAL || !upstream.isSaturated(servers));
   }
 
   private boolean isServerAvailable() {
@@ -1,11 +1,13 @@
 package ru.hh.jclient.common.balancing;
 
+import ru.hh.jclient.common.Criticality;
 import ru.hh.jclient.common.HttpClient;
 import ru.hh.jclient.common.Request;
 import ru.hh.jclient.common.RequestEngineBuilder;
 import ru.hh.jclient.common.RequestStrategy;
 
 import java.util.List;
+import java.util.Map;
 
 public class RequestBalancerBuilder implements RequestEngineBuilder {
 
@@ -24,8 +26,12 @@ public class RequestBalancerBuilder implements RequestEngineBuilder {
 
   @Override
   public RequestBalancer build(Request request, RequestStrategy.RequestExecutor requestExecutor) {
-    List<Server> servers = upstreamManager.getServersForService(request.getUri().getHost());
-    return new RequestBalancer(request, upstreamManager, requestExecutor, maxTimeoutTries, servers, forceIdempotence, adaptive, profile);
+    String host = request.getUri().getHost();
+    List<Server> servers = upstreamManager.getServersForService(host);
+    UpstreamRoute route = upstreamManager.getRoute(host, profile);
+    Criticality criticality = Criticality.of(request, httpClient != null ? httpClient.getContext().getHeaders() : Map.of());
+    return new RequestBalancer(request, upstreamManager, requestExecutor, maxTimeoutTries, servers, forceIdempotence, adaptive, route,
+        criticality);
   }
 
   @Override
@@ -33,6 +39,11 @@ public class RequestBalancerBuilder implements RequestEngineBuilder {
     return httpClient;
   }
 
+  @Override
+  public String getSettingsKey() {
+    return "maxTimeoutTries=" + maxTimeoutTries + ", forceIdempotence=" + forceIdempotence + ", adaptive=" + adaptive + ", profile=" + profile;
+  }
+
   public RequestBalancerBuilder withMaxTimeoutTries(int maxTimeoutTries) {
     this.maxTimeoutTries = maxTimeoutTries;
     return this;
@@ -1,5 +1,7 @@
 package ru.hh.jclient.common.balancing;
 
+import java.util.Arrays;
+
 public class ResponseTimeTracker {
   private final long[] times;
   private final int n;
@@ -22,6 +24,13 @@ public class ResponseTimeTracker {
     current = (current + 1) % n;
   }
 
+  synchronized void seed(long time) {
+    Arrays.fill(times, time);
+    total = time * n;
+    current = 0;
+    isWarmUp = false;
+  }
+
   public long mean() {
     return total / n;
   }
@@ -0,0 +1,42 @@
+package ru.hh.jclient.common.balancing;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser of Retry-After header value (RFC 7231, section 7.1.3): either delay in seconds or HTTP-date.
+ */
+final class RetryAfter {
+  static final String HEADER = "Retry-After";
+  static final long MAX_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * @return delay in milliseconds limited by {@link #MAX_DELAY_MS} or -1 if value is missing or malformed
+   */
+  static long parseDelayMs(String value, long nowMillis) {
+    if (value == null || value.isBlank()) {
+      return -1;
+    }
+    String trimmed = value.trim();
+    long delayMs;
+    if (Character.isDigit(trimmed.charAt(0))) {
+      try {
+        delayMs = TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    } else {
+      try {
+        delayMs = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - nowMillis;
+      } catch (DateTimeParseException e) {
+        return -1;
+      }
+    }
+    return Math.min(Math.max(delayMs, 0), MAX_DELAY_MS);
+  }
+
+  private RetryAfter() {
+  }
+}
@@ -22,9 +22,11 @@ public final class Server {
   private volatile int requests = 0;
   private volatile int fails = 0;
   private volatile int statsRequests = 0;
+  private volatile long backoffUntilNanos = System.nanoTime();
 
   private final DowntimeDetector downtimeDetector;
   private final ResponseTimeTracker responseTimeTracker;
+  private final LoadTracker loadTracker;
 
   public Server(String address, int weight, String datacenter) {
     this.address = requireNonNull(address, "address should not be null");
@@ -33,6 +35,7 @@ public final class Server {
 
     this.downtimeDetector = new DowntimeDetector(DOWNTIME_DETECTOR_WINDOW);
     this.responseTimeTracker = new ResponseTimeTracker(RESPONSE_TIME_TRACKER_WINDOW);
+    this.loadTracker = new LoadTracker(LoadTracker.DEFAULT_DECAY_NANOS);
   }
 
   public static String addressFromHostPort(String host, int port) {
@@ -64,6 +67,25 @@ public final class Server {
     }
   }
 
+  /**
+   * Excludes server from balancing for the delay the server asked for (e.g. with Retry-After header).
+   */
+  void backoff(long delayMs) {
+    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+    if (until - backoffUntilNanos > 0) {
+      LOGGER.debug("backoff server: {} for {}ms", address, delayMs);
+      backoffUntilNanos = until;
+    }
+  }
+
+  public boolean isBackedOff(long nowNanos) {
+    return backoffUntilNanos - nowNanos > 0;
+  }
+
+  void reportLoad(double load) {
+    loadTracker.report(load, System.nanoTime());
+  }
+
   public void setAvailable(boolean available, ScheduledExecutorService executor) {
     if (available) {
       activate();
@@ -126,6 +148,10 @@ public final class Server {
     return responseTimeTracker;
   }
 
+  public LoadTracker getLoadTracker() {
+    return loadTracker;
+  }
+
   @Override
   public String toString() {
     return address + " (weight=" + weight + ", datacenter=" + datacenter + ")";
@@ -0,0 +1,138 @@
+package ru.hh.jclient.common.balancing;
+
+import static java.util.Objects.requireNonNull;
+import static ru.hh.jclient.common.balancing.AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps adaptive balancer statistics of servers in a local file, so that after restart servers with the same addresses
+ * do not have to pass through warm up again.
+ * Saved failures are decayed linearly with the age of the checkpoint, checkpoints older than maxAgeMs are ignored.
+ */
+public class ServerStatsStorage {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServerStatsStorage.class);
+  private static final String VERSION = "v1";
+  private static final String SEPARATOR = "\t";
+
+  private final Path file;
+  private final long checkpointIntervalMs;
+  private final long maxAgeMs;
+  private final Map<String, SavedStats> savedStats = new ConcurrentHashMap<>();
+  private volatile long savedAtMs;
+
+  public ServerStatsStorage(Path file, long checkpointIntervalMs, long maxAgeMs) {
+    this.file = requireNonNull(file, "file must not be null");
+    this.checkpointIntervalMs = checkpointIntervalMs;
+    this.maxAgeMs = maxAgeMs;
+    load();
+  }
+
+  public long getCheckpointIntervalMs() {
+    return checkpointIntervalMs;
+  }
+
+  /**
+   * Seeds statistics of a newly discovered server if the checkpoint contains the same upstream and address and is not stale.
+   * Every saved entry is used at most once.
+   */
+  public void restore(String upstreamName, Server server) {
+    SavedStats stats = savedStats.remove(toKey(upstreamName, server.getAddress()));
+    if (stats == null) {
+      return;
+    }
+    long ageMs = System.currentTimeMillis() - savedAtMs;
+    if (ageMs < 0 || ageMs > maxAgeMs) {
+      return;
+    }
+
+    double decay = 1 - (double) ageMs / maxAgeMs;
+    server.getDowntimeDetector().seed((int) Math.round(stats.failedCount * decay));
+    if (stats.meanTimeMicros > 0) {
+      server.getResponseTimeTracker().seed(stats.meanTimeMicros);
+    }
+    LOGGER.debug("restored stats for {} of {}: mean:{}, failed:{}", server, upstreamName, stats.meanTimeMicros, stats.failedCount);
+  }
+
+  public void save(Map<String, ? extends Collection<Server>> serversByUpstream) {
+    List<String> lines = new ArrayList<>();
+    lines.add(VERSION + SEPARATOR + System.currentTimeMillis());
+    serversByUpstream.forEach((upstreamName, servers) -> {
+      for (Server server : servers) {
+        if (server == null) {
+          continue;
+        }
+        ResponseTimeTracker tracker = server.getResponseTimeTracker();
+        long meanTimeMicros = tracker.isWarmUp() ? 0 : tracker.mean();
+        int failedCount = DOWNTIME_DETECTOR_WINDOW - server.getDowntimeDetector().successCount();
+        lines.add(String.join(SEPARATOR, upstreamName, server.getAddress(), Long.toString(meanTimeMicros), Integer.toString(failedCount)));
+      }
+    });
+
+    try {
+      Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(tmpFile, lines, StandardCharsets.UTF_8);
+      Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("failed to save server stats to {}", file, e);
+    }
+  }
+
+  private void load() {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      return;
+    } catch (IOException e) {
+      LOGGER.warn("failed to read server stats from {}", file, e);
+      return;
+    }
+
+    try {
+      String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split(SEPARATOR);
+      if (header.length != 2 || !VERSION.equals(header[0])) {
+        LOGGER.warn("unknown format of server stats file {}, ignoring", file);
+        return;
+      }
+      savedAtMs = Long.parseLong(header[1]);
+      for (String line : lines.subList(1, lines.size())) {
+        String[] parts = line.split(SEPARATOR);
+        if (parts.length != 4) {
+          continue;
+        }
+        savedStats.put(toKey(parts[0], parts[1]), new SavedStats(Long.parseLong(parts[2]), Integer.parseInt(parts[3])));
+      }
+      LOGGER.info("loaded stats of {} servers from {}", savedStats.size(), file);
+    } catch (RuntimeException e) {
+      LOGGER.warn("failed to parse server stats from {}", file, e);
+      savedStats.clear();
+    }
+  }
+
+  private static String toKey(String upstreamName, String address) {
+    return upstreamName + SEPARATOR + address;
+  }
+
+  private static final class SavedStats {
+    final long meanTimeMicros;
+    final int failedCount;
+
+    SavedStats(long meanTimeMicros, int failedCount) {
+      this.meanTimeMicros = meanTimeMicros;
+      this.failedCount = failedCount;
+    }
+  }
+}
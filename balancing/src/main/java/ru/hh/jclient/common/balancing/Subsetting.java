@@ -0,0 +1,75 @@
+package ru.hh.jclient.common.balancing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic subsetting (see "Site Reliability Engineering", chapter 20): clients are split into rounds,
+ * in every round servers are ordered in a round specific way and cut into subsets of subsetSize,
+ * each client of the round takes its own subset. Subsets are chosen per datacenter.
+ * Servers are ordered by a hash of their address instead of shuffling positions, so adding or removing a server
+ * changes at most one server of each subset unless the number of subsets changes.
+ */
+final class Subsetting {
+
+  /**
+   * @return list of the same size as servers where servers outside of the client subset are replaced with null,
+   * so that server indexes stay valid
+   */
+  static List<Server> getSubset(List<Server> servers, int clientId, int subsetSize) {
+    if (subsetSize <= 0 || servers.size() <= subsetSize) {
+      return servers;
+    }
+
+    Map<String, List<Integer>> indexesByDatacenter = new HashMap<>();
+    for (int index = 0; index < servers.size(); index++) {
+      Server server = servers.get(index);
+      if (server != null) {
+        indexesByDatacenter.computeIfAbsent(server.getDatacenter(), dc -> new ArrayList<>()).add(index);
+      }
+    }
+
+    Server[] subset = new Server[servers.size()];
+    for (List<Integer> indexes : indexesByDatacenter.values()) {
+      for (int index : pickSubset(servers, indexes, clientId, subsetSize)) {
+        subset[index] = servers.get(index);
+      }
+    }
+    return Collections.unmodifiableList(Arrays.asList(subset));
+  }
+
+  private static List<Integer> pickSubset(List<Server> servers, List<Integer> indexes, int clientId, int subsetSize) {
+    if (indexes.size() <= subsetSize) {
+      return indexes;
+    }
+
+    int subsetCount = indexes.size() / subsetSize;
+    int round = clientId / subsetCount;
+    int subsetId = clientId % subsetCount;
+
+    List<Integer> ordered = new ArrayList<>(indexes);
+    ordered.sort(Comparator.<Integer>comparingLong(index -> rank(servers.get(index).getAddress(), round))
+        .thenComparing(index -> servers.get(index).getAddress()));
+    int start = subsetId * subsetSize;
+    return ordered.subList(start, start + subsetSize);
+  }
+
+  private static long rank(String address, int round) {
+    // String.hashCode is specified, so all clients get the same order
+    long h = ((long) round << 32) ^ (address.hashCode() & 0xFFFFFFFFL);
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private Subsetting() {
+  }
+}
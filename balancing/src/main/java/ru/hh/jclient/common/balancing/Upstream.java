@@ -1,7 +1,11 @@
 package ru.hh.jclient.common.balancing;
 
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static ru.hh.jclient.common.balancing.AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW;
 import static ru.hh.jclient.common.balancing.BalancingStrategy.getLeastLoadedServer;
 
 import javax.annotation.Nullable;
@@ -10,20 +14,31 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class Upstream {
+  private static final Logger LOGGER = LoggerFactory.getLogger(Upstream.class);
+  private static final double SHEDDING_THRESHOLD = 0.9;
+
   private final UpstreamKey upstreamKey;
   private final UpstreamConfig upstreamConfig;
   private final ScheduledExecutorService scheduledExecutor;
   private final String datacenter;
   private final boolean allowCrossDCRequests;
   private final boolean enabled;
+  @Nullable
+  private final Integer subsettingClientId;
+  private volatile ServersSubset serversSubset;
+  private volatile LongUnaryOperator random = AdaptiveBalancingStrategy.DEFAULT_RANDOM;
+  private final AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+  private final AtomicInteger requestsInFlight = new AtomicInteger();
 
   private final ReadWriteLock configReadWriteLock = new ReentrantReadWriteLock();
   private final Lock configWriteLock = configReadWriteLock.writeLock();
@@ -39,18 +54,34 @@ public class Upstream {
            String datacenter,
            boolean allowCrossDCRequests,
            boolean enabled) {
+    this(upstreamKey, upstreamConfig, scheduledExecutor, datacenter, allowCrossDCRequests, enabled, null);
+  }
+
+  Upstream(UpstreamKey upstreamKey,
+           UpstreamConfig upstreamConfig,
+           ScheduledExecutorService scheduledExecutor,
+           String datacenter,
+           boolean allowCrossDCRequests,
+           boolean enabled,
+           @Nullable Integer subsettingClientId) {
     this.upstreamKey = upstreamKey;
     this.upstreamConfig = upstreamConfig;
     this.scheduledExecutor = scheduledExecutor;
     this.datacenter = datacenter;
     this.allowCrossDCRequests = allowCrossDCRequests;
     this.enabled = enabled;
+    this.subsettingClientId = subsettingClientId;
   }
 
   ServerEntry acquireServer(Set<Integer> excludedServers, List<Server> servers) {
     configReadLock.lock();
     try {
-      int index = getLeastLoadedServer(servers, excludedServers, datacenter, allowCrossDCRequests);
+      List<Server> subset = getSubset(servers);
+      boolean spillover = isSpillover(subset);
+      int index = getLeastLoadedServer(subset, excludedServers, datacenter, allowCrossDCRequests, spillover);
+      if (index < 0 && subset != servers) {
+        index = getLeastLoadedServer(servers, excludedServers, datacenter, allowCrossDCRequests, spillover);
+      }
       if (index >= 0) {
         Server server = servers.get(index);
         server.acquire();
@@ -63,20 +94,37 @@ public class Upstream {
   }
 
   List<ServerEntry> acquireAdaptiveServers(int retriesCount,  List<Server> servers) {
+    return acquireAdaptiveServers(retriesCount, servers, null);
+  }
+
+  List<ServerEntry> acquireAdaptiveServers(int retriesCount, List<Server> servers, @Nullable BalancingTrace trace) {
     configReadLock.lock();
     try {
+      List<Server> subset = getSubset(servers);
       List<Server> allowedServers = new ArrayList<>();
       List<Integer> allowedIds = new ArrayList<>();
-      for (int i = 0; i < servers.size(); i++) {
-        Server server = servers.get(i);
-        if (server != null && (allowCrossDCRequests || Objects.equals(datacenter, server.getDatacenter()))) {
+      long now = System.nanoTime();
+      boolean spillover = isSpillover(subset);
+      for (int i = 0; i < subset.size(); i++) {
+        Server server = subset.get(i);
+        if (server != null && !server.isBackedOff(now) && Objects.equals(datacenter, server.getDatacenter()) != spillover) {
           allowedIds.add(i);
           allowedServers.add(server);
         }
       }
+      if (allowedServers.isEmpty() && allowCrossDCRequests) {
+        // preferred datacenter has no servers, fall back to all of them
+        for (int i = 0; i < subset.size(); i++) {
+          Server server = subset.get(i);
+          if (server != null && !server.isBackedOff(now)) {
+            allowedIds.add(i);
+            allowedServers.add(server);
+          }
+        }
+      }
 
       return AdaptiveBalancingStrategy
-          .getServers(allowedServers, retriesCount)
+          .getServers(allowedServers, retriesCount, random, trace)
           .stream()
           .map(id -> {
             Server server = allowedServers.get(id);
@@ -88,6 +136,84 @@ public class Upstream {
     }
   }
 
+  void startRequest() {
+    requestsInFlight.incrementAndGet();
+  }
+
+  void finishRequest() {
+    requestsInFlight.decrementAndGet();
+  }
+
+  /**
+   * Upstream with {@link UpstreamConfig#getMaxInFlight()} set is saturated when requests in flight are close to the limit
+   * or when most servers of the client subset are unhealthy: deactivated or failing most of the recent requests.
+   * Both signals are maintained by static and adaptive balancing alike.
+   */
+  boolean isSaturated(List<Server> servers) {
+    configReadLock.lock();
+    try {
+      int maxInFlight = upstreamConfig.getMaxInFlight();
+      if (maxInFlight <= 0) {
+        return false;
+      }
+      if (requestsInFlight.get() >= maxInFlight * SHEDDING_THRESHOLD) {
+        return true;
+      }
+      int total = 0;
+      int unhealthy = 0;
+      for (Server server : getSubset(servers)) {
+        if (server != null) {
+          total++;
+          if (!server.isActive() || server.getDowntimeDetector().successCount() * 2 < DOWNTIME_DETECTOR_WINDOW) {
+            unhealthy++;
+          }
+        }
+      }
+      return unhealthy * 2 > total;
+    } finally {
+      configReadLock.unlock();
+    }
+  }
+
+  /**
+   * @return true if more than half of active servers of the client subset asked to back off
+   */
+  boolean isMostServersBackedOff(List<Server> servers) {
+    configReadLock.lock();
+    try {
+      long now = System.nanoTime();
+      int active = 0;
+      int backedOff = 0;
+      for (Server server : getSubset(servers)) {
+        if (server != null && server.isActive()) {
+          active++;
+          if (server.isBackedOff(now)) {
+            backedOff++;
+          }
+        }
+      }
+      if (backedOff * 2 > active) {
+        LOGGER.debug("most servers of upstream {} asked to back off", getName());
+        return true;
+      }
+      return false;
+    } finally {
+      configReadLock.unlock();
+    }
+  }
+
+  /**
+   * Decides whether the current request should be sent to another datacenter, see {@link CrossDCSpillover}.
+   */
+  private boolean isSpillover(List<Server> servers) {
+    if (!allowCrossDCRequests) {
+      return false;
+    }
+    double share = CrossDCSpillover.getRemoteShare(servers, datacenter, upstreamConfig.getCrossDCHealthThreshold(),
+        upstreamConfig.getCrossDCLoadThreshold(), System.nanoTime());
+    return share > 0 && random.applyAsLong(CrossDCSpillover.SHARE_PRECISION) < share * CrossDCSpillover.SHARE_PRECISION;
+  }
+
   ServerEntry acquireServer(List<Server> servers) {
     return acquireServer(Set.of(), servers);
   }
@@ -117,7 +243,7 @@ public class Upstream {
       }
 
       if (!adaptive) {
-        rescale(servers);
+        rescale(getSubset(servers));
       }
     } finally {
       configReadLock.unlock();
@@ -141,6 +267,19 @@ public class Upstream {
     }
   }
 
+  private List<Server> getSubset(List<Server> servers) {
+    int subsetSize = upstreamConfig.getSubsetSize();
+    if (subsettingClientId == null || subsetSize <= 0) {
+      return servers;
+    }
+    ServersSubset current = serversSubset;
+    if (current == null || current.servers != servers || current.subsetSize != subsetSize) {
+      current = new ServersSubset(servers, subsetSize, Subsetting.getSubset(servers, subsettingClientId, subsetSize));
+      serversSubset = current;
+    }
+    return current.subset;
+  }
+
   void updateConfig(UpstreamConfig newConfig) {
     configWriteLock.lock();
     try {
@@ -150,6 +289,15 @@ public class Upstream {
     }
   }
 
+  @VisibleForTesting
+  void setRandom(LongUnaryOperator random) {
+    this.random = requireNonNull(random, "random must not be null");
+  }
+
+  AdaptiveTimeout getAdaptiveTimeout() {
+    return adaptiveTimeout;
+  }
+
   String getName() {
     return upstreamKey.getWholeName();
   }
@@ -181,6 +329,18 @@ public class Upstream {
     });
   }
 
+  private static final class ServersSubset {
+    final List<Server> servers;
+    final int subsetSize;
+    final List<Server> subset;
+
+    ServersSubset(List<Server> servers, int subsetSize, List<Server> subset) {
+      this.servers = servers;
+      this.subsetSize = subsetSize;
+      this.subset = subset;
+    }
+  }
+
   public static final class UpstreamKey {
     private static final String SEP = ":";
     private final String serviceName;
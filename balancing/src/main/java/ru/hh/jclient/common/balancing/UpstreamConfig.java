@@ -16,6 +16,11 @@ public final class UpstreamConfig {
   static final int DEFAULT_FAIL_TIMEOUT_MS = 10;
   static final int DEFAULT_CONNECT_TIMEOUT_MS = 200;
   static final int DEFAULT_REQUEST_TIMEOUT_MS = 2_000;
+  static final int DEFAULT_SUBSET_SIZE = 0;
+  static final int DEFAULT_MAX_IN_FLIGHT = 0;
+  static final float DEFAULT_ADAPTIVE_TIMEOUT_PERCENTILE = 0;
+  static final float DEFAULT_ADAPTIVE_TIMEOUT_FACTOR = 2;
+  static final int DEFAULT_ADAPTIVE_TIMEOUT_MIN_MS = 50;
 
   private int maxTries;
   private int maxFails;
@@ -24,6 +29,15 @@ public final class UpstreamConfig {
   private int failTimeoutMs;
   private int connectTimeoutMs;
   private int requestTimeoutMs;
+  private int subsetSize;
+  private int maxInFlight;
+  private float crossDCHealthThreshold;
+  private float crossDCLoadThreshold;
+  private float adaptiveTimeoutPercentile;
+  private float adaptiveTimeoutFactor;
+  private int adaptiveTimeoutMinMs;
+  private int adaptiveTimeoutMaxMs;
+  private String loadReportHeader;
 
   private RetryPolicy retryPolicy = new RetryPolicy();
 
@@ -47,6 +61,20 @@ public final class UpstreamConfig {
       upstreamConfig.failTimeoutMs = parseAndConvertToMillisOrFallback(configMap.getValue("fail_timeout_sec"), DEFAULT_FAIL_TIMEOUT_MS);
       upstreamConfig.connectTimeoutMs = parseAndConvertToMillisOrFallback(configMap.getValue("connect_timeout_sec"), DEFAULT_CONNECT_TIMEOUT_MS);
       upstreamConfig.requestTimeoutMs = parseAndConvertToMillisOrFallback(configMap.getValue("request_timeout_sec"), DEFAULT_REQUEST_TIMEOUT_MS);
+      upstreamConfig.subsetSize = parseIntOrFallback(configMap.getValue("subset_size"), DEFAULT_SUBSET_SIZE);
+      upstreamConfig.maxInFlight = parseIntOrFallback(configMap.getValue("max_in_flight"), DEFAULT_MAX_IN_FLIGHT);
+      upstreamConfig.crossDCHealthThreshold = parseFloatOrFallback(configMap.getValue("cross_dc_health_threshold"),
+          CrossDCSpillover.DEFAULT_HEALTH_THRESHOLD);
+      upstreamConfig.crossDCLoadThreshold = parseFloatOrFallback(configMap.getValue("cross_dc_load_threshold"),
+          CrossDCSpillover.DEFAULT_LOAD_THRESHOLD);
+      upstreamConfig.adaptiveTimeoutPercentile = parseFloatOrFallback(configMap.getValue("adaptive_timeout_percentile"),
+          DEFAULT_ADAPTIVE_TIMEOUT_PERCENTILE);
+      upstreamConfig.adaptiveTimeoutFactor = parseFloatOrFallback(configMap.getValue("adaptive_timeout_factor"), DEFAULT_ADAPTIVE_TIMEOUT_FACTOR);
+      upstreamConfig.adaptiveTimeoutMinMs = parseAndConvertToMillisOrFallback(configMap.getValue("adaptive_timeout_min_sec"),
+          DEFAULT_ADAPTIVE_TIMEOUT_MIN_MS);
+      upstreamConfig.adaptiveTimeoutMaxMs = parseAndConvertToMillisOrFallback(configMap.getValue("adaptive_timeout_max_sec"),
+          upstreamConfig.requestTimeoutMs);
+      upstreamConfig.loadReportHeader = configMap.getValue("load_report_header");
 
       if (configMap.getValue("retry_policy") != null) {
         upstreamConfig.retryPolicy.update(configMap.getValue("retry_policy"));
@@ -67,6 +95,14 @@ public final class UpstreamConfig {
     upstreamConfig.failTimeoutMs = DEFAULT_FAIL_TIMEOUT_MS;
     upstreamConfig.connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
     upstreamConfig.requestTimeoutMs = DEFAULT_REQUEST_TIMEOUT_MS;
+    upstreamConfig.subsetSize = DEFAULT_SUBSET_SIZE;
+    upstreamConfig.maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    upstreamConfig.crossDCHealthThreshold = CrossDCSpillover.DEFAULT_HEALTH_THRESHOLD;
+    upstreamConfig.crossDCLoadThreshold = CrossDCSpillover.DEFAULT_LOAD_THRESHOLD;
+    upstreamConfig.adaptiveTimeoutPercentile = DEFAULT_ADAPTIVE_TIMEOUT_PERCENTILE;
+    upstreamConfig.adaptiveTimeoutFactor = DEFAULT_ADAPTIVE_TIMEOUT_FACTOR;
+    upstreamConfig.adaptiveTimeoutMinMs = DEFAULT_ADAPTIVE_TIMEOUT_MIN_MS;
+    upstreamConfig.adaptiveTimeoutMaxMs = DEFAULT_REQUEST_TIMEOUT_MS;
     return upstreamConfig;
   }
 
@@ -79,6 +115,15 @@ public final class UpstreamConfig {
     failTimeoutMs = newConfig.failTimeoutMs;
     connectTimeoutMs = newConfig.connectTimeoutMs;
     requestTimeoutMs = newConfig.requestTimeoutMs;
+    subsetSize = newConfig.subsetSize;
+    maxInFlight = newConfig.maxInFlight;
+    crossDCHealthThreshold = newConfig.crossDCHealthThreshold;
+    crossDCLoadThreshold = newConfig.crossDCLoadThreshold;
+    adaptiveTimeoutPercentile = newConfig.adaptiveTimeoutPercentile;
+    adaptiveTimeoutFactor = newConfig.adaptiveTimeoutFactor;
+    adaptiveTimeoutMinMs = newConfig.adaptiveTimeoutMinMs;
+    adaptiveTimeoutMaxMs = newConfig.adaptiveTimeoutMaxMs;
+    loadReportHeader = newConfig.loadReportHeader;
     retryPolicy = newConfig.retryPolicy;
 
   }
@@ -107,6 +152,59 @@ public final class UpstreamConfig {
     return requestTimeoutMs;
   }
 
+  int getSubsetSize() {
+    return subsetSize;
+  }
+
+  /**
+   * @return number of requests in flight to the whole upstream at which it is considered saturated and starts shedding
+   * sheddable requests and retries of non critical ones, zero disables shedding
+   */
+  int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * @return share of healthy local servers below which requests start to spill over to other datacenters
+   */
+  float getCrossDCHealthThreshold() {
+    return crossDCHealthThreshold;
+  }
+
+  /**
+   * @return requests in flight per weight unit of local servers above which requests start to spill over to other datacenters,
+   * zero disables load based spillover
+   */
+  float getCrossDCLoadThreshold() {
+    return crossDCLoadThreshold;
+  }
+
+  /**
+   * @return percentile of recent response times the request timeout is derived from, zero disables adaptive timeout
+   */
+  float getAdaptiveTimeoutPercentile() {
+    return adaptiveTimeoutPercentile;
+  }
+
+  float getAdaptiveTimeoutFactor() {
+    return adaptiveTimeoutFactor;
+  }
+
+  int getAdaptiveTimeoutMinMs() {
+    return adaptiveTimeoutMinMs;
+  }
+
+  int getAdaptiveTimeoutMaxMs() {
+    return adaptiveTimeoutMaxMs;
+  }
+
+  /**
+   * @return name of the response header where servers report their load or null if load feedback is disabled
+   */
+  String getLoadReportHeader() {
+    return loadReportHeader;
+  }
+
   public RetryPolicy getRetryPolicy() {
     return retryPolicy;
   }
@@ -119,6 +217,15 @@ public final class UpstreamConfig {
         + ", max_fails=" + maxFails
         + ", connect_timeout_ms=" + connectTimeoutMs
         + ", request_timeout_ms=" + requestTimeoutMs
+        + ", subset_size=" + subsetSize
+        + ", max_in_flight=" + maxInFlight
+        + ", cross_dc_health_threshold=" + crossDCHealthThreshold
+        + ", cross_dc_load_threshold=" + crossDCLoadThreshold
+        + ", adaptive_timeout_percentile=" + adaptiveTimeoutPercentile
+        + ", adaptive_timeout_factor=" + adaptiveTimeoutFactor
+        + ", adaptive_timeout_min_ms=" + adaptiveTimeoutMinMs
+        + ", adaptive_timeout_max_ms=" + adaptiveTimeoutMaxMs
+        + ", load_report_header=" + loadReportHeader
         + '}';
   }
 
@@ -126,6 +233,10 @@ public final class UpstreamConfig {
     return Optional.ofNullable(value).map(Integer::parseInt).orElse(defaultValue);
   }
 
+  private static float parseFloatOrFallback(String value, float defaultValue) {
+    return Optional.ofNullable(value).map(Float::parseFloat).orElse(defaultValue);
+  }
+
   private static int parseAndConvertToMillisOrFallback(String value, int defaultValue) {
     return Optional.ofNullable(value)
       .map(nonNullValue -> Math.round(Float.parseFloat(nonNullValue) * TimeUnit.SECONDS.toMillis(1)))
@@ -25,6 +25,10 @@ public class UpstreamGroup {
       .orElseThrow(noDefaultProfileExSupplier);
   }
 
+  Map<String, Upstream> getUpstreamsByProfile() {
+    return Map.copyOf(upstreamsByProfile);
+  }
+
   public boolean isEmpty() {
     return upstreamsByProfile.isEmpty();
   }
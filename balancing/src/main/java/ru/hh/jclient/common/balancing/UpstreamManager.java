@@ -11,6 +11,7 @@ import java.util.Set;
 
 public abstract class UpstreamManager {
   private double timeoutMultiplier = DEFAULT_TIMEOUT_MULTIPLIER;
+  private volatile BalancingTracer balancingTracer;
 
   public abstract List<Server> getServersForService(String upstreamName);
 
@@ -22,6 +23,12 @@ public abstract class UpstreamManager {
     return getUpstream(serviceName, null);
   }
 
+  @Nullable
+  UpstreamRoute getRoute(String host, @Nullable String profile) {
+    Upstream upstream = getUpstream(host, profile);
+    return upstream == null ? null : new UpstreamRoute(upstream);
+  }
+
   abstract Map<String, UpstreamGroup> getUpstreams();
 
   public abstract Set<Monitoring> getMonitoring();
@@ -33,4 +40,16 @@ public abstract class UpstreamManager {
   public void setTimeoutMultiplier(double timeoutMultiplier) {
     this.timeoutMultiplier = timeoutMultiplier;
   }
+
+  @Nullable
+  public BalancingTracer getBalancingTracer() {
+    return balancingTracer;
+  }
+
+  /**
+   * Enables tracing of balancing decisions for sampled requests, null disables it.
+   */
+  public void setBalancingTracer(@Nullable BalancingTracer balancingTracer) {
+    this.balancingTracer = balancingTracer;
+  }
 }
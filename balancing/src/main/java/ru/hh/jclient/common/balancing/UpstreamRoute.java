@@ -0,0 +1,23 @@
+package ru.hh.jclient.common.balancing;
+
+/**
+ * Resolved upstream of a host and profile together with its config, so that a request does not need to look them up
+ * (and take the config lock) again. Instances are immutable and are replaced as a whole on upstream updates.
+ */
+final class UpstreamRoute {
+  private final Upstream upstream;
+  private final UpstreamConfig config;
+
+  UpstreamRoute(Upstream upstream) {
+    this.upstream = upstream;
+    this.config = upstream.getConfig();
+  }
+
+  Upstream getUpstream() {
+    return upstream;
+  }
+
+  UpstreamConfig getConfig() {
+    return config;
+  }
+}
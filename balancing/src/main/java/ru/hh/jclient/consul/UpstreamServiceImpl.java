@@ -16,6 +16,9 @@ import com.orbitz.consul.option.QueryOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.hh.jclient.common.balancing.Server;
+import ru.hh.jclient.common.balancing.ServerStatsStorage;
+
+import javax.annotation.Nullable;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -25,9 +28,11 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
-public class UpstreamServiceImpl implements UpstreamService {
+public class UpstreamServiceImpl implements UpstreamService, AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(UpstreamServiceImpl.class);
 
   private final ServiceWeights defaultWeight;
@@ -41,6 +46,12 @@ public class UpstreamServiceImpl implements UpstreamService {
 
   private final int watchSeconds;
   private final boolean allowCrossDC;
+  @Nullable
+  private final ServerStatsStorage statsStorage;
+  @Nullable
+  private final ScheduledFuture<?> statsCheckpoint;
+  @Nullable
+  private final Thread statsShutdownHook;
   private Consumer<String> callback;
 
   private ConcurrentMap<String, List<Server>> serverList = new ConcurrentHashMap<>();
@@ -48,6 +59,12 @@ public class UpstreamServiceImpl implements UpstreamService {
 
   public UpstreamServiceImpl(List<String> upstreamList, List<String> datacenterList, Consul consulClient, ScheduledExecutorService scheduledExecutor,
                              int watchSeconds, String currentDC, String currentNode, boolean allowCrossDC) {
+    this(upstreamList, datacenterList, consulClient, scheduledExecutor, watchSeconds, currentDC, currentNode, allowCrossDC, null);
+  }
+
+  public UpstreamServiceImpl(List<String> upstreamList, List<String> datacenterList, Consul consulClient, ScheduledExecutorService scheduledExecutor,
+                             int watchSeconds, String currentDC, String currentNode, boolean allowCrossDC,
+                             @Nullable ServerStatsStorage statsStorage) {
     Preconditions.checkState(!upstreamList.isEmpty(), "UpstreamList can't be empty");
     Preconditions.checkState(!datacenterList.isEmpty(), "DatacenterList can't be empty");
 
@@ -60,6 +77,42 @@ public class UpstreamServiceImpl implements UpstreamService {
     this.allowCrossDC = allowCrossDC;
     this.watchSeconds = watchSeconds;
     this.defaultWeight = ImmutableServiceWeights.builder().passing(100).warning(10).build();
+    this.statsStorage = statsStorage;
+    if (statsStorage != null) {
+      long interval = statsStorage.getCheckpointIntervalMs();
+      this.statsCheckpoint = scheduledExecutor.scheduleWithFixedDelay(this::saveStats, interval, interval, TimeUnit.MILLISECONDS);
+      this.statsShutdownHook = new Thread(this::saveStats, "jclient-server-stats-saver");
+      Runtime.getRuntime().addShutdownHook(statsShutdownHook);
+    } else {
+      this.statsCheckpoint = null;
+      this.statsShutdownHook = null;
+    }
+  }
+
+  /**
+   * Stops periodic checkpoints of server stats, saves them one last time and unregisters the shutdown hook.
+   */
+  @Override
+  public void close() {
+    if (statsStorage == null) {
+      return;
+    }
+    statsCheckpoint.cancel(false);
+    try {
+      if (!Runtime.getRuntime().removeShutdownHook(statsShutdownHook)) {
+        return;
+      }
+    } catch (IllegalStateException e) {
+      // shutdown is in progress, the hook saves stats itself
+      return;
+    }
+    saveStats();
+  }
+
+  void saveStats() {
+    if (statsStorage != null) {
+      statsStorage.save(serverList);
+    }
   }
 
   @Override
@@ -131,6 +184,9 @@ public class UpstreamServiceImpl implements UpstreamService {
         server = new Server(address,
             service.getWeights().orElse(defaultWeight).getPassing(),
             nodeDatacenter);
+        if (statsStorage != null) {
+          statsStorage.restore(serviceName, server);
+        }
         server.setAvailable(!serviceFailed, scheduledExecutor);
       }
       serversFromUpdate.add(address);
@@ -49,6 +49,14 @@ public class StatsDMetricsConsumer implements MetricsConsumer {
         metricsProvider.numActiveNormalAllocations().get());
       statsDSender.sendGauge(getFullMetricName("async.client.numActiveHugeAllocations", nameTag),
         metricsProvider.numActiveHugeAllocations().get());
+      statsDSender.sendGauge(getFullMetricName("async.client.responseCache.hitCount", nameTag),
+        metricsProvider.responseCacheHitCount().get());
+      statsDSender.sendGauge(getFullMetricName("async.client.responseCache.staleHitCount", nameTag),
+        metricsProvider.responseCacheStaleHitCount().get());
+      statsDSender.sendGauge(getFullMetricName("async.client.responseCache.missCount", nameTag),
+        metricsProvider.responseCacheMissCount().get());
+      statsDSender.sendGauge(getFullMetricName("async.client.responseCache.evictionCount", nameTag),
+        metricsProvider.responseCacheEvictionCount().get());
     }, sendIntervalInSeconds);
 
     log.info("Successfully scheduled metrics sending");
@@ -14,6 +14,7 @@ import java.util.Map;
  * - http.client.requests
  * - http.client.request.time
  * - http.client.retries
+ * - http.client.adaptive.timeout
  */
 public class UpstreamMonitoring implements Monitoring {
   private final StatsDSender statsDSender;
@@ -51,6 +52,12 @@ public class UpstreamMonitoring implements Monitoring {
     statsDSender.sendCount("http.client.retries", 1, toTagsArray(tags));
   }
 
+  @Override
+  public void countAdaptiveTimeout(String upstreamName, String serverDatacenter, long timeoutMs) {
+    Map<String, String> tags = getCommonTags(serviceName, upstreamName, serverDatacenter);
+    statsDSender.sendTime("http.client.adaptive.timeout", timeoutMs, toTagsArray(tags));
+  }
+
   private static Map<String, String> getCommonTags(String serviceName, String upstreamName, String datacenter) {
     Map<String, String> tags = new HashMap<>();
     tags.put("app", serviceName);
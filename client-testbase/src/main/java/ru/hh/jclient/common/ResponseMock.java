@@ -1,8 +1,32 @@
 package ru.hh.jclient.common;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
 public class ResponseMock extends Response {
   private int status;
   private String statusText;
+  private Uri uri;
+  private final HttpHeaders headers = new HttpHeaders();
+  private byte[] body = new byte[0];
+  private byte[][] bodyParts = {body};
+
+  /**
+   * Returns response with status 200 and the body, which is received in one or more parts.
+   */
+  public static ResponseMock ok(String contentType, byte[]... bodyParts) {
+    ResponseMock response = new ResponseMock();
+    response.setStatusCode(200);
+    response.setHeader(javax.ws.rs.core.HttpHeaders.CONTENT_TYPE, contentType);
+    response.setResponseBodyParts(bodyParts);
+    return response;
+  }
 
   public void setStatusCode(int status) {
     this.status = status;
@@ -21,4 +45,86 @@ public class ResponseMock extends Response {
   public String getStatusText() {
     return statusText;
   }
+
+  public void setUri(Uri uri) {
+    this.uri = uri;
+  }
+
+  @Override
+  public Uri getUri() {
+    return uri;
+  }
+
+  public void setHeader(String name, String value) {
+    headers.set(name, value);
+  }
+
+  @Override
+  public String getHeader(String name) {
+    return headers.get(name);
+  }
+
+  @Override
+  public List<String> getHeaders(String name) {
+    return headers.getAll(name);
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    return headers;
+  }
+
+  @Override
+  public String getContentType() {
+    return headers.get(javax.ws.rs.core.HttpHeaders.CONTENT_TYPE);
+  }
+
+  public void setResponseBody(byte[] body) {
+    setResponseBodyParts(body);
+  }
+
+  /**
+   * Sets body that is received in parts, they are returned as separate buffers by {@link #getResponseBodyAsByteBuffers()}.
+   */
+  public void setResponseBodyParts(byte[]... parts) {
+    ByteBuffer joined = ByteBuffer.allocate(Arrays.stream(parts).mapToInt(part -> part.length).sum());
+    Arrays.stream(parts).forEach(joined::put);
+    this.body = joined.array();
+    this.bodyParts = parts;
+  }
+
+  @Override
+  public byte[] getResponseBodyAsBytes() {
+    return body.clone();
+  }
+
+  @Override
+  public ByteBuffer getResponseBodyAsByteBuffer() {
+    return ByteBuffer.wrap(body).asReadOnlyBuffer();
+  }
+
+  @Override
+  public ByteBuffer[] getResponseBodyAsByteBuffers() {
+    return Arrays.stream(bodyParts).map(part -> ByteBuffer.wrap(part).asReadOnlyBuffer()).toArray(ByteBuffer[]::new);
+  }
+
+  @Override
+  public InputStream getResponseBodyAsStream() {
+    return new ByteArrayInputStream(body);
+  }
+
+  @Override
+  public String getResponseBody(Charset charset) {
+    return new String(body, charset);
+  }
+
+  @Override
+  public String getResponseBody() {
+    return getResponseBody(UTF_8);
+  }
+
+  @Override
+  public boolean hasResponseBody() {
+    return body.length > 0;
+  }
 }
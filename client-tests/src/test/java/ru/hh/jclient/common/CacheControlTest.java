@@ -0,0 +1,49 @@
+package ru.hh.jclient.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CacheControlTest {
+
+  @Test
+  public void testDirectivesAreParsed() {
+    CacheControl cacheControl = CacheControl.parse(List.of("public, max-age=60", "No-Cache"));
+
+    assertTrue(cacheControl.isPublic());
+    assertTrue(cacheControl.isNoCache());
+    assertFalse(cacheControl.isPrivate());
+    assertFalse(cacheControl.isNoStore());
+    assertEquals(60, cacheControl.getSharedMaxAgeSeconds());
+  }
+
+  @Test
+  public void testSharedMaxAgeTakesPrecedence() {
+    assertEquals(10, CacheControl.parse(List.of("max-age=60, s-maxage=\"10\"")).getSharedMaxAgeSeconds());
+  }
+
+  @Test
+  public void testMalformedMaxAgeMeansStale() {
+    assertEquals(0, CacheControl.parse(List.of("max-age=soon")).getSharedMaxAgeSeconds());
+    assertEquals(0, CacheControl.parse(List.of("max-age=-5")).getSharedMaxAgeSeconds());
+  }
+
+  @Test
+  public void testMissingHeader() {
+    assertSame(CacheControl.EMPTY, CacheControl.parse(null));
+    assertEquals(-1, CacheControl.parse(List.of("private, no-store")).getSharedMaxAgeSeconds());
+  }
+
+  @Test
+  public void testStaleExtensions() {
+    CacheControl cacheControl = CacheControl.parse(List.of("max-age=1, stale-while-revalidate=30, stale-if-error=600"));
+
+    assertEquals(30, cacheControl.getStaleWhileRevalidateSeconds());
+    assertEquals(600, cacheControl.getStaleIfErrorSeconds());
+    assertEquals(0, CacheControl.parse(List.of("stale-if-error")).getStaleIfErrorSeconds());
+  }
+}
@@ -0,0 +1,345 @@
+package ru.hh.jclient.common;
+
+import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.CACHE_CONTROL;
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static com.google.common.net.HttpHeaders.VARY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static ru.hh.jclient.common.HttpStatuses.CONNECT_TIMEOUT_ERROR;
+import static ru.hh.jclient.common.HttpStatuses.INTERNAL_SERVER_ERROR;
+import static ru.hh.jclient.common.HttpStatuses.NOT_MODIFIED;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+import static ru.hh.jclient.common.HttpStatuses.SERVICE_UNAVAILABLE;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CachingRequestStrategyTest {
+  private static final String URL = "http://localhost/cached";
+  private static final String RESPONSE_ID = "X-Response-Id";
+
+  private final AtomicLong now = new AtomicLong(1_000_000);
+  private final List<Request> sentRequests = new ArrayList<>();
+  private final List<Response> responses = new ArrayList<>();
+  private final AtomicLong responseIds = new AtomicLong();
+  private ResponseCache cache;
+  private CachingRequestStrategy<?> strategy;
+  private HttpClient client;
+  private CompletableFuture<Response> pendingResponse;
+
+  @Before
+  public void setUp() {
+    cache = new ResponseCache(1024 * 1024);
+    strategy = new CachingRequestStrategy<>(new DefaultRequestStrategy(), cache, now::get);
+    client = mock(HttpClient.class);
+    when(client.getContext()).thenReturn(new HttpClientContext(Map.of(), Map.of(), List.of()));
+    when(client.getExpectedMediaTypes()).thenReturn(Optional.empty());
+    when(client.getExpectedMediaTypesForErrors()).thenReturn(Optional.empty());
+  }
+
+  @Test
+  public void testFreshResponseIsServedFromCache() {
+    Response response = response(OK, Map.of(CACHE_CONTROL, "max-age=10"));
+    responses.add(response);
+
+    assertSame(response, execute(get()));
+    now.addAndGet(9_000);
+    assertServedFrom(response, execute(get()));
+
+    assertEquals(1, sentRequests.size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testStaleResponseIsRevalidated() {
+    Response response = response(OK, Map.of(CACHE_CONTROL, "max-age=1", ETAG, "\"v1\""));
+    responses.add(response);
+    responses.add(response(NOT_MODIFIED, Map.of(CACHE_CONTROL, "max-age=1")));
+
+    execute(get());
+    now.addAndGet(2_000);
+
+    assertServedFrom(response, execute(get()));
+    assertEquals("\"v1\"", sentRequests.get(1).getHeaders().get(IF_NONE_MATCH));
+    assertEquals(1, cache.getHitCount());
+
+    assertServedFrom(response, execute(get()));
+    assertEquals(2, sentRequests.size());
+  }
+
+  @Test
+  public void testNotStorableResponses() {
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "private, max-age=10")));
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10", VARY, "*")));
+    responses.add(response(OK, Map.of()));
+
+    execute(get());
+    execute(get());
+    execute(get());
+
+    assertEquals(3, sentRequests.size());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testPersonalizedResponseIsStoredOnlyIfPublic() {
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10")));
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "public, max-age=10")));
+    Request request = new RequestBuilder("GET").setUrl(URL).setHeader(AUTHORIZATION, "token").build();
+
+    execute(request);
+    assertEquals(0, cache.size());
+
+    execute(request);
+    execute(request);
+    assertEquals(2, sentRequests.size());
+  }
+
+  @Test
+  public void testVaryHeaderIsMatched() {
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10", VARY, "Accept-Language")));
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10", VARY, "Accept-Language")));
+
+    execute(new RequestBuilder("GET").setUrl(URL).setHeader("Accept-Language", "ru").build());
+    execute(new RequestBuilder("GET").setUrl(URL).setHeader("Accept-Language", "ru").build());
+    execute(new RequestBuilder("GET").setUrl(URL).setHeader("Accept-Language", "en").build());
+
+    assertEquals(2, sentRequests.size());
+  }
+
+  @Test
+  public void testVariantsAreStoredSeparately() {
+    Response russian = response(OK, Map.of(CACHE_CONTROL, "max-age=10", VARY, "Accept-Language"));
+    Response english = response(OK, Map.of(CACHE_CONTROL, "max-age=10", VARY, "Accept-Language"));
+    responses.add(russian);
+    responses.add(english);
+
+    execute(withLanguage("ru"));
+    execute(withLanguage("en"));
+
+    assertServedFrom(russian, execute(withLanguage("ru")));
+    assertServedFrom(english, execute(withLanguage("en")));
+    assertEquals(2, sentRequests.size());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testEveryHitIsServedWithOwnResponse() throws IOException {
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10")));
+    execute(get());
+
+    Response first = execute(get());
+    Response second = execute(get());
+
+    assertNotSame(first, second);
+    assertEquals(100, first.getResponseBodyAsStream().readAllBytes().length);
+    assertEquals(100, second.getResponseBodyAsStream().readAllBytes().length);
+  }
+
+  @Test
+  public void testNonGetRequestsAreNotCached() {
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10")));
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10")));
+    Request request = new RequestBuilder("POST").setUrl(URL).build();
+
+    execute(request);
+    execute(request);
+
+    assertEquals(2, sentRequests.size());
+    assertEquals(0, cache.getMissCount());
+  }
+
+  @Test
+  public void testStaleResponseIsServedWhileRevalidating() {
+    Response stale = response(OK, Map.of(CACHE_CONTROL, "max-age=1, stale-while-revalidate=60"));
+    Response refreshed = response(OK, Map.of(CACHE_CONTROL, "max-age=1, stale-while-revalidate=60"));
+    responses.add(stale);
+    responses.add(refreshed);
+    execute(get());
+    now.addAndGet(2_000);
+
+    pendingResponse = new CompletableFuture<>();
+    assertServedFrom(stale, execute(get()));
+    assertServedFrom(stale, execute(get()));
+    assertEquals(2, sentRequests.size());
+
+    pendingResponse.complete(refreshed);
+    pendingResponse = null;
+    assertServedFrom(refreshed, execute(get()));
+    assertEquals(2, sentRequests.size());
+    assertEquals(2, cache.getStaleHitCount());
+  }
+
+  @Test
+  public void testFailedRefreshIsRateLimited() {
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=1, stale-while-revalidate=60")));
+    responses.add(response(SERVICE_UNAVAILABLE, Map.of()));
+    responses.add(response(SERVICE_UNAVAILABLE, Map.of()));
+    execute(get());
+    now.addAndGet(2_000);
+
+    execute(get());
+    execute(get());
+    assertEquals(2, sentRequests.size());
+
+    now.addAndGet(CachingRequestStrategy.MIN_REFRESH_INTERVAL_MS);
+    execute(get());
+    assertEquals(3, sentRequests.size());
+  }
+
+  @Test
+  public void testStaleResponseIsServedOnError() {
+    Response stale = response(OK, Map.of(CACHE_CONTROL, "max-age=1, stale-if-error=60"));
+    responses.add(stale);
+    responses.add(response(CONNECT_TIMEOUT_ERROR, Map.of()));
+    responses.add(response(INTERNAL_SERVER_ERROR, Map.of()));
+    execute(get());
+
+    now.addAndGet(2_000);
+    assertServedFrom(stale, execute(get()));
+
+    now.addAndGet(60_000);
+    assertEquals(INTERNAL_SERVER_ERROR, execute(get()).getStatusCode());
+    assertEquals(1, cache.getStaleHitCount());
+  }
+
+  @Test
+  public void testStaleResponseIsServedOnTransportFailure() {
+    Response stale = response(OK, Map.of(CACHE_CONTROL, "max-age=1, stale-if-error=60"));
+    responses.add(stale);
+    execute(get());
+    now.addAndGet(2_000);
+
+    pendingResponse = CompletableFuture.failedFuture(new IOException("connection reset"));
+    assertServedFrom(stale, execute(get()));
+  }
+
+  @Test
+  public void testBodyIsStoredOffHeap() {
+    OffHeapBodyStore bodyStore = new OffHeapBodyStore(1024 * 1024, 1024);
+    cache = new ResponseCache(1024 * 1024, bodyStore);
+    strategy = new CachingRequestStrategy<>(new DefaultRequestStrategy(), cache, now::get);
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10", ETAG, "\"v1\"")));
+
+    execute(get());
+    Response cached = execute(get());
+
+    assertEquals(StoredResponse.class, cached.getClass());
+    assertTrue(cached.getResponseBodyAsByteBuffer().isReadOnly());
+    assertEquals(100, cached.getResponseBodyAsBytes().length);
+    assertEquals("\"v1\"", cached.getHeader(ETAG));
+    assertEquals(128, bodyStore.getUsedBytes());
+
+    cache.invalidate(URL);
+    assertEquals(0, bodyStore.getUsedBytes());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testOffHeapBodyIsHeldUntilConverted() {
+    OffHeapBodyStore bodyStore = new OffHeapBodyStore(1024 * 1024, 1024);
+    cache = new ResponseCache(1024 * 1024, bodyStore);
+    strategy = new CachingRequestStrategy<>(new DefaultRequestStrategy(), cache, now::get);
+    responses.add(response(OK, Map.of(CACHE_CONTROL, "max-age=10")));
+    List<Runnable> releases = new ArrayList<>();
+    when(client.isReleasingBodyAfterConversion()).thenReturn(true);
+    doAnswer(invocation -> releases.add(invocation.getArgument(0))).when(client).addReceivedBody(any());
+
+    execute(get());
+    Response cached = execute(get());
+    cache.invalidate(URL);
+
+    assertEquals(1, releases.size());
+    assertEquals(128, bodyStore.getUsedBytes());
+    assertEquals(100, cached.getResponseBodyAsByteBuffer().remaining());
+    assertTrue(cached.getResponseBodyAsByteBuffer().isDirect());
+
+    releases.get(0).run();
+    assertEquals(0, bodyStore.getUsedBytes());
+    cached.getResponseBodyAsByteBuffer();
+  }
+
+  private static Request get() {
+    return new RequestBuilder("GET").setUrl(URL).build();
+  }
+
+  private static Request withLanguage(String language) {
+    return new RequestBuilder("GET").setUrl(URL).setHeader("Accept-Language", language).build();
+  }
+
+  private static void assertServedFrom(Response expected, Response actual) {
+    assertNotSame(expected, actual);
+    assertEquals(expected.getStatusCode(), actual.getStatusCode());
+    assertEquals(expected.getHeader(RESPONSE_ID), actual.getHeader(RESPONSE_ID));
+  }
+
+  private Response execute(Request request) {
+    return strategy.decorateEngine(client, request, r -> () -> {
+      sentRequests.add(r);
+      if (pendingResponse != null) {
+        return pendingResponse;
+      }
+      return CompletableFuture.completedFuture(responses.get(sentRequests.size() - 1));
+    }).execute().join();
+  }
+
+  private Response response(int status, Map<String, String> headers) {
+    HttpHeaders httpHeaders = new HttpHeaders();
+    headers.forEach(httpHeaders::add);
+    httpHeaders.add(RESPONSE_ID, String.valueOf(responseIds.incrementAndGet()));
+    return new ResponseMock() {
+      @Override
+      public int getStatusCode() {
+        return status;
+      }
+
+      @Override
+      public String getHeader(String name) {
+        return httpHeaders.get(name);
+      }
+
+      @Override
+      public List<String> getHeaders(String name) {
+        String value = httpHeaders.get(name);
+        return value == null ? Collections.emptyList() : List.of(value);
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return httpHeaders;
+      }
+
+      @Override
+      public byte[] getResponseBodyAsBytes() {
+        return new byte[100];
+      }
+
+      @Override
+      public Uri getUri() {
+        return null;
+      }
+
+      @Override
+      public List<Cookie> getCookies() {
+        return List.of();
+      }
+    };
+  }
+}
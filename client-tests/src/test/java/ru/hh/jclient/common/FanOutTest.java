@@ -0,0 +1,195 @@
+package ru.hh.jclient.common;
+
+import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.net.HttpHeaders;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.ListenableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import ru.hh.jclient.common.HttpClientImpl.CompletionHandler;
+import ru.hh.jclient.common.util.storage.SingletonStorage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class FanOutTest extends HttpClientTestBase {
+  private final List<CompletionHandler> handlers = new CopyOnWriteArrayList<>();
+  private AsyncHttpClient httpClient;
+
+  @Before
+  public void setUp() {
+    withEmptyContext();
+    httpClient = mock(AsyncHttpClient.class);
+    when(httpClient.getConfig()).thenReturn(new DefaultAsyncHttpClientConfig.Builder().build());
+    when(httpClient.executeRequest(isA(org.asynchttpclient.Request.class), isA(CompletionHandler.class))).then(iom -> {
+      CompletionHandler handler = iom.getArgument(1);
+      handlers.add(handler);
+      ListenableFuture<?> future = mock(ListenableFuture.class);
+      when(future.cancel(anyBoolean())).then(cancel -> {
+        handler.onThrowable(new CancellationException());
+        return true;
+      });
+      return future;
+    });
+    http = createHttpClientBuilder(httpClient);
+  }
+
+  @Test
+  public void testConcurrencyIsBounded() {
+    var results = http.fanOut(requests(5), HttpClient::expectPlainText).maxConcurrency(2).collect();
+
+    assertEquals(2, handlers.size());
+    handlers.get(0).onCompleted(response("0"));
+    assertEquals(3, handlers.size());
+    for (int i = 1; i < 5; i++) {
+      handlers.get(i).onCompleted(response(String.valueOf(i)));
+    }
+
+    List<String> values = results.join().stream()
+        .map(result -> result.getResult().flatMap(ResultWithStatus::get).orElseThrow())
+        .collect(Collectors.toList());
+    assertEquals(List.of("0", "1", "2", "3", "4"), values);
+  }
+
+  @Test
+  public void testFailureCancelsOtherRequests() {
+    var results = http.fanOut(requests(4), HttpClient::expectPlainText).maxConcurrency(2).collect();
+
+    handlers.get(0).onCompleted(response("0"));
+    handlers.get(1).onThrowable(new IllegalStateException("broken"));
+
+    List<FanOut.Result<String>> list = results.join();
+    assertEquals(3, handlers.size());
+    assertTrue(list.get(0).isCompleted());
+    assertTrue(list.get(1).getFailure().get() instanceof IllegalStateException);
+    assertTrue(list.get(2).isCancelled());
+    assertTrue(list.get(3).isCancelled());
+  }
+
+  @Test
+  public void testFailureIsReportedWithoutCancellation() {
+    var results = http.fanOut(requests(2), HttpClient::expectPlainText).cancelOnFailure(false).collect();
+
+    handlers.get(0).onThrowable(new IllegalStateException("broken"));
+    handlers.get(1).onCompleted(response("1"));
+
+    assertFalse(results.join().get(0).isCompleted());
+    assertTrue(results.join().get(1).isCompleted());
+  }
+
+  @Test
+  public void testDeadlineCancelsUnfinishedRequests() {
+    var results = http.fanOut(requests(3), HttpClient::expectPlainText).maxConcurrency(2).deadline(Duration.ofMillis(50)).collect();
+    handlers.get(0).onCompleted(response("0"));
+
+    List<FanOut.Result<String>> list = results.orTimeout(5, TimeUnit.SECONDS).join();
+    assertTrue(list.get(0).isCompleted());
+    assertTrue(list.get(1).isCancelled());
+    assertTrue(list.get(2).isCancelled());
+    assertEquals(3, handlers.size());
+  }
+
+  @Test
+  public void testDeadlineIsCancelledWhenAllRequestsFinish() {
+    var results = http.fanOut(requests(2), HttpClient::expectPlainText).deadline(Duration.ofHours(1)).collect();
+    assertEquals(1, FanOut.DEADLINES.getQueue().size());
+
+    handlers.get(0).onCompleted(response("0"));
+    handlers.get(1).onCompleted(response("1"));
+
+    assertTrue(results.join().stream().allMatch(FanOut.Result::isCompleted));
+    assertTrue(FanOut.DEADLINES.getQueue().isEmpty());
+  }
+
+  @Test
+  public void testDeadlineIsHandledOnCallbackExecutor() {
+    ExecutorService callbackExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "callback"));
+    http = new HttpClientFactory(httpClient, singleton("http://localhost"), new SingletonStorage<>(() -> httpClientContext),
+        callbackExecutor, new DefaultRequestStrategy(), List.of());
+    try {
+      var results = http.fanOut(requests(2), HttpClient::expectPlainText).deadline(Duration.ofMillis(200)).collect();
+      var completionThread = results.thenApply(list -> Thread.currentThread().getName());
+
+      assertEquals("callback", completionThread.orTimeout(5, TimeUnit.SECONDS).join());
+      assertTrue(results.join().stream().allMatch(FanOut.Result::isCancelled));
+    } finally {
+      callbackExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testResultsArePublishedAsTheyComplete() throws InterruptedException {
+    Flow.Publisher<FanOut.Result<String>> publisher = http.fanOut(requests(3), HttpClient::expectPlainText).publisher(Runnable::run);
+    ConcurrentLinkedQueue<Integer> indexes = new ConcurrentLinkedQueue<>();
+    CountDownLatch completed = new CountDownLatch(1);
+    publisher.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(FanOut.Result<String> item) {
+        indexes.add(item.getIndex());
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onComplete() {
+        completed.countDown();
+      }
+    });
+
+    handlers.get(2).onCompleted(response("2"));
+    handlers.get(0).onCompleted(response("0"));
+    handlers.get(1).onCompleted(response("1"));
+
+    assertTrue(completed.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of(2, 0, 1), new ArrayList<>(indexes));
+  }
+
+  private static List<Request> requests(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> new RequestBuilder("GET").setUrl("http://localhost/fanout/" + i).build())
+        .collect(Collectors.toList());
+  }
+
+  private static org.asynchttpclient.Response response(String text) {
+    byte[] data = text.getBytes(UTF_8);
+    org.asynchttpclient.Response response = mock(org.asynchttpclient.Response.class);
+    when(response.getStatusCode()).thenReturn(200);
+    when(response.getHeader(eq(HttpHeaders.CONTENT_TYPE))).thenReturn(PLAIN_TEXT_UTF_8.toString());
+    when(response.getResponseBodyAsStream()).thenReturn(new ByteArrayInputStream(data));
+    when(response.getResponseBodyAsBytes()).thenReturn(data);
+    when(response.getResponseBody(isA(Charset.class))).thenReturn(text);
+    return response;
+  }
+}
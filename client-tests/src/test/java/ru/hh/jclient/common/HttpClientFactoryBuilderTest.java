@@ -72,6 +72,8 @@ public class HttpClientFactoryBuilderTest {
       return "test";
     } else if (Collection.class.equals(argClass)) {
       return List.of();
+    } else if (ResponseCache.class.equals(argClass)) {
+      return new ResponseCache(1024);
     } else {
       return mock(argClass);
     }
@@ -1,11 +1,14 @@
 package ru.hh.jclient.common;
 
+import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.net.MediaType.ANY_VIDEO_TYPE;
 import static com.google.common.net.MediaType.JSON_UTF_8;
 import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
 import static com.google.common.net.MediaType.PROTOBUF;
 import static com.google.common.net.MediaType.XML_UTF_8;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -15,6 +18,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static ru.hh.jclient.common.HttpHeaderNames.X_HH_CRITICALITY;
 import static ru.hh.jclient.common.HttpHeaderNames.X_HH_DEBUG;
 import static ru.hh.jclient.common.HttpHeaderNames.X_REQUEST_ID;
 import static ru.hh.jclient.common.HttpParams.DEBUG;
@@ -25,10 +29,12 @@ import static ru.hh.jclient.common.TestRequestDebug.Call.REQUEST;
 import static ru.hh.jclient.common.TestRequestDebug.Call.RESPONSE;
 import static ru.hh.jclient.common.TestRequestDebug.Call.RESPONSE_CONVERTED;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -37,6 +43,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -45,12 +52,21 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.net.MediaType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
 import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
 import org.junit.Test;
 
 import ru.hh.jclient.common.HttpClientImpl.CompletionHandler;
 import ru.hh.jclient.common.exception.ClientResponseException;
 import ru.hh.jclient.common.exception.NoContentTypeException;
+import ru.hh.jclient.common.exception.RequestConverterException;
 import ru.hh.jclient.common.exception.ResponseConverterException;
 import ru.hh.jclient.common.exception.UnexpectedContentTypeException;
 import ru.hh.jclient.common.model.JsonTest;
@@ -58,6 +74,8 @@ import ru.hh.jclient.common.model.ProtobufTest;
 import ru.hh.jclient.common.model.ProtobufTest.ProtobufTestMessage;
 import ru.hh.jclient.common.model.XmlError;
 import ru.hh.jclient.common.model.XmlTest;
+import ru.hh.jclient.common.responseconverter.BinaryJsonFormat;
+import ru.hh.jclient.common.responseconverter.PrecompiledConverter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Iterables;
 
@@ -187,6 +205,198 @@ public class HttpClientTest extends HttpClientTestBase {
     assertEqualRequests(request, actualRequest.get());
   }
 
+  @Test
+  public void testPrecompiledJsonCollectionIsSharedBetweenRequests() throws IOException, InterruptedException, ExecutionException {
+    PrecompiledConverter<Collection<XmlTest>> converter = PrecompiledConverter.jsonCollection(objectMapper, XmlTest.class);
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/json").build();
+
+    for (String name : List.of("test тест1", "test тест2")) {
+      withEmptyContext().okRequest(jsonBytes(List.of(new XmlTest(name))), JSON_UTF_8);
+      Collection<XmlTest> testOutput = http.with(request).expect(converter).result().get();
+      assertEquals(List.of(new XmlTest(name)), List.copyOf(testOutput));
+    }
+  }
+
+  @Test
+  public void testSmile() throws IOException, InterruptedException, ExecutionException {
+    byte[] responseBody = BinaryJsonFormat.SMILE.writer(objectMapper).writeValueAsBytes(new XmlTest("test тест"));
+    Supplier<Request> actualRequest = withEmptyContext().okRequest(responseBody, BinaryJsonFormat.SMILE.getMediaType());
+
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/smile").build();
+    ResultProcessor<XmlTest> resultProcessor = http.with(request).expectSmile(objectMapper, XmlTest.class);
+    assertEquals(new XmlTest("test тест"), resultProcessor.result().get());
+    assertEquals("application/x-jackson-smile,application/json", actualRequest.get().getHeaders().get(ACCEPT));
+  }
+
+  @Test
+  public void testCborAcceptsJson() throws IOException, InterruptedException, ExecutionException {
+    withEmptyContext().okRequest(jsonBytes(new XmlTest("test тест")), JSON_UTF_8);
+
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/cbor").build();
+    assertEquals(new XmlTest("test тест"), http.with(request).expectCbor(objectMapper, XmlTest.class).result().get());
+  }
+
+  @Test
+  public void testJsonParsedIncrementallyFallsBackToBufferedBody() throws IOException, InterruptedException, ExecutionException {
+    XmlTest test = new XmlTest("test тест");
+    withEmptyContext().okRequest(jsonBytes(test), JSON_UTF_8);
+
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/json").build();
+    XmlTest testOutput = http.with(request).parseIncrementally().expectJson(objectMapper, XmlTest.class).result().get();
+    assertEquals(test.name, testOutput.name);
+  }
+
+  @Test
+  public void testJsonStream() throws IOException, InterruptedException, ExecutionException {
+    List<XmlTest> tests = Arrays.asList(new XmlTest("test тест1"), new XmlTest("test тест2"));
+    withEmptyContext().okRequest(jsonBytes(tests), JSON_UTF_8);
+
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/json").build();
+    Flow.Publisher<XmlTest> publisher = http.with(request).expectJsonStream(objectMapper, XmlTest.class).result().get();
+    List<XmlTest> elements = new ArrayList<>();
+    publisher.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(XmlTest item) {
+        elements.add(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onComplete() {
+      }
+    });
+    assertEquals(tests, elements);
+  }
+
+  @Test
+  public void testXmlStream() throws InterruptedException, ExecutionException {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><list><container name=\"test тест1\"/><container name=\"test тест2\"/></list>";
+    withEmptyContext().okRequest(xml, XML_UTF_8);
+
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/xml").build();
+    Flow.Publisher<XmlTest> publisher = http.with(request).expectXmlStream(jaxbContext, XmlTest.class).result().get();
+    List<XmlTest> elements = new ArrayList<>();
+    publisher.subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(XmlTest item) {
+        elements.add(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onComplete() {
+      }
+    });
+    assertEquals(Arrays.asList(new XmlTest("test тест1"), new XmlTest("test тест2")), elements);
+  }
+
+  @Test
+  public void testJsonParsedIncrementallyWithErrorConverter() throws Exception {
+    XmlTest test = new XmlTest("test тест");
+    byte[] body = jsonBytes(test);
+    withEmptyContext();
+    requestInParts(200, JSON_UTF_8, Arrays.copyOfRange(body, 0, 5), Arrays.copyOfRange(body, 5, body.length));
+
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/json").build();
+    ResultOrErrorWithResponse<XmlTest, XmlError> response = http
+        .with(request)
+        .parseIncrementally()
+        .expectJson(objectMapper, XmlTest.class)
+        .orJsonError(objectMapper, XmlError.class)
+        .resultWithResponse()
+        .get();
+
+    assertTrue(response.isSuccess());
+    assertEquals(test.name, response.get().get().name);
+    assertFalse(response.getError().isPresent());
+    debug.assertCalled(REQUEST, RESPONSE, RESPONSE_CONVERTED, FINISHED);
+
+    XmlError error = new XmlError("error тест");
+    withEmptyContext();
+    requestInParts(400, JSON_UTF_8, jsonBytes(error));
+    response = http
+        .with(request)
+        .parseIncrementally()
+        .expectJson(objectMapper, XmlTest.class)
+        .orJsonError(objectMapper, XmlError.class)
+        .resultWithResponse()
+        .get();
+
+    assertFalse(response.isSuccess());
+    assertEquals(error.message, response.getError().get().message);
+  }
+
+  @Test
+  public void testLazyBodyPartsAreCopiedWhenAccumulated() throws Exception {
+    withEmptyContext();
+    List<ByteBuf> received = new ArrayList<>();
+    AsyncHttpClient httpClient = mock(AsyncHttpClient.class);
+    when(httpClient.getConfig()).thenReturn(httpClientConfig);
+    when(httpClient.executeRequest(isA(org.asynchttpclient.Request.class), isA(CompletionHandler.class))).then(iom -> {
+      CompletionHandler handler = iom.getArgument(1);
+      HttpResponseStatus responseStatus = mock(HttpResponseStatus.class);
+      when(responseStatus.getStatusCode()).thenReturn(200);
+      handler.onStatusReceived(responseStatus);
+      handler.onHeadersReceived(new DefaultHttpHeaders().add(CONTENT_TYPE, PLAIN_TEXT_UTF_8.toString()));
+      for (String part : List.of("test ", "тест")) {
+        ByteBuf buffer = Unpooled.copiedBuffer(part, UTF_8);
+        received.add(buffer);
+        handler.onBodyPartReceived(new LazyResponseBodyPart(buffer, false));
+        // released by AHC once the part is handled
+        buffer.release();
+      }
+      handler.onCompleted();
+      return null;
+    });
+    http = createHttpClientBuilder(httpClient);
+
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/plain").build();
+    ResultWithResponse<String> response = http.with(request).expectPlainText().resultWithResponse().get();
+
+    assertEquals("test тест", response.get().get());
+    assertEquals("test тест", response.unconverted().getResponseBody());
+    assertTrue(received.stream().allMatch(buffer -> buffer.refCnt() == 0));
+  }
+
+  @Test(expected = RequestConverterException.class)
+  public void testJsonBodyIsWrittenWhenExecuted() {
+    withEmptyContext().noContentRequest();
+    Request request = new RequestBuilder("POST").setUrl("http://localhost/json").build();
+
+    // empty bean fails only once it is written
+    HttpClient client = http.with(request).withJsonBody(objectMapper, new Object());
+
+    client.expectNoContent().result();
+  }
+
+  @Test(expected = IOException.class)
+  public void testJsonBodyIsWrittenInFormatOfMapperAndReleased() throws Exception {
+    Supplier<Request> actualRequest = withEmptyContext().noContentRequest();
+    Request request = new RequestBuilder("POST").setUrl("http://localhost/smile").build();
+
+    http.with(request).withJsonBody(new ObjectMapper(new SmileFactory()), Map.of("text", "тест")).expectNoContent().result().get();
+
+    assertEquals(BinaryJsonFormat.SMILE.getMediaType().toString(), actualRequest.get().getHeaders().get(CONTENT_TYPE));
+    // body is released once the request is completed, so attempts that are not written by then fail
+    actualRequest.get().getDelegate().getBodyGenerator().createBody().transferTo(Unpooled.buffer());
+  }
+
   @Test
   public void testJsonMap() throws IOException, InterruptedException, ExecutionException {
     XmlTest test1 = new XmlTest("test тест1");
@@ -307,6 +517,20 @@ public class HttpClientTest extends HttpClientTestBase {
     debug.assertCalled(REQUEST, RESPONSE, RESPONSE_CONVERTED, FINISHED);
   }
 
+  @Test
+  public void testRequestHeadersOverridePassedThrough() throws InterruptedException, ExecutionException {
+    Map<String, List<String>> headers = new HashMap<>();
+    headers.put(X_HH_CRITICALITY, singletonList(Criticality.CRITICAL.name()));
+    headers.put(X_REQUEST_ID, singletonList("111"));
+
+    Supplier<Request> actualRequest = withContext(headers).okRequest(new byte[0], ANY_VIDEO_TYPE);
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/empty").addHeader(X_REQUEST_ID, "222").build();
+    http.with(request).withCriticality(Criticality.SHEDDABLE).expectEmpty().result().get();
+
+    assertEquals(List.of(Criticality.SHEDDABLE.name()), actualRequest.get().getHeaders().getAll(X_HH_CRITICALITY));
+    assertEquals(List.of("222"), actualRequest.get().getHeaders().getAll(X_REQUEST_ID));
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testDebugManualHeaderWithNoDebug() throws InterruptedException, ExecutionException {
     debug = new TestRequestDebug(true, true);
@@ -671,6 +895,37 @@ public class HttpClientTest extends HttpClientTestBase {
     return out.toByteArray();
   }
 
+  /**
+   * Passes body to the handler in parts, as AHC does, and completes it with response that has no accumulated body for successful status.
+   */
+  private void requestInParts(int status, MediaType contentType, byte[]... parts) {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    AsyncHttpClient httpClient = mock(AsyncHttpClient.class);
+    when(httpClient.getConfig()).thenReturn(httpClientConfig);
+    when(httpClient.executeRequest(isA(org.asynchttpclient.Request.class), isA(CompletionHandler.class))).then(iom -> {
+      CompletionHandler handler = iom.getArgument(1);
+      HttpResponseStatus responseStatus = mock(HttpResponseStatus.class);
+      when(responseStatus.getStatusCode()).thenReturn(status);
+      handler.onStatusReceived(responseStatus);
+      handler.onHeadersReceived(new DefaultHttpHeaders().add(CONTENT_TYPE, contentType.toString()));
+      for (byte[] part : parts) {
+        HttpResponseBodyPart bodyPart = mock(HttpResponseBodyPart.class);
+        when(bodyPart.getBodyPartBytes()).thenReturn(part);
+        handler.onBodyPartReceived(bodyPart);
+        body.write(part);
+      }
+      byte[] accumulated = status / 100 == 2 ? new byte[0] : body.toByteArray();
+      org.asynchttpclient.Response response = mock(org.asynchttpclient.Response.class);
+      when(response.getStatusCode()).thenReturn(status);
+      when(response.getHeader(CONTENT_TYPE)).thenReturn(contentType.toString());
+      when(response.getResponseBodyAsBytes()).thenReturn(accumulated);
+      when(response.getResponseBodyAsStream()).thenReturn(new ByteArrayInputStream(accumulated));
+      handler.onCompleted(response);
+      return null;
+    });
+    http = createHttpClientBuilder(httpClient);
+  }
+
   private byte[] jsonBytes(Object object) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     objectMapper.writeValue(out, object);
@@ -0,0 +1,106 @@
+package ru.hh.jclient.common;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OffHeapBodyStoreTest {
+  private static final int SLAB_SIZE = 1024;
+
+  @Test
+  public void testBodyIsReadOnlyView() {
+    OffHeapBodyStore store = new OffHeapBodyStore(SLAB_SIZE, SLAB_SIZE);
+    store.store(new byte[10]);
+
+    OffHeapBodyStore.Body body = store.store("body".getBytes(UTF_8));
+
+    ByteBuffer buffer = body.getBuffer();
+    assertTrue(buffer.isReadOnly());
+    assertTrue(buffer.isDirect());
+    assertEquals(0, buffer.position());
+    assertEquals("body", UTF_8.decode(buffer).toString());
+    assertEquals(2 * OffHeapBodyStore.MIN_CHUNK_SIZE, store.getUsedBytes());
+    assertEquals(SLAB_SIZE, store.getAllocatedBytes());
+  }
+
+  @Test
+  public void testSizeClasses() {
+    assertEquals(0, OffHeapBodyStore.getSizeClassIndex(0));
+    assertEquals(0, OffHeapBodyStore.getSizeClassIndex(64));
+    assertEquals(1, OffHeapBodyStore.getSizeClassIndex(65));
+    assertEquals(1, OffHeapBodyStore.getSizeClassIndex(128));
+    assertEquals(4, OffHeapBodyStore.getSizeClassIndex(1024));
+  }
+
+  @Test
+  public void testChunkIsReusedOnceReleased() {
+    OffHeapBodyStore store = new OffHeapBodyStore(SLAB_SIZE, SLAB_SIZE);
+    OffHeapBodyStore.Body body = store.store(new byte[SLAB_SIZE]);
+    assertTrue(body.tryRetain());
+
+    body.release();
+    assertEquals(SLAB_SIZE, store.getUsedBytes());
+    assertNull(store.store(new byte[SLAB_SIZE]));
+
+    body.release();
+    assertEquals(0, store.getUsedBytes());
+    assertFalse(body.tryRetain());
+    assertNotNull(store.store(new byte[SLAB_SIZE]));
+    assertEquals(1, store.getAllocationFailures());
+  }
+
+  @Test
+  public void testCapacityIsBounded() {
+    OffHeapBodyStore store = new OffHeapBodyStore(2 * SLAB_SIZE, SLAB_SIZE);
+
+    assertNull(store.store(new byte[SLAB_SIZE + 1]));
+    assertNotNull(store.store(new byte[SLAB_SIZE]));
+    assertNotNull(store.store(new byte[SLAB_SIZE]));
+    assertNull(store.store(new byte[10]));
+
+    assertEquals(2, store.getAllocationFailures());
+    assertEquals(2 * SLAB_SIZE, store.getAllocatedBytes());
+  }
+
+  @Test
+  public void testEmptySlabsMoveToSizeClassInDemand() {
+    OffHeapBodyStore store = new OffHeapBodyStore(2 * SLAB_SIZE, SLAB_SIZE);
+    List<OffHeapBodyStore.Body> small = new ArrayList<>();
+    for (int i = 0; i < 2 * SLAB_SIZE / OffHeapBodyStore.MIN_CHUNK_SIZE; i++) {
+      small.add(store.store(new byte[10]));
+    }
+    assertNull(store.store(new byte[SLAB_SIZE]));
+
+    // one body is left in the first slab, so only the second one becomes empty
+    small.subList(1, small.size()).forEach(OffHeapBodyStore.Body::release);
+    assertNotNull(store.store(new byte[SLAB_SIZE]));
+    assertNull(store.store(new byte[SLAB_SIZE]));
+
+    small.get(0).release();
+    assertNotNull(store.store(new byte[SLAB_SIZE]));
+    assertEquals(2 * SLAB_SIZE, store.getUsedBytes());
+    assertEquals(2 * SLAB_SIZE, store.getAllocatedBytes());
+    assertEquals(2, store.getAllocationFailures());
+  }
+
+  @Test
+  public void testPartiallyUsedSlabIsFilledBeforeNewOne() {
+    OffHeapBodyStore store = new OffHeapBodyStore(2 * SLAB_SIZE, SLAB_SIZE);
+    OffHeapBodyStore.Body first = store.store(new byte[SLAB_SIZE / 2]);
+    OffHeapBodyStore.Body second = store.store(new byte[SLAB_SIZE / 2]);
+    first.release();
+
+    assertNotNull(store.store(new byte[SLAB_SIZE / 2]));
+    assertNotNull(store.store(new byte[SLAB_SIZE]));
+    assertTrue(second.tryRetain());
+    assertEquals(2 * SLAB_SIZE, store.getAllocatedBytes());
+  }
+}
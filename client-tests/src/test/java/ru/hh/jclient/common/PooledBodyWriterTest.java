@@ -0,0 +1,42 @@
+package ru.hh.jclient.common;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Test;
+import ru.hh.jclient.common.model.ProtobufTest.ProtobufTestMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class PooledBodyWriterTest {
+
+  private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true);
+
+  @Test
+  public void testValueIsWrittenToDirectBuffer() throws IOException {
+    ByteBuf buffer = PooledBodyWriter.writeValue(allocator, new ObjectMapper().writer(), Map.of("text", "тест"));
+
+    assertTrue(buffer.isDirect());
+    assertEquals("{\"text\":\"тест\"}", buffer.toString(UTF_8));
+    buffer.release();
+  }
+
+  @Test
+  public void testProtobufIsWrittenToBufferOfSerializedSize() throws IOException {
+    ProtobufTestMessage message = ProtobufTestMessage.newBuilder().addAllIds(List.of(1, 300, -1)).build();
+
+    ByteBuf buffer = PooledBodyWriter.writeProtobuf(allocator, message);
+
+    assertTrue(buffer.isDirect());
+    assertEquals(message.getSerializedSize(), buffer.readableBytes());
+    assertEquals(message, ProtobufTestMessage.parseFrom(ByteBufUtil.getBytes(buffer)));
+    buffer.release();
+  }
+}
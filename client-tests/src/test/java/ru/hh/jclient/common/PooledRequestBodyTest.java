@@ -0,0 +1,75 @@
+package ru.hh.jclient.common;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.asynchttpclient.request.body.Body.BodyState;
+import org.asynchttpclient.request.body.RandomAccessBody;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+public class PooledRequestBodyTest {
+
+  private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true);
+
+  @Test
+  public void testBufferIsHeldByAttemptUntilClosed() throws IOException {
+    ByteBuf buffer = allocator.directBuffer().writeBytes("test".getBytes(UTF_8));
+    PooledRequestBody body = new PooledRequestBody(buffer);
+
+    RandomAccessBody attempt = body.createBody();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(4, attempt.transferTo(Channels.newChannel(out)));
+    body.release();
+
+    assertEquals(1, buffer.refCnt());
+    attempt.close();
+    assertEquals(0, buffer.refCnt());
+    assertEquals("test", out.toString(UTF_8));
+  }
+
+  @Test
+  public void testAttemptIsNotHoldingBufferUntilWritten() throws IOException {
+    ByteBuf buffer = allocator.directBuffer().writeBytes("test".getBytes(UTF_8));
+    PooledRequestBody body = new PooledRequestBody(buffer);
+
+    RandomAccessBody attempt = body.createBody();
+    body.release();
+
+    assertEquals(0, buffer.refCnt());
+    attempt.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testAttemptIsNotWrittenAfterRelease() throws IOException {
+    PooledRequestBody body = new PooledRequestBody(allocator.directBuffer().writeBytes("test".getBytes(UTF_8)));
+    body.release();
+
+    body.createBody().transferTo(Unpooled.buffer());
+  }
+
+  @Test
+  public void testEveryAttemptWritesWholeBodyInChunks() throws IOException {
+    PooledRequestBody body = new PooledRequestBody(allocator.directBuffer().writeBytes("test body".getBytes(UTF_8)));
+
+    for (int i = 0; i < 2; i++) {
+      RandomAccessBody attempt = body.createBody();
+      assertEquals(9, attempt.getContentLength());
+      ByteBuf written = Unpooled.buffer();
+      ByteBuf chunk = Unpooled.buffer(4, 4);
+      while (attempt.transferTo(chunk) != BodyState.STOP) {
+        written.writeBytes(chunk);
+        chunk.clear();
+      }
+      attempt.close();
+      assertEquals("test body", written.toString(UTF_8));
+    }
+    body.release();
+  }
+}
@@ -0,0 +1,65 @@
+package ru.hh.jclient.common;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.asynchttpclient.netty.EagerResponseBodyPart;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class ResponseBodyTest {
+
+  @Test
+  public void testBodyIsReadFromReceivedBuffers() throws IOException {
+    ByteBuf received = Unpooled.copiedBuffer("test тест ", UTF_8);
+    ResponseBody body = new ResponseBody();
+
+    body.add(new LazyResponseBodyPart(received, false));
+    // released by AHC once the part is handled
+    received.release();
+    body.add(new EagerResponseBodyPart(Unpooled.copiedBuffer("body", UTF_8), true));
+
+    assertEquals(1, received.refCnt());
+    ByteBuffer[] buffers = body.asByteBuffers();
+    assertEquals(2, buffers.length);
+    assertTrue(buffers[0].isReadOnly());
+    assertEquals("test тест body", body.toString(UTF_8));
+    assertArrayEquals("test тест body".getBytes(UTF_8), body.asStream().readAllBytes());
+    // stream does not consume the body
+    assertArrayEquals("test тест body".getBytes(UTF_8), body.toBytes());
+
+    body.release();
+    assertEquals(0, received.refCnt());
+  }
+
+  @Test
+  public void testResetReleasesReceivedBuffers() {
+    ByteBuf received = Unpooled.copiedBuffer("redirect", UTF_8);
+    ResponseBody body = new ResponseBody();
+    body.add(new LazyResponseBodyPart(received, true));
+    received.release();
+
+    body.reset();
+
+    assertEquals(0, received.refCnt());
+    assertEquals(0, body.getLength());
+  }
+
+  @Test
+  public void testResponseReadsBody() {
+    ResponseBody body = new ResponseBody();
+    body.add(new EagerResponseBodyPart(Unpooled.copiedBuffer("тест", UTF_8), true));
+    Response response = new Response(null, body);
+
+    assertEquals("тест", response.getResponseBody(UTF_8));
+    assertArrayEquals("тест".getBytes(UTF_8), response.getResponseBodyAsBytes());
+    assertTrue(response.hasResponseBody());
+  }
+}
@@ -0,0 +1,202 @@
+package ru.hh.jclient.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.asynchttpclient.AsyncCompletionHandler;
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.junit.Test;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.slf4j.MDC;
+import static ru.hh.jclient.common.HttpHeaderNames.X_HH_CRITICALITY;
+import static ru.hh.jclient.common.HttpHeaderNames.X_REQUEST_ID;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+import static ru.hh.jclient.common.TestRequestDebug.Call.REQUEST;
+import static ru.hh.jclient.common.TestRequestDebug.Call.RESPONSE;
+import ru.hh.jclient.common.util.storage.MDCStorage;
+import ru.hh.jclient.common.util.storage.SingletonStorage;
+import ru.hh.jclient.common.util.storage.StorageUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SingleFlightTest {
+
+  @Test
+  public void testConcurrentCallsWithSameKeyAreShared() {
+    SingleFlight<String> singleFlight = new SingleFlight<>(10);
+    AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<String> upstream = new CompletableFuture<>();
+
+    CompletableFuture<String> first = singleFlight.execute("key", () -> {
+      calls.incrementAndGet();
+      return upstream;
+    });
+    CompletableFuture<String> second = singleFlight.execute("key", () -> {
+      calls.incrementAndGet();
+      return CompletableFuture.completedFuture("other");
+    });
+    CompletableFuture<String> otherKey = singleFlight.execute("other key", () -> {
+      calls.incrementAndGet();
+      return CompletableFuture.completedFuture("other");
+    });
+
+    assertEquals(2, calls.get());
+    assertEquals("other", otherKey.join());
+    assertFalse(first.isDone());
+
+    upstream.complete("result");
+
+    assertEquals("result", first.join());
+    assertEquals("result", second.join());
+    assertEquals(1, singleFlight.getCollapsedCount());
+    assertEquals(0, singleFlight.getInFlightCount());
+  }
+
+  @Test
+  public void testCallIsRepeatedAfterCompletion() {
+    SingleFlight<String> singleFlight = new SingleFlight<>(10);
+    AtomicInteger calls = new AtomicInteger();
+
+    singleFlight.execute("key", () -> CompletableFuture.completedFuture(String.valueOf(calls.incrementAndGet()))).join();
+    String second = singleFlight.execute("key", () -> CompletableFuture.completedFuture(String.valueOf(calls.incrementAndGet()))).join();
+
+    assertEquals("2", second);
+    assertEquals(0, singleFlight.getCollapsedCount());
+  }
+
+  @Test
+  public void testSizeIsBounded() {
+    SingleFlight<String> singleFlight = new SingleFlight<>(1);
+    AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<String> upstream = new CompletableFuture<>();
+
+    singleFlight.execute("key1", () -> {
+      calls.incrementAndGet();
+      return upstream;
+    });
+    singleFlight.execute("key2", () -> {
+      calls.incrementAndGet();
+      return new CompletableFuture<>();
+    });
+    singleFlight.execute("key2", () -> {
+      calls.incrementAndGet();
+      return new CompletableFuture<>();
+    });
+
+    assertEquals(3, calls.get());
+    assertEquals(1, singleFlight.getInFlightCount());
+  }
+
+  @Test
+  public void testFailureIsShared() {
+    SingleFlight<String> singleFlight = new SingleFlight<>(10);
+    CompletableFuture<String> upstream = new CompletableFuture<>();
+
+    CompletableFuture<String> first = singleFlight.execute("key", () -> upstream);
+    CompletableFuture<String> second = singleFlight.execute("key", () -> upstream);
+    second.cancel(false);
+    upstream.completeExceptionally(new IllegalStateException("failed"));
+
+    assertTrue(first.isCompletedExceptionally());
+    try {
+      first.join();
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(0, singleFlight.getInFlightCount());
+  }
+
+  @Test
+  public void testJoinedRequestCompletesInOwnContext() throws Exception {
+    AsyncHttpClient http = mock(AsyncHttpClient.class);
+    when(http.getConfig()).thenReturn(new DefaultAsyncHttpClientConfig.Builder().build());
+    List<AsyncHandler<?>> handlers = new ArrayList<>();
+    when(http.executeRequest(isA(org.asynchttpclient.Request.class), isA(AsyncHandler.class))).then(iom -> {
+      handlers.add(iom.getArgument(1));
+      return null;
+    });
+    AtomicReference<HttpClientContext> context = new AtomicReference<>();
+    SingleFlightRequestStrategy<?> strategy = new SingleFlightRequestStrategy<>(new DefaultRequestStrategy(), 10);
+    ExecutorService callbackExecutor = Executors.newSingleThreadExecutor();
+    HttpClientFactory factory = new HttpClientFactory(http, Set.of(), new SingletonStorage<>(context::get), callbackExecutor, strategy);
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/shared").build();
+
+    TestRequestDebug firstDebug = new TestRequestDebug(true);
+    CompletableFuture<String> first = execute(factory, context, request, firstDebug, "first");
+    TestRequestDebug secondDebug = new TestRequestDebug(true);
+    CompletableFuture<String> second = execute(factory, context, request, secondDebug, "second");
+    CompletableFuture<String> otherTimeout = execute(factory, context, new RequestBuilder(request).setRequestTimeout(100).build(),
+        new TestRequestDebug(), "other");
+
+    assertEquals(2, handlers.size());
+    org.asynchttpclient.Response response = mock(org.asynchttpclient.Response.class);
+    when(response.getStatusCode()).thenReturn(OK);
+    ((AsyncCompletionHandler<?>) handlers.get(0)).onCompleted(response);
+
+    assertEquals("first", first.get(1, TimeUnit.SECONDS));
+    assertEquals("second", second.get(1, TimeUnit.SECONDS));
+    assertFalse(otherTimeout.isDone());
+    callbackExecutor.shutdown();
+    assertEquals(1, strategy.getCollapsedCount());
+    firstDebug.assertCalled(REQUEST, RESPONSE);
+    secondDebug.assertCalled(REQUEST, RESPONSE);
+  }
+
+  @Test
+  public void testRequestsWithDifferentPassedThroughHeadersAreNotShared() {
+    AsyncHttpClient http = mock(AsyncHttpClient.class);
+    when(http.getConfig()).thenReturn(new DefaultAsyncHttpClientConfig.Builder().build());
+    AtomicInteger executed = new AtomicInteger();
+    when(http.executeRequest(isA(org.asynchttpclient.Request.class), isA(AsyncHandler.class))).then(iom -> {
+      executed.incrementAndGet();
+      return null;
+    });
+    AtomicReference<HttpClientContext> context = new AtomicReference<>();
+    SingleFlightRequestStrategy<?> strategy = new SingleFlightRequestStrategy<>(new DefaultRequestStrategy(), 10);
+    HttpClientFactory factory = new HttpClientFactory(http, Set.of(), new SingletonStorage<>(context::get), Runnable::run, strategy);
+    Request request = new RequestBuilder("GET").setUrl("http://localhost/shared").build();
+
+    execute(factory, context, request, Map.of(X_HH_CRITICALITY, List.of("CRITICAL"), X_REQUEST_ID, List.of("1")), "first");
+    execute(factory, context, request, Map.of(X_HH_CRITICALITY, List.of("SHEDDABLE"), X_REQUEST_ID, List.of("2")), "second");
+    execute(factory, context, request, Map.of(X_HH_CRITICALITY, List.of("CRITICAL"), X_REQUEST_ID, List.of("3")), "third");
+
+    assertEquals(2, executed.get());
+    assertEquals(1, strategy.getCollapsedCount());
+  }
+
+  private static CompletableFuture<String> execute(HttpClientFactory factory, AtomicReference<HttpClientContext> context, Request request,
+                                                   Map<String, List<String>> headers, String requestId) {
+    MDC.put("rid", requestId);
+    try {
+      context.set(new HttpClientContext(headers, Map.of(), List.of(), StorageUtils.build(new MDCStorage())));
+      return factory.with(request).unconverted().thenApply(response -> MDC.get("rid"));
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private static CompletableFuture<String> execute(HttpClientFactory factory, AtomicReference<HttpClientContext> context, Request request,
+                                                   TestRequestDebug debug, String requestId) {
+    MDC.put("rid", requestId);
+    try {
+      context.set(new HttpClientContext(Map.of(), Map.of(), List.of(() -> debug), StorageUtils.build(new MDCStorage())));
+      return factory.with(request).unconverted().thenApply(response -> MDC.get("rid"));
+    } finally {
+      MDC.clear();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AdaptiveTimeoutTest {
+  private static final double PERCENTILE = 99.9;
+
+  @Test
+  public void testNotEnoughSamples() {
+    AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+    for (int i = 0; i < AdaptiveTimeout.RECOMPUTE_INTERVAL; i++) {
+      adaptiveTimeout.record(10_000, PERCENTILE);
+    }
+
+    assertEquals(-1, adaptiveTimeout.getPercentileMicros());
+  }
+
+  @Test
+  public void testPercentile() {
+    AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+    for (int i = 0; i < 1_280; i++) {
+      adaptiveTimeout.record(i % 100 == 0 ? 100_000 : 10_000, PERCENTILE);
+    }
+
+    assertBetween(100_000, 110_000, adaptiveTimeout.getPercentileMicros());
+
+    for (int i = 0; i < 1_280; i++) {
+      adaptiveTimeout.record(10_000, 50);
+    }
+
+    assertBetween(10_000, 11_000, adaptiveTimeout.getPercentileMicros());
+  }
+
+  @Test
+  public void testRecentSamplesOutweighOldOnes() {
+    AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+    for (int i = 0; i < AdaptiveTimeout.MAX_SAMPLES; i++) {
+      adaptiveTimeout.record(10_000, 50);
+    }
+    for (int i = 0; i < AdaptiveTimeout.MAX_SAMPLES; i++) {
+      adaptiveTimeout.record(50_000, 50);
+    }
+
+    assertBetween(50_000, 55_000, adaptiveTimeout.getPercentileMicros());
+  }
+
+  private static void assertBetween(long min, long max, long actual) {
+    assertTrue(actual + " is not between " + min + " and " + max, actual >= min && actual <= max);
+  }
+}
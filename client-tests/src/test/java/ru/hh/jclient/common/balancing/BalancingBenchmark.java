@@ -0,0 +1,154 @@
+package ru.hh.jclient.common.balancing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+import ru.hh.jclient.common.Request;
+import ru.hh.jclient.common.RequestBuilder;
+import ru.hh.jclient.common.RequestContext;
+import ru.hh.jclient.common.RequestStrategy;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.ResponseWrapper;
+import ru.hh.jclient.consul.ValueNode;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Baseline of the balancing hot paths. Run {@link #main} to get results for 1 to 64 threads with allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BalancingBenchmark {
+  private static final String UPSTREAM = "backend";
+  private static final int[] THREADS = {1, 4, 16, 64};
+
+  @Param({"3", "10", "50", "200"})
+  public int serversCount;
+
+  private ScheduledExecutorService executor;
+  private List<Server> servers;
+  private Upstream upstream;
+  private ValueNode configTree;
+  private UpstreamManager upstreamManager;
+  private RequestStrategy.RequestExecutor requestExecutor;
+  private Request request;
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : THREADS) {
+      var opt = new OptionsBuilder()
+          .include(BalancingBenchmark.class.getSimpleName())
+          .threads(threads)
+          .addProfiler(GCProfiler.class)
+          .forks(1)
+          .build();
+      new Runner(opt).run();
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    servers = IntStream.range(0, serversCount)
+        .mapToObj(i -> new Server("server" + i + ":80", 1 + i % 3, null))
+        .collect(Collectors.toList());
+    servers.forEach(server -> {
+      for (int i = 0; i < AdaptiveBalancingStrategy.RESPONSE_TIME_TRACKER_WINDOW; i++) {
+        server.getResponseTimeTracker().time(1_000 + server.getWeight() * 100);
+      }
+    });
+
+    configTree = new ValueNode();
+    ValueNode profile = configTree.computeMapIfAbsent(UPSTREAM)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT)
+        .computeMapIfAbsent(UpstreamConfig.PROFILE_NODE)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT);
+    profile.putValue("max_tries", "3");
+    profile.putValue("max_fails", "100000");
+    profile.putValue("max_timeout_tries", "2");
+    profile.putValue("fail_timeout_sec", "1");
+    profile.putValue("connect_timeout_sec", "0.1");
+    profile.putValue("request_timeout_sec", "1.5");
+    profile.putValue("retry_policy", "timeout,http_503,non_idempotent_503");
+
+    upstream = new Upstream(UPSTREAM, UpstreamConfig.fromTree(UPSTREAM, null, null, configTree), executor);
+    upstreamManager = new StaticUpstreamManager(upstream, servers);
+    ResponseMock response = new ResponseMock() {
+      @Override
+      public String getHeader(String name) {
+        return null;
+      }
+    };
+    response.setStatusCode(OK);
+    ResponseWrapper wrapper = new ResponseWrapper(response, 1_000);
+    requestExecutor = new RequestStrategy.RequestExecutor() {
+      @Override
+      public CompletableFuture<ResponseWrapper> executeRequest(Request request, int retryCount, RequestContext context) {
+        return CompletableFuture.completedFuture(wrapper);
+      }
+
+      @Override
+      public int getDefaultRequestTimeoutMs() {
+        return UpstreamConfig.DEFAULT_REQUEST_TIMEOUT_MS;
+      }
+    };
+    request = new RequestBuilder("GET").setUrl("http://" + UPSTREAM + "/path?query=1").build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public void acquireRelease(Blackhole bh) {
+    ServerEntry entry = upstream.acquireServer(servers);
+    bh.consume(entry);
+    upstream.releaseServer(entry.getIndex(), false, 1_000, servers);
+  }
+
+  @Benchmark
+  public void acquireReleaseAdaptive(Blackhole bh) {
+    List<ServerEntry> entries = upstream.acquireAdaptiveServers(3, servers);
+    bh.consume(entries);
+    upstream.releaseServer(entries.get(0).getIndex(), false, 1_000, true, servers);
+  }
+
+  @Benchmark
+  public List<Integer> adaptiveGetServers() {
+    return AdaptiveBalancingStrategy.getServers(servers, 3);
+  }
+
+  @Benchmark
+  public UpstreamConfig configFromTree() {
+    return UpstreamConfig.fromTree(UPSTREAM, null, null, configTree);
+  }
+
+  @Benchmark
+  public Object requestBalancerRoundTrip() {
+    return new RequestBalancerBuilder(upstreamManager, null).build(request, requestExecutor).execute().join();
+  }
+
+  @Benchmark
+  public Object adaptiveRequestBalancerRoundTrip() {
+    return new RequestBalancerBuilder(upstreamManager, null).makeAdaptive().build(request, requestExecutor).execute().join();
+  }
+}
@@ -0,0 +1,471 @@
+package ru.hh.jclient.common.balancing;
+
+import static ru.hh.jclient.common.HttpStatuses.CONNECT_TIMEOUT_ERROR;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+import static ru.hh.jclient.common.HttpStatuses.SERVICE_UNAVAILABLE;
+import static ru.hh.jclient.common.ResponseStatusMessages.CONNECT_ERROR_MESSAGE;
+import static ru.hh.jclient.common.ResponseStatusMessages.REQUEST_TIMEOUT_MESSAGE;
+import ru.hh.jclient.common.Monitoring;
+import ru.hh.jclient.common.Request;
+import ru.hh.jclient.common.RequestBuilder;
+import ru.hh.jclient.common.RequestContext;
+import ru.hh.jclient.common.RequestStrategy;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.ResponseWrapper;
+import ru.hh.jclient.consul.ValueNode;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deterministic discrete-event simulation of balancing: real {@link Upstream}, {@link Server} and {@link RequestBalancer}
+ * are driven against synthetic servers on a virtual clock. All randomness comes from the scenario seed,
+ * so the same scenario always gives the same {@link Report}.
+ */
+final class BalancingSimulator {
+  private static final String UPSTREAM_NAME = "backend";
+  private static final long CONNECT_ERROR_MICROS = 1_000;
+
+  private final Scenario scenario;
+  private final Random random;
+  private final PriorityQueue<Event> events = new PriorityQueue<>(Comparator.comparingLong((Event e) -> e.timeMicros).thenComparingLong(e -> e.seq));
+  private final Map<String, SimulatedServer> serversByAddress = new HashMap<>();
+  private final List<SimulatedServer> simulatedServers = new ArrayList<>();
+  private final VirtualScheduler scheduler = new VirtualScheduler();
+  private final List<Long> latencies = new ArrayList<>();
+  private final Upstream upstream;
+  private final UpstreamManager upstreamManager;
+
+  private List<Server> currentServers = List.of();
+  private long nowMicros;
+  private long seq;
+  private int requestsStarted;
+  private int succeeded;
+  private long attempts;
+  private long lastCompletionMicros;
+
+  private BalancingSimulator(Scenario scenario) {
+    this.scenario = scenario;
+    this.random = new Random(scenario.seed);
+
+    ValueNode root = new ValueNode();
+    ValueNode profile = root.computeMapIfAbsent(UPSTREAM_NAME)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT)
+        .computeMapIfAbsent(UpstreamConfig.PROFILE_NODE)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT);
+    profile.putValue("max_tries", Integer.toString(scenario.maxTries));
+    profile.putValue("request_timeout_sec", Double.toString(scenario.requestTimeoutMs / 1000.0));
+    upstream = new Upstream(UPSTREAM_NAME, UpstreamConfig.fromTree(UPSTREAM_NAME, null, null, root), scheduler);
+    Random balancerRandom = new Random(scenario.seed + 1);
+    upstream.setRandom(bound -> Math.floorMod(balancerRandom.nextLong(), bound));
+    upstreamManager = new SimulatedUpstreamManager();
+  }
+
+  static Report run(Scenario scenario) {
+    return new BalancingSimulator(scenario).run();
+  }
+
+  private Report run() {
+    for (ServerSpec spec : scenario.servers) {
+      SimulatedServer server = new SimulatedServer(spec, new Server(spec.address, spec.weight, null),
+          spec.gcPeriodMicros > 0 ? Math.floorMod(random.nextLong(), spec.gcPeriodMicros) : 0);
+      simulatedServers.add(server);
+      serversByAddress.put(spec.address, server);
+      schedule(spec.joinAtMicros, this::updateMembership);
+      if (spec.leaveAtMicros != Long.MAX_VALUE) {
+        schedule(spec.leaveAtMicros, this::updateMembership);
+      }
+    }
+    schedule(0, this::startRequest);
+
+    while (!events.isEmpty()) {
+      Event event = events.poll();
+      nowMicros = event.timeMicros;
+      event.action.run();
+    }
+    scheduler.shutdownNow();
+    return buildReport();
+  }
+
+  private void updateMembership() {
+    List<Server> servers = new ArrayList<>();
+    for (SimulatedServer server : simulatedServers) {
+      if (server.isPresent(nowMicros)) {
+        servers.add(server.server);
+      }
+    }
+    currentServers = List.copyOf(servers);
+  }
+
+  private void startRequest() {
+    requestsStarted++;
+    if (requestsStarted < scenario.requests) {
+      double intervalSeconds = -Math.log(1 - random.nextDouble()) / scenario.requestsPerSecond;
+      schedule(nowMicros + Math.round(intervalSeconds * 1_000_000), this::startRequest);
+    }
+
+    long startMicros = nowMicros;
+    Request request = new RequestBuilder("GET").setUrl("http://" + UPSTREAM_NAME + "/path").build();
+    RequestBalancerBuilder builder = new RequestBalancerBuilder(upstreamManager, null);
+    if (scenario.adaptive) {
+      builder.makeAdaptive();
+    }
+    builder.build(request, new SimulatedExecutor()).execute().whenComplete((response, throwable) -> {
+      latencies.add(nowMicros - startMicros);
+      lastCompletionMicros = nowMicros;
+      if (response != null && response.getStatusCode() == OK) {
+        succeeded++;
+      }
+    });
+  }
+
+  private void schedule(long timeMicros, Runnable action) {
+    events.add(new Event(timeMicros, seq++, action));
+  }
+
+  private Report buildReport() {
+    long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+    Map<String, Long> attemptsByServer = new LinkedHashMap<>();
+    long maxAttempts = 0;
+    for (SimulatedServer server : simulatedServers) {
+      attemptsByServer.put(server.spec.address, server.attempts);
+      maxAttempts = Math.max(maxAttempts, server.attempts);
+    }
+    double meanAttempts = simulatedServers.stream().mapToLong(server -> server.attempts).average().orElse(0);
+    double durationSeconds = Math.max(1, lastCompletionMicros) / 1_000_000.0;
+    return new Report(
+        scenario.requests,
+        succeeded / durationSeconds,
+        percentile(sorted, 0.5),
+        percentile(sorted, 0.99),
+        percentile(sorted, 0.999),
+        (double) attempts / scenario.requests,
+        meanAttempts == 0 ? 0 : maxAttempts / meanAttempts,
+        attemptsByServer
+    );
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private final class SimulatedExecutor implements RequestStrategy.RequestExecutor {
+
+    @Override
+    public CompletableFuture<ResponseWrapper> executeRequest(Request request, int retryCount, RequestContext context) {
+      attempts++;
+      CompletableFuture<ResponseWrapper> future = new CompletableFuture<>();
+      SimulatedServer server = serversByAddress.get(request.getUri().getHost());
+      if (server == null || !server.isPresent(nowMicros)) {
+        complete(future, CONNECT_ERROR_MICROS, CONNECT_TIMEOUT_ERROR, CONNECT_ERROR_MESSAGE, null);
+        return future;
+      }
+
+      server.attempts++;
+      server.inFlight++;
+      long latencyMicros = server.latencyMicros(nowMicros);
+      long timeoutMicros = TimeUnit.MILLISECONDS.toMicros(request.getRequestTimeout());
+      if (latencyMicros > timeoutMicros) {
+        complete(future, timeoutMicros, CONNECT_TIMEOUT_ERROR, REQUEST_TIMEOUT_MESSAGE, server);
+      } else if (random.nextDouble() < server.spec.errorRate) {
+        complete(future, latencyMicros, SERVICE_UNAVAILABLE, "Service Unavailable", server);
+      } else {
+        complete(future, latencyMicros, OK, "OK", server);
+      }
+      return future;
+    }
+
+    private void complete(CompletableFuture<ResponseWrapper> future, long latencyMicros, int status, String statusText,
+                          @Nullable SimulatedServer server) {
+      schedule(nowMicros + latencyMicros, () -> {
+        if (server != null) {
+          server.inFlight--;
+        }
+        future.complete(new ResponseWrapper(new SimulatedResponse(status, statusText), latencyMicros));
+      });
+    }
+
+    @Override
+    public int getDefaultRequestTimeoutMs() {
+      return scenario.requestTimeoutMs;
+    }
+  }
+
+  private final class SimulatedUpstreamManager extends UpstreamManager {
+
+    @Override
+    public List<Server> getServersForService(String upstreamName) {
+      return currentServers;
+    }
+
+    @Override
+    public void updateUpstream(@Nonnull String upstreamName) {
+    }
+
+    @Override
+    public Upstream getUpstream(String serviceName, @Nullable String profile) {
+      return UPSTREAM_NAME.equals(serviceName) ? upstream : null;
+    }
+
+    @Override
+    Map<String, UpstreamGroup> getUpstreams() {
+      return Map.of(UPSTREAM_NAME, new UpstreamGroup(UPSTREAM_NAME, null, upstream));
+    }
+
+    @Override
+    public Set<Monitoring> getMonitoring() {
+      return Set.of();
+    }
+  }
+
+  /**
+   * Runs scheduled tasks of servers (e.g. activation after fail timeout) on the virtual clock.
+   */
+  private final class VirtualScheduler extends ScheduledThreadPoolExecutor {
+
+    VirtualScheduler() {
+      super(0);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+      BalancingSimulator.this.schedule(nowMicros + unit.toMicros(delay), command);
+      return null;
+    }
+  }
+
+  private static final class SimulatedResponse extends ResponseMock {
+
+    SimulatedResponse(int status, String statusText) {
+      setStatusCode(status);
+      setStatusText(statusText);
+    }
+
+    @Override
+    public String getHeader(String name) {
+      return null;
+    }
+  }
+
+  private final class SimulatedServer {
+    final ServerSpec spec;
+    final Server server;
+    final long gcOffsetMicros;
+    int inFlight;
+    long attempts;
+
+    SimulatedServer(ServerSpec spec, Server server, long gcOffsetMicros) {
+      this.spec = spec;
+      this.server = server;
+      this.gcOffsetMicros = gcOffsetMicros;
+    }
+
+    boolean isPresent(long timeMicros) {
+      return spec.joinAtMicros <= timeMicros && timeMicros < spec.leaveAtMicros;
+    }
+
+    long latencyMicros(long timeMicros) {
+      double latency = spec.medianLatencyMicros * Math.exp(spec.latencySigma * random.nextGaussian());
+      if (spec.capacity > 0) {
+        latency *= Math.max(1.0, (double) inFlight / spec.capacity);
+      }
+      if (spec.gcPeriodMicros > 0) {
+        long phase = Math.floorMod(timeMicros + gcOffsetMicros, spec.gcPeriodMicros);
+        if (phase < spec.gcPauseMicros) {
+          latency += spec.gcPauseMicros - phase;
+        }
+      }
+      return Math.max(1, Math.round(latency));
+    }
+  }
+
+  private static final class Event {
+    final long timeMicros;
+    final long seq;
+    final Runnable action;
+
+    Event(long timeMicros, long seq, Runnable action) {
+      this.timeMicros = timeMicros;
+      this.seq = seq;
+      this.action = action;
+    }
+  }
+
+  static final class ServerSpec {
+    private final String address;
+    private int weight = 1;
+    private long medianLatencyMicros = 10_000;
+    private double latencySigma = 0.3;
+    private double errorRate;
+    private int capacity;
+    private long gcPeriodMicros;
+    private long gcPauseMicros;
+    private long joinAtMicros;
+    private long leaveAtMicros = Long.MAX_VALUE;
+
+    private ServerSpec(String address) {
+      this.address = address;
+    }
+
+    static ServerSpec server(String address) {
+      return new ServerSpec(address);
+    }
+
+    ServerSpec weight(int weight) {
+      this.weight = weight;
+      return this;
+    }
+
+    /**
+     * Log-normal latency with the given median.
+     */
+    ServerSpec latency(long medianMicros, double sigma) {
+      this.medianLatencyMicros = medianMicros;
+      this.latencySigma = sigma;
+      return this;
+    }
+
+    ServerSpec errorRate(double errorRate) {
+      this.errorRate = errorRate;
+      return this;
+    }
+
+    /**
+     * Latency grows proportionally when more than capacity requests are in flight.
+     */
+    ServerSpec capacity(int capacity) {
+      this.capacity = capacity;
+      return this;
+    }
+
+    ServerSpec gcPauses(long periodMicros, long pauseMicros) {
+      this.gcPeriodMicros = periodMicros;
+      this.gcPauseMicros = pauseMicros;
+      return this;
+    }
+
+    ServerSpec presentBetween(long joinAtMicros, long leaveAtMicros) {
+      this.joinAtMicros = joinAtMicros;
+      this.leaveAtMicros = leaveAtMicros;
+      return this;
+    }
+  }
+
+  static final class Scenario {
+    private final long seed;
+    private final List<ServerSpec> servers = new ArrayList<>();
+    private int requests = 10_000;
+    private double requestsPerSecond = 1_000;
+    private boolean adaptive;
+    private int maxTries = UpstreamConfig.DEFAULT_MAX_TRIES;
+    private int requestTimeoutMs = UpstreamConfig.DEFAULT_REQUEST_TIMEOUT_MS;
+
+    Scenario(long seed) {
+      this.seed = seed;
+    }
+
+    Scenario requests(int requests, double requestsPerSecond) {
+      this.requests = requests;
+      this.requestsPerSecond = requestsPerSecond;
+      return this;
+    }
+
+    Scenario adaptive(boolean adaptive) {
+      this.adaptive = adaptive;
+      return this;
+    }
+
+    Scenario maxTries(int maxTries) {
+      this.maxTries = maxTries;
+      return this;
+    }
+
+    Scenario requestTimeoutMs(int requestTimeoutMs) {
+      this.requestTimeoutMs = requestTimeoutMs;
+      return this;
+    }
+
+    Scenario server(ServerSpec server) {
+      servers.add(server);
+      return this;
+    }
+  }
+
+  static final class Report {
+    final int requests;
+    final double throughput;
+    final long p50Micros;
+    final long p99Micros;
+    final long p999Micros;
+    final double retryAmplification;
+    final double loadSkew;
+    final Map<String, Long> attemptsByServer;
+
+    Report(int requests, double throughput, long p50Micros, long p99Micros, long p999Micros, double retryAmplification, double loadSkew,
+           Map<String, Long> attemptsByServer) {
+      this.requests = requests;
+      this.throughput = throughput;
+      this.p50Micros = p50Micros;
+      this.p99Micros = p99Micros;
+      this.p999Micros = p999Micros;
+      this.retryAmplification = retryAmplification;
+      this.loadSkew = loadSkew;
+      this.attemptsByServer = attemptsByServer;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Report report = (Report) o;
+      return requests == report.requests
+          && Double.compare(throughput, report.throughput) == 0
+          && p50Micros == report.p50Micros
+          && p99Micros == report.p99Micros
+          && p999Micros == report.p999Micros
+          && Double.compare(retryAmplification, report.retryAmplification) == 0
+          && Double.compare(loadSkew, report.loadSkew) == 0
+          && attemptsByServer.equals(report.attemptsByServer);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(requests, throughput, p50Micros, p99Micros, p999Micros, retryAmplification, loadSkew, attemptsByServer);
+    }
+
+    @Override
+    public String toString() {
+      return "{requests=" + requests
+          + ", throughput=" + String.format("%.1f", throughput)
+          + ", p50=" + p50Micros
+          + ", p99=" + p99Micros
+          + ", p999=" + p999Micros
+          + ", retry_amplification=" + String.format("%.3f", retryAmplification)
+          + ", load_skew=" + String.format("%.3f", loadSkew)
+          + ", attempts=" + attemptsByServer
+          + '}';
+    }
+  }
+}
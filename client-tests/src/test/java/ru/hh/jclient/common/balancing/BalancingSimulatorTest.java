@@ -0,0 +1,77 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import static ru.hh.jclient.common.balancing.BalancingSimulator.ServerSpec.server;
+
+import ru.hh.jclient.common.balancing.BalancingSimulator.Report;
+import ru.hh.jclient.common.balancing.BalancingSimulator.Scenario;
+
+public class BalancingSimulatorTest {
+  private static final long SEED = 42;
+
+  @Test
+  public void testSimulationIsDeterministic() {
+    Report first = BalancingSimulator.run(mixedScenario(true));
+    Report second = BalancingSimulator.run(mixedScenario(true));
+
+    assertEquals(first, second);
+  }
+
+  @Test
+  public void testAdaptiveStrategyAvoidsSlowServer() {
+    Report regular = BalancingSimulator.run(slowServerScenario(false));
+    Report adaptive = BalancingSimulator.run(slowServerScenario(true));
+
+    assertTrue(adaptive.attemptsByServer.get("slow") < regular.attemptsByServer.get("slow") / 2);
+    assertTrue(adaptive.loadSkew > regular.loadSkew);
+  }
+
+  @Test
+  public void testErrorsAmplifyRetries() {
+    Report report = BalancingSimulator.run(new Scenario(SEED)
+        .requests(5_000, 500)
+        .server(server("server1").errorRate(0.5))
+        .server(server("server2"))
+        .server(server("server3")));
+
+    assertTrue(report.retryAmplification > 1);
+    assertTrue(report.p999Micros >= report.p99Micros);
+    assertTrue(report.p99Micros >= report.p50Micros);
+  }
+
+  @Test
+  public void testServerLeavingIsRetried() {
+    Report report = BalancingSimulator.run(new Scenario(SEED)
+        .requests(2_000, 1_000)
+        .maxTries(3)
+        .server(server("server1"))
+        .server(server("server2"))
+        .server(server("leaving").presentBetween(0, 1_000_000)));
+
+    assertEquals(2_000, report.requests);
+    assertTrue(report.throughput > 0);
+    assertTrue(report.attemptsByServer.get("leaving") < report.attemptsByServer.get("server1"));
+  }
+
+  private static Scenario slowServerScenario(boolean adaptive) {
+    // low rate, so that the regular strategy is not affected by requests in flight
+    return new Scenario(SEED)
+        .requests(10_000, 20)
+        .adaptive(adaptive)
+        .server(server("fast1").latency(5_000, 0.2))
+        .server(server("fast2").latency(5_000, 0.2))
+        .server(server("slow").latency(50_000, 0.2));
+  }
+
+  private static Scenario mixedScenario(boolean adaptive) {
+    return new Scenario(SEED)
+        .requests(5_000, 2_000)
+        .adaptive(adaptive)
+        .server(server("server1").latency(10_000, 0.5).capacity(10))
+        .server(server("server2").latency(10_000, 0.5).errorRate(0.05))
+        .server(server("server3").latency(10_000, 0.5).gcPauses(1_000_000, 100_000))
+        .server(server("server4").presentBetween(500_000, 2_000_000));
+  }
+}
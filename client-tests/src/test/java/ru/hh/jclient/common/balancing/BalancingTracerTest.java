@@ -0,0 +1,89 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import ru.hh.jclient.consul.ValueNode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BalancingTracerTest {
+
+  @Test
+  public void testSampling() {
+    assertFalse(new BalancingTracer(1, 0).sample());
+    assertTrue(new BalancingTracer(1, 1).sample());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSampleRate() {
+    new BalancingTracer(1, 2);
+  }
+
+  @Test
+  public void testRingBufferKeepsMostRecentTraces() {
+    BalancingTracer tracer = new BalancingTracer(3, 1);
+    assertTrue(tracer.getRecentTraces().isEmpty());
+
+    for (int i = 0; i < 5; i++) {
+      tracer.record(new BalancingTrace("upstream", "http://upstream/" + i, false));
+    }
+
+    List<String> urls = tracer.getRecentTraces().stream().map(BalancingTrace::getUrl).collect(Collectors.toList());
+    assertEquals(List.of("http://upstream/4", "http://upstream/3", "http://upstream/2"), urls);
+  }
+
+  @Test
+  public void testTraceRecordsAttempts() {
+    Server server1 = new Server("server1", 1, "DC1");
+    Server server2 = new Server("server2", 2, "DC2");
+    server2.acquire();
+    List<Server> servers = Arrays.asList(server1, null, server2);
+
+    BalancingTrace trace = new BalancingTrace("upstream", "http://upstream/path", false);
+    trace.startAttempt(servers, new ServerEntry(0, "server1", "DC1"));
+    trace.finishAttempt(503, 1_000);
+    trace.retry("status 503");
+    trace.startAttempt(servers, new ServerEntry(2, "server2", "DC2"));
+    trace.finishAttempt(200, 2_000);
+
+    assertEquals(2, trace.getAttempts().size());
+    BalancingTrace.Attempt first = trace.getAttempts().get(0);
+    assertEquals("server1", first.getChosenAddress());
+    assertEquals(503, first.getStatusCode());
+    assertEquals(1_000, first.getResponseTimeMicros());
+    assertEquals("status 503", first.getRetryReason());
+    assertEquals(2, first.getCandidates().size());
+    assertEquals(0.5f, first.getCandidates().get(1).getLoad(), 0.001f);
+
+    BalancingTrace.Attempt second = trace.getAttempts().get(1);
+    assertEquals("DC2", second.getChosenDatacenter());
+    assertEquals(200, second.getStatusCode());
+    assertNull(second.getRetryReason());
+    assertTrue(second.getStartOffsetMicros() >= first.getStartOffsetMicros());
+  }
+
+  @Test
+  public void testTraceRecordsAdaptiveScores() {
+    Server fast = new Server("fast", 1, null);
+    Server slow = new Server("slow", 1, null);
+    for (int i = 0; i < AdaptiveBalancingStrategy.RESPONSE_TIME_TRACKER_WINDOW; i++) {
+      fast.getResponseTimeTracker().time(1_000);
+      slow.getResponseTimeTracker().time(10_000);
+    }
+    List<Server> servers = List.of(fast, slow);
+    Upstream upstream = new Upstream("upstream", UpstreamConfig.fromTree("upstream", null, null, new ValueNode()), null);
+
+    BalancingTrace trace = new BalancingTrace("upstream", "http://upstream/path", true);
+    List<ServerEntry> entries = upstream.acquireAdaptiveServers(2, servers, trace);
+    trace.startAttempt(servers, entries.get(0));
+
+    List<BalancingTrace.Candidate> candidates = trace.getAttempts().get(0).getCandidates();
+    assertTrue(candidates.get(0).getAdaptiveScore() > candidates.get(1).getAdaptiveScore());
+    assertTrue(candidates.get(1).getAdaptiveScore() > 0);
+  }
+}
@@ -0,0 +1,201 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.hh.jclient.common.Criticality;
+import static ru.hh.jclient.common.HttpHeaderNames.X_HH_CRITICALITY;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+import static ru.hh.jclient.common.HttpStatuses.SERVICE_UNAVAILABLE;
+import ru.hh.jclient.common.Request;
+import ru.hh.jclient.common.RequestBuilder;
+import ru.hh.jclient.common.RequestContext;
+import ru.hh.jclient.common.RequestStrategy;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.ResponseWrapper;
+import ru.hh.jclient.consul.ValueNode;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CriticalityTest {
+  private static final String UPSTREAM = "backend";
+
+  private ScheduledExecutorService executor;
+  private List<Server> servers;
+  private Upstream upstream;
+  private UpstreamManager upstreamManager;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    servers = List.of(new Server("server1", 1, null), new Server("server2", 1, null), new Server("server3", 1, null));
+
+    ValueNode configTree = new ValueNode();
+    ValueNode profile = configTree.computeMapIfAbsent(UPSTREAM)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT)
+        .computeMapIfAbsent(UpstreamConfig.PROFILE_NODE)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT);
+    profile.putValue("max_tries", "3");
+    profile.putValue("max_fails", "100");
+    profile.putValue("max_in_flight", "10");
+
+    upstream = new Upstream(UPSTREAM, UpstreamConfig.fromTree(UPSTREAM, null, null, configTree), executor);
+    upstreamManager = new StaticUpstreamManager(upstream, servers);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testFromHeaderValue() {
+    assertEquals(Criticality.CRITICAL, Criticality.fromHeaderValue("critical"));
+    assertEquals(Criticality.SHEDDABLE, Criticality.fromHeaderValue("SHEDDABLE"));
+    assertEquals(Criticality.DEFAULT, Criticality.fromHeaderValue(null));
+    assertEquals(Criticality.DEFAULT, Criticality.fromHeaderValue("unknown"));
+  }
+
+  @Test
+  public void testSheddableRequestIsRejectedWhenSaturated() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertEquals(OK, execute(Criticality.SHEDDABLE, OK, attempts).getStatusCode());
+    assertEquals(1, attempts.get());
+
+    saturate();
+
+    assertEquals(SERVICE_UNAVAILABLE, execute(Criticality.SHEDDABLE, OK, attempts).getStatusCode());
+    assertEquals(1, attempts.get());
+    assertEquals(OK, execute(Criticality.DEFAULT, OK, attempts).getStatusCode());
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void testOnlyCriticalRequestIsRetriedWhenSaturated() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    execute(Criticality.DEFAULT, SERVICE_UNAVAILABLE, attempts);
+    assertEquals(3, attempts.get());
+
+    saturate();
+    attempts.set(0);
+
+    execute(Criticality.DEFAULT, SERVICE_UNAVAILABLE, attempts);
+    assertEquals(1, attempts.get());
+
+    attempts.set(0);
+    execute(Criticality.CRITICAL, SERVICE_UNAVAILABLE, attempts);
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void testSheddableRequestIsRejectedWhenSaturatedInAdaptiveMode() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertEquals(OK, execute(Criticality.SHEDDABLE, OK, attempts, true).getStatusCode());
+    assertEquals(1, attempts.get());
+
+    saturate();
+
+    assertEquals(SERVICE_UNAVAILABLE, execute(Criticality.SHEDDABLE, OK, attempts, true).getStatusCode());
+    assertEquals(1, attempts.get());
+    assertEquals(OK, execute(Criticality.DEFAULT, OK, attempts, true).getStatusCode());
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void testUpstreamIsSaturatedWhenMostServersFailInAdaptiveMode() {
+    AtomicInteger attempts = new AtomicInteger();
+    for (int i = 0; i < AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW; i++) {
+      servers.get(0).getDowntimeDetector().failed();
+      servers.get(1).getDowntimeDetector().failed();
+    }
+
+    assertEquals(SERVICE_UNAVAILABLE, execute(Criticality.SHEDDABLE, OK, attempts, true).getStatusCode());
+    assertEquals(0, attempts.get());
+  }
+
+  @Test
+  public void testRequestsInFlightAreCountedInBothModes() {
+    CompletableFuture<ResponseWrapper> response = new CompletableFuture<>();
+    RequestStrategy.RequestExecutor requestExecutor = new RequestStrategy.RequestExecutor() {
+      @Override
+      public CompletableFuture<ResponseWrapper> executeRequest(Request request, int retryCount, RequestContext context) {
+        return response;
+      }
+
+      @Override
+      public int getDefaultRequestTimeoutMs() {
+        return UpstreamConfig.DEFAULT_REQUEST_TIMEOUT_MS;
+      }
+    };
+    for (int i = 0; i < 9; i++) {
+      execute(Criticality.DEFAULT, requestExecutor, i % 2 == 0);
+    }
+
+    assertEquals(SERVICE_UNAVAILABLE, execute(Criticality.SHEDDABLE, OK, new AtomicInteger(), true).getStatusCode());
+
+    ResponseMock responseMock = new ResponseMock() {
+      @Override
+      public String getHeader(String name) {
+        return null;
+      }
+    };
+    responseMock.setStatusCode(OK);
+    response.complete(new ResponseWrapper(responseMock, 1_000));
+
+    assertEquals(OK, execute(Criticality.SHEDDABLE, OK, new AtomicInteger(), true).getStatusCode());
+  }
+
+  private void saturate() {
+    for (int i = 0; i < 9; i++) {
+      upstream.startRequest();
+    }
+  }
+
+  private Response execute(Criticality criticality, int statusCode, AtomicInteger attempts) {
+    return execute(criticality, statusCode, attempts, false);
+  }
+
+  private Response execute(Criticality criticality, int statusCode, AtomicInteger attempts, boolean adaptive) {
+    ResponseMock response = new ResponseMock() {
+      @Override
+      public String getHeader(String name) {
+        return null;
+      }
+    };
+    response.setStatusCode(statusCode);
+    RequestStrategy.RequestExecutor requestExecutor = new RequestStrategy.RequestExecutor() {
+      @Override
+      public CompletableFuture<ResponseWrapper> executeRequest(Request request, int retryCount, RequestContext context) {
+        attempts.incrementAndGet();
+        return CompletableFuture.completedFuture(new ResponseWrapper(response, 1_000));
+      }
+
+      @Override
+      public int getDefaultRequestTimeoutMs() {
+        return UpstreamConfig.DEFAULT_REQUEST_TIMEOUT_MS;
+      }
+    };
+    return execute(criticality, requestExecutor, adaptive).join();
+  }
+
+  private CompletableFuture<Response> execute(Criticality criticality, RequestStrategy.RequestExecutor requestExecutor, boolean adaptive) {
+    Request request = new RequestBuilder("GET")
+        .setUrl("http://" + UPSTREAM + "/path")
+        .setHeader(X_HH_CRITICALITY, criticality.name())
+        .build();
+    RequestBalancerBuilder builder = new RequestBalancerBuilder(upstreamManager, null);
+    if (adaptive) {
+      builder.makeAdaptive();
+    }
+    return builder.build(request, requestExecutor).execute();
+  }
+}
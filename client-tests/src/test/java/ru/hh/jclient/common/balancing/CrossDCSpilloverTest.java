@@ -0,0 +1,108 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import static ru.hh.jclient.common.balancing.CrossDCSpillover.getRemoteShare;
+import ru.hh.jclient.consul.ValueNode;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class CrossDCSpilloverTest {
+  private static final String LOCAL_DC = "DC1";
+  private static final String REMOTE_DC = "DC2";
+
+  @Test
+  public void testHealthyLocalServersDoNotSpill() {
+    List<Server> servers = List.of(server("local1", LOCAL_DC), server("local2", LOCAL_DC), server("remote", REMOTE_DC));
+
+    assertEquals(0, getRemoteShare(servers, LOCAL_DC, 0.5f, 0, System.nanoTime()), 0.001);
+  }
+
+  @Test
+  public void testSpilloverGrowsAsLocalHealthDrops() {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      List<Server> servers = List.of(server("local1", LOCAL_DC), server("local2", LOCAL_DC), server("remote", REMOTE_DC));
+
+      servers.get(0).deactivate(60_000, executor);
+      assertEquals(1.0 / 3, getRemoteShare(servers, LOCAL_DC, 0.75f, 0, System.nanoTime()), 0.001);
+
+      servers.get(1).deactivate(60_000, executor);
+      assertEquals(1, getRemoteShare(servers, LOCAL_DC, 0.75f, 0, System.nanoTime()), 0.001);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testSpilloverIsProportionalToExcessLoad() {
+    List<Server> servers = List.of(server("local", LOCAL_DC), server("remote", REMOTE_DC));
+    for (int i = 0; i < 4; i++) {
+      servers.get(0).acquire();
+    }
+
+    assertEquals(0, getRemoteShare(servers, LOCAL_DC, 0.5f, 0, System.nanoTime()), 0.001);
+    assertEquals(0.5, getRemoteShare(servers, LOCAL_DC, 0.5f, 2, System.nanoTime()), 0.001);
+  }
+
+  @Test
+  public void testSpilloverIsReducedBySlowerRemote() {
+    List<Server> servers = List.of(server("local", LOCAL_DC), server("remote", REMOTE_DC));
+    for (int i = 0; i < 4; i++) {
+      servers.get(0).acquire();
+    }
+    servers.get(0).getResponseTimeTracker().seed(10_000);
+    servers.get(1).getResponseTimeTracker().seed(20_000);
+
+    assertEquals(0.25, getRemoteShare(servers, LOCAL_DC, 0.5f, 2, System.nanoTime()), 0.001);
+  }
+
+  @Test
+  public void testNoRemoteServers() {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      List<Server> servers = List.of(server("local", LOCAL_DC));
+      servers.get(0).deactivate(60_000, executor);
+
+      assertEquals(0, getRemoteShare(servers, LOCAL_DC, 0.5f, 0, System.nanoTime()), 0.001);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testUpstreamSpillsOverLoadedLocalServers() {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      ValueNode configTree = new ValueNode();
+      configTree.computeMapIfAbsent("backend")
+          .computeMapIfAbsent(UpstreamConfig.DEFAULT)
+          .computeMapIfAbsent(UpstreamConfig.PROFILE_NODE)
+          .computeMapIfAbsent(UpstreamConfig.DEFAULT)
+          .putValue("cross_dc_load_threshold", "2");
+      Upstream upstream = new Upstream(Upstream.UpstreamKey.ofComplexName("backend"),
+          UpstreamConfig.fromTree("backend", null, null, configTree), executor, LOCAL_DC, true, true);
+      List<Server> servers = List.of(server("local", LOCAL_DC), server("remote", REMOTE_DC));
+
+      assertEquals(0, upstream.acquireServer(Set.of(), servers).getIndex());
+      for (int i = 0; i < 3; i++) {
+        servers.get(0).acquire();
+      }
+
+      // local load is 4, half of requests spill over
+      upstream.setRandom(bound -> bound / 2 - 1);
+      assertEquals(1, upstream.acquireServer(Set.of(), servers).getIndex());
+      upstream.setRandom(bound -> bound / 2 + 1);
+      assertEquals(0, upstream.acquireServer(Set.of(), servers).getIndex());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Server server(String address, String datacenter) {
+    return new Server(address, 1, datacenter);
+  }
+}
@@ -0,0 +1,63 @@
+package ru.hh.jclient.common.balancing;
+
+import ru.hh.jclient.common.Request;
+import ru.hh.jclient.common.RequestContext;
+import ru.hh.jclient.common.RequestStrategy;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.ResponseWrapper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Request executor that answers every attempt with the same status and headers and counts attempts.
+ */
+final class FixedResponseExecutor implements RequestStrategy.RequestExecutor {
+  private final ResponseMock response;
+  private final Map<String, String> headers = new HashMap<>();
+  private final AtomicInteger attempts = new AtomicInteger();
+  private CompletableFuture<Long> bodyCompletion;
+
+  FixedResponseExecutor(int statusCode) {
+    response = new ResponseMock() {
+      @Override
+      public String getHeader(String name) {
+        return headers.get(name);
+      }
+    };
+    response.setStatusCode(statusCode);
+  }
+
+  FixedResponseExecutor withHeader(String name, String value) {
+    headers.put(name, value);
+    return this;
+  }
+
+  /**
+   * Makes body of responses streamed, it is read until the future completes.
+   */
+  FixedResponseExecutor withStreamedBody(CompletableFuture<Long> bodyCompletion) {
+    this.bodyCompletion = bodyCompletion;
+    return this;
+  }
+
+  int getAttempts() {
+    return attempts.get();
+  }
+
+  @Override
+  public CompletableFuture<ResponseWrapper> executeRequest(Request request, int retryCount, RequestContext context) {
+    attempts.incrementAndGet();
+    if (bodyCompletion != null) {
+      return CompletableFuture.completedFuture(new ResponseWrapper(response, 1_000, bodyCompletion));
+    }
+    return CompletableFuture.completedFuture(new ResponseWrapper(response, 1_000));
+  }
+
+  @Override
+  public int getDefaultRequestTimeoutMs() {
+    return UpstreamConfig.DEFAULT_REQUEST_TIMEOUT_MS;
+  }
+}
@@ -0,0 +1,66 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class LoadTrackerTest {
+  private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  @Test
+  public void testNoReports() {
+    LoadTracker tracker = new LoadTracker(DECAY_NANOS);
+
+    assertEquals(0, tracker.load(0), 0);
+  }
+
+  @Test
+  public void testReportsAreSmoothed() {
+    LoadTracker tracker = new LoadTracker(DECAY_NANOS);
+
+    tracker.report(1, 0);
+    assertEquals(1, tracker.load(0), 0.0001);
+
+    tracker.report(0, 0);
+    double load = tracker.load(0);
+    assertTrue(load > 0 && load < 1);
+  }
+
+  @Test
+  public void testLoadDecays() {
+    LoadTracker tracker = new LoadTracker(DECAY_NANOS);
+
+    tracker.report(1, 0);
+
+    assertEquals(Math.exp(-1), tracker.load(DECAY_NANOS), 0.0001);
+    assertTrue(tracker.load(10 * DECAY_NANOS) < 0.001);
+  }
+
+  @Test
+  public void testInvalidReportsAreIgnored() {
+    LoadTracker tracker = new LoadTracker(DECAY_NANOS);
+
+    tracker.report(-1, 0);
+    tracker.report(Double.NaN, 0);
+    tracker.report(Double.POSITIVE_INFINITY, 0);
+
+    assertEquals(0, tracker.load(0), 0);
+  }
+
+  @Test
+  public void testReportedLoadMakesServerLessPreferable() {
+    Server loaded = new Server("server1", 1, null);
+    Server idle = new Server("server2", 1, null);
+    loaded.acquire();
+    idle.acquire();
+    loaded.reportLoad(1);
+
+    int index = BalancingStrategy.getLeastLoadedServer(List.of(loaded, idle), Set.of(), null, false);
+
+    assertEquals(1, index);
+  }
+}
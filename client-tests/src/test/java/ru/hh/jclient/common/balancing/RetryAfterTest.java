@@ -0,0 +1,132 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static ru.hh.jclient.common.HttpStatuses.BAD_GATEWAY;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+import static ru.hh.jclient.common.HttpStatuses.TOO_MANY_REQUESTS;
+import ru.hh.jclient.common.Request;
+import ru.hh.jclient.common.RequestBuilder;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.consul.ValueNode;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class RetryAfterTest {
+  private static final String UPSTREAM = "backend";
+
+  @Test
+  public void testDelaySeconds() {
+    assertEquals(5_000, RetryAfter.parseDelayMs("5", 0));
+    assertEquals(0, RetryAfter.parseDelayMs("0", 0));
+    assertEquals(RetryAfter.MAX_DELAY_MS, RetryAfter.parseDelayMs("3600", 0));
+  }
+
+  @Test
+  public void testHttpDate() {
+    long now = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+    assertEquals(10_000, RetryAfter.parseDelayMs("Wed, 01 Jan 2020 00:00:10 GMT", now));
+    assertEquals(0, RetryAfter.parseDelayMs("Tue, 31 Dec 2019 23:59:00 GMT", now));
+
+    String formatted = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(now + 2_000).atZone(ZoneOffset.UTC));
+    assertEquals(2_000, RetryAfter.parseDelayMs(formatted, now));
+  }
+
+  @Test
+  public void testMalformedValues() {
+    assertEquals(-1, RetryAfter.parseDelayMs(null, 0));
+    assertEquals(-1, RetryAfter.parseDelayMs(" ", 0));
+    assertEquals(-1, RetryAfter.parseDelayMs("5s", 0));
+    assertEquals(-1, RetryAfter.parseDelayMs("tomorrow", 0));
+  }
+
+  @Test
+  public void testBackedOffServerIsNotSelected() {
+    Server backedOff = new Server("server1", 1, null);
+    Server available = new Server("server2", 1, null);
+    available.acquire();
+
+    backedOff.backoff(10_000);
+
+    assertTrue(backedOff.isBackedOff(System.nanoTime()));
+    assertFalse(available.isBackedOff(System.nanoTime()));
+    assertEquals(1, BalancingStrategy.getLeastLoadedServer(List.of(backedOff, available), Set.of(), null, false));
+  }
+
+  @Test
+  public void testTooManyRequestsBacksOffServer() {
+    List<Server> servers = List.of(new Server("server1", 1, null), new Server("server2", 1, null));
+    FixedResponseExecutor executor = new FixedResponseExecutor(TOO_MANY_REQUESTS).withHeader(RetryAfter.HEADER, "5");
+
+    execute(createUpstream(null), servers, false, executor);
+
+    assertTrue(servers.stream().anyMatch(server -> server.isBackedOff(System.nanoTime())));
+  }
+
+  @Test
+  public void testAllServersBackedOffInAdaptiveMode() {
+    List<Server> servers = List.of(new Server("server1", 1, null), new Server("server2", 1, null));
+    servers.forEach(server -> server.backoff(10_000));
+    FixedResponseExecutor executor = new FixedResponseExecutor(OK);
+
+    Response response = execute(createUpstream(null), servers, true, executor);
+
+    assertEquals(BAD_GATEWAY, response.getStatusCode());
+    assertEquals(0, executor.getAttempts());
+  }
+
+  @Test
+  public void testOnlyServersOfSubsetAreCountedAsBackedOff() {
+    List<Server> servers = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      servers.add(new Server("server" + i, 1, null));
+    }
+    Upstream upstream = createUpstream(2);
+    List<Server> subset = Subsetting.getSubset(servers, 0, 2);
+    for (int i = 0; i < servers.size(); i++) {
+      if (subset.get(i) == null) {
+        servers.get(i).backoff(10_000);
+      }
+    }
+
+    assertFalse(upstream.isMostServersBackedOff(servers));
+
+    subset.stream().filter(Objects::nonNull).forEach(server -> server.backoff(10_000));
+    assertTrue(upstream.isMostServersBackedOff(servers));
+  }
+
+  private static Upstream createUpstream(Integer subsetSize) {
+    ValueNode configTree = new ValueNode();
+    ValueNode profile = configTree.computeMapIfAbsent(UPSTREAM)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT)
+        .computeMapIfAbsent(UpstreamConfig.PROFILE_NODE)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT);
+    profile.putValue("max_tries", "2");
+    if (subsetSize != null) {
+      profile.putValue("subset_size", subsetSize.toString());
+    }
+    UpstreamConfig config = UpstreamConfig.fromTree(UPSTREAM, null, null, configTree);
+    return new Upstream(Upstream.UpstreamKey.ofComplexName(UPSTREAM), config, mock(ScheduledExecutorService.class), null, false, true,
+        subsetSize != null ? 0 : null);
+  }
+
+  private static Response execute(Upstream upstream, List<Server> servers, boolean adaptive, FixedResponseExecutor executor) {
+    RequestBalancerBuilder builder = new RequestBalancerBuilder(new StaticUpstreamManager(upstream, servers), null);
+    if (adaptive) {
+      builder.makeAdaptive();
+    }
+    Request request = new RequestBuilder("GET").setUrl("http://" + UPSTREAM + "/path").build();
+    return builder.build(request, executor).execute().join();
+  }
+}
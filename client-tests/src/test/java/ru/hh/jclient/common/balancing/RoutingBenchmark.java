@@ -0,0 +1,112 @@
+package ru.hh.jclient.common.balancing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.hh.jclient.consul.UpstreamConfigService;
+import ru.hh.jclient.consul.UpstreamService;
+import ru.hh.jclient.consul.ValueNode;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures per-request cost of resolving upstream of a host.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoutingBenchmark {
+  private static final int UPSTREAMS_COUNT = 50;
+  private static final String HOST = "backend25";
+  private static final List<Server> servers = List.of(new Server("server1", 1, null), new Server("server2", 1, null));
+
+  private ScheduledExecutorService executor;
+  private BalancingUpstreamManager manager;
+
+  public static void main(String[] args) throws RunnerException {
+    var opt = new OptionsBuilder()
+        .include(RoutingBenchmark.class.getSimpleName())
+        .forks(1)
+        .build();
+    new Runner(opt).run();
+  }
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    List<String> upstreams = IntStream.range(0, UPSTREAMS_COUNT)
+        .boxed()
+        .flatMap(i -> IntStream.range(0, 3).mapToObj(profile -> "backend" + i + (profile == 0 ? "" : ":profile" + profile)))
+        .collect(Collectors.toList());
+    manager = new BalancingUpstreamManager(upstreams, executor, Set.of(), null, false, new StaticConfigService(), new StaticUpstreamService());
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public void routeDefaultProfile(Blackhole bh) {
+    bh.consume(manager.getServersForService(HOST));
+    bh.consume(manager.getRoute(HOST, null).getConfig().getMaxTries());
+  }
+
+  @Benchmark
+  public void routeWithProfile(Blackhole bh) {
+    bh.consume(manager.getServersForService(HOST));
+    bh.consume(manager.getRoute(HOST, "profile2").getConfig().getMaxTries());
+  }
+
+  @Benchmark
+  public void routeMissingProfile(Blackhole bh) {
+    bh.consume(manager.getServersForService(HOST));
+    bh.consume(manager.getRoute(HOST, "missing").getConfig().getMaxTries());
+  }
+
+  @Benchmark
+  public void upstreamWithScheme(Blackhole bh) {
+    bh.consume(manager.getUpstream("http://" + HOST).getConfig().getMaxTries());
+  }
+
+  private static final class StaticConfigService implements UpstreamConfigService {
+    private final ValueNode config = new ValueNode();
+
+    @Override
+    public ValueNode getUpstreamConfig() {
+      return config;
+    }
+
+    @Override
+    public void setupListener(Consumer<String> callback) {
+    }
+  }
+
+  private static final class StaticUpstreamService implements UpstreamService {
+
+    @Override
+    public void setupListener(Consumer<String> callback) {
+    }
+
+    @Override
+    public List<Server> getServers(String serviceName) {
+      return servers;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class ServerStatsStorageTest {
+  private static final long HOUR_MS = 3_600_000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSaveAndRestore() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("stats");
+    Server server = new Server("server1", 1, null);
+    for (int i = 0; i < AdaptiveBalancingStrategy.RESPONSE_TIME_TRACKER_WINDOW; i++) {
+      server.getResponseTimeTracker().time(1000);
+    }
+    for (int i = 0; i < 10; i++) {
+      server.getDowntimeDetector().failed();
+    }
+
+    new ServerStatsStorage(file, HOUR_MS, HOUR_MS).save(Map.of("backend", List.of(server)));
+
+    Server restored = new Server("server1", 1, null);
+    new ServerStatsStorage(file, HOUR_MS, HOUR_MS).restore("backend", restored);
+
+    assertFalse(restored.getResponseTimeTracker().isWarmUp());
+    assertEquals(1000, restored.getResponseTimeTracker().mean());
+    assertEquals(AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW - 10, restored.getDowntimeDetector().successCount());
+  }
+
+  @Test
+  public void testRestoreSkipsOtherAddresses() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("stats");
+    Server server = new Server("server1", 1, null);
+    server.getResponseTimeTracker().seed(1000);
+
+    new ServerStatsStorage(file, HOUR_MS, HOUR_MS).save(Map.of("backend", List.of(server)));
+
+    ServerStatsStorage storage = new ServerStatsStorage(file, HOUR_MS, HOUR_MS);
+    Server otherAddress = new Server("server2", 1, null);
+    storage.restore("backend", otherAddress);
+    Server otherUpstream = new Server("server1", 1, null);
+    storage.restore("other", otherUpstream);
+
+    assertTrue(otherAddress.getResponseTimeTracker().isWarmUp());
+    assertTrue(otherUpstream.getResponseTimeTracker().isWarmUp());
+  }
+
+  @Test
+  public void testStaleStatsAreIgnored() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("stats");
+    long savedAt = System.currentTimeMillis() - 2 * HOUR_MS;
+    Files.write(file, List.of("v1\t" + savedAt, "backend\tserver1\t1000\t50"), StandardCharsets.UTF_8);
+
+    Server server = new Server("server1", 1, null);
+    new ServerStatsStorage(file, HOUR_MS, HOUR_MS).restore("backend", server);
+
+    assertTrue(server.getResponseTimeTracker().isWarmUp());
+    assertEquals(AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW, server.getDowntimeDetector().successCount());
+  }
+
+  @Test
+  public void testFailuresDecayWithAge() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("stats");
+    long savedAt = System.currentTimeMillis() - HOUR_MS / 2;
+    Files.write(file, List.of("v1\t" + savedAt, "backend\tserver1\t1000\t50"), StandardCharsets.UTF_8);
+
+    Server server = new Server("server1", 1, null);
+    new ServerStatsStorage(file, HOUR_MS, HOUR_MS).restore("backend", server);
+
+    int successCount = server.getDowntimeDetector().successCount();
+    assertTrue(successCount > AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW - 50);
+    assertTrue(successCount < AdaptiveBalancingStrategy.DOWNTIME_DETECTOR_WINDOW);
+  }
+}
@@ -0,0 +1,46 @@
+package ru.hh.jclient.common.balancing;
+
+import ru.hh.jclient.common.Monitoring;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Upstream manager with a single upstream and fixed list of servers.
+ */
+final class StaticUpstreamManager extends UpstreamManager {
+  private final Upstream upstream;
+  private final List<Server> servers;
+
+  StaticUpstreamManager(Upstream upstream, List<Server> servers) {
+    this.upstream = upstream;
+    this.servers = servers;
+  }
+
+  @Override
+  public List<Server> getServersForService(String upstreamName) {
+    return servers;
+  }
+
+  @Override
+  public void updateUpstream(@Nonnull String upstreamName) {
+  }
+
+  @Override
+  public Upstream getUpstream(String serviceName, @Nullable String profile) {
+    return upstream;
+  }
+
+  @Override
+  Map<String, UpstreamGroup> getUpstreams() {
+    return Map.of(upstream.getName(), new UpstreamGroup(upstream.getName(), null, upstream));
+  }
+
+  @Override
+  public Set<Monitoring> getMonitoring() {
+    return Set.of();
+  }
+}
@@ -0,0 +1,60 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+import ru.hh.jclient.common.Request;
+import ru.hh.jclient.common.RequestBuilder;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.consul.ValueNode;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class StreamedResponseTest {
+  private static final String UPSTREAM = "backend";
+
+  @Test
+  public void testServerIsReleasedWhenBodyIsRead() {
+    Server server = new Server("server1", 1, null);
+    CompletableFuture<Long> bodyCompletion = new CompletableFuture<>();
+
+    Response response = execute(server, new FixedResponseExecutor(OK).withStreamedBody(bodyCompletion));
+
+    assertEquals(OK, response.getStatusCode());
+    assertEquals(1, server.getRequests());
+
+    bodyCompletion.complete(5_000L);
+    assertEquals(0, server.getRequests());
+    assertEquals(0, server.getFails());
+  }
+
+  @Test
+  public void testFailedBodyIsCountedAsError() {
+    Server server = new Server("server1", 1, null);
+    CompletableFuture<Long> bodyCompletion = new CompletableFuture<>();
+
+    execute(server, new FixedResponseExecutor(OK).withStreamedBody(bodyCompletion));
+    bodyCompletion.completeExceptionally(new IOException("connection reset"));
+
+    assertEquals(0, server.getRequests());
+    assertEquals(1, server.getFails());
+  }
+
+  private static Response execute(Server server, FixedResponseExecutor executor) {
+    ValueNode configTree = new ValueNode();
+    configTree.computeMapIfAbsent(UPSTREAM)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT)
+        .computeMapIfAbsent(UpstreamConfig.PROFILE_NODE)
+        .computeMapIfAbsent(UpstreamConfig.DEFAULT);
+    UpstreamConfig config = UpstreamConfig.fromTree(UPSTREAM, null, null, configTree);
+    Upstream upstream = new Upstream(Upstream.UpstreamKey.ofComplexName(UPSTREAM), config, mock(ScheduledExecutorService.class), null, false,
+        true, null);
+    RequestBalancerBuilder builder = new RequestBalancerBuilder(new StaticUpstreamManager(upstream, List.of(server)), null);
+    Request request = new RequestBuilder("GET").setUrl("http://" + UPSTREAM + "/path").build();
+    return builder.build(request, executor).execute().join();
+  }
+}
@@ -0,0 +1,90 @@
+package ru.hh.jclient.common.balancing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class SubsettingTest {
+
+  @Test
+  public void testSubsetKeepsIndexes() {
+    List<Server> servers = createServers(10, null);
+
+    List<Server> subset = Subsetting.getSubset(servers, 3, 4);
+
+    assertEquals(servers.size(), subset.size());
+    assertEquals(4, subset.stream().filter(Objects::nonNull).count());
+    for (int i = 0; i < subset.size(); i++) {
+      if (subset.get(i) != null) {
+        assertSame(servers.get(i), subset.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testSmallUpstreamIsNotReduced() {
+    List<Server> servers = createServers(3, null);
+
+    assertSame(servers, Subsetting.getSubset(servers, 7, 3));
+    assertSame(servers, Subsetting.getSubset(servers, 7, 0));
+  }
+
+  @Test
+  public void testEvenDistribution() {
+    List<Server> servers = createServers(20, null);
+    Map<String, Integer> clientsPerServer = new HashMap<>();
+
+    for (int clientId = 0; clientId < 40; clientId++) {
+      addresses(Subsetting.getSubset(servers, clientId, 5)).forEach(address -> clientsPerServer.merge(address, 1, Integer::sum));
+    }
+
+    assertEquals(20, clientsPerServer.size());
+    clientsPerServer.values().forEach(count -> assertEquals(10, count.intValue()));
+  }
+
+  @Test
+  public void testMinimalChangeOnServerRemoval() {
+    List<Server> servers = createServers(20, null);
+    List<Server> reduced = new ArrayList<>(servers.subList(1, servers.size()));
+    reduced.add(new Server("server-new", 1, null));
+
+    for (int clientId = 0; clientId < 40; clientId++) {
+      Set<String> before = addresses(Subsetting.getSubset(servers, clientId, 5));
+      Set<String> after = addresses(Subsetting.getSubset(reduced, clientId, 5));
+      after.retainAll(before);
+      assertTrue(after.size() >= 3);
+    }
+  }
+
+  @Test
+  public void testSubsetPerDatacenter() {
+    List<Server> servers = new ArrayList<>(createServers(6, "DC1"));
+    servers.addAll(createServers(2, "DC2"));
+
+    List<Server> subset = Subsetting.getSubset(servers, 1, 3);
+
+    assertEquals(3, subset.stream().filter(Objects::nonNull).filter(server -> "DC1".equals(server.getDatacenter())).count());
+    assertEquals(2, subset.stream().filter(Objects::nonNull).filter(server -> "DC2".equals(server.getDatacenter())).count());
+  }
+
+  private static List<Server> createServers(int count, String datacenter) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> new Server(datacenter + "-server" + i, 1, datacenter))
+        .collect(Collectors.toList());
+  }
+
+  private static Set<String> addresses(List<Server> servers) {
+    return servers.stream().filter(Objects::nonNull).map(Server::getAddress).collect(Collectors.toCollection(HashSet::new));
+  }
+}
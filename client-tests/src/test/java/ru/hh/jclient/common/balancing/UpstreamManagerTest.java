@@ -5,6 +5,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import static org.mockito.Mockito.mock;
@@ -82,6 +83,22 @@ public class UpstreamManagerTest {
     assertNull(upstreamManager.getUpstream("missing_upstream"));
   }
 
+  @Test
+  public void testGetRouteWithProfiles() {
+    when(upstreamConfigService.getUpstreamConfig()).thenReturn(new ValueNode());
+    UpstreamManager upstreamManager = createUpstreamManager(List.of(TEST_BACKEND));
+
+    UpstreamRoute defaultRoute = upstreamManager.getRoute(TEST_BACKEND, null);
+    assertEquals(TEST_BACKEND, defaultRoute.getUpstream().getName());
+    assertSame(defaultRoute, upstreamManager.getRoute(TEST_BACKEND, "missing"));
+
+    upstreamManager.updateUpstream(TEST_BACKEND + ":foo");
+
+    assertEquals(TEST_BACKEND + ":foo", upstreamManager.getRoute(TEST_BACKEND, "foo").getUpstream().getName());
+    assertSame(defaultRoute.getUpstream(), upstreamManager.getRoute(TEST_BACKEND, null).getUpstream());
+    assertNull(upstreamManager.getRoute("missing_upstream", null));
+  }
+
   private ValueNode buildProfileNode(ValueNode rootNode) {
     return rootNode.computeMapIfAbsent(TEST_BACKEND)
             .computeMapIfAbsent(UpstreamConfig.DEFAULT)
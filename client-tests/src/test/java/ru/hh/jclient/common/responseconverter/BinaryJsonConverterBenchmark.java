@@ -0,0 +1,119 @@
+package ru.hh.jclient.common.responseconverter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResponseMock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares reading and writing of binary JSON formats with JSON, for a single object and for pages of objects with a map of counters.
+ * Sizes of the bodies are printed before the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BinaryJsonConverterBenchmark {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Param({"JSON", "SMILE", "CBOR", "MSGPACK"})
+  private String format;
+
+  @Param({"1", "100", "10000"})
+  private int items;
+
+  private Page page;
+  private ObjectWriter writer;
+  private Response response;
+
+  public static void main(String[] args) throws RunnerException, JsonProcessingException {
+    for (int items : List.of(1, 100, 10000)) {
+      Page page = page(items);
+      System.out.printf("%d items: JSON %d bytes", items, MAPPER.writeValueAsBytes(page).length);
+      for (BinaryJsonFormat format : BinaryJsonFormat.values()) {
+        System.out.printf(", %s %d bytes", format, format.writer(MAPPER).writeValueAsBytes(page).length);
+      }
+      System.out.println();
+    }
+
+    var opt = new OptionsBuilder()
+        .include(BinaryJsonConverterBenchmark.class.getSimpleName())
+        .forks(1)
+        .build();
+    new Runner(opt).run();
+  }
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    page = page(items);
+    writer = "JSON".equals(format) ? MAPPER.writer() : BinaryJsonFormat.valueOf(format).writer(MAPPER);
+    String contentType = "JSON".equals(format) ? "application/json" : BinaryJsonFormat.valueOf(format).getMediaType().toString();
+    response = ResponseMock.ok(contentType, writer.writeValueAsBytes(page));
+  }
+
+  @Benchmark
+  public Object read() throws Exception {
+    SingleTypeConverter<Page> converter = "JSON".equals(format)
+        ? new JsonConverter<>(MAPPER, Page.class)
+        : new BinaryJsonConverter<>(MAPPER, Page.class, BinaryJsonFormat.valueOf(format));
+    return converter.singleTypeConverterFunction().apply(response);
+  }
+
+  @Benchmark
+  public byte[] write() throws JsonProcessingException {
+    return writer.writeValueAsBytes(page);
+  }
+
+  private static Page page(int items) {
+    Page page = new Page();
+    page.items = IntStream.range(0, items).mapToObj(BinaryJsonConverterBenchmark::vacancy).collect(Collectors.toList());
+    page.counters = page.items.stream().collect(Collectors.toMap(vacancy -> "area_" + vacancy.areaId, vacancy -> 1L, Long::sum));
+    page.found = items;
+    return page;
+  }
+
+  private static Vacancy vacancy(int id) {
+    Vacancy vacancy = new Vacancy();
+    vacancy.id = 40_000_000L + id;
+    vacancy.name = "Java developer " + id;
+    vacancy.areaId = id % 50;
+    vacancy.salaryFrom = 100_000 + id;
+    vacancy.salaryTo = 200_000 + id;
+    vacancy.premium = id % 3 == 0;
+    vacancy.skills = List.of("Java", "SQL", "Kafka", "Kubernetes");
+    return vacancy;
+  }
+
+  public static final class Page {
+    public List<Vacancy> items;
+    public Map<String, Long> counters;
+    public int found;
+  }
+
+  public static final class Vacancy {
+    public long id;
+    public String name;
+    public int areaId;
+    public Integer salaryFrom;
+    public Integer salaryTo;
+    public boolean premium;
+    public List<String> skills;
+  }
+}
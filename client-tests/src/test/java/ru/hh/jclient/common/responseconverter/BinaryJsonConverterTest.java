@@ -0,0 +1,105 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.exception.UnexpectedContentTypeException;
+import ru.hh.jclient.common.util.MediaTypes;
+
+import java.util.List;
+import java.util.Objects;
+
+public class BinaryJsonConverterTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Vacancy vacancy = new Vacancy(1L, "тест", List.of("a", "b"));
+
+  @Test
+  public void testFormatsAreReadWithAnnotationsOfMapper() throws Exception {
+    for (BinaryJsonFormat format : BinaryJsonFormat.values()) {
+      byte[] body = format.writer(objectMapper).writeValueAsBytes(vacancy);
+      BinaryJsonConverter<Vacancy> converter = new BinaryJsonConverter<>(objectMapper, Vacancy.class, format);
+
+      Response response = ResponseMock.ok(format.getMediaType().toString(), body);
+
+      assertEquals(format.name(), vacancy, converter.converterFunction().apply(response).get().get());
+    }
+  }
+
+  @Test
+  public void testFactoriesOfFormatsAreNotChanged() throws Exception {
+    for (BinaryJsonFormat format : BinaryJsonFormat.values()) {
+      Response response = ResponseMock.ok(format.getMediaType().toString(), format.writer(objectMapper).writeValueAsBytes(vacancy));
+      new BinaryJsonConverter<>(objectMapper, Vacancy.class, format).converterFunction().apply(response);
+
+      assertNull(format.name(), format.getFactory().getCodec());
+    }
+  }
+
+  @Test
+  public void testJsonIsAccepted() throws Exception {
+    BinaryJsonConverter<Vacancy> converter = new BinaryJsonConverter<>(objectMapper, Vacancy.class, BinaryJsonFormat.MSGPACK);
+    Response response = ResponseMock.ok("application/json; charset=utf-8", objectMapper.writeValueAsBytes(vacancy));
+
+    assertEquals(vacancy, converter.converterFunction().apply(response).get().get());
+  }
+
+  @Test
+  public void testBinaryFormatIsPreferred() {
+    BinaryJsonConverter<Vacancy> converter = new BinaryJsonConverter<>(objectMapper, Vacancy.class, BinaryJsonFormat.CBOR);
+
+    assertEquals("application/cbor,application/json", MediaTypes.toHeaderValue(converter.getSupportedMediaTypes().get()));
+  }
+
+  @Test(expected = UnexpectedContentTypeException.class)
+  public void testOtherFormatIsRejected() throws Exception {
+    byte[] body = BinaryJsonFormat.CBOR.writer(objectMapper).writeValueAsBytes(vacancy);
+    Response response = ResponseMock.ok(BinaryJsonFormat.CBOR.getMediaType().toString(), body);
+
+    new BinaryJsonConverter<>(objectMapper, Vacancy.class, BinaryJsonFormat.SMILE).converterFunction().apply(response);
+  }
+
+  public static final class Vacancy {
+    @JsonProperty("vacancy_id")
+    private final long id;
+    private final String name;
+    private final List<String> tags;
+
+    @JsonCreator
+    public Vacancy(@JsonProperty("vacancy_id") long id, @JsonProperty("name") String name, @JsonProperty("tags") List<String> tags) {
+      this.id = id;
+      this.name = name;
+      this.tags = tags;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Vacancy other = (Vacancy) o;
+      return id == other.id && Objects.equals(name, other.name) && Objects.equals(tags, other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, name, tags);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public class IncrementalJsonParserTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void testValueSplitIntoParts() throws IOException {
+    byte[] body = "{\"name\":\"тест\",\"values\":[1,2.5,null,true],\"nested\":{\"key\":\"value\"}}".getBytes(UTF_8);
+    IncrementalJsonParser<Map<String, Object>> parser = new IncrementalJsonParser<>(
+        objectMapper.readerFor(objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class)));
+
+    // one byte parts split multibyte characters and tokens
+    for (int i = 0; i < body.length; i++) {
+      parser.parse(Arrays.copyOfRange(body, i, i + 1));
+    }
+    Map<String, Object> result = parser.complete();
+
+    assertEquals("тест", result.get("name"));
+    assertEquals(Arrays.asList(1, 2.5, null, true), result.get("values"));
+    assertEquals(Map.of("key", "value"), result.get("nested"));
+  }
+
+  @Test
+  public void testCollection() throws IOException {
+    IncrementalJsonParser<Collection<String>> parser = new IncrementalJsonParser<>(
+        objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, String.class)));
+
+    parser.parse("[\"a\", \"b".getBytes(UTF_8));
+    parser.parse("\", \"c\"]".getBytes(UTF_8));
+
+    assertEquals(List.of("a", "b", "c"), List.copyOf(parser.complete()));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testMalformedBody() throws IOException {
+    IncrementalJsonParser<Object> parser = new IncrementalJsonParser<>(objectMapper.readerFor(Object.class));
+
+    parser.parse("{\"name\" 1}".getBytes(UTF_8));
+  }
+
+  @Test
+  public void testParserIsNotCreatedForOtherContentType() throws IOException {
+    JsonConverter<Object> converter = new JsonConverter<>(objectMapper, Object.class);
+
+    assertNull(converter.createBodyParser("text/plain"));
+    assertNull(converter.createBodyParser(null));
+    assertEquals(Map.of(), parseWhole(converter.createBodyParser("application/json; charset=utf-8"), "{}"));
+  }
+
+  private static Object parseWhole(BodyParser<?> parser, String body) throws IOException {
+    parser.parse(body.getBytes(UTF_8));
+    return parser.complete();
+  }
+}
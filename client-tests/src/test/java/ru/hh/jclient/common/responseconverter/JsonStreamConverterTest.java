@@ -0,0 +1,184 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public class JsonStreamConverterTest {
+  private static final String JSON = "application/json";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void testElementsArePublishedAsPartsArrive() throws IOException {
+    ElementPublisher<String> publisher = new JsonStreamConverter<>(objectMapper, String.class).createPublisher(JSON, Runnable::run);
+    TestSource source = new TestSource(publisher);
+    TestSubscriber<String> subscriber = new TestSubscriber<>();
+    publisher.connect(source);
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    source.send("[\"a\", \"те");
+    assertEquals(List.of("a"), subscriber.elements);
+    source.send("ст\", \"c\"");
+    assertEquals(List.of("a", "тест", "c"), subscriber.elements);
+    source.send("]");
+    assertFalse(subscriber.completed);
+
+    publisher.onBodyCompleted();
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.failure);
+  }
+
+  @Test
+  public void testReadingIsPausedWhileBufferIsFull() throws IOException {
+    ElementPublisher<Integer> publisher = new JsonStreamConverter<>(objectMapper, Integer.class, 2).createPublisher(JSON, Runnable::run);
+    TestSource source = new TestSource(publisher);
+    publisher.connect(source);
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+    publisher.subscribe(subscriber);
+
+    source.send("[1,");
+    source.send("2,");
+    assertEquals(2, source.requests);
+    assertEquals(List.of(), subscriber.elements);
+
+    subscriber.subscription.request(1);
+    assertEquals(List.of(1), subscriber.elements);
+    assertEquals(3, source.requests);
+    source.send("3]");
+    publisher.onBodyCompleted();
+
+    subscriber.subscription.request(5);
+    assertEquals(List.of(1, 2, 3), subscriber.elements);
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void testFailureIsSignalledAfterParsedElements() throws IOException {
+    ElementPublisher<Integer> publisher = new JsonStreamConverter<>(objectMapper, Integer.class).createPublisher(JSON, Runnable::run);
+    TestSource source = new TestSource(publisher);
+    publisher.connect(source);
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+    publisher.subscribe(subscriber);
+
+    source.send("[1, 2 }");
+    assertTrue(source.cancelled);
+
+    subscriber.subscription.request(10);
+    assertEquals(List.of(1, 2), subscriber.elements);
+    assertTrue(subscriber.failure instanceof JsonParseException);
+  }
+
+  @Test
+  public void testBodyMustBeArray() throws IOException {
+    ElementPublisher<Integer> publisher = new JsonStreamConverter<>(objectMapper, Integer.class).createPublisher(JSON, Runnable::run);
+    publisher.connect(new TestSource(publisher));
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+    publisher.subscribe(subscriber);
+
+    publisher.onBodyPart("{\"a\": 1}".getBytes(UTF_8));
+
+    assertTrue(subscriber.failure instanceof JsonParseException);
+  }
+
+  @Test
+  public void testCancellationStopsReading() throws IOException {
+    ElementPublisher<Integer> publisher = new JsonStreamConverter<>(objectMapper, Integer.class).createPublisher(JSON, Runnable::run);
+    TestSource source = new TestSource(publisher);
+    publisher.connect(source);
+    TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    source.send("[1, 2,");
+    subscriber.subscription.cancel();
+    source.send("3]");
+    publisher.onBodyCompleted();
+
+    assertTrue(source.cancelled);
+    assertEquals(List.of(1), subscriber.elements);
+    assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void testSingleSubscriber() throws IOException {
+    ElementPublisher<Integer> publisher = new JsonStreamConverter<>(objectMapper, Integer.class).createPublisher(JSON, Runnable::run);
+    publisher.subscribe(new TestSubscriber<>());
+    TestSubscriber<Integer> second = new TestSubscriber<>();
+
+    publisher.subscribe(second);
+
+    assertTrue(second.failure instanceof IllegalStateException);
+  }
+
+  @Test
+  public void testPublisherIsNotCreatedForOtherContentType() throws IOException {
+    JsonStreamConverter<Integer> converter = new JsonStreamConverter<>(objectMapper, Integer.class);
+
+    assertNull(converter.createPublisher("text/plain", Runnable::run));
+    assertNull(converter.createPublisher(null, Runnable::run));
+  }
+
+  private static final class TestSource implements ElementPublisher.BodySource {
+    private final ElementPublisher<?> publisher;
+    private int requests;
+    private boolean cancelled;
+
+    TestSource(ElementPublisher<?> publisher) {
+      this.publisher = publisher;
+    }
+
+    void send(String bodyPart) {
+      publisher.onBodyPart(bodyPart.getBytes(UTF_8));
+    }
+
+    @Override
+    public void request() {
+      requests++;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private static final class TestSubscriber<T> implements Flow.Subscriber<T> {
+    private final List<T> elements = new ArrayList<>();
+    private Flow.Subscription subscription;
+    private Throwable failure;
+    private boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      elements.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      failure = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.exception.UnexpectedContentTypeException;
+import ru.hh.jclient.common.model.XmlTest;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PrecompiledConverterTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final PrecompiledConverter<Map<String, Set<Integer>>> MAP_CONVERTER =
+      PrecompiledConverter.jsonMap(MAPPER, String.class, new TypeReference<>() {});
+
+  @Test
+  public void testConverterIsReusable() throws Exception {
+    assertEquals(Map.of("a", Set.of(1, 2)), MAP_CONVERTER.converterFunction().apply(json("{\"a\":[1,2,2]}")).get().get());
+    assertEquals(Map.of("b", Set.of()), MAP_CONVERTER.converterFunction().apply(json("{\"b\":[]}")).get().get());
+  }
+
+  @Test
+  public void testReadersAreSharedBetweenConverters() {
+    assertSame(
+        ObjectReaders.forType(MAPPER, MAPPER.getTypeFactory().constructCollectionType(Collection.class, XmlTest.class)),
+        ObjectReaders.forType(MAPPER, MAPPER.getTypeFactory().constructCollectionType(Collection.class, XmlTest.class))
+    );
+  }
+
+  @Test
+  public void testReadersDoNotKeepMapperReachable() throws InterruptedException {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectReaders.forType(mapper, mapper.constructType(XmlTest.class));
+    WeakReference<ObjectMapper> mapperReference = new WeakReference<>(mapper);
+    mapper = null;
+
+    for (int i = 0; i < 100 && mapperReference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(mapperReference.get());
+  }
+
+  @Test
+  public void testCollectionIsParsedIncrementally() throws Exception {
+    BodyParser<Collection<XmlTest>> parser = PrecompiledConverter.jsonCollection(MAPPER, XmlTest.class).createBodyParser("application/json");
+
+    parser.parse("[{\"name\":\"те".getBytes(UTF_8));
+    parser.parse("ст\"}]".getBytes(UTF_8));
+
+    assertEquals(List.of(new XmlTest("тест")), List.copyOf(parser.complete()));
+  }
+
+  @Test(expected = UnexpectedContentTypeException.class)
+  public void testContentTypeIsChecked() throws Exception {
+    PrecompiledConverter.json(MAPPER, XmlTest.class).converterFunction().apply(ResponseMock.ok("text/plain", "{}".getBytes(UTF_8)));
+  }
+
+  @Test
+  public void testParserIsNotCreatedForOtherContentType() throws Exception {
+    assertNull(PrecompiledConverter.json(MAPPER, XmlTest.class).createBodyParser("text/plain"));
+  }
+
+  @Test
+  public void testJsonConverterAppliesLaterConfigurationOfMapper() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonConverter<XmlTest> converter = new JsonConverter<>(mapper, XmlTest.class);
+    assertEquals(new XmlTest("a"), converter.converterFunction().apply(json("{\"name\":\"a\"}")).get().get());
+
+    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    assertEquals(new XmlTest("b"), converter.converterFunction().apply(json("{\"name\":\"b\",\"unknown\":1}")).get().get());
+  }
+
+  private static Response json(String body) {
+    return ResponseMock.ok("application/json; charset=utf-8", body.getBytes(UTF_8));
+  }
+}
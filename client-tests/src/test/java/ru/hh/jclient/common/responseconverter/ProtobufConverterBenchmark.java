@@ -0,0 +1,70 @@
+package ru.hh.jclient.common.responseconverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.model.ProtobufTest.ProtobufTestMessage;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures conversion of small and large protobuf responses, compared to reflective parsing from stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtobufConverterBenchmark {
+
+  @Param({"10", "100000"})
+  private int ids;
+
+  private Response response;
+
+  public static void main(String[] args) throws RunnerException {
+    var opt = new OptionsBuilder()
+        .include(ProtobufConverterBenchmark.class.getSimpleName())
+        .forks(1)
+        .build();
+    new Runner(opt).run();
+  }
+
+  @Setup
+  public void setUp() {
+    ProtobufTestMessage.Builder builder = ProtobufTestMessage.newBuilder();
+    IntStream.range(0, ids).forEach(builder::addIds);
+    response = ResponseMock.ok("application/x-protobuf", builder.build().toByteArray());
+  }
+
+  @Benchmark
+  public Object reflectiveParseFrom() throws Exception {
+    InputStream body = response.getResponseBodyAsStream();
+    if (body.available() > 0) {
+      Method parseFrom = ProtobufTestMessage.class.getMethod("parseFrom", InputStream.class);
+      return parseFrom.invoke(null, body);
+    }
+    return null;
+  }
+
+  @Benchmark
+  public Object converter() throws Exception {
+    return new ProtobufConverter<>(ProtobufTestMessage.class).singleTypeConverterFunction().apply(response);
+  }
+
+  @Benchmark
+  public Object aliasingConverter() throws Exception {
+    return new ProtobufConverter<>(ProtobufTestMessage.class, true).singleTypeConverterFunction().apply(response);
+  }
+}
@@ -0,0 +1,54 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.MessageLite;
+import org.junit.Test;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.model.ProtobufTest.ProtobufTestMessage;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ProtobufConverterTest {
+  private static final String PROTOBUF = "application/x-protobuf";
+
+  private final ProtobufTestMessage message = ProtobufTestMessage.newBuilder().addAllIds(List.of(1, 300, -1)).build();
+
+  @Test
+  public void testMessageIsParsedFromBodyBuffer() throws Exception {
+    ProtobufConverter<ProtobufTestMessage> converter = new ProtobufConverter<>(ProtobufTestMessage.class);
+
+    assertEquals(message, converter.singleTypeConverterFunction().apply(ResponseMock.ok(PROTOBUF, message.toByteArray())).get().get());
+  }
+
+  @Test
+  public void testMessageIsParsedFromBodyParts() throws Exception {
+    byte[] body = message.toByteArray();
+    Response response = ResponseMock.ok(PROTOBUF, Arrays.copyOfRange(body, 0, 3), Arrays.copyOfRange(body, 3, body.length));
+
+    assertEquals(message, new ProtobufConverter<>(ProtobufTestMessage.class).singleTypeConverterFunction().apply(response).get().get());
+  }
+
+  @Test
+  public void testAliasedMessageIsParsed() throws Exception {
+    ProtobufConverter<ProtobufTestMessage> converter = new ProtobufConverter<>(ProtobufTestMessage.class, true);
+
+    assertEquals(message, converter.singleTypeConverterFunction().apply(ResponseMock.ok(PROTOBUF, message.toByteArray())).get().get());
+  }
+
+  @Test
+  public void testEmptyBodyIsConvertedToNull() throws Exception {
+    Response response = ResponseMock.ok(PROTOBUF, new byte[0]);
+
+    assertTrue(new ProtobufConverter<>(ProtobufTestMessage.class).singleTypeConverterFunction().apply(response).get().isEmpty());
+    assertTrue(new ProtobufConverter<>(ProtobufTestMessage.class, true).singleTypeConverterFunction().apply(response).get().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypeMustBeGeneratedMessage() {
+    new ProtobufConverter<>(MessageLite.class);
+  }
+}
@@ -0,0 +1,156 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import ru.hh.jclient.common.ResponseMock;
+import ru.hh.jclient.common.model.XmlTest;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public class XmlStreamConverterTest {
+  private static final String XML = "application/xml";
+
+  private final JAXBContext context;
+
+  public XmlStreamConverterTest() throws JAXBException {
+    context = JAXBContext.newInstance(XmlTest.class);
+  }
+
+  @Test
+  public void testElementsArePublishedAsPartsArrive() {
+    ElementPublisher<XmlTest> publisher = new XmlStreamConverter<>(context, XmlTest.class).createPublisher(XML, Runnable::run);
+    TestSubscriber subscriber = new TestSubscriber();
+    publisher.connect(new NoopSource());
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    send(publisher, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<list xmlns=\"urn:test\" note='a > b'>\n  <container name=\"a\"/>\n  <cont");
+    assertEquals(List.of(new XmlTest("a")), subscriber.elements);
+    send(publisher, "ainer name=\"те");
+    send(publisher, "ст\"></container><!-- <container name=\"c\"/> -->");
+    assertEquals(List.of(new XmlTest("a"), new XmlTest("тест")), subscriber.elements);
+    send(publisher, "</list>");
+
+    publisher.onBodyCompleted();
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.failure);
+  }
+
+  @Test
+  public void testFailureIsSignalledAfterReadElements() {
+    ElementPublisher<XmlTest> publisher = new XmlStreamConverter<>(context, XmlTest.class).createPublisher(XML, Runnable::run);
+    TestSubscriber subscriber = new TestSubscriber();
+    publisher.connect(new NoopSource());
+    publisher.subscribe(subscriber);
+
+    send(publisher, "<list><container name=\"a\"/><container name=\"b\">");
+    publisher.onBodyCompleted();
+
+    subscriber.subscription.request(10);
+    assertEquals(List.of(new XmlTest("a")), subscriber.elements);
+    assertTrue(subscriber.failure instanceof EOFException);
+  }
+
+  @Test
+  public void testMalformedElementFails() {
+    ElementPublisher<XmlTest> publisher = new XmlStreamConverter<>(context, XmlTest.class).createPublisher(XML, Runnable::run);
+    TestSubscriber subscriber = new TestSubscriber();
+    publisher.connect(new NoopSource());
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(10);
+
+    send(publisher, "<list><container><name></container></list>");
+
+    assertTrue(subscriber.failure instanceof IOException);
+  }
+
+  @Test
+  public void testPublisherIsNotCreatedForOtherContentType() {
+    XmlStreamConverter<XmlTest> converter = new XmlStreamConverter<>(context, XmlTest.class);
+
+    assertNull(converter.createPublisher("application/json", Runnable::run));
+    assertNull(converter.createPublisher(null, Runnable::run));
+  }
+
+  @Test
+  public void testAsciiIncompatibleEncodingIsRejected() throws Exception {
+    XmlStreamConverter<XmlTest> converter = new XmlStreamConverter<>(context, XmlTest.class);
+
+    assertNull(converter.createPublisher("application/xml; charset=UTF-16", Runnable::run));
+    assertNotNull(converter.createPublisher("application/xml; charset=windows-1251", Runnable::run));
+    try {
+      converter.singleTypeConverterFunction().apply(ResponseMock.ok("application/xml; charset=UTF-16", "<list/>".getBytes(UTF_16)));
+      fail();
+    } catch (UnsupportedEncodingException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDocumentInAsciiIncompatibleEncodingFails() {
+    ElementPublisher<XmlTest> publisher = new XmlStreamConverter<>(context, XmlTest.class).createPublisher(XML, Runnable::run);
+    TestSubscriber subscriber = new TestSubscriber();
+    publisher.connect(new NoopSource());
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(10);
+
+    publisher.onBodyPart("<list><container name=\"a\"/></list>".getBytes(UTF_16));
+
+    assertTrue(subscriber.failure instanceof UnsupportedEncodingException);
+  }
+
+  private static void send(ElementPublisher<?> publisher, String bodyPart) {
+    publisher.onBodyPart(bodyPart.getBytes(UTF_8));
+  }
+
+  private static final class NoopSource implements ElementPublisher.BodySource {
+    @Override
+    public void request() {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  }
+
+  private static final class TestSubscriber implements Flow.Subscriber<XmlTest> {
+    private final List<XmlTest> elements = new ArrayList<>();
+    private Flow.Subscription subscription;
+    private Throwable failure;
+    private boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(XmlTest item) {
+      elements.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      failure = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
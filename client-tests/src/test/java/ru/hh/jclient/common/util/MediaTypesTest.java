@@ -0,0 +1,43 @@
+package ru.hh.jclient.common.util;
+
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static com.google.common.net.MediaType.XML_UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.MediaType;
+import org.junit.Test;
+
+import java.util.Set;
+
+public class MediaTypesTest {
+
+  @Test
+  public void testParsedValueIsReused() {
+    MediaType mediaType = MediaTypes.parse("application/json; charset=utf-8");
+
+    assertEquals(JSON_UTF_8, mediaType);
+    assertSame(mediaType, MediaTypes.parse("application/json; charset=utf-8"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidValueIsRejected() {
+    MediaTypes.parse("application");
+  }
+
+  @Test
+  public void testHeaderValue() {
+    Set<MediaType> mediaTypes = MediaTypes.setOf(JSON_UTF_8.withoutParameters(), XML_UTF_8.withoutParameters());
+    String value = MediaTypes.toHeaderValue(mediaTypes);
+
+    assertEquals("application/json,text/xml", value);
+    assertSame(value, MediaTypes.toHeaderValue(mediaTypes));
+    assertEquals(value, MediaTypes.toHeaderValue(ImmutableSet.copyOf(mediaTypes)));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSetIsImmutable() {
+    MediaTypes.setOf(JSON_UTF_8.withoutParameters()).add(XML_UTF_8);
+  }
+}
@@ -0,0 +1,101 @@
+package ru.hh.jclient.consul;
+
+import com.orbitz.consul.Consul;
+import com.orbitz.consul.cache.ImmutableServiceHealthKey;
+import com.orbitz.consul.cache.ServiceHealthKey;
+import com.orbitz.consul.model.catalog.ImmutableServiceWeights;
+import com.orbitz.consul.model.health.ImmutableHealthCheck;
+import com.orbitz.consul.model.health.ImmutableNode;
+import com.orbitz.consul.model.health.ImmutableService;
+import com.orbitz.consul.model.health.ImmutableServiceHealth;
+import com.orbitz.consul.model.health.ServiceHealth;
+import static org.mockito.Mockito.mock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of applying a Consul health snapshot of an upstream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpstreamServiceImplBenchmark {
+  private static final String SERVICE_NAME = "backend";
+  private static final String DATACENTER = "DC1";
+
+  @Param({"10", "100", "1000", "5000"})
+  public int serversCount;
+
+  private ScheduledExecutorService executor;
+  private UpstreamServiceImpl upstreamService;
+  private Map<ServiceHealthKey, ServiceHealth> snapshot;
+
+  public static void main(String[] args) throws RunnerException {
+    var opt = new OptionsBuilder()
+        .include(UpstreamServiceImplBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .forks(1)
+        .build();
+    new Runner(opt).run();
+  }
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    upstreamService = new UpstreamServiceImpl(List.of(SERVICE_NAME), List.of(DATACENTER), mock(Consul.class), executor,
+        5, DATACENTER, null, false);
+    snapshot = new HashMap<>();
+    for (int i = 0; i < serversCount; i++) {
+      String address = "10.0." + i / 256 + '.' + i % 256;
+      snapshot.put(
+          ImmutableServiceHealthKey.builder().serviceId(SERVICE_NAME + i).host(address).port(80).build(),
+          ImmutableServiceHealth.builder()
+              .node(ImmutableNode.builder().node("node" + i).address(address).datacenter(DATACENTER).build())
+              .service(ImmutableService.builder()
+                  .id(SERVICE_NAME + i)
+                  .service(SERVICE_NAME)
+                  .address(address)
+                  .port(80)
+                  .weights(ImmutableServiceWeights.builder().passing(100).warning(10).build())
+                  .build())
+              .addChecks(ImmutableHealthCheck.builder()
+                  .name(SERVICE_NAME)
+                  .node("node" + i)
+                  .checkId("check" + i)
+                  .status("passing")
+                  .build())
+              .build()
+      );
+    }
+    upstreamService.updateUpstreams(snapshot, SERVICE_NAME, DATACENTER);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public Object updateUpstreams() {
+    upstreamService.updateUpstreams(snapshot, SERVICE_NAME, DATACENTER);
+    return upstreamService.getServers(SERVICE_NAME);
+  }
+}
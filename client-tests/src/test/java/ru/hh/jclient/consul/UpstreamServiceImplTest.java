@@ -17,10 +17,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.mockito.Mockito.mock;
 import ru.hh.jclient.common.balancing.Server;
+import ru.hh.jclient.common.balancing.ServerStatsStorage;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -40,6 +46,9 @@ public class UpstreamServiceImplTest {
   static int watchSeconds = 7;
   static boolean allowCrossDC = false;
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Before
 
   public void init() {
@@ -161,6 +170,22 @@ public class UpstreamServiceImplTest {
     assertEquals(1, servers.size());
   }
 
+  @Test
+  public void testCloseSavesStats() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("stats");
+    UpstreamServiceImpl upstreamService = new UpstreamServiceImpl(upstreamList, datacenterList, consulClient, scheduledExecutorService,
+        watchSeconds, DATA_CENTER, null, allowCrossDC, new ServerStatsStorage(file, 3_600_000, 3_600_000));
+    upstreamService.updateUpstreams(Map.of(buildKey("a1"), buildServiceHealth("a1", 124, DATA_CENTER, NODE_NAME, 12, true)),
+        SERVICE_NAME, DATA_CENTER);
+
+    upstreamService.close();
+    assertEquals(2, Files.readAllLines(file).size());
+
+    Files.delete(file);
+    upstreamService.close();
+    assertFalse(Files.exists(file));
+  }
+
   private ServiceHealth buildServiceHealth(String address, int port, String datacenter, String nodeName, int weight, boolean passing) {
     Service service = buildService(address, port, buildWeight(weight));
     HealthCheck healthCheck = buildHealthCheck(passing);
@@ -0,0 +1,131 @@
+package ru.hh.jclient.common;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Directives of Cache-Control header relevant for a shared in-process cache.
+ */
+final class CacheControl {
+  static final CacheControl EMPTY = new CacheControl(false, false, false, false, -1, -1, 0, 0);
+
+  private final boolean noStore;
+  private final boolean noCache;
+  private final boolean isPrivate;
+  private final boolean isPublic;
+  private final long maxAgeSeconds;
+  private final long sharedMaxAgeSeconds;
+  private final long staleWhileRevalidateSeconds;
+  private final long staleIfErrorSeconds;
+
+  private CacheControl(boolean noStore, boolean noCache, boolean isPrivate, boolean isPublic, long maxAgeSeconds, long sharedMaxAgeSeconds,
+                       long staleWhileRevalidateSeconds, long staleIfErrorSeconds) {
+    this.noStore = noStore;
+    this.noCache = noCache;
+    this.isPrivate = isPrivate;
+    this.isPublic = isPublic;
+    this.maxAgeSeconds = maxAgeSeconds;
+    this.sharedMaxAgeSeconds = sharedMaxAgeSeconds;
+    this.staleWhileRevalidateSeconds = staleWhileRevalidateSeconds;
+    this.staleIfErrorSeconds = staleIfErrorSeconds;
+  }
+
+  static CacheControl parse(@Nullable List<String> values) {
+    if (values == null || values.isEmpty()) {
+      return EMPTY;
+    }
+    boolean noStore = false;
+    boolean noCache = false;
+    boolean isPrivate = false;
+    boolean isPublic = false;
+    long maxAge = -1;
+    long sharedMaxAge = -1;
+    long staleWhileRevalidate = 0;
+    long staleIfError = 0;
+    for (String value : values) {
+      for (String directive : value.split(",")) {
+        String[] parts = directive.trim().split("=", 2);
+        String name = parts[0].trim().toLowerCase();
+        String argument = parts.length > 1 ? parts[1].trim().replace("\"", "") : null;
+        switch (name) {
+          case "no-store":
+            noStore = true;
+            break;
+          case "no-cache":
+            noCache = true;
+            break;
+          case "private":
+            isPrivate = true;
+            break;
+          case "public":
+            isPublic = true;
+            break;
+          case "max-age":
+            maxAge = parseSeconds(argument);
+            break;
+          case "s-maxage":
+            sharedMaxAge = parseSeconds(argument);
+            break;
+          case "stale-while-revalidate":
+            staleWhileRevalidate = Math.max(0, parseSeconds(argument));
+            break;
+          case "stale-if-error":
+            staleIfError = Math.max(0, parseSeconds(argument));
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    return new CacheControl(noStore, noCache, isPrivate, isPublic, maxAge, sharedMaxAge, staleWhileRevalidate, staleIfError);
+  }
+
+  private static long parseSeconds(@Nullable String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Math.max(0, Long.parseLong(value));
+    } catch (NumberFormatException e) {
+      // malformed value means the response is stale
+      return 0;
+    }
+  }
+
+  boolean isNoStore() {
+    return noStore;
+  }
+
+  boolean isNoCache() {
+    return noCache;
+  }
+
+  boolean isPrivate() {
+    return isPrivate;
+  }
+
+  boolean isPublic() {
+    return isPublic;
+  }
+
+  /**
+   * @return freshness lifetime for a shared cache or -1 if not specified
+   */
+  long getSharedMaxAgeSeconds() {
+    return sharedMaxAgeSeconds >= 0 ? sharedMaxAgeSeconds : maxAgeSeconds;
+  }
+
+  /**
+   * @return time after expiration during which the response may be served while it is refreshed in background
+   */
+  long getStaleWhileRevalidateSeconds() {
+    return staleWhileRevalidateSeconds;
+  }
+
+  /**
+   * @return time after expiration during which the response may be served if upstream fails
+   */
+  long getStaleIfErrorSeconds() {
+    return staleIfErrorSeconds;
+  }
+}
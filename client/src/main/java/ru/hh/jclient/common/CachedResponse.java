@@ -0,0 +1,131 @@
+package ru.hh.jclient.common;
+
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Response stored in {@link ResponseCache} with data needed to check its freshness and to revalidate it.
+ */
+final class CachedResponse {
+  private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+  private final StoredResponse response;
+  private final int weight;
+  private final long expiresAtMillis;
+  private final boolean alwaysRevalidate;
+  private final long staleWhileRevalidateMillis;
+  private final long staleIfErrorMillis;
+  @Nullable
+  private final String etag;
+  @Nullable
+  private final String lastModified;
+  private final AtomicLong lastRefreshMillis = new AtomicLong(Long.MIN_VALUE);
+
+  CachedResponse(StoredResponse response, int weight, long expiresAtMillis, CacheControl cacheControl) {
+    this.response = response;
+    this.weight = weight;
+    this.expiresAtMillis = expiresAtMillis;
+    this.alwaysRevalidate = cacheControl.isNoCache();
+    this.staleWhileRevalidateMillis = TimeUnit.SECONDS.toMillis(cacheControl.getStaleWhileRevalidateSeconds());
+    this.staleIfErrorMillis = TimeUnit.SECONDS.toMillis(cacheControl.getStaleIfErrorSeconds());
+    this.etag = response.getHeader(ETAG);
+    this.lastModified = response.getHeader(LAST_MODIFIED);
+  }
+
+  static int weigh(Response response, byte[] body) {
+    int weight = ENTRY_OVERHEAD_BYTES + body.length;
+    for (Map.Entry<String, String> header : response.getHeaders()) {
+      weight += header.getKey().length() + header.getValue().length();
+    }
+    return weight;
+  }
+
+  /**
+   * @return entry sharing the body with this one or null if the body is reclaimed since this one was removed from cache
+   */
+  @Nullable
+  CachedResponse withExpiration(long expiresAtMillis, CacheControl cacheControl) {
+    if (response.getStoredBody() != null && !response.getStoredBody().tryRetain()) {
+      return null;
+    }
+    return new CachedResponse(response, weight, expiresAtMillis, cacheControl);
+  }
+
+  /**
+   * Called when the entry is removed from cache.
+   */
+  void release() {
+    if (response.getStoredBody() != null) {
+      response.getStoredBody().release();
+    }
+  }
+
+  /**
+   * Serves a hit with a new response, so callers do not share an instance. Off heap body is handed over without copying only if
+   * the client releases it once the response is converted, otherwise the caller may keep the response and the body is copied to heap.
+   *
+   * @return response or null if the body is reclaimed since this entry was removed from cache
+   */
+  @Nullable
+  Response newResponse(HttpClient client) {
+    StoredResponse lease = response.lease();
+    if (lease == null || lease.getStoredBody() == null) {
+      return lease;
+    }
+    if (client.isReleasingBodyAfterConversion()) {
+      client.addReceivedBody(lease::release);
+      return lease;
+    }
+    try {
+      return lease.copyToHeap();
+    } finally {
+      lease.release();
+    }
+  }
+
+  int getWeight() {
+    return weight;
+  }
+
+  boolean isFresh(long nowMillis) {
+    return !alwaysRevalidate && nowMillis < expiresAtMillis;
+  }
+
+  /**
+   * Stale-while-revalidate is not applied to responses that must always be revalidated.
+   */
+  boolean isUsableWhileRevalidating(long nowMillis) {
+    return !alwaysRevalidate && nowMillis < expiresAtMillis + staleWhileRevalidateMillis;
+  }
+
+  boolean isUsableOnError(long nowMillis) {
+    return nowMillis < expiresAtMillis + staleIfErrorMillis;
+  }
+
+  /**
+   * @return true if no refresh of this response was started during the last interval
+   */
+  boolean tryStartRefresh(long nowMillis, long minIntervalMillis) {
+    long last = lastRefreshMillis.get();
+    return (last == Long.MIN_VALUE || nowMillis - last >= minIntervalMillis) && lastRefreshMillis.compareAndSet(last, nowMillis);
+  }
+
+  boolean hasValidators() {
+    return etag != null || lastModified != null;
+  }
+
+  @Nullable
+  String getEtag() {
+    return etag;
+  }
+
+  @Nullable
+  String getLastModified() {
+    return lastModified;
+  }
+}
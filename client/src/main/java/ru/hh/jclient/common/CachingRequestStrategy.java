@@ -0,0 +1,299 @@
+package ru.hh.jclient.common;
+
+import static com.google.common.net.HttpHeaders.ACCEPT;
+import static com.google.common.net.HttpHeaders.AGE;
+import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.CACHE_CONTROL;
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_MODIFIED_SINCE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
+import static com.google.common.net.HttpHeaders.VARY;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static ru.hh.jclient.common.HttpHeaderNames.HH_PROTO_SESSION;
+import static ru.hh.jclient.common.HttpHeaderNames.X_HH_ACCEPT_ERRORS;
+import static ru.hh.jclient.common.HttpStatuses.INTERNAL_SERVER_ERROR;
+import static ru.hh.jclient.common.HttpStatuses.NOT_MODIFIED;
+import static ru.hh.jclient.common.HttpStatuses.OK;
+
+import com.google.common.net.MediaType;
+import ru.hh.jclient.common.util.MediaTypes;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Decorates request strategy with {@link ResponseCache}. Works as a shared HTTP cache for GET requests:
+ * honours Cache-Control max-age, s-maxage, no-cache, no-store, private and public directives and Vary header,
+ * revalidates stale responses with If-None-Match and If-Modified-Since and treats 304 responses as cache hits.
+ * Responses to requests with authorization or session are stored only if they are marked as public.
+ * <p>
+ * Stale-while-revalidate responses are served immediately and refreshed in background, refreshes of the same key
+ * are deduplicated and started at most once per {@link #MIN_REFRESH_INTERVAL_MS}. Stale-if-error responses are served
+ * when upstream answers with 5xx or fails.
+ */
+public class CachingRequestStrategy<REB extends RequestEngineBuilder> implements RequestStrategy<REB> {
+  private static final String GET = "GET";
+  static final long MIN_REFRESH_INTERVAL_MS = 1_000;
+
+  private final RequestStrategy<REB> delegate;
+  private final ResponseCache cache;
+  private final LongSupplier clock;
+
+  public CachingRequestStrategy(RequestStrategy<REB> delegate, ResponseCache cache) {
+    this(delegate, cache, System::currentTimeMillis);
+  }
+
+  CachingRequestStrategy(RequestStrategy<REB> delegate, ResponseCache cache, LongSupplier clock) {
+    this.delegate = requireNonNull(delegate, "delegate must not be null");
+    this.cache = requireNonNull(cache, "cache must not be null");
+    this.clock = clock;
+  }
+
+  @Override
+  public REB createRequestEngineBuilder(HttpClient client) {
+    return delegate.createRequestEngineBuilder(client);
+  }
+
+  @Override
+  public RequestEngine decorateEngine(HttpClient client, Request request, Function<Request, RequestEngine> engineFactory) {
+    if (!isCacheable(client, request)) {
+      return delegate.decorateEngine(client, request, engineFactory);
+    }
+    return () -> execute(client, request, r -> delegate.decorateEngine(client, r, engineFactory));
+  }
+
+  @Override
+  public void setTimeoutMultiplier(double timeoutMultiplier) {
+    delegate.setTimeoutMultiplier(timeoutMultiplier);
+  }
+
+  @Override
+  public RequestStrategy<REB> createCustomizedCopy(UnaryOperator<REB> configAction) {
+    return new CachingRequestStrategy<>(delegate.createCustomizedCopy(configAction), cache, clock);
+  }
+
+  public ResponseCache getCache() {
+    return cache;
+  }
+
+  private static boolean isCacheable(HttpClient client, Request request) {
+    HttpHeaders headers = request.getHeaders();
+    return GET.equals(request.getMethod())
+        && !client.getContext().isDebugMode()
+        && !client.isParsingIncrementally()
+        && !headers.contains(IF_NONE_MATCH)
+        && !headers.contains(IF_MODIFIED_SINCE)
+        && !CacheControl.parse(headers.getAll(CACHE_CONTROL)).isNoStore();
+  }
+
+  private CompletableFuture<Response> execute(HttpClient client, Request request, Function<Request, RequestEngine> engineFactory) {
+    String key = getKey(client, request, cache.getVaryHeaderNames(request.getUrl()));
+    boolean noCache = CacheControl.parse(request.getHeaders().getAll(CACHE_CONTROL)).isNoCache();
+    CachedResponse cached = cache.get(key);
+    long now = clock.getAsLong();
+    if (cached != null && !noCache && cached.isUsableWhileRevalidating(now)) {
+      Response hit = cached.newResponse(client);
+      if (hit == null) {
+        cached = null;
+      } else if (cached.isFresh(now)) {
+        cache.countHit();
+        return completedFuture(hit);
+      } else {
+        cache.countStaleHit();
+        refreshInBackground(client, request, key, cached, engineFactory, now);
+        return completedFuture(hit);
+      }
+    }
+    return fetch(client, request, key, cached, engineFactory, true);
+  }
+
+  private void refreshInBackground(HttpClient client, Request request, String key, CachedResponse cached,
+                                   Function<Request, RequestEngine> engineFactory, long now) {
+    if (!cached.tryStartRefresh(now, MIN_REFRESH_INTERVAL_MS)) {
+      return;
+    }
+    // refreshed response is not converted by the client, so its body must not be released after conversion of the stale one
+    client.shareResponse();
+    // failed refresh leaves stale response in cache, next attempt is made after the interval
+    cache.refresh(key, () -> fetch(client, request, key, cached, engineFactory, false));
+  }
+
+  private CompletableFuture<Response> fetch(HttpClient client, Request request, String key, @Nullable CachedResponse cached,
+                                            Function<Request, RequestEngine> engineFactory, boolean staleIfError) {
+    Request outgoing = request;
+    if (cached != null && cached.hasValidators()) {
+      RequestBuilder builder = new RequestBuilder(request);
+      if (cached.getEtag() != null) {
+        builder.setHeader(IF_NONE_MATCH, cached.getEtag());
+      }
+      if (cached.getLastModified() != null) {
+        builder.setHeader(IF_MODIFIED_SINCE, cached.getLastModified());
+      }
+      outgoing = builder.build();
+    }
+    CachedResponse revalidated = outgoing != request ? cached : null;
+    CompletableFuture<Response> result;
+    try {
+      result = engineFactory.apply(outgoing).execute();
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    }
+    return result.handle((response, throwable) -> {
+      if (staleIfError && cached != null && isError(response, throwable) && cached.isUsableOnError(clock.getAsLong())) {
+        Response stale = cached.newResponse(client);
+        if (stale != null) {
+          cache.countStaleHit();
+          return completedFuture(stale);
+        }
+      }
+      if (throwable != null) {
+        throw throwable instanceof CompletionException ? (CompletionException) throwable : new CompletionException(throwable);
+      }
+      return onResponse(client, request, key, revalidated, response, engineFactory);
+    }).thenCompose(Function.identity());
+  }
+
+  /**
+   * Server errors include transport errors mapped by {@link TransportExceptionMapper}.
+   */
+  private static boolean isError(@Nullable Response response, @Nullable Throwable throwable) {
+    return throwable != null || response.getStatusCode() >= INTERNAL_SERVER_ERROR;
+  }
+
+  private CompletableFuture<Response> onResponse(HttpClient client, Request request, String key, @Nullable CachedResponse revalidated,
+                                                 Response response, Function<Request, RequestEngine> engineFactory) {
+    long now = clock.getAsLong();
+    if (response.getStatusCode() == NOT_MODIFIED && revalidated != null) {
+      CacheControl cacheControl = CacheControl.parse(response.getHeaders(CACHE_CONTROL));
+      CachedResponse entry = revalidated.withExpiration(getExpiresAtMillis(response, cacheControl, now), cacheControl);
+      if (entry == null) {
+        // body was evicted and reclaimed while revalidating
+        return fetch(client, request, key, null, engineFactory, false);
+      }
+      // entry holds its body until it is put and possibly evicted, so the hit is taken first
+      Response hit = entry.newResponse(client);
+      cache.put(key, entry);
+      cache.countHit();
+      return completedFuture(hit);
+    }
+    cache.countMiss();
+    if (response.getStatusCode() != OK) {
+      return completedFuture(response);
+    }
+
+    CacheControl cacheControl = CacheControl.parse(response.getHeaders(CACHE_CONTROL));
+    List<String> vary = parseVary(response.getHeaders(VARY));
+    if (!isStorable(client, request, response, cacheControl, vary)) {
+      cache.invalidate(key);
+      return completedFuture(response);
+    }
+    CachedResponse entry = cache.newEntry(response, getExpiresAtMillis(response, cacheControl, now), cacheControl);
+    String variantKey = getKey(client, request, vary);
+    if (entry == null || !variantKey.equals(key)) {
+      cache.invalidate(key);
+    }
+    if (entry != null) {
+      cache.setVaryHeaderNames(request.getUrl(), vary);
+      cache.put(variantKey, entry);
+    }
+    return completedFuture(response);
+  }
+
+  private static boolean isStorable(HttpClient client, Request request, Response response, CacheControl cacheControl, List<String> vary) {
+    if (cacheControl.isNoStore() || cacheControl.isPrivate() || vary.contains("*")) {
+      return false;
+    }
+    if (isPersonalized(client, request) && !cacheControl.isPublic()) {
+      return false;
+    }
+    boolean hasValidators = response.getHeader(ETAG) != null || response.getHeader(LAST_MODIFIED) != null;
+    return cacheControl.getSharedMaxAgeSeconds() > 0 || hasValidators;
+  }
+
+  private static boolean isPersonalized(HttpClient client, Request request) {
+    Map<String, List<String>> contextHeaders = client.getContext().getHeaders();
+    return request.getHeaders().contains(AUTHORIZATION)
+        || request.getHeaders().contains(HH_PROTO_SESSION)
+        || !client.isExternalRequest() && (contextHeaders.containsKey(AUTHORIZATION) || contextHeaders.containsKey(HH_PROTO_SESSION));
+  }
+
+  private static long getExpiresAtMillis(Response response, CacheControl cacheControl, long nowMillis) {
+    long maxAgeSeconds = Math.max(0, cacheControl.getSharedMaxAgeSeconds());
+    long ageSeconds = 0;
+    String age = response.getHeader(AGE);
+    if (age != null) {
+      try {
+        ageSeconds = Math.max(0, Long.parseLong(age.trim()));
+      } catch (NumberFormatException e) {
+        ageSeconds = 0;
+      }
+    }
+    return nowMillis + TimeUnit.SECONDS.toMillis(Math.max(0, maxAgeSeconds - ageSeconds));
+  }
+
+  private static List<String> parseVary(@Nullable List<String> values) {
+    if (values == null) {
+      return List.of();
+    }
+    return values.stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .map(String::trim)
+        .filter(name -> !name.isEmpty())
+        .map(name -> "*".equals(name) ? name : name.toLowerCase())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Key of the variant of the response to the request: url followed by values of the headers the response varies on,
+   * as they will be sent with the request. Neither url nor header values may contain line breaks, so keys are unambiguous.
+   */
+  private static String getKey(HttpClient client, Request request, Collection<String> varyHeaderNames) {
+    if (varyHeaderNames.isEmpty()) {
+      return request.getUrl();
+    }
+    StringBuilder key = new StringBuilder(request.getUrl());
+    getVaryValues(client, request, varyHeaderNames).forEach((name, value) -> {
+      key.append('\n').append(name);
+      if (value != null) {
+        key.append(':').append(value);
+      }
+    });
+    return key.toString();
+  }
+
+  private static Map<String, String> getVaryValues(HttpClient client, Request request, Collection<String> headerNames) {
+    Map<String, String> values = new TreeMap<>();
+    for (String name : headerNames) {
+      String value = request.getHeaders().get(name);
+      if (value == null && ACCEPT.equalsIgnoreCase(name)) {
+        value = joinMediaTypes(client.getExpectedMediaTypes());
+      } else if (value == null && X_HH_ACCEPT_ERRORS.equalsIgnoreCase(name)) {
+        value = joinMediaTypes(client.getExpectedMediaTypesForErrors());
+      } else if (value == null) {
+        List<String> contextValues = client.getContext().getHeaders().get(name);
+        value = contextValues == null ? null : String.join(",", contextValues);
+      }
+      values.put(name, value);
+    }
+    return values;
+  }
+
+  @Nullable
+  private static String joinMediaTypes(Optional<Collection<MediaType>> mediaTypes) {
+    return mediaTypes.map(MediaTypes::toHeaderValue).orElse(null);
+  }
+}
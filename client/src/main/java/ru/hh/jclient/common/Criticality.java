@@ -0,0 +1,40 @@
+package ru.hh.jclient.common;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How important a request is. When an upstream is saturated, sheddable requests are rejected locally first
+ * and only critical requests keep their retries. Criticality is sent to the upstream in {@link HttpHeaderNames#X_HH_CRITICALITY}.
+ */
+public enum Criticality {
+  CRITICAL,
+  DEFAULT,
+  SHEDDABLE;
+
+  /**
+   * @return criticality of the request, from the request headers or, if absent there, from the headers of the incoming request
+   */
+  public static Criticality of(Request request, Map<String, List<String>> contextHeaders) {
+    String value = request.getHeaders().get(HttpHeaderNames.X_HH_CRITICALITY);
+    if (value == null) {
+      List<String> values = contextHeaders.get(HttpHeaderNames.X_HH_CRITICALITY);
+      value = values == null || values.isEmpty() ? null : values.get(0);
+    }
+    return fromHeaderValue(value);
+  }
+
+  /**
+   * @return criticality for the header value or {@link #DEFAULT} if the value is missing or unknown
+   */
+  public static Criticality fromHeaderValue(String value) {
+    if (value != null) {
+      for (Criticality criticality : values()) {
+        if (criticality.name().equalsIgnoreCase(value.trim())) {
+          return criticality;
+        }
+      }
+    }
+    return DEFAULT;
+  }
+}
@@ -1,16 +1,19 @@
 package ru.hh.jclient.common;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.protobuf.GeneratedMessageV3;
+import com.google.protobuf.MessageLite;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import javax.xml.bind.JAXBContext;
+import ru.hh.jclient.common.responseconverter.BinaryJsonConverter;
+import ru.hh.jclient.common.responseconverter.BinaryJsonFormat;
 import ru.hh.jclient.common.responseconverter.JsonCollectionConverter;
 import ru.hh.jclient.common.responseconverter.JsonConverter;
 import ru.hh.jclient.common.responseconverter.JsonMapConverter;
 import ru.hh.jclient.common.responseconverter.PlainTextConverter;
+import ru.hh.jclient.common.responseconverter.PrecompiledConverter;
 import ru.hh.jclient.common.responseconverter.ProtobufConverter;
 import ru.hh.jclient.common.responseconverter.TypeConverter;
 import ru.hh.jclient.common.responseconverter.XmlConverter;
@@ -48,6 +51,21 @@ public class EmptyResultProcessor extends ResultProcessor<Void> {
     return new EmptyOrErrorProcessor<>(this, converter);
   }
 
+  @Override
+  public <E> EmptyOrErrorProcessor<E> orSmileError(ObjectMapper mapper, Class<E> jsonClass) {
+    return orError(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.SMILE));
+  }
+
+  @Override
+  public <E> EmptyOrErrorProcessor<E> orCborError(ObjectMapper mapper, Class<E> jsonClass) {
+    return orError(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.CBOR));
+  }
+
+  @Override
+  public <E> EmptyOrErrorProcessor<E> orMsgPackError(ObjectMapper mapper, Class<E> jsonClass) {
+    return orError(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.MSGPACK));
+  }
+
   @Override
   public <E> EmptyOrErrorProcessor<Collection<E>> orJsonCollectionError(ObjectMapper mapper, Class<E> jsonClass) {
     JsonCollectionConverter<E> converter = new JsonCollectionConverter<>(mapper, jsonClass);
@@ -63,7 +81,7 @@ public class EmptyResultProcessor extends ResultProcessor<Void> {
   }
 
   @Override
-  public <E extends GeneratedMessageV3> EmptyOrErrorProcessor<E> orProtobufError(Class<E> protobufClass) {
+  public <E extends MessageLite> EmptyOrErrorProcessor<E> orProtobufError(Class<E> protobufClass) {
     ProtobufConverter<E> converter = new ProtobufConverter<>(protobufClass);
     getHttpClient().setExpectedMediaTypesForErrors(converter.getSupportedMediaTypes());
     return new EmptyOrErrorProcessor<>(this, converter);
@@ -88,4 +106,9 @@ public class EmptyResultProcessor extends ResultProcessor<Void> {
     getHttpClient().setExpectedMediaTypesForErrors(converter.getSupportedMediaTypes());
     return new EmptyOrErrorProcessor<>(this, converter);
   }
+
+  @Override
+  public <E> EmptyOrErrorProcessor<E> orError(PrecompiledConverter<E> converter) {
+    return orError((TypeConverter<E>) converter);
+  }
 }
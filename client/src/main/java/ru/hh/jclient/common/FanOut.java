@@ -0,0 +1,307 @@
+package ru.hh.jclient.common;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Executes a batch of requests with bounded concurrency, see {@link HttpClientFactory#fanOut(Collection, Function)}.
+ * <p>
+ * At most {@link #maxConcurrency(int)} requests are in flight, the next one is started when one of them completes.
+ * If a request fails (completes exceptionally, responses with any status are not failures) or the deadline passes,
+ * requests in flight are aborted, the rest are not started and all of them are reported as cancelled,
+ * so results completed by that moment are available as partial results.
+ * <p>
+ * Every terminal operation executes the batch anew.
+ */
+public final class FanOut<T> {
+  public static final int DEFAULT_MAX_CONCURRENCY = 16;
+  // only fires deadlines, cancellation itself runs on the callback executor
+  static final ScheduledThreadPoolExecutor DEADLINES = createDeadlineScheduler();
+
+  private final HttpClientFactory factory;
+  private final List<Request> requests;
+  private final Function<HttpClient, ResultProcessor<T>> converter;
+  private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+  @Nullable
+  private Duration deadline;
+  private boolean cancelOnFailure = true;
+
+  FanOut(HttpClientFactory factory, Collection<Request> requests, Function<HttpClient, ResultProcessor<T>> converter) {
+    this.factory = factory;
+    this.requests = List.copyOf(requireNonNull(requests, "requests must not be null"));
+    this.converter = requireNonNull(converter, "converter must not be null");
+  }
+
+  public FanOut<T> maxConcurrency(int maxConcurrency) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+    }
+    this.maxConcurrency = maxConcurrency;
+    return this;
+  }
+
+  /**
+   * @param deadline time since start after which unfinished requests are cancelled
+   */
+  public FanOut<T> deadline(Duration deadline) {
+    this.deadline = requireNonNull(deadline, "deadline must not be null");
+    return this;
+  }
+
+  /**
+   * @param cancelOnFailure whether to cancel unfinished requests on the first failure, true by default
+   */
+  public FanOut<T> cancelOnFailure(boolean cancelOnFailure) {
+    this.cancelOnFailure = cancelOnFailure;
+    return this;
+  }
+
+  /**
+   * @return results of all requests in order of requests, completed when every request is finished or cancelled
+   */
+  public CompletableFuture<List<Result<T>>> collect() {
+    CompletableFuture<List<Result<T>>> promise = new CompletableFuture<>();
+    List<Result<T>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+    AtomicInteger remaining = new AtomicInteger(requests.size());
+    if (requests.isEmpty()) {
+      promise.complete(List.of());
+      return promise;
+    }
+    start(result -> {
+      results.set(result.getIndex(), result);
+      if (remaining.decrementAndGet() == 0) {
+        promise.complete(results);
+      }
+    });
+    return promise;
+  }
+
+  /**
+   * Publishes results as requests complete. Results are buffered until requested by subscriber, the buffer is bounded by number of requests.
+   * Execution starts on subscription of the first subscriber, so the publisher is meant for a single subscriber.
+   *
+   * @param executor executor to deliver results to subscriber
+   */
+  public Flow.Publisher<Result<T>> publisher(Executor executor) {
+    SubmissionPublisher<Result<T>> publisher = new SubmissionPublisher<>(executor, Math.max(1, requests.size()));
+    AtomicBoolean started = new AtomicBoolean();
+    AtomicInteger remaining = new AtomicInteger(requests.size());
+    return subscriber -> {
+      publisher.subscribe(subscriber);
+      if (!started.compareAndSet(false, true)) {
+        return;
+      }
+      if (requests.isEmpty()) {
+        publisher.close();
+        return;
+      }
+      start(result -> {
+        publisher.offer(result, null);
+        if (remaining.decrementAndGet() == 0) {
+          publisher.close();
+        }
+      });
+    };
+  }
+
+  private void start(Consumer<Result<T>> sink) {
+    Execution<T> execution = new Execution<>(requests, sink, maxConcurrency, cancelOnFailure);
+    // clients are created in the calling thread, since they capture its context
+    for (int i = 0; i < requests.size(); i++) {
+      execution.processors.add(converter.apply(factory.with(requests.get(i)).cancelledBy(execution.cancellations[i])));
+    }
+    if (deadline != null) {
+      // cancellation completes results, so it runs on the executor the clients complete their results on
+      Executor callbackExecutor = factory.getCallbackExecutor();
+      execution.setDeadline(DEADLINES.schedule(() -> callbackExecutor.execute(execution::cancel), deadline.toMillis(), TimeUnit.MILLISECONDS));
+    }
+    execution.drain();
+  }
+
+  private static ScheduledThreadPoolExecutor createDeadlineScheduler() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setNameFormat("jclient-fan-out-deadline").setDaemon(true).build());
+    // deadlines of batches that complete in time are removed at once instead of piling up in the queue
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  private static final class Execution<T> {
+    private final List<Request> requests;
+    private final List<ResultProcessor<T>> processors;
+    private final CompletableFuture<?>[] cancellations;
+    private final AtomicReferenceArray<Result<T>> results;
+    private final Consumer<Result<T>> sink;
+    private final boolean cancelOnFailure;
+    private final AtomicInteger permits;
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final AtomicInteger unfinished;
+    @Nullable
+    private volatile ScheduledFuture<?> deadline;
+    private volatile boolean cancelled;
+    // accessed only while draining
+    private int next;
+
+    Execution(List<Request> requests, Consumer<Result<T>> sink, int maxConcurrency, boolean cancelOnFailure) {
+      this.requests = requests;
+      this.processors = new ArrayList<>(requests.size());
+      this.cancellations = new CompletableFuture<?>[requests.size()];
+      for (int i = 0; i < cancellations.length; i++) {
+        cancellations[i] = new CompletableFuture<>();
+      }
+      this.results = new AtomicReferenceArray<>(requests.size());
+      this.sink = sink;
+      this.cancelOnFailure = cancelOnFailure;
+      this.permits = new AtomicInteger(maxConcurrency);
+      this.unfinished = new AtomicInteger(requests.size());
+    }
+
+    void setDeadline(ScheduledFuture<?> deadline) {
+      this.deadline = deadline;
+    }
+
+    /**
+     * Starts requests while there are permits. Requests completed synchronously call it recursively, so only the outermost call does the work.
+     */
+    void drain() {
+      if (drainRequests.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        while (next < requests.size() && (cancelled || permits.get() > 0)) {
+          int index = next++;
+          if (cancelled) {
+            finish(new Result<>(index, requests.get(index), null, null, true));
+            continue;
+          }
+          permits.decrementAndGet();
+          launch(index);
+        }
+      } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    private void launch(int index) {
+      CompletableFuture<ResultWithStatus<T>> future;
+      try {
+        future = processors.get(index).resultWithStatus();
+      } catch (RuntimeException e) {
+        future = CompletableFuture.failedFuture(e);
+      }
+      future.whenComplete((result, throwable) -> {
+        if (throwable == null) {
+          finish(new Result<>(index, requests.get(index), result, null, false));
+        } else {
+          Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+          boolean isCancellation = cause instanceof CancellationException && cancellations[index].isDone();
+          finish(new Result<>(index, requests.get(index), null, isCancellation ? null : cause, isCancellation));
+          if (!isCancellation && cancelOnFailure) {
+            cancel();
+          }
+        }
+        permits.incrementAndGet();
+        drain();
+      });
+    }
+
+    void cancel() {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      for (int i = 0; i < cancellations.length; i++) {
+        if (results.get(i) == null && cancellations[i].complete(null)) {
+          finish(new Result<>(i, requests.get(i), null, null, true));
+        }
+      }
+      drain();
+    }
+
+    private void finish(Result<T> result) {
+      if (results.compareAndSet(result.getIndex(), null, result)) {
+        sink.accept(result);
+        if (unfinished.decrementAndGet() == 0 && deadline != null) {
+          deadline.cancel(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Outcome of a single request: completed with a result, failed or cancelled.
+   */
+  public static final class Result<T> {
+    private final int index;
+    private final Request request;
+    @Nullable
+    private final ResultWithStatus<T> result;
+    @Nullable
+    private final Throwable failure;
+    private final boolean cancelled;
+
+    Result(int index, Request request, @Nullable ResultWithStatus<T> result, @Nullable Throwable failure, boolean cancelled) {
+      this.index = index;
+      this.request = request;
+      this.result = result;
+      this.failure = failure;
+      this.cancelled = cancelled;
+    }
+
+    /**
+     * @return position of the request in the batch
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public Request getRequest() {
+      return request;
+    }
+
+    public boolean isCompleted() {
+      return result != null;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * @return converted result or empty if request failed or was cancelled
+     */
+    public Optional<ResultWithStatus<T>> getResult() {
+      return Optional.ofNullable(result);
+    }
+
+    public Optional<Throwable> getFailure() {
+      return Optional.ofNullable(failure);
+    }
+
+    @Override
+    public String toString() {
+      return "Result{index=" + index + ", " + (result != null ? "status=" + result.getStatusCode() : cancelled ? "cancelled" : "failure=" + failure) + '}';
+    }
+  }
+}
@@ -4,25 +4,34 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Range;
 import com.google.common.net.MediaType;
-import com.google.protobuf.GeneratedMessageV3;
 import com.google.protobuf.MessageLite;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 
 import java.util.function.Supplier;
+import io.netty.buffer.ByteBufAllocator;
 import org.asynchttpclient.AsyncHttpClient;
+import ru.hh.jclient.common.responseconverter.BinaryJsonConverter;
+import ru.hh.jclient.common.responseconverter.BinaryJsonFormat;
+import ru.hh.jclient.common.responseconverter.IncrementalTypeConverter;
 import ru.hh.jclient.common.responseconverter.JavaSerializedConverter;
 import ru.hh.jclient.common.responseconverter.JsonCollectionConverter;
 import ru.hh.jclient.common.responseconverter.JsonConverter;
 import ru.hh.jclient.common.responseconverter.JsonMapConverter;
+import ru.hh.jclient.common.responseconverter.JsonStreamConverter;
 import ru.hh.jclient.common.responseconverter.PlainTextConverter;
+import ru.hh.jclient.common.responseconverter.PrecompiledConverter;
 import ru.hh.jclient.common.responseconverter.ProtobufConverter;
+import ru.hh.jclient.common.responseconverter.StreamingTypeConverter;
 import ru.hh.jclient.common.responseconverter.TypeConverter;
 import ru.hh.jclient.common.responseconverter.VoidConverter;
+import ru.hh.jclient.common.exception.RequestConverterException;
 import ru.hh.jclient.common.responseconverter.XmlConverter;
+import ru.hh.jclient.common.responseconverter.XmlStreamConverter;
 import ru.hh.jclient.common.util.storage.Storage;
 import ru.hh.jclient.common.util.storage.StorageUtils.Storages;
 
+import javax.annotation.Nullable;
 import javax.xml.bind.JAXBContext;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -33,7 +42,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
 import java.util.function.Function;
 
 public abstract class HttpClient {
@@ -44,12 +56,15 @@ public abstract class HttpClient {
   private final Set<String> hostsWithSession;
   private final HttpClientContext context;
   private final Storages storages;
+  private final RequestStrategy<? extends RequestEngineBuilder> requestStrategy;
   private final RequestEngineBuilder requestEngineBuilder;
   private final List<HttpClientEventListener> eventListeners;
 
   private List<RequestDebug> debugs;
   private Request request;
   private Optional<?> requestBodyEntity = Optional.empty();
+  private PooledBodyWriter.Writer pooledBodyWriter;
+  private String pooledBodyContentType;
   private Optional<Collection<MediaType>> expectedMediaTypes = Optional.empty();
   private Optional<Collection<MediaType>> expectedMediaTypesForErrors = Optional.empty();
 
@@ -57,6 +72,14 @@ public abstract class HttpClient {
   private boolean noSession;
   private boolean noDebug;
   private boolean externalRequest;
+  private CompletableFuture<?> cancellation;
+  private boolean parseIncrementally;
+  private IncrementalTypeConverter<?> incrementalConverter;
+  private StreamingTypeConverter<?> streamingConverter;
+  private volatile ParsedBody parsedBody;
+  private boolean releaseBodyAfterConversion;
+  private boolean responseShared;
+  private final Queue<Runnable> receivedBodies = new ConcurrentLinkedQueue<>();
 
   HttpClient(AsyncHttpClient http,
              Request request,
@@ -67,6 +90,7 @@ public abstract class HttpClient {
     this.http = http;
     this.request = request;
     this.hostsWithSession = hostsWithSession;
+    this.requestStrategy = requestStrategy;
     this.requestEngineBuilder = requestStrategy.createRequestEngineBuilder(this);
     this.eventListeners = eventListeners;
 
@@ -115,6 +139,39 @@ public abstract class HttpClient {
     return this;
   }
 
+  /**
+   * Parses successful response body while it is being received, if converter of the result supports it (JSON converters do),
+   * instead of buffering the whole body and parsing it afterwards. Responses parsed this way have no body, so they are neither cached nor
+   * shared between requests, and debug output does not contain their bodies.
+   * <p>
+   * This reduces latency, not memory: tokens of the whole body are kept until the last part is received and the result is bound.
+   * To read large JSON arrays with bounded memory use {@link #expectJsonStream(ObjectMapper, Class)}.
+   */
+  public HttpClient parseIncrementally() {
+    parseIncrementally = true;
+    return this;
+  }
+
+  /**
+   * Sets criticality of the request, sent in {@link HttpHeaderNames#X_HH_CRITICALITY} header. If not set, criticality of the incoming request
+   * is passed through.
+   */
+  public HttpClient withCriticality(Criticality criticality) {
+    requireNonNull(criticality, "criticality must not be null");
+    RequestBuilder builder = new RequestBuilder(request);
+    builder.setHeader(HttpHeaderNames.X_HH_CRITICALITY, criticality.name());
+    request = builder.build();
+    return this;
+  }
+
+  /**
+   * Aborts request in flight and prevents retries once the given future is completed.
+   */
+  HttpClient cancelledBy(CompletableFuture<?> cancellation) {
+    this.cancellation = requireNonNull(cancellation, "cancellation must not be null");
+    return this;
+  }
+
   /**
    * Convenience method that sets protobuf object as request body as well as corresponding "Content-type" header. Provided object will be used in
    * debug output of request in debug mode.
@@ -124,10 +181,101 @@ public abstract class HttpClient {
    */
   public HttpClient withProtobufBody(MessageLite body) {
     requestBodyEntity = Optional.of(requireNonNull(body, "body must not be null"));
+    setPooledBody(allocator -> PooledBodyWriter.writeProtobuf(allocator, body), "application/x-protobuf");
+    return this;
+  }
+
+  /**
+   * Convenience method that sets object serialized with the mapper as request body as well as "Content-type" header of the mapper's format:
+   * JSON, or one of {@link BinaryJsonFormat} for mappers of binary factories. Provided object will be used in debug output of request in
+   * debug mode.
+   * <p>
+   * Unlike {@link RequestBuilder#setJsonBody(ObjectMapper, Object)} the object is serialized into pooled buffer when the request is executed,
+   * so {@link RequestConverterException} is thrown on execution. The buffer is released once the request is completed and sent.
+   *
+   * @param mapper Jackson mapper used to serialize the object
+   * @param body
+   *          object to send in request
+   */
+  public HttpClient withJsonBody(ObjectMapper mapper, Object body) {
+    requireNonNull(mapper, "mapper must not be null");
+    requestBodyEntity = Optional.of(requireNonNull(body, "body must not be null"));
+    String contentType = BinaryJsonFormat.forFactory(mapper.getFactory())
+        .map(format -> format.getMediaType().toString())
+        .orElse("application/json");
+    setPooledBody(allocator -> PooledBodyWriter.writeValue(allocator, mapper.writer(), body), contentType);
+    return this;
+  }
+
+  /**
+   * Convenience method that sets object serialized with the mapper in Smile format as request body as well as corresponding "Content-type"
+   * header, see {@link #withJsonBody(ObjectMapper, Object)}.
+   *
+   * @param mapper Jackson mapper used to serialize the object
+   * @param body
+   *          object to send in request
+   */
+  public HttpClient withSmileBody(ObjectMapper mapper, Object body) {
+    return withBinaryJsonBody(mapper, body, BinaryJsonFormat.SMILE);
+  }
+
+  /**
+   * Convenience method that sets object serialized with the mapper in CBOR format as request body as well as corresponding "Content-type"
+   * header, see {@link #withJsonBody(ObjectMapper, Object)}.
+   *
+   * @param mapper Jackson mapper used to serialize the object
+   * @param body
+   *          object to send in request
+   */
+  public HttpClient withCborBody(ObjectMapper mapper, Object body) {
+    return withBinaryJsonBody(mapper, body, BinaryJsonFormat.CBOR);
+  }
+
+  /**
+   * Convenience method that sets object serialized with the mapper in MessagePack format as request body as well as corresponding
+   * "Content-type" header, see {@link #withJsonBody(ObjectMapper, Object)}.
+   *
+   * @param mapper Jackson mapper used to serialize the object
+   * @param body
+   *          object to send in request
+   */
+  public HttpClient withMsgPackBody(ObjectMapper mapper, Object body) {
+    return withBinaryJsonBody(mapper, body, BinaryJsonFormat.MSGPACK);
+  }
+
+  private HttpClient withBinaryJsonBody(ObjectMapper mapper, Object body, BinaryJsonFormat format) {
+    requireNonNull(mapper, "mapper must not be null");
+    requestBodyEntity = Optional.of(requireNonNull(body, "body must not be null"));
+    setPooledBody(allocator -> PooledBodyWriter.writeValue(allocator, format.writer(mapper), body), format.getMediaType().toString());
+    return this;
+  }
+
+  private void setPooledBody(PooledBodyWriter.Writer writer, String contentType) {
+    pooledBodyWriter = writer;
+    pooledBodyContentType = contentType;
+  }
+
+  /**
+   * Serializes pooled body, if any, into buffer that is kept for retries, see {@link PooledRequestBody} for when it is released.
+   */
+  private PooledRequestBody writePooledBody() {
+    if (pooledBodyWriter == null) {
+      return null;
+    }
+    PooledRequestBody body;
+    try {
+      body = new PooledRequestBody(pooledBodyWriter.write(getAllocator()));
+    } catch (IOException e) {
+      throw new RequestConverterException("Failed to convert " + requestBodyEntity.orElse(null), e);
+    }
     RequestBuilder builder = new RequestBuilder(request);
-    builder.setBody(body.toByteArray(), "application/x-protobuf");
+    builder.setBody(body, pooledBodyContentType);
     request = builder.build();
-    return this;
+    return body;
+  }
+
+  private ByteBufAllocator getAllocator() {
+    return Optional.ofNullable(http.getConfig().getAllocator()).orElse(ByteBufAllocator.DEFAULT);
   }
 
   /**
@@ -139,6 +287,7 @@ public abstract class HttpClient {
    */
   public HttpClient withJavaObjectBody(Object body) {
     requestBodyEntity = Optional.of(requireNonNull(body, "body must not be null"));
+    pooledBodyWriter = null;
     RequestBuilder builder = new RequestBuilder(request);
     try (ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
          ObjectOutputStream out = new ObjectOutputStream(byteOut)) {
@@ -165,6 +314,23 @@ public abstract class HttpClient {
     return new ResultProcessor<>(this, converter);
   }
 
+  /**
+   * Specifies that the result must be XML document which child elements of the root are published as soon as they are unmarshalled, without
+   * holding the whole document in memory. Result of successful response is available once its headers are received, reading of the body is
+   * paused while the publisher buffer is full, see {@link ru.hh.jclient.common.responseconverter.ElementPublisher}.
+   * <p>
+   * The publisher must be subscribed to or its subscription cancelled: the connection is held until the body is read, within request timeout.
+   * Response streamed this way has no body, so it is neither cached nor shared between requests.
+   *
+   * @param context JAXB context used to unmarshal elements
+   * @param xmlClass type of child element of the root
+   */
+  public <T> ResultProcessor<Flow.Publisher<T>> expectXmlStream(JAXBContext context, Class<T> xmlClass) {
+    TypeConverter<Flow.Publisher<T>> converter = new XmlStreamConverter<>(context, xmlClass);
+    expectedMediaTypes = converter.getSupportedMediaTypes();
+    return new ResultProcessor<>(this, converter);
+  }
+
   /**
    * Specifies that the type of result must be JSON.
    *
@@ -177,6 +343,36 @@ public abstract class HttpClient {
     return new ResultProcessor<>(this, converter);
   }
 
+  /**
+   * Specifies that the type of result must be Smile, binary JSON format. JSON is accepted as well, see {@link BinaryJsonConverter}.
+   *
+   * @param mapper Jackson mapper used to parse response
+   * @param jsonClass type of result
+   */
+  public <T> ResultProcessor<T> expectSmile(ObjectMapper mapper, Class<T> jsonClass) {
+    return expect(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.SMILE));
+  }
+
+  /**
+   * Specifies that the type of result must be CBOR. JSON is accepted as well, see {@link BinaryJsonConverter}.
+   *
+   * @param mapper Jackson mapper used to parse response
+   * @param jsonClass type of result
+   */
+  public <T> ResultProcessor<T> expectCbor(ObjectMapper mapper, Class<T> jsonClass) {
+    return expect(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.CBOR));
+  }
+
+  /**
+   * Specifies that the type of result must be MessagePack. JSON is accepted as well, see {@link BinaryJsonConverter}.
+   *
+   * @param mapper Jackson mapper used to parse response
+   * @param jsonClass type of result
+   */
+  public <T> ResultProcessor<T> expectMsgPack(ObjectMapper mapper, Class<T> jsonClass) {
+    return expect(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.MSGPACK));
+  }
+
   /**
    * Specifies that the type of result must be a collection of JSON objects.
    *
@@ -201,6 +397,23 @@ public abstract class HttpClient {
     return new ResultProcessor<>(this, converter);
   }
 
+  /**
+   * Specifies that the result must be a JSON array which elements are published as soon as they are parsed, without holding the whole array
+   * in memory. Result of successful response is available once its headers are received, reading of the body is paused while the publisher
+   * buffer is full, see {@link ru.hh.jclient.common.responseconverter.ElementPublisher}.
+   * <p>
+   * The publisher must be subscribed to or its subscription cancelled: the connection is held until the body is read, within request timeout.
+   * Response streamed this way has no body, so it is neither cached nor shared between requests.
+   *
+   * @param mapper Jackson mapper used to parse response
+   * @param jsonClass type of array element
+   */
+  public <T> ResultProcessor<Flow.Publisher<T>> expectJsonStream(ObjectMapper mapper, Class<T> jsonClass) {
+    TypeConverter<Flow.Publisher<T>> converter = new JsonStreamConverter<>(mapper, jsonClass);
+    expectedMediaTypes = converter.getSupportedMediaTypes();
+    return new ResultProcessor<>(this, converter);
+  }
+
   /**
    * Specifies that the type of result must be a map with JSON objects.
    *
@@ -232,7 +445,7 @@ public abstract class HttpClient {
    *
    * @param protobufClass type of result
    */
-  public <T extends GeneratedMessageV3> ResultProcessor<T> expectProtobuf(Class<T> protobufClass) {
+  public <T extends MessageLite> ResultProcessor<T> expectProtobuf(Class<T> protobufClass) {
     TypeConverter<T> converter = new ProtobufConverter<>(protobufClass);
     expectedMediaTypes = converter.getSupportedMediaTypes();
     return new ResultProcessor<>(this, converter);
@@ -294,6 +507,15 @@ public abstract class HttpClient {
     return new ResultProcessor<>(this, converter);
   }
 
+  /**
+   * Specifies the converter for the result that was created once and is shared between requests, see {@link PrecompiledConverter}.
+   *
+   * @param converter used to convert response to expected result
+   */
+  public <T> ResultProcessor<T> expect(PrecompiledConverter<T> converter) {
+    return expect((TypeConverter<T>) converter);
+  }
+
   /**
    * Entrypoint to configure engine-specific properties of the client
    * @param clazz specific implementation type of {@link RequestEngineBuilder}
@@ -325,11 +547,29 @@ public abstract class HttpClient {
         return http.getConfig().getRequestTimeout();
       }
     };
-    return requestEngineBuilder.build(request, requestExecutor).execute();
+    PooledRequestBody pooledBody = writePooledBody();
+    if (pooledBody == null) {
+      return requestStrategy.decorateEngine(this, request, r -> requestEngineBuilder.build(r, requestExecutor)).execute();
+    }
+    try {
+      return requestStrategy.decorateEngine(this, request, r -> requestEngineBuilder.build(r, requestExecutor)).execute()
+          .whenComplete((response, throwable) -> pooledBody.release());
+    } catch (RuntimeException e) {
+      pooledBody.release();
+      throw e;
+    }
   }
 
   abstract CompletableFuture<ResponseWrapper> executeRequest(Request request, int retryCount, RequestContext context);
 
+  /**
+   * Completes this request with response of another request it was collapsed with.
+   *
+   * @param shared response of the other request, completed in context of that request
+   * @return the same response completed in context of this request, after it is passed through debugs of this request
+   */
+  abstract CompletableFuture<Response> joinResponse(Request request, CompletableFuture<Response> shared);
+
   boolean isNoSessionRequired() {
     String host = request.getUri().getHost();
     return noSession || hostsWithSession.stream().map(Uri::create).map(Uri::getHost).noneMatch(host::equals);
@@ -337,6 +577,10 @@ public abstract class HttpClient {
 
   // getters for tools
 
+  RequestEngineBuilder getRequestEngineBuilder() {
+    return requestEngineBuilder;
+  }
+
   AsyncHttpClient getHttp() {
     return http;
   }
@@ -384,4 +628,94 @@ public abstract class HttpClient {
   boolean isNoDebug() {
     return noDebug;
   }
+
+  CompletableFuture<?> getCancellation() {
+    return cancellation;
+  }
+
+  void setConverter(TypeConverter<?> converter) {
+    incrementalConverter = converter instanceof IncrementalTypeConverter ? (IncrementalTypeConverter<?>) converter : null;
+    streamingConverter = converter instanceof StreamingTypeConverter ? (StreamingTypeConverter<?>) converter : null;
+  }
+
+  /**
+   * @return converter to parse response body while it is received or null if the body is buffered
+   */
+  IncrementalTypeConverter<?> getIncrementalConverter() {
+    return parseIncrementally ? incrementalConverter : null;
+  }
+
+  /**
+   * @return converter to publish elements of response body while it is received or null if the body is not streamed
+   */
+  StreamingTypeConverter<?> getStreamingConverter() {
+    return streamingConverter;
+  }
+
+  boolean isParsingIncrementally() {
+    return getIncrementalConverter() != null || streamingConverter != null;
+  }
+
+  /**
+   * @return result of parsing body of the last response or null if it was not parsed incrementally
+   */
+  ParsedBody getParsedBody() {
+    return parsedBody;
+  }
+
+  void setParsedBody(ParsedBody parsedBody) {
+    this.parsedBody = parsedBody;
+  }
+
+  /**
+   * Requests to keep response body in the buffers it is received in, the caller releases them with {@link #releaseReceivedBodies()}
+   * once the response is converted.
+   */
+  void releaseBodyAfterConversion() {
+    releaseBodyAfterConversion = true;
+  }
+
+  /**
+   * @return true if bodies of responses are released once the response is converted
+   */
+  boolean isReleasingBodyAfterConversion() {
+    return releaseBodyAfterConversion && !responseShared;
+  }
+
+  /**
+   * Marks response as shared with other requests, so its body must stay available after conversion.
+   */
+  void shareResponse() {
+    responseShared = true;
+  }
+
+  /**
+   * @return holder for the body of the next response or null if the body is accumulated by AHC
+   */
+  @Nullable
+  ResponseBody newReceivedBody() {
+    if (!isReleasingBodyAfterConversion()) {
+      return null;
+    }
+    ResponseBody body = new ResponseBody();
+    receivedBodies.add(body::release);
+    return body;
+  }
+
+  /**
+   * Adds body of a response that is not received by AHC, i.e. served from cache, to be released with received bodies.
+   */
+  void addReceivedBody(Runnable release) {
+    receivedBodies.add(release);
+  }
+
+  /**
+   * Releases bodies of all responses received by this client, including retried ones.
+   */
+  void releaseReceivedBodies() {
+    Runnable release;
+    while ((release = receivedBodies.poll()) != null) {
+      release.run();
+    }
+  }
 }
@@ -4,11 +4,13 @@ import org.asynchttpclient.AsyncHttpClient;
 import ru.hh.jclient.common.metrics.MetricsProvider;
 import ru.hh.jclient.common.util.storage.Storage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
 import static java.util.Objects.requireNonNull;
@@ -72,6 +74,18 @@ public class HttpClientFactory {
       eventListeners);
   }
 
+  /**
+   * Prepares execution of a batch of requests with bounded concurrency, deadline and cancellation of unfinished requests on failure.
+   *
+   * @param requests
+   *          to execute
+   * @param converter
+   *          sets up conversion of the response, e.g. {@code client -> client.expectJson(mapper, Type.class)}
+   */
+  public <T> FanOut<T> fanOut(Collection<Request> requests, Function<HttpClient, ResultProcessor<T>> converter) {
+    return new FanOut<>(this, requests, converter);
+  }
+
   /**
    * @return returns copy (within case insensitive map) of headers contained within global (incoming) request
    */
@@ -93,6 +107,10 @@ public class HttpClientFactory {
     return contextSupplier;
   }
 
+  Executor getCallbackExecutor() {
+    return callbackExecutor;
+  }
+
   /**
    * create customized copy of the factory
    * @param mapper action to customize {@link RequestStrategy}
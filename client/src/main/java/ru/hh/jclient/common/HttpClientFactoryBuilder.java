@@ -30,6 +30,7 @@ public class HttpClientFactoryBuilder {
   private Storage<HttpClientContext> contextSupplier;
   private double timeoutMultiplier = DEFAULT_TIMEOUT_MULTIPLIER;
   private MetricsConsumer metricsConsumer;
+  private ResponseCache responseCache;
   private final List<HttpClientEventListener> eventListeners;
 
   public HttpClientFactoryBuilder(Storage<HttpClientContext> contextSupplier, List<HttpClientEventListener> eventListeners) {
@@ -45,6 +46,7 @@ public class HttpClientFactoryBuilder {
         prototype.contextSupplier,
         prototype.timeoutMultiplier,
         prototype.metricsConsumer,
+        prototype.responseCache,
         new ArrayList<>(prototype.eventListeners)
     );
   }
@@ -55,6 +57,7 @@ public class HttpClientFactoryBuilder {
                                    Set<String> hostsWithSession, Storage<HttpClientContext> contextSupplier,
                                    double timeoutMultiplier,
                                    MetricsConsumer metricsConsumer,
+                                   ResponseCache responseCache,
                                    List<HttpClientEventListener> eventListeners) {
     this.configBuilder = configBuilder;
     this.requestStrategy = requestStrategy;
@@ -63,6 +66,7 @@ public class HttpClientFactoryBuilder {
     this.contextSupplier = contextSupplier;
     this.timeoutMultiplier = timeoutMultiplier;
     this.metricsConsumer = metricsConsumer;
+    this.responseCache = responseCache;
     this.eventListeners = eventListeners;
   }
 
@@ -129,6 +133,17 @@ public class HttpClientFactoryBuilder {
     return target;
   }
 
+  /**
+   * Keeps response bodies in the Netty buffers they are received in, without copying them to heap, until responses are converted.
+   * Applies to responses converted with {@link ResultProcessor#result()} or {@link ResultProcessor#resultWithStatus()} that are not cached
+   * or shared. Parts of other responses are copied from the buffers as they are received, since AHC releases the buffers right after that.
+   */
+  public HttpClientFactoryBuilder withZeroCopyResponseBodies() {
+    var target = getCopy();
+    target.configBuilder.setResponseBodyPartFactory(AsyncHttpClientConfig.ResponseBodyPartFactory.LAZY);
+    return target;
+  }
+
   public HttpClientFactoryBuilder withCallbackExecutor(Executor callbackExecutor) {
     var target = getCopy();
     target.callbackExecutor = callbackExecutor;
@@ -153,6 +168,15 @@ public class HttpClientFactoryBuilder {
     return target;
   }
 
+  /**
+   * Enables in-process cache of responses, see {@link CachingRequestStrategy}.
+   */
+  public HttpClientFactoryBuilder withResponseCache(ResponseCache responseCache) {
+    var target = getCopy();
+    target.responseCache = responseCache;
+    return target;
+  }
+
   public HttpClientFactoryBuilder withSSLContext(SslContext sslContext) {
     var target = getCopy();
     target.configBuilder.setSslContext(sslContext);
@@ -180,7 +204,7 @@ public class HttpClientFactoryBuilder {
       initStrategy(),
       List.copyOf(eventListeners)
     );
-    ofNullable(metricsConsumer).ifPresent(consumer -> consumer.accept(httpClientFactory.getMetricProvider()));
+    ofNullable(metricsConsumer).ifPresent(consumer -> consumer.accept(MetricsProviderFactory.from(httpClientFactory.getHttp(), responseCache)));
     return httpClientFactory;
   }
 
@@ -194,7 +218,11 @@ public class HttpClientFactoryBuilder {
 
   private RequestStrategy<? extends RequestEngineBuilder> initStrategy() {
     requestStrategy.setTimeoutMultiplier(timeoutMultiplier);
-    return requestStrategy;
+    return responseCache == null ? requestStrategy : withCache(requestStrategy, responseCache);
+  }
+
+  private static <REB extends RequestEngineBuilder> RequestStrategy<REB> withCache(RequestStrategy<REB> strategy, ResponseCache cache) {
+    return new CachingRequestStrategy<>(strategy, cache);
   }
 
   private DefaultAsyncHttpClientConfig.Builder applyTimeoutMultiplier(DefaultAsyncHttpClientConfig.Builder clientConfigBuilder) {
@@ -3,25 +3,40 @@ package ru.hh.jclient.common;
 import static com.google.common.collect.ImmutableSet.of;
 import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static java.lang.Boolean.TRUE;
 
 import com.google.common.net.MediaType;
 import org.asynchttpclient.AsyncCompletionHandler;
 import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.handler.StreamedAsyncHandler;
+import org.asynchttpclient.netty.EagerResponseBodyPart;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import javax.annotation.Nullable;
 
 import static ru.hh.jclient.common.HttpHeaderNames.X_HH_ACCEPT_ERRORS;
+import static ru.hh.jclient.common.HttpHeaderNames.X_HH_CRITICALITY;
 import static ru.hh.jclient.common.HttpHeaderNames.FRONTIK_DEBUG_AUTH;
 import static ru.hh.jclient.common.HttpHeaderNames.HH_PROTO_SESSION;
 import static ru.hh.jclient.common.HttpHeaderNames.X_HH_DEBUG;
@@ -31,7 +46,12 @@ import static ru.hh.jclient.common.HttpHeaderNames.X_REQUEST_ID;
 import static ru.hh.jclient.common.HttpHeaderNames.X_SOURCE;
 import static ru.hh.jclient.common.HttpParams.READ_ONLY_REPLICA;
 
+import ru.hh.jclient.common.responseconverter.BodyParser;
+import ru.hh.jclient.common.responseconverter.ElementPublisher;
+import ru.hh.jclient.common.responseconverter.IncrementalTypeConverter;
+import ru.hh.jclient.common.responseconverter.StreamingTypeConverter;
 import ru.hh.jclient.common.util.MDCCopy;
+import ru.hh.jclient.common.util.MediaTypes;
 import ru.hh.jclient.common.util.storage.StorageUtils.Transfers;
 import ru.hh.jclient.common.util.storage.Storage;
 import static java.time.Instant.now;
@@ -40,7 +60,7 @@ class HttpClientImpl extends HttpClient {
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientImpl.class);
 
   static final Set<String> PASS_THROUGH_HEADERS = of(X_REQUEST_ID, X_REAL_IP, AUTHORIZATION, HH_PROTO_SESSION,
-    X_HH_DEBUG, FRONTIK_DEBUG_AUTH, X_LOAD_TESTING, X_SOURCE);
+    X_HH_DEBUG, FRONTIK_DEBUG_AUTH, X_LOAD_TESTING, X_SOURCE, X_HH_CRITICALITY);
 
   private final Executor callbackExecutor;
 
@@ -57,6 +77,11 @@ class HttpClientImpl extends HttpClient {
 
   @Override
   CompletableFuture<ResponseWrapper> executeRequest(Request originalRequest, int retryCount, RequestContext context) {
+    CompletableFuture<?> cancellation = getCancellation();
+    if (cancellation != null && cancellation.isDone()) {
+      return CompletableFuture.failedFuture(new CancellationException("Request is cancelled"));
+    }
+
     for (HttpClientEventListener check : getEventListeners()) {
       check.beforeExecute(this, originalRequest);
     }
@@ -73,21 +98,78 @@ class HttpClientImpl extends HttpClient {
     }
 
     Transfers transfers = getStorages().prepare();
-    CompletionHandler handler = new CompletionHandler(promise, request, now(), getDebugs(), transfers, callbackExecutor);
-    getHttp().executeRequest(request.getDelegate(), handler);
+    setParsedBody(null);
+    StreamingTypeConverter<?> streamingConverter = getStreamingConverter();
+    CompletionHandler handler = streamingConverter != null
+        ? new StreamingCompletionHandler(promise, request, now(), getDebugs(), transfers, callbackExecutor, streamingConverter, this::setParsedBody)
+        : new CompletionHandler(promise, request, now(), getDebugs(), transfers, callbackExecutor, getIncrementalConverter(), this::setParsedBody,
+            getIncrementalConverter() == null ? newReceivedBody() : null);
+    ListenableFuture<ResponseWrapper> future = getHttp().executeRequest(request.getDelegate(), handler);
+    if (cancellation != null && future != null) {
+      cancellation.whenComplete((ignored, throwable) -> future.cancel(true));
+    }
 
     return promise;
   }
 
+  @Override
+  CompletableFuture<Response> joinResponse(Request originalRequest, CompletableFuture<Response> shared) {
+    for (HttpClientEventListener check : getEventListeners()) {
+      check.beforeExecute(this, originalRequest);
+    }
+
+    Request request = addHeadersAndParams(originalRequest);
+    List<RequestDebug> requestDebugs = List.copyOf(getDebugs());
+    LOGGER.debug("HTTP_CLIENT_START: Joining {} {}", request.getMethod(), request.getUri());
+    requestDebugs.forEach(debug -> debug.onRequest(request, getRequestBodyEntity(), RequestContext.EMPTY_CONTEXT));
+
+    CompletableFuture<Response> promise = new CompletableFuture<>();
+    Transfers transfers = getStorages().prepare();
+    MDCCopy mdcCopy = MDCCopy.capture();
+    shared.whenComplete((response, throwable) -> {
+      Runnable completeTask;
+      if (throwable != null) {
+        requestDebugs.forEach(debug -> debug.onClientProblem(throwable));
+        requestDebugs.forEach(RequestDebug::onProcessingFinished);
+        completeTask = () -> promise.completeExceptionally(throwable);
+      } else {
+        Response debuggedResponse = response;
+        for (RequestDebug debug : requestDebugs) {
+          debuggedResponse = debug.onResponse(debuggedResponse);
+        }
+        Response result = debuggedResponse;
+        completeTask = () -> promise.complete(result);
+      }
+      Runnable task = () -> {
+        try {
+          // install context(s) of this request, not of the request the response is shared with
+          transfers.perform();
+          completeTask.run();
+        } finally {
+          transfers.rollback();
+        }
+      };
+      try {
+        callbackExecutor.execute(task);
+      } catch (RejectedExecutionException e) {
+        mdcCopy.doInContext(() -> LOGGER.warn("Failed to complete joined request in a separate thread: {}, using current thread", e.toString()));
+        task.run();
+      }
+    });
+    return promise;
+  }
+
   private Request addHeadersAndParams(Request request) {
     RequestBuilder requestBuilder = new RequestBuilder(request);
 
     // compute headers. Headers from context are used as base, with headers from request overriding any existing values
     HttpHeaders headers = new HttpHeaders();
     headers.add(HttpHeaderNames.X_OUTER_TIMEOUT_MS, Integer.toString(request.getRequestTimeout()));
+    HttpHeaders requestHeaders = request.getHeaders();
     if (!isExternalRequest()) {
       PASS_THROUGH_HEADERS.stream()
         .filter(getContext().getHeaders()::containsKey)
+        .filter(h -> !requestHeaders.contains(h))
         .forEach(h -> headers.add(h, getContext().getHeaders().get(h)));
     }
 
@@ -99,7 +181,7 @@ class HttpClientImpl extends HttpClient {
       headers.remove(X_HH_DEBUG);
     }
 
-    headers.add(request.getHeaders());
+    headers.add(requestHeaders);
 
     if (isNoSessionRequired()) {
       headers.remove(HH_PROTO_SESSION);
@@ -108,23 +190,20 @@ class HttpClientImpl extends HttpClient {
     requestBuilder.setHeaders(headers);
 
     if (!headers.contains(ACCEPT) && getExpectedMediaTypes().isPresent()) {
-      requestBuilder.addHeader(ACCEPT, getExpectedMediaTypes().get().stream().map(Object::toString).collect(Collectors.joining(",")));
+      requestBuilder.addHeader(ACCEPT, MediaTypes.toHeaderValue(getExpectedMediaTypes().get()));
     }
 
     if (!areAllowedMediaTypesForResponseAndErrorCompatible()) {
       LOGGER.warn("Different MediaTypes for successful answer and for errors on {} {} s: {} e: {} ",
           request.getMethod(),
           request.getUri(),
-          getExpectedMediaTypes().get().stream().map(Object::toString).collect(Collectors.joining(",")),
-          getExpectedMediaTypesForErrors().get().stream().map(Object::toString).collect(Collectors.joining(","))
+          MediaTypes.toHeaderValue(getExpectedMediaTypes().get()),
+          MediaTypes.toHeaderValue(getExpectedMediaTypesForErrors().get())
       );
     }
 
     if (!headers.contains(X_HH_ACCEPT_ERRORS) && getExpectedMediaTypesForErrors().isPresent()) {
-      requestBuilder.addHeader(
-          X_HH_ACCEPT_ERRORS,
-          getExpectedMediaTypesForErrors().get().stream().map(Object::toString).collect(Collectors.joining(","))
-      );
+      requestBuilder.addHeader(X_HH_ACCEPT_ERRORS, MediaTypes.toHeaderValue(getExpectedMediaTypesForErrors().get()));
     }
 
     // add readonly param
@@ -171,9 +250,28 @@ class HttpClientImpl extends HttpClient {
     private final List<RequestDebug> requestDebugs;
     private final Transfers contextTransfers;
     private final Executor callbackExecutor;
+    @Nullable
+    private final IncrementalTypeConverter<?> incrementalConverter;
+    private final Consumer<ParsedBody> parsedBodyConsumer;
+    @Nullable
+    private final ResponseBody responseBody;
+    private int statusCode;
+    private BodyParser<?> bodyParser;
+    private Exception parsingFailure;
 
     CompletionHandler(CompletableFuture<ResponseWrapper> promise, Request request, Instant requestStart,
                       List<RequestDebug> requestDebugs, Transfers contextTransfers, Executor callbackExecutor) {
+      this(promise, request, requestStart, requestDebugs, contextTransfers, callbackExecutor, null, parsedBody -> {}, null);
+    }
+
+    /**
+     * @param incrementalConverter converter to parse successful response body while it is received
+     * @param responseBody holder to keep response body in received buffers instead of accumulating it with AHC
+     */
+    CompletionHandler(CompletableFuture<ResponseWrapper> promise, Request request, Instant requestStart,
+                      List<RequestDebug> requestDebugs, Transfers contextTransfers, Executor callbackExecutor,
+                      @Nullable IncrementalTypeConverter<?> incrementalConverter, Consumer<ParsedBody> parsedBodyConsumer,
+                      @Nullable ResponseBody responseBody) {
       this.requestStart = requestStart;
       mdcCopy = MDCCopy.capture();
       this.promise = promise;
@@ -181,10 +279,59 @@ class HttpClientImpl extends HttpClient {
       this.requestDebugs = List.copyOf(requestDebugs);
       this.contextTransfers = contextTransfers;
       this.callbackExecutor = callbackExecutor;
+      this.incrementalConverter = incrementalConverter;
+      this.parsedBodyConsumer = parsedBodyConsumer;
+      this.responseBody = responseBody;
+    }
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus status) throws Exception {
+      statusCode = status.getStatusCode();
+      bodyParser = null;
+      parsingFailure = null;
+      if (responseBody != null) {
+        responseBody.reset();
+      }
+      return super.onStatusReceived(status);
+    }
+
+    @Override
+    public State onHeadersReceived(io.netty.handler.codec.http.HttpHeaders headers) throws Exception {
+      // only successful responses are converted by result converter, bodies of others are buffered
+      if (incrementalConverter != null && statusCode / 100 == 2) {
+        try {
+          bodyParser = incrementalConverter.createBodyParser(headers.get(CONTENT_TYPE));
+        } catch (IOException e) {
+          bodyParser = null;
+        }
+      }
+      return super.onHeadersReceived(headers);
+    }
+
+    @Override
+    public State onBodyPartReceived(HttpResponseBodyPart content) throws Exception {
+      if (bodyParser == null) {
+        if (responseBody != null) {
+          responseBody.add(content);
+          return State.CONTINUE;
+        }
+        return super.onBodyPartReceived(copyIfLazy(content));
+      }
+      if (parsingFailure == null) {
+        try {
+          bodyParser.parse(content.getBodyPartBytes());
+        } catch (IOException | RuntimeException e) {
+          parsingFailure = e;
+        }
+      }
+      return State.CONTINUE;
     }
 
     @Override
     public ResponseWrapper onCompleted(org.asynchttpclient.Response response) {
+      if (bodyParser != null) {
+        parsedBodyConsumer.accept(completeParsing());
+      }
       int responseStatusCode = response.getStatusCode();
       String responseStatusText = response.getStatusText();
 
@@ -192,13 +339,23 @@ class HttpClientImpl extends HttpClient {
       mdcCopy.doInContext(() -> LOGGER.info("HTTP_CLIENT_RESPONSE: {} {} in {} micros on {} {}",
           responseStatusCode, responseStatusText, timeToLastByteMicros, request.getMethod(), request.getUri()));
 
-      return proceedWithResponse(response, timeToLastByteMicros);
+      return proceedWithResponse(response, timeToLastByteMicros, responseBody != null && !responseBody.isEmpty() ? responseBody : null);
     }
 
     @Override
     public void onThrowable(Throwable t) {
-      org.asynchttpclient.Response response = TransportExceptionMapper.map(t, request.getUri());
       long timeToLastByteMicros = getTimeToLastByte();
+      if (t instanceof CancellationException) {
+        // request is cancelled by the caller, i.e. on fan-out deadline, this is not a transport error
+        mdcCopy.doInContext(() -> LOGGER.debug("HTTP_CLIENT_CANCELLED: cancelled after {} micros on {} {}",
+            timeToLastByteMicros, request.getMethod(), request.getUri()));
+        requestDebugs.forEach(debug -> debug.onClientProblem(t));
+        requestDebugs.forEach(RequestDebug::onProcessingFinished);
+        completeExceptionally(t);
+        return;
+      }
+
+      org.asynchttpclient.Response response = TransportExceptionMapper.map(t, request.getUri());
 
       mdcCopy.doInContext(
           () -> LOGGER.warn(
@@ -210,7 +367,7 @@ class HttpClientImpl extends HttpClient {
               response != null ? " (mapped to " + response.getStatusCode() + "), proceeding" : ", propagating"));
 
       if (response != null) {
-        proceedWithResponse(response, timeToLastByteMicros);
+        proceedWithResponse(response, timeToLastByteMicros, null);
         return;
       }
 
@@ -220,12 +377,39 @@ class HttpClientImpl extends HttpClient {
       completeExceptionally(t);
     }
 
-    private ResponseWrapper proceedWithResponse(org.asynchttpclient.Response response, long responseTimeMicros) {
-      Response debuggedResponse = new Response(response);
+    /**
+     * Buffer of a {@link LazyResponseBodyPart} is released by AHC once the part is passed to the handler,
+     * so the part is copied before it is accumulated.
+     */
+    private static HttpResponseBodyPart copyIfLazy(HttpResponseBodyPart content) {
+      if (content instanceof LazyResponseBodyPart) {
+        return new EagerResponseBodyPart(((LazyResponseBodyPart) content).getBuf(), content.isLast());
+      }
+      return content;
+    }
+
+    private ParsedBody completeParsing() {
+      if (parsingFailure != null) {
+        return ParsedBody.failed(parsingFailure);
+      }
+      try {
+        return ParsedBody.of(bodyParser.complete());
+      } catch (IOException | RuntimeException e) {
+        return ParsedBody.failed(e);
+      }
+    }
+
+    private ResponseWrapper proceedWithResponse(org.asynchttpclient.Response response, long responseTimeMicros, @Nullable ResponseBody body) {
+      return proceedWithResponse(response, body, debuggedResponse -> new ResponseWrapper(debuggedResponse, responseTimeMicros));
+    }
+
+    private ResponseWrapper proceedWithResponse(org.asynchttpclient.Response response, @Nullable ResponseBody body,
+                                                Function<Response, ResponseWrapper> wrapperFactory) {
+      Response debuggedResponse = new Response(response, body);
       for (RequestDebug debug : requestDebugs) {
         debuggedResponse = debug.onResponse(debuggedResponse);
       }
-      ResponseWrapper wrapper = new ResponseWrapper(debuggedResponse, responseTimeMicros);
+      ResponseWrapper wrapper = wrapperFactory.apply(debuggedResponse);
       // complete promise in a separate thread not to block ning thread
       callbackExecutor.execute(() -> {
         try {
@@ -270,4 +454,161 @@ class HttpClientImpl extends HttpClient {
       return requestStart.until(now(), ChronoUnit.MICROS);
     }
   }
+
+  /**
+   * Passes successful response on once its headers are received, with elements of its body published while the body is being read.
+   * Reading is driven by demand of the publisher, so a slow subscriber pauses reading from the connection. Bodies of other responses are buffered.
+   */
+  static class StreamingCompletionHandler extends CompletionHandler implements StreamedAsyncHandler<ResponseWrapper> {
+    private final StreamingTypeConverter<?> streamingConverter;
+    private final org.asynchttpclient.Response.ResponseBuilder headersBuilder = new org.asynchttpclient.Response.ResponseBuilder();
+    private int statusCode;
+    private String contentType;
+    private volatile ElementPublisher<?> publisher;
+    private volatile ResponseWrapper streamedResponse;
+    // response is returned once headers are received, balancing waits for the body to account for the server
+    private final CompletableFuture<Long> bodyCompletion = new CompletableFuture<>();
+
+    StreamingCompletionHandler(CompletableFuture<ResponseWrapper> promise, Request request, Instant requestStart,
+                               List<RequestDebug> requestDebugs, Transfers contextTransfers, Executor callbackExecutor,
+                               StreamingTypeConverter<?> streamingConverter, Consumer<ParsedBody> parsedBodyConsumer) {
+      super(promise, request, requestStart, requestDebugs, contextTransfers, callbackExecutor, null, parsedBodyConsumer, null);
+      this.streamingConverter = streamingConverter;
+    }
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus status) throws Exception {
+      statusCode = status.getStatusCode();
+      contentType = null;
+      headersBuilder.reset();
+      headersBuilder.accumulate(status);
+      return super.onStatusReceived(status);
+    }
+
+    @Override
+    public State onHeadersReceived(io.netty.handler.codec.http.HttpHeaders headers) throws Exception {
+      contentType = headers.get(CONTENT_TYPE);
+      headersBuilder.accumulate(headers);
+      return super.onHeadersReceived(headers);
+    }
+
+    @Override
+    public State onStream(Publisher<HttpResponseBodyPart> bodyParts) {
+      ElementPublisher<?> elements = statusCode / 100 == 2 ? createPublisher() : null;
+      if (elements == null) {
+        bodyParts.subscribe(new BufferingSubscriber());
+        return State.CONTINUE;
+      }
+      publisher = elements;
+      bodyParts.subscribe(new BodyPartSubscriber(elements));
+      super.parsedBodyConsumer.accept(ParsedBody.of(elements));
+      long timeToHeadersMicros = super.getTimeToLastByte();
+      streamedResponse = super.proceedWithResponse(headersBuilder.build(), null,
+          response -> new ResponseWrapper(response, timeToHeadersMicros, bodyCompletion));
+      return State.CONTINUE;
+    }
+
+    @Nullable
+    private ElementPublisher<?> createPublisher() {
+      try {
+        return streamingConverter.createPublisher(contentType, super.callbackExecutor);
+      } catch (IOException e) {
+        return null;
+      }
+    }
+
+    @Override
+    public ResponseWrapper onCompleted(org.asynchttpclient.Response response) {
+      if (publisher == null) {
+        return super.onCompleted(response);
+      }
+      long timeToLastByteMicros = super.getTimeToLastByte();
+      super.mdcCopy.doInContext(() -> LOGGER.info("HTTP_CLIENT_RESPONSE: {} {} streamed in {} micros on {} {}",
+          response.getStatusCode(), response.getStatusText(), timeToLastByteMicros, super.request.getMethod(), super.request.getUri()));
+      bodyCompletion.complete(timeToLastByteMicros);
+      return streamedResponse;
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+      ElementPublisher<?> elements = publisher;
+      if (elements == null) {
+        super.onThrowable(t);
+        return;
+      }
+      long timeToLastByteMicros = super.getTimeToLastByte();
+      if (t instanceof CancellationException) {
+        super.mdcCopy.doInContext(() -> LOGGER.debug("HTTP_CLIENT_CANCELLED: cancelled after {} micros while streaming body of {} {}",
+            timeToLastByteMicros, super.request.getMethod(), super.request.getUri()));
+      } else {
+        super.mdcCopy.doInContext(() -> LOGGER.warn("HTTP_CLIENT_ERROR: client error after {} micros while streaming body of {} {}: {}",
+            timeToLastByteMicros, super.request.getMethod(), super.request.getUri(), t.toString()));
+      }
+      elements.onBodyFailed(t);
+      bodyCompletion.completeExceptionally(t);
+    }
+
+    private final class BufferingSubscriber implements Subscriber<HttpResponseBodyPart> {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(HttpResponseBodyPart bodyPart) {
+        try {
+          onBodyPartReceived(bodyPart);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+
+      // completion and failure of the response are passed to the handler itself
+      @Override
+      public void onError(Throwable t) {
+      }
+
+      @Override
+      public void onComplete() {
+      }
+    }
+
+    private static final class BodyPartSubscriber implements Subscriber<HttpResponseBodyPart> {
+      private final ElementPublisher<?> elements;
+
+      BodyPartSubscriber(ElementPublisher<?> elements) {
+        this.elements = elements;
+      }
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        elements.connect(new ElementPublisher.BodySource() {
+          @Override
+          public void request() {
+            subscription.request(1);
+          }
+
+          @Override
+          public void cancel() {
+            subscription.cancel();
+          }
+        });
+      }
+
+      @Override
+      public void onNext(HttpResponseBodyPart bodyPart) {
+        elements.onBodyPart(bodyPart.getBodyPartBytes());
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        elements.onBodyFailed(t);
+      }
+
+      @Override
+      public void onComplete() {
+        elements.onBodyCompleted();
+      }
+    }
+  }
 }
@@ -8,6 +8,7 @@ import io.netty.buffer.PooledByteBufAllocatorMetric;
 import org.asynchttpclient.AsyncHttpClient;
 import ru.hh.jclient.common.metrics.MetricsProvider;
 
+import javax.annotation.Nullable;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -19,6 +20,10 @@ public final class MetricsProviderFactory {
   }
 
   public static MetricsProvider from(AsyncHttpClient httpClient) {
+    return from(httpClient, null);
+  }
+
+  public static MetricsProvider from(AsyncHttpClient httpClient, @Nullable ResponseCache responseCache) {
     return new MetricsProvider() {
       @Override
       public Supplier<Long> totalConnectionCount() {
@@ -68,6 +73,26 @@ public final class MetricsProviderFactory {
         return () -> getAllocatorMetrics(httpClient).map(a -> a.directArenas().stream())
           .map(a -> a.mapToLong(PoolArenaMetric::numActiveHugeAllocations).sum()).orElse(0L);
       }
+
+      @Override
+      public Supplier<Long> responseCacheHitCount() {
+        return responseCache == null ? () -> 0L : responseCache::getHitCount;
+      }
+
+      @Override
+      public Supplier<Long> responseCacheStaleHitCount() {
+        return responseCache == null ? () -> 0L : responseCache::getStaleHitCount;
+      }
+
+      @Override
+      public Supplier<Long> responseCacheMissCount() {
+        return responseCache == null ? () -> 0L : responseCache::getMissCount;
+      }
+
+      @Override
+      public Supplier<Long> responseCacheEvictionCount() {
+        return responseCache == null ? () -> 0L : responseCache::getEvictionCount;
+      }
     };
   }
 
@@ -9,4 +9,10 @@ public interface Monitoring {
   void countRequestTime(String upstreamName, String serverDatacenter, long requestTimeMicros);
 
   void countRetry(String upstreamName, String serverDatacenter, String serverAddress, int statusCode, int firstStatusCode, int retryCount);
+
+  /**
+   * Called for every request attempt whose timeout was derived from response times observed by the upstream.
+   */
+  default void countAdaptiveTimeout(String upstreamName, String serverDatacenter, long timeoutMs) {
+  }
 }
@@ -0,0 +1,266 @@
+package ru.hh.jclient.common;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Slab allocated direct memory for response bodies stored in {@link ResponseCache}.
+ * <p>
+ * Memory is split into slabs of the same size that are allocated on demand up to the capacity and are never returned to GC.
+ * A slab serves a single size class, from {@link #MIN_CHUNK_SIZE} to slab size in powers of two, so a body takes at most twice its length.
+ * Once every body of a slab is reclaimed, the slab returns to a pool shared by all size classes, so memory follows changes of body sizes
+ * instead of staying with the size class that took it first.
+ * Bodies are reference counted: cache entries and responses served from them hold references, and a chunk is reclaimed and reused
+ * only when the last reference is released, so a body handed to a converter as a read-only view is never overwritten while it is read.
+ */
+public final class OffHeapBodyStore {
+  static final int MIN_CHUNK_SIZE = 64;
+
+  private final int slabSize;
+  private final int maxSlabs;
+  private final SizeClass[] sizeClasses;
+  private final AtomicInteger slabs = new AtomicInteger();
+  private final Queue<ByteBuffer> emptySlabs = new ConcurrentLinkedQueue<>();
+  private final AtomicLong usedBytes = new AtomicLong();
+  private final AtomicLong allocationFailures = new AtomicLong();
+
+  /**
+   * @param capacityBytes max size of direct memory to allocate
+   * @param slabSizeBytes size of a single slab, also the max size of a body, must be a power of two
+   */
+  public OffHeapBodyStore(long capacityBytes, int slabSizeBytes) {
+    if (slabSizeBytes < MIN_CHUNK_SIZE || Integer.bitCount(slabSizeBytes) != 1) {
+      throw new IllegalArgumentException("slabSizeBytes must be a power of two not less than " + MIN_CHUNK_SIZE + ": " + slabSizeBytes);
+    }
+    if (capacityBytes < slabSizeBytes) {
+      throw new IllegalArgumentException("capacityBytes must not be less than slab size: " + capacityBytes);
+    }
+    this.slabSize = slabSizeBytes;
+    this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, capacityBytes / slabSizeBytes);
+    int classes = Integer.numberOfTrailingZeros(slabSizeBytes) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE) + 1;
+    this.sizeClasses = new SizeClass[classes];
+    for (int i = 0; i < classes; i++) {
+      sizeClasses[i] = new SizeClass(MIN_CHUNK_SIZE << i);
+    }
+  }
+
+  /**
+   * @return stored body or null if it is larger than slab size or there is no free memory
+   */
+  @Nullable
+  Body store(byte[] data) {
+    if (data.length > slabSize) {
+      allocationFailures.incrementAndGet();
+      return null;
+    }
+    SizeClass sizeClass = sizeClasses[getSizeClassIndex(data.length)];
+    Body body = sizeClass.allocate(data.length);
+    if (body == null) {
+      allocationFailures.incrementAndGet();
+      return null;
+    }
+    ByteBuffer target = body.slab.buffer.duplicate();
+    target.position(body.offset);
+    target.put(data);
+    usedBytes.addAndGet(body.chunkSize);
+    return body;
+  }
+
+  static int getSizeClassIndex(int length) {
+    if (length <= MIN_CHUNK_SIZE) {
+      return 0;
+    }
+    int chunkSize = Integer.highestOneBit(length - 1) << 1;
+    return Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+  }
+
+  private void free(Body body) {
+    usedBytes.addAndGet(-body.chunkSize);
+    body.slab.sizeClass.free(body.slab, body.offset);
+  }
+
+  /**
+   * @return size of chunks taken by stored bodies
+   */
+  public long getUsedBytes() {
+    return usedBytes.get();
+  }
+
+  /**
+   * @return size of allocated direct memory
+   */
+  public long getAllocatedBytes() {
+    return (long) slabs.get() * slabSize;
+  }
+
+  /**
+   * @return number of bodies that were not stored because of their size or lack of memory
+   */
+  public long getAllocationFailures() {
+    return allocationFailures.get();
+  }
+
+  /**
+   * @return slab from the shared pool or a newly allocated one, null if the capacity is exhausted
+   */
+  @Nullable
+  private ByteBuffer takeSlab() {
+    ByteBuffer slab = emptySlabs.poll();
+    if (slab != null) {
+      return slab;
+    }
+    if (slabs.incrementAndGet() > maxSlabs) {
+      slabs.decrementAndGet();
+      // another size class may have returned a slab meanwhile
+      return emptySlabs.poll();
+    }
+    return ByteBuffer.allocateDirect(slabSize);
+  }
+
+  private final class SizeClass {
+    private final int chunkSize;
+    // slabs with free chunks, the first one is filled before the others, so the rest have a chance to become empty
+    private final ArrayDeque<Slab> available = new ArrayDeque<>();
+
+    SizeClass(int chunkSize) {
+      this.chunkSize = chunkSize;
+    }
+
+    @Nullable
+    synchronized Body allocate(int length) {
+      Slab slab = available.peekFirst();
+      if (slab == null) {
+        ByteBuffer buffer = takeSlab();
+        if (buffer == null) {
+          return null;
+        }
+        slab = new Slab(this, buffer);
+        available.addFirst(slab);
+      }
+      int offset = slab.allocate();
+      if (slab.isFull()) {
+        available.removeFirst();
+      }
+      return new Body(OffHeapBodyStore.this, slab, offset, chunkSize, length);
+    }
+
+    synchronized void free(Slab slab, int offset) {
+      boolean wasFull = slab.isFull();
+      slab.free(offset);
+      if (slab.isEmpty()) {
+        if (!wasFull) {
+          available.remove(slab);
+        }
+        emptySlabs.add(slab.buffer);
+      } else if (wasFull) {
+        available.addLast(slab);
+      }
+    }
+  }
+
+  /**
+   * Slab assigned to a size class while it holds bodies. Chunks are taken from the end of used space first, then from the released ones.
+   * Guarded by the lock of its size class.
+   */
+  private static final class Slab {
+    private final SizeClass sizeClass;
+    private final ByteBuffer buffer;
+    private final int chunks;
+    private int nextOffset;
+    private int usedChunks;
+    private int[] freeOffsets = new int[16];
+    private int freeCount;
+
+    Slab(SizeClass sizeClass, ByteBuffer buffer) {
+      this.sizeClass = sizeClass;
+      this.buffer = buffer;
+      this.chunks = buffer.capacity() / sizeClass.chunkSize;
+    }
+
+    int allocate() {
+      usedChunks++;
+      if (freeCount > 0) {
+        return freeOffsets[--freeCount];
+      }
+      int offset = nextOffset;
+      nextOffset += sizeClass.chunkSize;
+      return offset;
+    }
+
+    void free(int offset) {
+      usedChunks--;
+      if (freeCount == freeOffsets.length) {
+        freeOffsets = Arrays.copyOf(freeOffsets, freeCount * 2);
+      }
+      freeOffsets[freeCount++] = offset;
+    }
+
+    boolean isFull() {
+      return usedChunks == chunks;
+    }
+
+    boolean isEmpty() {
+      return usedChunks == 0;
+    }
+  }
+
+  /**
+   * Body stored in a chunk of a slab. Counts cache entries and served responses that refer to it,
+   * the chunk is reclaimed when the last one releases it and the body is never accessible again.
+   */
+  static final class Body {
+    private final OffHeapBodyStore store;
+    private final Slab slab;
+    private final int offset;
+    private final int chunkSize;
+    private final int length;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private Body(OffHeapBodyStore store, Slab slab, int offset, int chunkSize, int length) {
+      this.store = store;
+      this.slab = slab;
+      this.offset = offset;
+      this.chunkSize = chunkSize;
+      this.length = length;
+    }
+
+    /**
+     * @return read-only view of the body, positioned at zero
+     */
+    ByteBuffer getBuffer() {
+      ByteBuffer buffer = slab.buffer.duplicate();
+      buffer.position(offset).limit(offset + length);
+      return buffer.slice().asReadOnlyBuffer();
+    }
+
+    int getLength() {
+      return length;
+    }
+
+    /**
+     * @return false if the body is already reclaimed
+     */
+    boolean tryRetain() {
+      int count;
+      do {
+        count = references.get();
+        if (count == 0) {
+          return false;
+        }
+      } while (!references.compareAndSet(count, count + 1));
+      return true;
+    }
+
+    void release() {
+      if (references.decrementAndGet() == 0) {
+        store.free(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package ru.hh.jclient.common;
+
+import javax.annotation.Nullable;
+
+/**
+ * Result of parsing response body while it was received, see {@link HttpClient#parseIncrementally()}.
+ */
+final class ParsedBody {
+  @Nullable
+  private final Object value;
+  @Nullable
+  private final Exception failure;
+
+  private ParsedBody(@Nullable Object value, @Nullable Exception failure) {
+    this.value = value;
+    this.failure = failure;
+  }
+
+  static ParsedBody of(@Nullable Object value) {
+    return new ParsedBody(value, null);
+  }
+
+  static ParsedBody failed(Exception failure) {
+    return new ParsedBody(null, failure);
+  }
+
+  @Nullable
+  Object get() throws Exception {
+    if (failure != null) {
+      throw failure;
+    }
+    return value;
+  }
+}
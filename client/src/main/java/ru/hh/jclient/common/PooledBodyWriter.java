@@ -0,0 +1,58 @@
+package ru.hh.jclient.common;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serializes request bodies straight into direct buffers of the allocator, so the body is neither built as an intermediate array nor
+ * copied once more when written to the channel. Returned buffers are owned by the caller and must be released.
+ */
+final class PooledBodyWriter {
+
+  /**
+   * Serialization deferred until the request is executed, so no buffer is taken from the pool for a request that is never sent.
+   */
+  @FunctionalInterface
+  interface Writer {
+    ByteBuf write(ByteBufAllocator allocator) throws IOException;
+  }
+
+  private PooledBodyWriter() {
+  }
+
+  /**
+   * Writes value with the writer in format of its factory, see {@link ru.hh.jclient.common.responseconverter.BinaryJsonFormat#writer}.
+   */
+  static ByteBuf writeValue(ByteBufAllocator allocator, ObjectWriter writer, Object value) throws IOException {
+    ByteBuf buffer = allocator.directBuffer();
+    try (OutputStream output = new ByteBufOutputStream(buffer)) {
+      writer.writeValue(output, value);
+    } catch (IOException | RuntimeException e) {
+      buffer.release();
+      throw e;
+    }
+    return buffer;
+  }
+
+  static ByteBuf writeProtobuf(ByteBufAllocator allocator, MessageLite message) throws IOException {
+    int size = message.getSerializedSize();
+    ByteBuf buffer = allocator.directBuffer(size, size);
+    try {
+      CodedOutputStream output = CodedOutputStream.newInstance(buffer.nioBuffer(0, size));
+      message.writeTo(output);
+      output.checkNoSpaceLeft();
+      buffer.writerIndex(size);
+    } catch (IOException | RuntimeException e) {
+      buffer.release();
+      throw e;
+    }
+    return buffer;
+  }
+}
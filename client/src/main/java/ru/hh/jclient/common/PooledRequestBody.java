@@ -0,0 +1,105 @@
+package ru.hh.jclient.common;
+
+import io.netty.buffer.ByteBuf;
+import org.asynchttpclient.request.body.RandomAccessBody;
+import org.asynchttpclient.request.body.generator.BodyGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Request body in pooled buffer, which is released only when both the request is completed and every attempt has finished writing it.
+ * <p>
+ * AHC creates a body for each attempt and closes it once the channel is done with it: the write is completed, failed or discarded with the
+ * channel. So the buffer is not returned to the pool while it is being written, even if the request has already been timed out.
+ */
+final class PooledRequestBody implements BodyGenerator {
+
+  private final ByteBuf buffer;
+  private final ByteBuffer data;
+  // one reference for the request plus one for each attempt being written
+  private final AtomicInteger references = new AtomicInteger(1);
+
+  PooledRequestBody(ByteBuf buffer) {
+    this.buffer = buffer;
+    this.data = buffer.nioBuffer();
+  }
+
+  @Override
+  public RandomAccessBody createBody() {
+    return new AttemptBody();
+  }
+
+  /**
+   * Releases reference of the request, the buffer is returned to the pool once the attempts that are still being written are closed.
+   */
+  void release() {
+    if (references.decrementAndGet() == 0) {
+      buffer.release();
+    }
+  }
+
+  private boolean tryRetain() {
+    int count;
+    do {
+      count = references.get();
+      if (count == 0) {
+        return false;
+      }
+    } while (!references.compareAndSet(count, count + 1));
+    return true;
+  }
+
+  /**
+   * Body of a single attempt. It retains the buffer once writing starts, so attempts that are never written do not hold it.
+   */
+  private final class AttemptBody implements RandomAccessBody {
+
+    private ByteBuffer attemptData;
+    private boolean closed;
+
+    @Override
+    public long getContentLength() {
+      return data.remaining();
+    }
+
+    @Override
+    public BodyState transferTo(ByteBuf target) throws IOException {
+      ByteBuffer source = retainData();
+      if (!source.hasRemaining()) {
+        return BodyState.STOP;
+      }
+      int length = Math.min(source.remaining(), target.writableBytes());
+      ByteBuffer chunk = source.duplicate();
+      chunk.limit(chunk.position() + length);
+      target.writeBytes(chunk);
+      source.position(source.position() + length);
+      return BodyState.CONTINUE;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+      return target.write(retainData());
+    }
+
+    @Override
+    public synchronized void close() {
+      if (attemptData != null && !closed) {
+        release();
+      }
+      closed = true;
+    }
+
+    private synchronized ByteBuffer retainData() throws IOException {
+      if (attemptData == null) {
+        if (closed || !tryRetain()) {
+          throw new IOException("Request body is released");
+        }
+        attemptData = data.duplicate();
+      }
+      return attemptData;
+    }
+  }
+}
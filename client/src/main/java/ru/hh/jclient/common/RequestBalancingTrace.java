@@ -0,0 +1,14 @@
+package ru.hh.jclient.common;
+
+/**
+ * Balancing decisions made for a request sampled for tracing, see {@link RequestContext#getBalancingTrace()}.
+ * Implemented by the balancing module, {@link #toString()} describes every attempt.
+ */
+public interface RequestBalancingTrace {
+
+  String getUpstreamName();
+
+  String getUrl();
+
+  boolean isAdaptive();
+}
@@ -10,6 +10,7 @@ import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.asynchttpclient.request.body.generator.BodyGenerator;
 import org.asynchttpclient.request.body.multipart.Part;
 import ru.hh.jclient.common.exception.RequestConverterException;
 
@@ -158,6 +159,12 @@ public class RequestBuilder {
     return this;
   }
 
+  public RequestBuilder setBody(BodyGenerator bodyGenerator, String contentType) {
+    delegate.setBody(bodyGenerator);
+    delegate.setHeader(javax.ws.rs.core.HttpHeaders.CONTENT_TYPE, contentType);
+    return this;
+  }
+
   public RequestBuilder setBody(InputStream stream, String contentType) {
     delegate.setBody(stream);
     delegate.setHeader(javax.ws.rs.core.HttpHeaders.CONTENT_TYPE, contentType);
@@ -170,6 +177,9 @@ public class RequestBuilder {
     return this;
   }
 
+  /**
+   * Sets value serialized to an array as request body, see {@link HttpClient#withJsonBody(ObjectMapper, Object)} to serialize it into pooled buffer.
+   */
   public RequestBuilder setJsonBody(ObjectMapper mapper, Object bodyObject) {
     try {
       delegate.setBody(mapper.writeValueAsBytes(bodyObject));
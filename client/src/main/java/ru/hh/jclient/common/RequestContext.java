@@ -1,16 +1,25 @@
 package ru.hh.jclient.common;
 
+import javax.annotation.Nullable;
+
 public class RequestContext {
   public static final RequestContext EMPTY_CONTEXT = new RequestContext(null,  null);
 
   public final String upstreamName;
   public final String datacenter;
 
+  private final RequestBalancingTrace balancingTrace;
+
   private RequestDebug contextDebug;
 
   public RequestContext(String upstreamName, String datacenter) {
+    this(upstreamName, datacenter, null);
+  }
+
+  public RequestContext(String upstreamName, String datacenter, @Nullable RequestBalancingTrace balancingTrace) {
     this.upstreamName = upstreamName;
     this.datacenter = datacenter;
+    this.balancingTrace = balancingTrace;
   }
 
   public RequestDebug getContextDebug() {
@@ -21,6 +30,14 @@ public class RequestContext {
     this.contextDebug = contextDebug;
   }
 
+  /**
+   * @return balancing decisions made so far if the request was sampled for tracing, null otherwise
+   */
+  @Nullable
+  public RequestBalancingTrace getBalancingTrace() {
+    return balancingTrace;
+  }
+
   @Override
   public String toString() {
     return "upstream: " + upstreamName + ", dc: " + datacenter;
@@ -3,4 +3,12 @@ package ru.hh.jclient.common;
 public interface RequestEngineBuilder {
   RequestEngine build(Request request, RequestStrategy.RequestExecutor executor);
   HttpClient backToClient();
+
+  /**
+   * @return settings of the builder that change how the request is executed, requests with different settings are never shared
+   * by {@link SingleFlightRequestStrategy#DEFAULT_KEY}
+   */
+  default String getSettingsKey() {
+    return "";
+  }
 }
@@ -1,6 +1,7 @@
 package ru.hh.jclient.common;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
 public interface RequestStrategy<REB extends RequestEngineBuilder> {
@@ -10,6 +11,18 @@ public interface RequestStrategy<REB extends RequestEngineBuilder> {
     int getDefaultRequestTimeoutMs();
   }
   REB createRequestEngineBuilder(HttpClient client);
+
+  /**
+   * Allows strategy to wrap the engine built for the request, i.e. to share or cache responses.
+   * Engine is built by the factory rather than passed in, so the strategy may send a modified copy of the request,
+   * i.e. with revalidation headers, or not send it at all.
+   *
+   * @param engineFactory builds engine for the request or for its modified copy
+   */
+  default RequestEngine decorateEngine(HttpClient client, Request request, Function<Request, RequestEngine> engineFactory) {
+    return engineFactory.apply(request);
+  }
+
   void setTimeoutMultiplier(double timeoutMultiplier);
   RequestStrategy<REB> createCustomizedCopy(UnaryOperator<REB> configAction);
 }
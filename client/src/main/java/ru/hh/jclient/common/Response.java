@@ -1,21 +1,35 @@
 package ru.hh.jclient.common;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ru.hh.jclient.common.util.MediaTypes;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 public class Response {
 
   private final org.asynchttpclient.Response delegate;
+  @Nullable
+  private final ResponseBody body;
 
   Response(org.asynchttpclient.Response delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param body body kept in received buffers, read instead of the body accumulated by delegate
+   */
+  Response(org.asynchttpclient.Response delegate, @Nullable ResponseBody body) {
     this.delegate = delegate;
+    this.body = body;
   }
 
   protected Response() {
-    this(null);
+    this(null, null);
   }
 
   /**
@@ -42,7 +56,7 @@ public class Response {
    * @return the entire response body as a byte[].
    */
   public byte[] getResponseBodyAsBytes() {
-    return delegate.getResponseBodyAsBytes();
+    return body != null ? body.toBytes() : delegate.getResponseBodyAsBytes();
   }
 
   /**
@@ -51,7 +65,18 @@ public class Response {
    * @return the entire response body as a ByteBuffer.
    */
   public ByteBuffer getResponseBodyAsByteBuffer() {
-    return delegate.getResponseBodyAsByteBuffer();
+    return body != null ? body.asByteBuffer() : delegate.getResponseBodyAsByteBuffer();
+  }
+
+  /**
+   * Return the entire response body as read-only buffers, without copying if the body is kept in the buffers it was received in.
+   * Body of response converted with {@link ResultProcessor#result()} or {@link ResultProcessor#resultWithStatus()} is released once
+   * it is converted, so the buffers must not be used after conversion.
+   *
+   * @return the entire response body as read-only buffers
+   */
+  public ByteBuffer[] getResponseBodyAsByteBuffers() {
+    return body != null ? body.asByteBuffers() : new ByteBuffer[] {ByteBuffer.wrap(delegate.getResponseBodyAsBytes())};
   }
 
   /**
@@ -60,7 +85,7 @@ public class Response {
    * @return The input stream
    */
   public InputStream getResponseBodyAsStream() {
-    return delegate.getResponseBodyAsStream();
+    return body != null ? body.asStream() : delegate.getResponseBodyAsStream();
   }
 
   /**
@@ -70,7 +95,7 @@ public class Response {
    * @return the entire response body as a String.
    */
   public String getResponseBody(Charset charset) {
-    return delegate.getResponseBody(charset);
+    return body != null ? body.toString(charset) : delegate.getResponseBody(charset);
   }
 
   /**
@@ -79,7 +104,22 @@ public class Response {
    * @return the entire response body as a String.
    */
   public String getResponseBody() {
-    return delegate.getResponseBody();
+    return body != null ? body.toString(getContentTypeCharset()) : delegate.getResponseBody();
+  }
+
+  /**
+   * @return charset of "Content-Type" header or UTF-8 if it is not specified
+   */
+  Charset getContentTypeCharset() {
+    String contentType = getContentType();
+    if (contentType == null) {
+      return UTF_8;
+    }
+    try {
+      return MediaTypes.parse(contentType).charset().or(UTF_8);
+    } catch (IllegalArgumentException e) {
+      return UTF_8;
+    }
   }
 
   /**
@@ -166,7 +206,7 @@ public class Response {
    * @return true if the response's body has been computed
    */
   public boolean hasResponseBody() {
-    return delegate.hasResponseBody();
+    return body != null ? body.getLength() > 0 : delegate.hasResponseBody();
   }
 
   org.asynchttpclient.Response getDelegate() {
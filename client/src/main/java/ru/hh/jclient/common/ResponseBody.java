@@ -0,0 +1,93 @@
+package ru.hh.jclient.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Response body kept in the buffers it was received in instead of being concatenated into a single array.
+ * <p>
+ * With {@link org.asynchttpclient.AsyncHttpClientConfig.ResponseBodyPartFactory#LAZY} body parts are Netty buffers, which are retained
+ * until {@link #release()}, otherwise parts are copied from Netty buffers by AHC and are just wrapped.
+ * The body is read without copying and must not be accessed after release.
+ */
+final class ResponseBody {
+  private final CompositeByteBuf buffers = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+  private boolean released;
+
+  synchronized void add(HttpResponseBodyPart bodyPart) {
+    if (released) {
+      return;
+    }
+    ByteBuf buffer = bodyPart instanceof LazyResponseBodyPart
+        ? ((LazyResponseBodyPart) bodyPart).getBuf().retain()
+        : Unpooled.wrappedBuffer(bodyPart.getBodyPartBytes());
+    buffers.addComponent(true, buffer);
+  }
+
+  /**
+   * Drops parts received so far, when response is received anew.
+   */
+  synchronized void reset() {
+    if (!released) {
+      buffers.removeComponents(0, buffers.numComponents());
+      buffers.clear();
+    }
+  }
+
+  boolean isEmpty() {
+    return buffers.numComponents() == 0;
+  }
+
+  int getLength() {
+    return buffers.readableBytes();
+  }
+
+  /**
+   * @return read-only views of the body parts
+   */
+  ByteBuffer[] asByteBuffers() {
+    ByteBuffer[] views = buffers.nioBuffers();
+    for (int i = 0; i < views.length; i++) {
+      views[i] = views[i].asReadOnlyBuffer();
+    }
+    return views;
+  }
+
+  /**
+   * @return read-only view of the body if it consists of a single part, otherwise copy of the body
+   */
+  ByteBuffer asByteBuffer() {
+    if (buffers.nioBufferCount() == 1) {
+      return buffers.nioBuffer().asReadOnlyBuffer();
+    }
+    return ByteBuffer.wrap(toBytes());
+  }
+
+  InputStream asStream() {
+    return new ByteBufInputStream(buffers.duplicate());
+  }
+
+  byte[] toBytes() {
+    return ByteBufUtil.getBytes(buffers);
+  }
+
+  String toString(Charset charset) {
+    return buffers.toString(charset);
+  }
+
+  synchronized void release() {
+    if (!released) {
+      released = true;
+      buffers.release();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package ru.hh.jclient.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process store of cacheable responses, weighted by response size. Used by {@link CachingRequestStrategy}.
+ * Response bodies are kept on heap or, if {@link OffHeapBodyStore} is given, in direct memory that is reclaimed on eviction.
+ * Responses with Vary header are stored as separate variants, keyed by url and values of the request headers they vary on.
+ */
+public final class ResponseCache {
+  private static final int MAX_REFRESHES_IN_FLIGHT = 1024;
+  private static final int MAX_VARYING_URLS = 16_384;
+
+  private final Cache<String, CachedResponse> cache;
+  private final Cache<String, List<String>> varyHeaderNames = CacheBuilder.newBuilder().maximumSize(MAX_VARYING_URLS).build();
+  @Nullable
+  private final OffHeapBodyStore bodyStore;
+  private final SingleFlight<Response> refreshes = new SingleFlight<>(MAX_REFRESHES_IN_FLIGHT);
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong staleHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param maxWeightBytes approximate max size of stored responses
+   */
+  public ResponseCache(long maxWeightBytes) {
+    this(maxWeightBytes, null);
+  }
+
+  /**
+   * @param maxWeightBytes approximate max size of stored responses
+   * @param bodyStore store for response bodies, responses with bodies that do not fit into it are not cached
+   */
+  public ResponseCache(long maxWeightBytes, @Nullable OffHeapBodyStore bodyStore) {
+    if (maxWeightBytes <= 0) {
+      throw new IllegalArgumentException("maxWeightBytes must be positive: " + maxWeightBytes);
+    }
+    cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxWeightBytes)
+        .weigher((String key, CachedResponse value) -> value.getWeight())
+        .removalListener((RemovalNotification<String, CachedResponse> notification) -> {
+          if (notification.getCause() == RemovalCause.SIZE) {
+            evictions.incrementAndGet();
+          }
+          notification.getValue().release();
+        })
+        .build();
+    this.bodyStore = bodyStore;
+  }
+
+  /**
+   * @return entry to put into cache or null if there is no room for its body
+   */
+  @Nullable
+  CachedResponse newEntry(Response response, long expiresAtMillis, CacheControl cacheControl) {
+    byte[] body = response.getResponseBodyAsBytes();
+    int weight = CachedResponse.weigh(response, body);
+    if (bodyStore == null) {
+      return new CachedResponse(new StoredResponse(response, body), weight, expiresAtMillis, cacheControl);
+    }
+    OffHeapBodyStore.Body storedBody = bodyStore.store(body);
+    if (storedBody == null) {
+      return null;
+    }
+    return new CachedResponse(new StoredResponse(response, storedBody), weight, expiresAtMillis, cacheControl);
+  }
+
+  @Nullable
+  CachedResponse get(String key) {
+    return cache.getIfPresent(key);
+  }
+
+  void put(String key, CachedResponse response) {
+    cache.put(key, response);
+  }
+
+  void invalidate(String key) {
+    cache.invalidate(key);
+  }
+
+  /**
+   * @return names of the headers the last stored response for the url varies on
+   */
+  List<String> getVaryHeaderNames(String url) {
+    List<String> names = varyHeaderNames.getIfPresent(url);
+    return names == null ? List.of() : names;
+  }
+
+  /**
+   * Variants stored under the names that are replaced are not looked up anymore and are left to eviction.
+   */
+  void setVaryHeaderNames(String url, List<String> names) {
+    if (names.isEmpty()) {
+      varyHeaderNames.invalidate(url);
+    } else {
+      varyHeaderNames.put(url, List.copyOf(names));
+    }
+  }
+
+  /**
+   * Background refreshes of the same key share one upstream request.
+   */
+  CompletableFuture<Response> refresh(String key, Supplier<CompletableFuture<Response>> call) {
+    return refreshes.execute(key, call);
+  }
+
+  void countHit() {
+    hits.incrementAndGet();
+  }
+
+  void countStaleHit() {
+    staleHits.incrementAndGet();
+  }
+
+  void countMiss() {
+    misses.incrementAndGet();
+  }
+
+  /**
+   * @return number of requests answered from cache, including successful revalidations
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of requests answered with a stale response while it was refreshed or because upstream failed
+   */
+  public long getStaleHitCount() {
+    return staleHits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of responses evicted to keep the size bound
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  @Nullable
+  public OffHeapBodyStore getBodyStore() {
+    return bodyStore;
+  }
+
+  public long size() {
+    return cache.size();
+  }
+}
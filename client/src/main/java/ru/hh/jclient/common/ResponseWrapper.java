@@ -1,19 +1,51 @@
 package ru.hh.jclient.common;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 public class ResponseWrapper {
   private Response response;
   private long timeToLastByteMicros;
+  private final CompletableFuture<Long> bodyCompletion;
+  private final boolean bodyStreamed;
 
   public ResponseWrapper(Response response, long timeToLastByteMicros) {
     this.response = response;
     this.timeToLastByteMicros = timeToLastByteMicros;
+    this.bodyCompletion = CompletableFuture.completedFuture(timeToLastByteMicros);
+    this.bodyStreamed = false;
+  }
+
+  /**
+   * Creates wrapper of the response which body is streamed, see {@link #getBodyCompletion()}.
+   */
+  public ResponseWrapper(Response response, long timeToHeadersMicros, CompletionStage<Long> bodyCompletion) {
+    this.response = response;
+    this.timeToLastByteMicros = timeToHeadersMicros;
+    this.bodyCompletion = bodyCompletion.toCompletableFuture();
+    this.bodyStreamed = true;
   }
 
   public Response getResponse() {
     return response;
   }
 
+  /**
+   * @return time to the last byte of the response, or to its headers if the body is streamed, see {@link #getBodyCompletion()}
+   */
   public long getTimeToLastByteMicros() {
     return timeToLastByteMicros;
   }
+
+  public boolean isBodyStreamed() {
+    return bodyStreamed;
+  }
+
+  /**
+   * Streamed body is read after the response is returned, see {@link HttpClient#expectJsonStream}. The stage completes with time to the
+   * last byte once the body is read or its reading is cancelled, and exceptionally if reading fails. For other responses it is completed.
+   */
+  public CompletionStage<Long> getBodyCompletion() {
+    return bodyCompletion.minimalCompletionStage();
+  }
 }
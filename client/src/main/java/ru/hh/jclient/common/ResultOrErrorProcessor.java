@@ -83,7 +83,7 @@ public class ResultOrErrorProcessor<T, E> {
     Optional<E> errorValue;
     try {
       if (HttpClient.OK_RESPONSE.apply(response)) {
-        value = responseProcessor.getConverter().converterFunction().apply(response).get();
+        value = responseProcessor.convert(response).get();
         errorValue = Optional.empty();
 
         responseProcessor.getHttpClient().getDebugs().forEach(d -> d.onResponseConverted(value));
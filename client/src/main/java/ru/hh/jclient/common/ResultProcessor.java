@@ -7,12 +7,15 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import javax.xml.bind.JAXBContext;
 
-import com.google.protobuf.GeneratedMessageV3;
+import com.google.protobuf.MessageLite;
+import ru.hh.jclient.common.responseconverter.BinaryJsonConverter;
+import ru.hh.jclient.common.responseconverter.BinaryJsonFormat;
 import ru.hh.jclient.common.responseconverter.JsonMapConverter;
 import ru.hh.jclient.common.responseconverter.TypeConverter;
 import ru.hh.jclient.common.responseconverter.JsonCollectionConverter;
 import ru.hh.jclient.common.responseconverter.JsonConverter;
 import ru.hh.jclient.common.responseconverter.PlainTextConverter;
+import ru.hh.jclient.common.responseconverter.PrecompiledConverter;
 import ru.hh.jclient.common.responseconverter.ProtobufConverter;
 import ru.hh.jclient.common.responseconverter.XmlConverter;
 import ru.hh.jclient.common.exception.ClientResponseException;
@@ -27,6 +30,7 @@ public class ResultProcessor<T> {
   ResultProcessor(HttpClient httpClient, TypeConverter<T> converter) {
     this.httpClient = requireNonNull(httpClient, "http client must not be null");
     this.converter = requireNonNull(converter, "converter must not be null");
+    httpClient.setConverter(converter);
   }
 
   HttpClient getHttpClient() {
@@ -38,14 +42,19 @@ public class ResultProcessor<T> {
   }
 
   /**
-   * Returns future containing expected result or {@link ClientResponseException}.
+   * Returns future containing expected result or {@link ClientResponseException}. Response body is released once it is converted,
+   * so the converter must not keep references to it.
    *
    * @return expected result
    * @throws ClientResponseException if status code is not in {@link HttpClient#OK_RANGE}
    * @throws ResponseConverterException if converter failed to process response
    */
   public CompletableFuture<T> result() {
-    return httpClient.unconverted().thenApply(this::wrapOrThrow).thenApply(rw -> rw.get().orElse(null));
+    httpClient.releaseBodyAfterConversion();
+    return httpClient.unconverted()
+        .thenApply(this::wrapOrThrow)
+        .whenComplete((result, throwable) -> httpClient.releaseReceivedBodies())
+        .thenApply(rw -> rw.get().orElse(null));
   }
 
   /**
@@ -60,12 +69,17 @@ public class ResultProcessor<T> {
 
   /**
    * Returns future containing wrapper with response status code and result (empty if status code is not in {@link HttpClient#OK_RANGE}).
+   * Response body is released once it is converted, so the converter must not keep references to it.
    *
    * @return {@link ResultWithStatus} with expected result (possibly empty) and response status code
    * @throws ResponseConverterException if converter failed to process response
    */
   public CompletableFuture<ResultWithStatus<T>> resultWithStatus() {
-    return resultWithResponse().thenApply(ResultWithResponse::hideResponse);
+    httpClient.releaseBodyAfterConversion();
+    return httpClient.unconverted()
+        .thenApply(this::wrapOrNull)
+        .whenComplete((result, throwable) -> httpClient.releaseReceivedBodies())
+        .thenApply(ResultWithResponse::hideResponse);
   }
 
   private ResultWithResponse<T> wrapOrThrow(Response response) {
@@ -94,7 +108,7 @@ public class ResultProcessor<T> {
 
   private ResultWithResponse<T> wrap(Response response) {
     try {
-      ResultWithResponse<T> result = converter.converterFunction().apply(response);
+      ResultWithResponse<T> result = convert(response);
       httpClient.getDebugs().forEach(d -> d.onResponseConverted(result.get()));
       return result;
     }
@@ -108,6 +122,18 @@ public class ResultProcessor<T> {
     }
   }
 
+  /**
+   * Converts response with the converter, unless its body was already parsed while it was received.
+   */
+  @SuppressWarnings("unchecked")
+  ResultWithResponse<T> convert(Response response) throws Exception {
+    ParsedBody parsedBody = httpClient.getParsedBody();
+    if (parsedBody != null) {
+      return new ResultWithResponse<>((T) parsedBody.get(), response);
+    }
+    return converter.converterFunction().apply(response);
+  }
+
   /**
    * Specifies that the type of ERROR result must be XML.
    *
@@ -132,6 +158,36 @@ public class ResultProcessor<T> {
     return new ResultOrErrorProcessor<>(this, converter);
   }
 
+  /**
+   * Specifies that the type of ERROR result must be Smile, binary JSON format. JSON is accepted as well, see {@link BinaryJsonConverter}.
+   *
+   * @param mapper Jackson mapper used to parse response
+   * @param jsonClass type of ERROR result
+   */
+  public <E> ResultOrErrorProcessor<T, E> orSmileError(ObjectMapper mapper, Class<E> jsonClass) {
+    return orError(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.SMILE));
+  }
+
+  /**
+   * Specifies that the type of ERROR result must be CBOR. JSON is accepted as well, see {@link BinaryJsonConverter}.
+   *
+   * @param mapper Jackson mapper used to parse response
+   * @param jsonClass type of ERROR result
+   */
+  public <E> ResultOrErrorProcessor<T, E> orCborError(ObjectMapper mapper, Class<E> jsonClass) {
+    return orError(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.CBOR));
+  }
+
+  /**
+   * Specifies that the type of ERROR result must be MessagePack. JSON is accepted as well, see {@link BinaryJsonConverter}.
+   *
+   * @param mapper Jackson mapper used to parse response
+   * @param jsonClass type of ERROR result
+   */
+  public <E> ResultOrErrorProcessor<T, E> orMsgPackError(ObjectMapper mapper, Class<E> jsonClass) {
+    return orError(new BinaryJsonConverter<>(mapper, jsonClass, BinaryJsonFormat.MSGPACK));
+  }
+
   /**
    * Specifies that the type of ERROR result must be collection of JSON objects.
    *
@@ -162,7 +218,7 @@ public class ResultProcessor<T> {
    *
    * @param protobufClass type of ERROR result
    */
-  public <E extends GeneratedMessageV3> ResultOrErrorProcessor<T, E> orProtobufError(Class<E> protobufClass) {
+  public <E extends MessageLite> ResultOrErrorProcessor<T, E> orProtobufError(Class<E> protobufClass) {
     ProtobufConverter<E> converter = new ProtobufConverter<>(protobufClass);
     getHttpClient().setExpectedMediaTypesForErrors(converter.getSupportedMediaTypes());
     return new ResultOrErrorProcessor<>(this, converter);
@@ -197,4 +253,13 @@ public class ResultProcessor<T> {
     getHttpClient().setExpectedMediaTypesForErrors(converter.getSupportedMediaTypes());
     return new ResultOrErrorProcessor<>(this, converter);
   }
+
+  /**
+   * Specifies the converter for the ERROR result that was created once and is shared between requests, see {@link PrecompiledConverter}.
+   *
+   * @param converter used to convert response to expected ERROR result
+   */
+  public <E> ResultOrErrorProcessor<T, E> orError(PrecompiledConverter<E> converter) {
+    return orError((TypeConverter<E>) converter);
+  }
 }
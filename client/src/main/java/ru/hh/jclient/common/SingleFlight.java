@@ -0,0 +1,87 @@
+package ru.hh.jclient.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Shares result of an in-flight call between concurrent callers with the same key.
+ * Number of keys shared at the same time is bounded, calls above the bound are executed as is.
+ */
+final class SingleFlight<T> {
+  private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong collapsed = new AtomicLong();
+  private final int maxSize;
+
+  SingleFlight(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> call) {
+    return execute(key, call, shared -> shared.thenApply(Function.identity()));
+  }
+
+  /**
+   * @param join builds future of a caller that joins an in-flight call, i.e. to complete it in the context of that caller
+   */
+  CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> call, UnaryOperator<CompletableFuture<T>> join) {
+    CompletableFuture<T> existing = inFlight.get(key);
+    if (existing != null) {
+      return share(existing, join);
+    }
+    if (size.incrementAndGet() > maxSize) {
+      size.decrementAndGet();
+      return call.get();
+    }
+
+    CompletableFuture<T> promise = new CompletableFuture<>();
+    existing = inFlight.putIfAbsent(key, promise);
+    if (existing != null) {
+      size.decrementAndGet();
+      return share(existing, join);
+    }
+
+    CompletableFuture<T> result;
+    try {
+      result = call.get();
+    } catch (RuntimeException e) {
+      result = CompletableFuture.failedFuture(e);
+    }
+    result.whenComplete((value, throwable) -> {
+      inFlight.remove(key, promise);
+      size.decrementAndGet();
+      if (throwable != null) {
+        promise.completeExceptionally(throwable);
+      } else {
+        promise.complete(value);
+      }
+    });
+    // every caller gets own future, so that completing or cancelling it does not affect others
+    return promise.thenApply(Function.identity());
+  }
+
+  private CompletableFuture<T> share(CompletableFuture<T> existing, UnaryOperator<CompletableFuture<T>> join) {
+    collapsed.incrementAndGet();
+    return join.apply(existing);
+  }
+
+  /**
+   * @return number of calls that got result of another in-flight call
+   */
+  long getCollapsedCount() {
+    return collapsed.get();
+  }
+
+  int getInFlightCount() {
+    return size.get();
+  }
+}
@@ -0,0 +1,115 @@
+package ru.hh.jclient.common;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static ru.hh.jclient.common.HttpHeaderNames.X_REQUEST_ID;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Decorates request strategy so that concurrent identical idempotent requests share one call to the upstream.
+ * Every caller gets the same {@link Response} and runs its own converter.
+ * <p>
+ * Requests are identical when the key function returns the same key for them, null key means the request is executed as is.
+ * {@link #DEFAULT_KEY} collapses GET and HEAD requests with the same url, headers, timeout, expected media types,
+ * request engine settings and headers passed through from the incoming request, such as session, authorization and criticality.
+ * Requests in debug mode are never collapsed. {@link HttpHeaderNames#X_REQUEST_ID} is not a part of the key, as it is unique for every
+ * incoming request: the upstream receives the request id of the request that was sent, and joined requests are not seen there.
+ * <p>
+ * Requests that join an in-flight request complete in their own context and pass the response through their own {@link RequestDebug}.
+ */
+public class SingleFlightRequestStrategy<REB extends RequestEngineBuilder> implements RequestStrategy<REB> {
+  public static final BiFunction<HttpClient, Request, String> DEFAULT_KEY = SingleFlightRequestStrategy::getDefaultKey;
+  private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD");
+  private static final List<String> CONTEXT_KEY_HEADERS = HttpClientImpl.PASS_THROUGH_HEADERS.stream()
+      .filter(header -> !X_REQUEST_ID.equals(header))
+      .sorted()
+      .collect(toList());
+
+  private final RequestStrategy<REB> delegate;
+  private final SingleFlight<Response> singleFlight;
+  private final BiFunction<HttpClient, Request, String> keyFunction;
+
+  /**
+   * @param maxInFlight max number of keys shared at the same time
+   */
+  public SingleFlightRequestStrategy(RequestStrategy<REB> delegate, int maxInFlight) {
+    this(delegate, new SingleFlight<>(maxInFlight), DEFAULT_KEY);
+  }
+
+  /**
+   * @param maxInFlight max number of keys shared at the same time
+   * @param keyFunction returns key of the request or null if the request must not be shared
+   */
+  public SingleFlightRequestStrategy(RequestStrategy<REB> delegate, int maxInFlight, BiFunction<HttpClient, Request, String> keyFunction) {
+    this(delegate, new SingleFlight<>(maxInFlight), keyFunction);
+  }
+
+  private SingleFlightRequestStrategy(RequestStrategy<REB> delegate,
+                                      SingleFlight<Response> singleFlight,
+                                      BiFunction<HttpClient, Request, String> keyFunction) {
+    this.delegate = requireNonNull(delegate, "delegate must not be null");
+    this.singleFlight = singleFlight;
+    this.keyFunction = requireNonNull(keyFunction, "keyFunction must not be null");
+  }
+
+  @Override
+  public REB createRequestEngineBuilder(HttpClient client) {
+    return delegate.createRequestEngineBuilder(client);
+  }
+
+  @Override
+  public RequestEngine decorateEngine(HttpClient client, Request request, Function<Request, RequestEngine> engineFactory) {
+    RequestEngine delegateEngine = delegate.decorateEngine(client, request, engineFactory);
+    // response parsed incrementally has no body to share
+    String key = client.isParsingIncrementally() ? null : keyFunction.apply(client, request);
+    if (key == null) {
+      return delegateEngine;
+    }
+    client.shareResponse();
+    return () -> singleFlight.execute(key, delegateEngine::execute, shared -> client.joinResponse(request, shared));
+  }
+
+  @Override
+  public void setTimeoutMultiplier(double timeoutMultiplier) {
+    delegate.setTimeoutMultiplier(timeoutMultiplier);
+  }
+
+  @Override
+  public RequestStrategy<REB> createCustomizedCopy(UnaryOperator<REB> configAction) {
+    return new SingleFlightRequestStrategy<>(delegate.createCustomizedCopy(configAction), singleFlight, keyFunction);
+  }
+
+  /**
+   * @return number of requests that got response of another in-flight request
+   */
+  public long getCollapsedCount() {
+    return singleFlight.getCollapsedCount();
+  }
+
+  private static String getDefaultKey(HttpClient client, Request request) {
+    if (!IDEMPOTENT_METHODS.contains(request.getMethod()) || client.getContext().isDebugMode()) {
+      return null;
+    }
+    StringBuilder key = new StringBuilder(request.getMethod()).append(' ').append(request.getUrl())
+        .append('\n').append(request.getRequestTimeout())
+        .append('\n').append(client.getRequestEngineBuilder().getSettingsKey());
+    Set<String> headers = new TreeSet<>();
+    request.getHeaders().forEach(header -> headers.add(header.getKey().toLowerCase() + ':' + header.getValue()));
+    headers.forEach(header -> key.append('\n').append(header));
+    if (!client.isExternalRequest()) {
+      Map<String, List<String>> contextHeaders = client.getContext().getHeaders();
+      for (String header : CONTEXT_KEY_HEADERS) {
+        key.append('\n').append(header).append(':').append(contextHeaders.get(header));
+      }
+    }
+    key.append('\n').append(client.getExpectedMediaTypes()).append('\n').append(client.getExpectedMediaTypesForErrors());
+    return key.toString();
+  }
+}
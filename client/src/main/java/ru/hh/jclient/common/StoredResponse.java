@@ -0,0 +1,221 @@
+package ru.hh.jclient.common;
+
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+
+import javax.annotation.Nullable;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Immutable copy of a response stored in {@link ResponseCache}, with body on heap or in {@link OffHeapBodyStore}.
+ * Every cache hit is served with its own {@link #lease()}, body is read without copying unless it is requested as bytes or string.
+ */
+final class StoredResponse extends Response {
+  private final int statusCode;
+  private final String statusText;
+  private final Uri uri;
+  private final HttpHeaders headers;
+  private final List<Cookie> cookies;
+  private final ByteBuffer body;
+  @Nullable
+  private final OffHeapBodyStore.Body storedBody;
+  private final AtomicBoolean released = new AtomicBoolean();
+
+  StoredResponse(Response response, byte[] body) {
+    this(response, ByteBuffer.wrap(body).asReadOnlyBuffer(), null);
+  }
+
+  StoredResponse(Response response, OffHeapBodyStore.Body body) {
+    this(response, body.getBuffer(), body);
+  }
+
+  private StoredResponse(Response response, ByteBuffer body, @Nullable OffHeapBodyStore.Body storedBody) {
+    this.statusCode = response.getStatusCode();
+    this.statusText = response.getStatusText();
+    this.uri = response.getUri();
+    this.headers = new HttpHeaders().add(response.getHeaders());
+    this.cookies = List.copyOf(response.getCookies());
+    this.body = body;
+    this.storedBody = storedBody;
+  }
+
+  private StoredResponse(StoredResponse template, ByteBuffer body, @Nullable OffHeapBodyStore.Body storedBody) {
+    this.statusCode = template.statusCode;
+    this.statusText = template.statusText;
+    this.uri = template.uri;
+    this.headers = template.headers;
+    this.cookies = template.cookies;
+    this.body = body;
+    this.storedBody = storedBody;
+  }
+
+  /**
+   * @return response to serve a cache hit with, sharing immutable state and body with this one, or null if the body is reclaimed.
+   * Off heap body is retained until the returned response is {@link #release() released}
+   */
+  @Nullable
+  StoredResponse lease() {
+    if (storedBody != null && !storedBody.tryRetain()) {
+      return null;
+    }
+    return new StoredResponse(this, body, storedBody);
+  }
+
+  /**
+   * @return response with body copied to heap, which does not need to be released
+   */
+  StoredResponse copyToHeap() {
+    return new StoredResponse(this, ByteBuffer.wrap(getResponseBodyAsBytes()).asReadOnlyBuffer(), null);
+  }
+
+  /**
+   * Releases off heap body, the response must not be read afterwards.
+   */
+  void release() {
+    if (storedBody != null && released.compareAndSet(false, true)) {
+      storedBody.release();
+    }
+  }
+
+  @Nullable
+  OffHeapBodyStore.Body getStoredBody() {
+    return storedBody;
+  }
+
+  @Override
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  @Override
+  public String getStatusText() {
+    return statusText;
+  }
+
+  @Override
+  public byte[] getResponseBodyAsBytes() {
+    ByteBuffer buffer = getBuffer();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * @return read-only view of the stored body
+   */
+  @Override
+  public ByteBuffer getResponseBodyAsByteBuffer() {
+    return getBuffer();
+  }
+
+  @Override
+  public InputStream getResponseBodyAsStream() {
+    return new ByteBufferInputStream(getBuffer());
+  }
+
+  @Override
+  public String getResponseBody(Charset charset) {
+    return charset.decode(getBuffer()).toString();
+  }
+
+  private ByteBuffer getBuffer() {
+    if (released.get()) {
+      throw new IllegalStateException("Body of cached response is released");
+    }
+    return body.duplicate();
+  }
+
+  @Override
+  public String getResponseBody() {
+    return getResponseBody(getContentTypeCharset());
+  }
+
+  @Override
+  public Uri getUri() {
+    return uri;
+  }
+
+  @Override
+  public String getContentType() {
+    return headers.get(CONTENT_TYPE);
+  }
+
+  @Override
+  public String getHeader(String name) {
+    return headers.get(name);
+  }
+
+  @Override
+  public List<String> getHeaders(String name) {
+    return headers.getAll(name);
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    return new HttpHeaders().add(headers);
+  }
+
+  @Override
+  public boolean isRedirected() {
+    return false;
+  }
+
+  @Override
+  public List<Cookie> getCookies() {
+    return cookies;
+  }
+
+  @Override
+  public boolean hasResponseStatus() {
+    return true;
+  }
+
+  @Override
+  public boolean hasResponseHeaders() {
+    return true;
+  }
+
+  @Override
+  public boolean hasResponseBody() {
+    return body.hasRemaining();
+  }
+
+  @Override
+  public String toString() {
+    return "StoredResponse{status=" + statusCode + ", uri=" + uri + ", length=" + body.remaining() + '}';
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -14,4 +14,20 @@ public interface MetricsProvider {
   Supplier<Long> numActiveSmallAllocations();
   Supplier<Long> numActiveNormalAllocations();
   Supplier<Long> numActiveHugeAllocations();
+
+  default Supplier<Long> responseCacheHitCount() {
+    return () -> 0L;
+  }
+
+  default Supplier<Long> responseCacheStaleHitCount() {
+    return () -> 0L;
+  }
+
+  default Supplier<Long> responseCacheMissCount() {
+    return () -> 0L;
+  }
+
+  default Supplier<Long> responseCacheEvictionCount() {
+    return () -> 0L;
+  }
 }
@@ -0,0 +1,64 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static com.google.common.net.MediaType.JSON_UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.net.HttpHeaders;
+import com.google.common.net.MediaType;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResultWithResponse;
+import ru.hh.jclient.common.util.MediaTypes;
+import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+
+/**
+ * Converts body in one of {@link BinaryJsonFormat binary JSON formats}. JSON is accepted as well and is read with the same mapper, while the
+ * binary format is preferred in "Accept" header, so upstream can switch between formats without changes of the client.
+ */
+public class BinaryJsonConverter<T> extends SingleTypeConverter<T> {
+
+  private static final MediaType JSON = JSON_UTF_8.withoutParameters();
+
+  private final ObjectMapper objectMapper;
+  private final Class<T> jsonClass;
+  private final BinaryJsonFormat format;
+
+  public BinaryJsonConverter(ObjectMapper objectMapper, Class<T> jsonClass, BinaryJsonFormat format) {
+    this.objectMapper = requireNonNull(objectMapper, "objectMapper must not be null");
+    this.jsonClass = requireNonNull(jsonClass, "jsonClass must not be null");
+    this.format = requireNonNull(format, "format must not be null");
+  }
+
+  @Override
+  public FailableFunction<Response, ResultWithResponse<T>, Exception> singleTypeConverterFunction() {
+    return r -> {
+      if (isJson(r.getHeader(HttpHeaders.CONTENT_TYPE))) {
+        return new ResultWithResponse<>(objectMapper.readValue(r.getResponseBodyAsStream(), jsonClass), r);
+      }
+      // parser of the shared factory is not bound to the mapper, mapper reads it as it reads its own parsers
+      try (JsonParser parser = format.getFactory().createParser(r.getResponseBodyAsStream())) {
+        return new ResultWithResponse<>(objectMapper.readValue(parser, jsonClass), r);
+      }
+    };
+  }
+
+  @Override
+  protected Collection<MediaType> getMediaTypes() {
+    return format.getAcceptedMediaTypes();
+  }
+
+  private static boolean isJson(@Nullable String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    try {
+      return MediaTypes.parse(contentType).is(JSON);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
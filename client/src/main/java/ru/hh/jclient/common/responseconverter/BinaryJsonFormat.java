@@ -0,0 +1,77 @@
+package ru.hh.jclient.common.responseconverter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.MediaType;
+import ru.hh.jclient.common.util.MediaTypes;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Binary encodings of JSON data model. Values are read and written with the mapper of the caller, so its configuration, modules and Jackson
+ * annotations apply the same way as for JSON.
+ * <p>
+ * Libraries of the formats are optional dependencies, factory of a format is created on its first use.
+ */
+public enum BinaryJsonFormat {
+  SMILE(MediaType.create("application", "x-jackson-smile"), "Smile", "com.fasterxml.jackson.dataformat.smile.SmileFactory"),
+  CBOR(MediaType.create("application", "cbor"), "CBOR", "com.fasterxml.jackson.dataformat.cbor.CBORFactory"),
+  MSGPACK(MediaType.create("application", "x-msgpack"), "msgpack", "org.msgpack.jackson.dataformat.MessagePackFactory");
+
+  private final MediaType mediaType;
+  private final String formatName;
+  // created by name, so classes of formats that are not used do not have to be present
+  private final Supplier<JsonFactory> factory;
+  // binary format is preferred, JSON is accepted from upstreams that do not support it
+  private final Set<MediaType> acceptedMediaTypes;
+
+  BinaryJsonFormat(MediaType mediaType, String formatName, String factoryClassName) {
+    this.mediaType = mediaType;
+    this.formatName = formatName;
+    this.factory = Suppliers.memoize(() -> createFactory(factoryClassName));
+    this.acceptedMediaTypes = MediaTypes.setOf(ImmutableSet.<MediaType>builder().add(mediaType).addAll(JsonConverter.MEDIA_TYPES).build());
+  }
+
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  /**
+   * Returns writer of the mapper that writes values in this format.
+   */
+  public ObjectWriter writer(ObjectMapper mapper) {
+    return mapper.writer().with(getFactory());
+  }
+
+  /**
+   * Returns binary format of the factory, empty for JSON and other formats.
+   */
+  public static Optional<BinaryJsonFormat> forFactory(JsonFactory factory) {
+    return Stream.of(values()).filter(format -> format.formatName.equals(factory.getFormatName())).findFirst();
+  }
+
+  /**
+   * Factory is shared by readers and writers of the format and must not be configured or used as a codec holder.
+   */
+  JsonFactory getFactory() {
+    return factory.get();
+  }
+
+  Set<MediaType> getAcceptedMediaTypes() {
+    return acceptedMediaTypes;
+  }
+
+  private static JsonFactory createFactory(String className) {
+    try {
+      return (JsonFactory) Class.forName(className).getConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(className + " is not available, add library of the format to dependencies", e);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package ru.hh.jclient.common.responseconverter;
+
+import java.io.IOException;
+
+/**
+ * Parses response body part by part as it is received. Not thread safe: parts of the body are passed sequentially.
+ *
+ * @param <T> type of parsing result
+ */
+public interface BodyParser<T> {
+
+  void parse(byte[] bodyPart) throws IOException;
+
+  /**
+   * Called after the last part of the body.
+   *
+   * @return parsing result
+   */
+  T complete() throws IOException;
+}
@@ -0,0 +1,41 @@
+package ru.hh.jclient.common.responseconverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads body of buffered response in parts requested by {@link ElementPublisher}.
+ */
+final class BufferedBodySource implements ElementPublisher.BodySource {
+  static final int BODY_PART_SIZE = 8192;
+
+  private final InputStream body;
+  private final ElementPublisher<?> publisher;
+  private final byte[] part = new byte[BODY_PART_SIZE];
+
+  BufferedBodySource(InputStream body, ElementPublisher<?> publisher) {
+    this.body = body;
+    this.publisher = publisher;
+  }
+
+  @Override
+  public void request() {
+    int length;
+    try {
+      length = body.read(part);
+    } catch (IOException e) {
+      publisher.onBodyFailed(e);
+      return;
+    }
+    if (length < 0) {
+      publisher.onBodyCompleted();
+    } else {
+      publisher.onBodyPart(Arrays.copyOf(part, length));
+    }
+  }
+
+  @Override
+  public void cancel() {
+  }
+}
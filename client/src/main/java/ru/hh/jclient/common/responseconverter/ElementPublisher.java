@@ -0,0 +1,298 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Publishes elements parsed from response body while the body is being read.
+ * <p>
+ * Parsed elements are buffered until requested by subscriber. The next part of the body is requested from {@link BodySource} only when there is
+ * room in the buffer, so a slow subscriber pauses reading of the body. The buffer may exceed its size by elements of a single body part.
+ * Elements are delivered to the only subscriber with the given executor. Failure of reading or parsing the body is signalled after the elements
+ * parsed before it.
+ */
+public final class ElementPublisher<T> implements Flow.Publisher<T> {
+
+  /**
+   * Source of body parts that are passed to {@link #onBodyPart(byte[])} on request.
+   */
+  public interface BodySource {
+
+    /**
+     * Requests the next part of the body. The next part is requested only after the previous one is received.
+     */
+    void request();
+
+    /**
+     * Stops reading the body, called when subscriber cancels subscription or the body fails to parse.
+     */
+    void cancel();
+  }
+
+  private final BodyParser<?> parser;
+  private final Executor executor;
+  private final int bufferSize;
+  private final AtomicInteger drainRequests = new AtomicInteger();
+  // fields below are guarded by this
+  private final ArrayDeque<T> buffer = new ArrayDeque<>();
+  private BodySource source;
+  private Flow.Subscriber<? super T> subscriber;
+  private boolean subscriptionSignalled;
+  private long demand;
+  private boolean partRequested;
+  private boolean bodyCompleted;
+  private Throwable failure;
+  // terminal signal is delivered or subscription is cancelled
+  private boolean done;
+
+  ElementPublisher(Function<Consumer<T>, BodyParser<?>> parserFactory, Executor executor, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    this.parser = parserFactory.apply(this::add);
+    this.executor = requireNonNull(executor, "executor must not be null");
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Starts reading the body from the source. Body parts are prefetched until the buffer is full even if there is no subscriber yet.
+   */
+  public void connect(BodySource source) {
+    requireNonNull(source, "source must not be null");
+    synchronized (this) {
+      if (this.source != null) {
+        throw new IllegalStateException("Publisher is already connected to body source");
+      }
+      this.source = source;
+    }
+    drain();
+  }
+
+  /**
+   * Parses the body part requested with {@link BodySource#request()}. Parts are passed sequentially.
+   */
+  public void onBodyPart(byte[] bodyPart) {
+    synchronized (this) {
+      partRequested = false;
+      if (isBodyFinished()) {
+        return;
+      }
+    }
+    try {
+      parser.parse(bodyPart);
+    } catch (IOException | RuntimeException e) {
+      fail(e);
+      return;
+    }
+    drain();
+  }
+
+  /**
+   * Completes parsing after the last part of the body.
+   */
+  public void onBodyCompleted() {
+    synchronized (this) {
+      if (isBodyFinished()) {
+        return;
+      }
+    }
+    try {
+      parser.complete();
+    } catch (IOException | RuntimeException e) {
+      fail(e);
+      return;
+    }
+    synchronized (this) {
+      if (failure == null) {
+        bodyCompleted = true;
+      }
+    }
+    drain();
+  }
+
+  public void onBodyFailed(Throwable throwable) {
+    fail(requireNonNull(throwable, "throwable must not be null"));
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    requireNonNull(subscriber, "subscriber must not be null");
+    boolean accepted;
+    synchronized (this) {
+      accepted = this.subscriber == null;
+      if (accepted) {
+        this.subscriber = subscriber;
+      }
+    }
+    if (!accepted) {
+      subscriber.onSubscribe(new RejectedSubscription());
+      subscriber.onError(new IllegalStateException("Response body can be consumed by a single subscriber only"));
+      return;
+    }
+    drain();
+  }
+
+  private synchronized void add(T element) {
+    if (!done) {
+      buffer.add(element);
+    }
+  }
+
+  private boolean isBodyFinished() {
+    return done || bodyCompleted || failure != null;
+  }
+
+  private void fail(Throwable throwable) {
+    BodySource toCancel;
+    synchronized (this) {
+      if (isBodyFinished()) {
+        return;
+      }
+      failure = throwable;
+      toCancel = source;
+    }
+    if (toCancel != null) {
+      toCancel.cancel();
+    }
+    drain();
+  }
+
+  private void cancel() {
+    BodySource toCancel;
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      done = true;
+      buffer.clear();
+      toCancel = bodyCompleted || failure != null ? null : source;
+    }
+    if (toCancel != null) {
+      toCancel.cancel();
+    }
+  }
+
+  private void request(long n) {
+    if (n <= 0) {
+      BodySource toCancel;
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        buffer.clear();
+        toCancel = isBodyFinished() ? null : source;
+        bodyCompleted = false;
+        failure = new IllegalArgumentException("Number of requested elements must be positive: " + n);
+      }
+      if (toCancel != null) {
+        toCancel.cancel();
+      }
+    } else {
+      synchronized (this) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+    }
+    drain();
+  }
+
+  /**
+   * Signals subscriber and requests body parts until there is nothing to do. Only one thread drains at a time,
+   * calls made while draining make the draining thread repeat.
+   */
+  private void drain() {
+    if (drainRequests.getAndIncrement() == 0) {
+      executor.execute(this::drainLoop);
+    }
+  }
+
+  private void drainLoop() {
+    int missed = 1;
+    do {
+      while (step()) {
+        // keep going
+      }
+      missed = drainRequests.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private boolean step() {
+    Flow.Subscriber<? super T> target;
+    boolean subscribe = false;
+    T element = null;
+    boolean terminate = false;
+    Throwable error = null;
+    BodySource requestFrom = null;
+    synchronized (this) {
+      if (done) {
+        return false;
+      }
+      target = subscriber;
+      if (target != null && !subscriptionSignalled) {
+        subscriptionSignalled = true;
+        subscribe = true;
+      } else if (target != null && demand > 0 && !buffer.isEmpty()) {
+        element = buffer.poll();
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+      } else if (target != null && buffer.isEmpty() && (bodyCompleted || failure != null)) {
+        done = true;
+        terminate = true;
+        error = failure;
+      } else if (source != null && !partRequested && !isBodyFinished() && buffer.size() < bufferSize) {
+        partRequested = true;
+        requestFrom = source;
+      }
+    }
+    if (subscribe) {
+      target.onSubscribe(new ElementSubscription());
+      return true;
+    }
+    if (element != null) {
+      target.onNext(element);
+      return true;
+    }
+    if (terminate) {
+      if (error != null) {
+        target.onError(error);
+      } else {
+        target.onComplete();
+      }
+      return false;
+    }
+    if (requestFrom != null) {
+      requestFrom.request();
+      return true;
+    }
+    return false;
+  }
+
+  private final class ElementSubscription implements Flow.Subscription {
+    @Override
+    public void request(long n) {
+      ElementPublisher.this.request(n);
+    }
+
+    @Override
+    public void cancel() {
+      ElementPublisher.this.cancel();
+    }
+  }
+
+  private static final class RejectedSubscription implements Flow.Subscription {
+    @Override
+    public void request(long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  }
+}
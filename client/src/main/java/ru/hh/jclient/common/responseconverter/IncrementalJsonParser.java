@@ -0,0 +1,54 @@
+package ru.hh.jclient.common.responseconverter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+
+/**
+ * Tokenizes JSON with Jackson non-blocking parser as body parts arrive and binds collected tokens to the result type after the last part,
+ * so that decoding of the body is done by the time the response is received. Databind needs the complete document, so all tokens are kept
+ * until then and memory use is about the same as with buffered body.
+ */
+class IncrementalJsonParser<T> implements BodyParser<T> {
+  private final ObjectReader reader;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final TokenBuffer tokens;
+
+  /**
+   * @param reader reader of the result type
+   */
+  IncrementalJsonParser(ObjectReader reader) throws IOException {
+    this.reader = reader;
+    this.parser = reader.getFactory().createNonBlockingByteArrayParser();
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    this.tokens = new TokenBuffer(parser);
+  }
+
+  @Override
+  public void parse(byte[] bodyPart) throws IOException {
+    feeder.feedInput(bodyPart, 0, bodyPart.length);
+    copyAvailableTokens();
+  }
+
+  @Override
+  public T complete() throws IOException {
+    feeder.endOfInput();
+    copyAvailableTokens();
+    parser.close();
+    try (JsonParser tokensParser = tokens.asParser(reader)) {
+      return reader.readValue(tokensParser);
+    }
+  }
+
+  private void copyAvailableTokens() throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+      tokens.copyCurrentEvent(parser);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package ru.hh.jclient.common.responseconverter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Converter that is able to parse response body while it is being received, without buffering the whole body.
+ *
+ * @param <T> type of conversion result
+ */
+public interface IncrementalTypeConverter<T> extends TypeConverter<T> {
+
+  /**
+   * @param contentType value of "Content-Type" header of response
+   * @return parser for body of response with the given content type or null if the body must be buffered and converted as usual
+   */
+  @Nullable
+  BodyParser<T> createBodyParser(@Nullable String contentType) throws IOException;
+}
@@ -14,10 +14,10 @@ import java.io.ObjectStreamClass;
 import java.util.Collection;
 import java.util.Set;
 
-import static com.google.common.collect.ImmutableSet.of;
+import static ru.hh.jclient.common.util.MediaTypes.setOf;
 
 public class JavaSerializedConverter<T> extends SingleTypeConverter<T> {
-  private static final Set<MediaType> MEDIA_TYPES = of(MediaType.parse("application/x-java-serialized-object"));
+  private static final Set<MediaType> MEDIA_TYPES = setOf(MediaType.parse("application/x-java-serialized-object"));
 
   private final Class<T> clazz;
   private boolean isRootClassResolved;
@@ -8,11 +8,12 @@ import ru.hh.jclient.common.Response;
 import ru.hh.jclient.common.ResultWithResponse;
 import ru.hh.jclient.common.util.JsonTypeConverter;
 import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
+import java.io.IOException;
 import java.util.Collection;
 import static java.util.Objects.requireNonNull;
 
 
-public class JsonCollectionConverter<T> extends SingleTypeConverter<Collection<T>> {
+public class JsonCollectionConverter<T> extends SingleTypeConverter<Collection<T>> implements IncrementalTypeConverter<Collection<T>> {
 
   private final ObjectMapper objectMapper;
   private final JavaType elementType;
@@ -37,6 +38,11 @@ public class JsonCollectionConverter<T> extends SingleTypeConverter<Collection<T
     return r -> new ResultWithResponse<>(objectMapper.readValue(r.getResponseBodyAsStream(), elementType), r);
   }
 
+  @Override
+  public BodyParser<Collection<T>> createBodyParser(String contentType) throws IOException {
+    return isSupportedContentType(contentType) ? new IncrementalJsonParser<>(objectMapper.readerFor(elementType)) : null;
+  }
+
   @Override
   protected Collection<MediaType> getMediaTypes() {
     return JsonConverter.MEDIA_TYPES;
@@ -1,8 +1,9 @@
 package ru.hh.jclient.common.responseconverter;
 
-import static com.google.common.collect.ImmutableSet.of;
+import static ru.hh.jclient.common.util.MediaTypes.setOf;
 import static com.google.common.net.MediaType.JSON_UTF_8;
 import static java.util.Objects.requireNonNull;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Set;
 import ru.hh.jclient.common.Response;
@@ -11,9 +12,9 @@ import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.net.MediaType;
 
-public class JsonConverter<T> extends SingleTypeConverter<T> {
+public class JsonConverter<T> extends SingleTypeConverter<T> implements IncrementalTypeConverter<T> {
 
-  static final Set<MediaType> MEDIA_TYPES = of(JSON_UTF_8.withoutParameters());
+  static final Set<MediaType> MEDIA_TYPES = setOf(JSON_UTF_8.withoutParameters());
 
   private ObjectMapper objectMapper;
   private Class<T> jsonClass;
@@ -28,6 +29,11 @@ public class JsonConverter<T> extends SingleTypeConverter<T> {
     return r -> new ResultWithResponse<>(objectMapper.readValue(r.getResponseBodyAsStream(), jsonClass), r);
   }
 
+  @Override
+  public BodyParser<T> createBodyParser(String contentType) throws IOException {
+    return isSupportedContentType(contentType) ? new IncrementalJsonParser<>(objectMapper.readerFor(objectMapper.constructType(jsonClass))) : null;
+  }
+
   @Override
   protected Collection<MediaType> getMediaTypes() {
     return MEDIA_TYPES;
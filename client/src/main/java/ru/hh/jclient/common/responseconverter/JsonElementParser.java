@@ -0,0 +1,96 @@
+package ru.hh.jclient.common.responseconverter;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Parses elements of top-level JSON array with Jackson non-blocking parser as body parts arrive. Every element is bound as soon as its last
+ * token is received and is passed to the consumer, so only the element being parsed is held in memory.
+ */
+class JsonElementParser<T> implements BodyParser<Void> {
+  private final ObjectMapper objectMapper;
+  private final ObjectReader elementReader;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final Consumer<? super T> consumer;
+  private boolean arrayStarted;
+  private boolean arrayEnded;
+  private TokenBuffer element;
+  private int depth;
+
+  JsonElementParser(ObjectMapper objectMapper, ObjectReader elementReader, JsonParser parser, Consumer<? super T> consumer) {
+    this.objectMapper = objectMapper;
+    this.elementReader = elementReader;
+    this.parser = parser;
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    this.consumer = consumer;
+  }
+
+  @Override
+  public void parse(byte[] bodyPart) throws IOException {
+    feeder.feedInput(bodyPart, 0, bodyPart.length);
+    readElements();
+  }
+
+  @Override
+  public Void complete() throws IOException {
+    feeder.endOfInput();
+    readElements();
+    parser.close();
+    if (!arrayEnded) {
+      throw new JsonEOFException(parser, null, "Unexpected end of input: JSON array is not closed");
+    }
+    return null;
+  }
+
+  private void readElements() throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+      if (!arrayStarted) {
+        if (token != JsonToken.START_ARRAY) {
+          throw new JsonParseException(parser, "Expected start of JSON array, got " + token);
+        }
+        arrayStarted = true;
+      } else if (arrayEnded) {
+        throw new JsonParseException(parser, "Unexpected " + token + " after end of JSON array");
+      } else if (element == null && token == JsonToken.END_ARRAY) {
+        arrayEnded = true;
+      } else {
+        if (element == null) {
+          element = new TokenBuffer(parser);
+        }
+        element.copyCurrentEvent(parser);
+        if (token.isStructStart()) {
+          depth++;
+        } else if (token.isStructEnd()) {
+          depth--;
+        }
+        if (depth == 0) {
+          consumer.accept(bindElement());
+        }
+      }
+    }
+  }
+
+  private T bindElement() throws IOException {
+    T value;
+    try (JsonParser tokensParser = element.asParser(objectMapper)) {
+      value = elementReader.readValue(tokensParser);
+    }
+    element = null;
+    if (value == null) {
+      throw JsonMappingException.from(parser, "Null element of JSON array can not be published");
+    }
+    return value;
+  }
+}
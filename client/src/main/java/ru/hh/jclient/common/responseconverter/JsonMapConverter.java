@@ -8,6 +8,7 @@ import ru.hh.jclient.common.Response;
 import ru.hh.jclient.common.ResultWithResponse;
 import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 
@@ -16,7 +17,7 @@ import static ru.hh.jclient.common.util.JsonTypeConverter.convertClassToJavaType
 import static ru.hh.jclient.common.util.JsonTypeConverter.convertReferenceToJavaType;
 
 
-public class JsonMapConverter<K, V> extends SingleTypeConverter<Map<K, V>> {
+public class JsonMapConverter<K, V> extends SingleTypeConverter<Map<K, V>> implements IncrementalTypeConverter<Map<K, V>> {
 
   private final ObjectMapper objectMapper;
   private final JavaType mapType;
@@ -49,6 +50,11 @@ public class JsonMapConverter<K, V> extends SingleTypeConverter<Map<K, V>> {
     return r -> new ResultWithResponse<>(objectMapper.readValue(r.getResponseBodyAsStream(), mapType), r);
   }
 
+  @Override
+  public BodyParser<Map<K, V>> createBodyParser(String contentType) throws IOException {
+    return isSupportedContentType(contentType) ? new IncrementalJsonParser<>(objectMapper.readerFor(mapType)) : null;
+  }
+
   @Override
   protected Collection<MediaType> getMediaTypes() {
     return JsonConverter.MEDIA_TYPES;
@@ -0,0 +1,72 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.net.MediaType;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResultWithResponse;
+import ru.hh.jclient.common.util.JsonTypeConverter;
+import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Converts top-level JSON array to a publisher of its elements, see {@link ElementPublisher}.
+ * Response that was buffered is parsed lazily as well, in parts requested by subscriber.
+ */
+public class JsonStreamConverter<T> extends SingleTypeConverter<Flow.Publisher<T>> implements StreamingTypeConverter<T> {
+
+  public static final int DEFAULT_BUFFER_SIZE = 256;
+
+  private final ObjectMapper objectMapper;
+  private final ObjectReader elementReader;
+  private final int bufferSize;
+
+  public JsonStreamConverter(ObjectMapper objectMapper, Class<T> jsonClass) {
+    this(objectMapper, jsonClass, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize number of parsed elements to buffer before reading of the body is paused
+   */
+  public JsonStreamConverter(ObjectMapper objectMapper, Class<T> jsonClass, int bufferSize) {
+    this.objectMapper = requireNonNull(objectMapper, "objectMapper must not be null");
+    JavaType elementType = JsonTypeConverter.convertClassToJavaType(objectMapper, requireNonNull(jsonClass, "jsonClass must not be null"));
+    this.elementReader = objectMapper.readerFor(elementType);
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public FailableFunction<Response, ResultWithResponse<Flow.Publisher<T>>, Exception> singleTypeConverterFunction() {
+    return r -> {
+      ElementPublisher<T> publisher = newPublisher(Runnable::run);
+      publisher.connect(new BufferedBodySource(r.getResponseBodyAsStream(), publisher));
+      return new ResultWithResponse<>(publisher, r);
+    };
+  }
+
+  @Override
+  public ElementPublisher<T> createPublisher(String contentType, Executor executor) throws IOException {
+    return isSupportedContentType(contentType) ? newPublisher(executor) : null;
+  }
+
+  private ElementPublisher<T> newPublisher(Executor executor) throws IOException {
+    JsonParser parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+    return new ElementPublisher<>(consumer -> new JsonElementParser<>(objectMapper, elementReader, parser, consumer), executor, bufferSize);
+  }
+
+  @Override
+  protected Collection<MediaType> getMediaTypes() {
+    return JsonConverter.MEDIA_TYPES;
+  }
+}
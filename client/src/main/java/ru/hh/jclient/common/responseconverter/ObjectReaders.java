@@ -0,0 +1,32 @@
+package ru.hh.jclient.common.responseconverter;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Readers of JSON types of {@link PrecompiledConverter} cached per mapper and type. Reader resolves deserializer of its type once, while
+ * reading with mapper looks it up on every call. Readers do not see changes of mapper configuration made after they are created.
+ * <p>
+ * Readers are kept as long as their mapper is reachable. Each reader parses with its own copy of the factory: factory of the mapper refers
+ * to the mapper as its codec, which would keep the mapper reachable from the cache.
+ */
+final class ObjectReaders {
+
+  private static final LoadingCache<ObjectMapper, ConcurrentMap<JavaType, ObjectReader>> READERS = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build(CacheLoader.from(mapper -> new ConcurrentHashMap<>()));
+
+  private ObjectReaders() {
+  }
+
+  static ObjectReader forType(ObjectMapper objectMapper, JavaType type) {
+    return READERS.getUnchecked(objectMapper).computeIfAbsent(type, key -> objectMapper.readerFor(type).with(objectMapper.getFactory().copy()));
+  }
+}
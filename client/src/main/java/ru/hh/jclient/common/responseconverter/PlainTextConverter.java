@@ -6,8 +6,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import ru.hh.jclient.common.Response;
 import ru.hh.jclient.common.ResultWithResponse;
+import ru.hh.jclient.common.util.MediaTypes;
 import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.net.MediaType;
 
 public class PlainTextConverter extends SingleTypeConverter<String> {
@@ -18,9 +18,11 @@ public class PlainTextConverter extends SingleTypeConverter<String> {
   public static final Charset DEFAULT = StandardCharsets.UTF_8;
 
   private Charset charset;
+  private Collection<MediaType> mediaTypes;
 
   public PlainTextConverter(Charset charset) {
     this.charset = requireNonNull(charset, "charset must not be null");
+    this.mediaTypes = MediaTypes.setOf(MediaType.PLAIN_TEXT_UTF_8.withoutParameters().withCharset(charset));
   }
 
   public PlainTextConverter() {
@@ -34,6 +36,6 @@ public class PlainTextConverter extends SingleTypeConverter<String> {
 
   @Override
   protected Collection<MediaType> getMediaTypes() {
-    return ImmutableSet.of(MediaType.PLAIN_TEXT_UTF_8.withoutParameters().withCharset(charset));
+    return mediaTypes;
   }
 }
@@ -0,0 +1,113 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.google.common.net.MediaType;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResultWithResponse;
+import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable JSON converter that resolves result type and its deserializer once, so it can be created once and shared between requests:
+ *
+ * <pre>
+ * private static final PrecompiledConverter&lt;Collection&lt;Vacancy&gt;&gt; VACANCIES = PrecompiledConverter.jsonCollection(MAPPER, Vacancy.class);
+ * ...
+ * http.with(request).expect(VACANCIES).result();
+ * </pre>
+ *
+ * Mapper must be configured before the converter is created, later changes of its configuration are not applied.
+ *
+ * @param <T> type of result
+ */
+public final class PrecompiledConverter<T> extends SingleTypeConverter<T> implements IncrementalTypeConverter<T> {
+
+  private final ObjectReader reader;
+  private final Optional<Collection<MediaType>> supportedMediaTypes = Optional.of(JsonConverter.MEDIA_TYPES);
+  private final FailableFunction<Response, ResultWithResponse<T>, Exception> converterFunction;
+
+  private PrecompiledConverter(ObjectMapper objectMapper, JavaType type) {
+    this.reader = ObjectReaders.forType(objectMapper, type);
+    this.converterFunction = super.converterFunction();
+  }
+
+  public static <T> PrecompiledConverter<T> json(ObjectMapper objectMapper, Class<T> jsonClass) {
+    requireNonNull(objectMapper, "objectMapper must not be null");
+    return new PrecompiledConverter<>(objectMapper, objectMapper.constructType(requireNonNull(jsonClass, "jsonClass must not be null")));
+  }
+
+  public static <T> PrecompiledConverter<T> json(ObjectMapper objectMapper, TypeReference<T> jsonType) {
+    requireNonNull(objectMapper, "objectMapper must not be null");
+    return new PrecompiledConverter<>(objectMapper, objectMapper.getTypeFactory().constructType(requireNonNull(jsonType, "jsonType must not be null")));
+  }
+
+  public static <T> PrecompiledConverter<Collection<T>> jsonCollection(ObjectMapper objectMapper, Class<T> jsonClass) {
+    requireNonNull(objectMapper, "objectMapper must not be null");
+    TypeFactory typeFactory = objectMapper.getTypeFactory();
+    JavaType elementType = typeFactory.constructType(requireNonNull(jsonClass, "jsonClass must not be null"));
+    return new PrecompiledConverter<>(objectMapper, typeFactory.constructCollectionType(Collection.class, elementType));
+  }
+
+  public static <T> PrecompiledConverter<Collection<T>> jsonCollection(ObjectMapper objectMapper, TypeReference<T> jsonType) {
+    requireNonNull(objectMapper, "objectMapper must not be null");
+    TypeFactory typeFactory = objectMapper.getTypeFactory();
+    JavaType elementType = typeFactory.constructType(requireNonNull(jsonType, "jsonType must not be null"));
+    return new PrecompiledConverter<>(objectMapper, typeFactory.constructCollectionType(Collection.class, elementType));
+  }
+
+  public static <K, V> PrecompiledConverter<Map<K, V>> jsonMap(ObjectMapper objectMapper, Class<K> jsonKeyClass, Class<V> jsonValueClass) {
+    requireNonNull(objectMapper, "objectMapper must not be null");
+    JavaType mapType = objectMapper.getTypeFactory().constructMapType(
+        Map.class,
+        requireNonNull(jsonKeyClass, "jsonKeyClass must not be null"),
+        requireNonNull(jsonValueClass, "jsonValueClass must not be null")
+    );
+    return new PrecompiledConverter<>(objectMapper, mapType);
+  }
+
+  public static <K, V> PrecompiledConverter<Map<K, V>> jsonMap(ObjectMapper objectMapper, Class<K> jsonKeyClass, TypeReference<V> jsonValueType) {
+    requireNonNull(objectMapper, "objectMapper must not be null");
+    TypeFactory typeFactory = objectMapper.getTypeFactory();
+    JavaType mapType = typeFactory.constructMapType(
+        Map.class,
+        typeFactory.constructType(requireNonNull(jsonKeyClass, "jsonKeyClass must not be null")),
+        typeFactory.constructType(requireNonNull(jsonValueType, "jsonValueType must not be null"))
+    );
+    return new PrecompiledConverter<>(objectMapper, mapType);
+  }
+
+  @Override
+  public FailableFunction<Response, ResultWithResponse<T>, Exception> singleTypeConverterFunction() {
+    return r -> new ResultWithResponse<>(reader.readValue(r.getResponseBodyAsStream()), r);
+  }
+
+  @Override
+  public FailableFunction<Response, ResultWithResponse<T>, Exception> converterFunction() {
+    return converterFunction;
+  }
+
+  @Override
+  public Optional<Collection<MediaType>> getSupportedMediaTypes() {
+    return supportedMediaTypes;
+  }
+
+  @Override
+  public BodyParser<T> createBodyParser(String contentType) throws IOException {
+    return isSupportedContentType(contentType) ? new IncrementalJsonParser<>(reader) : null;
+  }
+
+  @Override
+  protected Collection<MediaType> getMediaTypes() {
+    return JsonConverter.MEDIA_TYPES;
+  }
+}
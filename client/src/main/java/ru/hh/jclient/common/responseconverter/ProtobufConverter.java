@@ -1,44 +1,90 @@
 package ru.hh.jclient.common.responseconverter;
 
-import static com.google.common.collect.ImmutableSet.of;
+import static ru.hh.jclient.common.util.MediaTypes.setOf;
 import static com.google.common.net.MediaType.PROTOBUF;
 import static java.util.Objects.requireNonNull;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Set;
 
-import com.google.protobuf.GeneratedMessageV3;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
 import ru.hh.jclient.common.Response;
 import ru.hh.jclient.common.ResultWithResponse;
 import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
 import com.google.common.net.MediaType;
 
-public class ProtobufConverter<T extends GeneratedMessageV3> extends SingleTypeConverter<T> {
+/**
+ * Parses response body with the parser of message type, which is resolved once per type. Both full and lite generated messages are supported.
+ * Empty body is converted to null.
+ */
+public class ProtobufConverter<T extends MessageLite> extends SingleTypeConverter<T> {
 
-  private static final Set<MediaType> MEDIA_TYPES = of(PROTOBUF.withoutParameters(), MediaType.parse("application/x-protobuf"));
+  private static final Set<MediaType> MEDIA_TYPES = setOf(PROTOBUF.withoutParameters(), MediaType.parse("application/x-protobuf"));
 
-  private Class<T> protobufClass;
+  private static final ClassValue<Parser<?>> PARSERS = new ClassValue<>() {
+    @Override
+    protected Parser<?> computeValue(Class<?> type) {
+      try {
+        return ((MessageLite) type.getMethod("getDefaultInstance").invoke(null)).getParserForType();
+      } catch (ReflectiveOperationException | ClassCastException e) {
+        throw new IllegalArgumentException(type + " is not a generated protobuf message", e);
+      }
+    }
+  };
+
+  private final Parser<T> parser;
+  private final boolean aliasing;
 
   public ProtobufConverter(Class<T> protobufClass) {
-    this.protobufClass = requireNonNull(protobufClass, "protobufClass");
+    this(protobufClass, false);
   }
 
+  /**
+   * @param aliasing if true, bytes fields of parsed message refer to a copy of response body instead of being copied one by one, which is cheaper
+   *                 for messages with large binary fields but keeps the whole body in memory as long as the message is
+   */
   @SuppressWarnings("unchecked")
+  public ProtobufConverter(Class<T> protobufClass, boolean aliasing) {
+    this.parser = (Parser<T>) PARSERS.get(requireNonNull(protobufClass, "protobufClass"));
+    this.aliasing = aliasing;
+  }
+
   @Override
   public FailableFunction<Response, ResultWithResponse<T>, Exception> singleTypeConverterFunction() {
     return r -> {
-      T value;
-      var inputStream = r.getResponseBodyAsStream();
-      if (inputStream.available() > 0) {
-        var parseFromMethod = protobufClass.getMethod("parseFrom", InputStream.class);
-        value = (T) parseFromMethod.invoke(null, inputStream);
-      } else {
-        value = null;
+      CodedInputStream input = newInput(r);
+      if (input == null) {
+        return new ResultWithResponse<>(null, r);
       }
+      T value = parser.parseFrom(input);
+      // unlike parsing arrays and streams, parsing an input does not check it ended at message boundary
+      input.checkLastTagWas(0);
       return new ResultWithResponse<>(value, r);
     };
   }
 
+  /**
+   * Body may be released once it is converted, so aliased message is parsed from an array it owns, otherwise body is read in place.
+   */
+  private CodedInputStream newInput(Response response) {
+    if (aliasing) {
+      byte[] body = response.getResponseBodyAsBytes();
+      if (body.length == 0) {
+        return null;
+      }
+      CodedInputStream input = CodedInputStream.newInstance(body);
+      input.enableAliasing(true);
+      return input;
+    }
+    ByteBuffer[] body = response.getResponseBodyAsByteBuffers();
+    if (body.length == 1) {
+      return body[0].hasRemaining() ? CodedInputStream.newInstance(body[0]) : null;
+    }
+    return body.length > 0 ? CodedInputStream.newInstance(response.getResponseBodyAsStream()) : null;
+  }
+
   @Override
   protected Collection<MediaType> getMediaTypes() {
     return MEDIA_TYPES;
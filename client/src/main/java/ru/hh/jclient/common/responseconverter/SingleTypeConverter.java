@@ -1,11 +1,13 @@
 package ru.hh.jclient.common.responseconverter;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Optional;
 import ru.hh.jclient.common.Response;
 import ru.hh.jclient.common.ResultWithResponse;
 import ru.hh.jclient.common.exception.NoContentTypeException;
 import ru.hh.jclient.common.exception.UnexpectedContentTypeException;
+import ru.hh.jclient.common.util.MediaTypes;
 import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
 import com.google.common.net.HttpHeaders;
 import com.google.common.net.MediaType;
@@ -42,16 +44,40 @@ public abstract class SingleTypeConverter<T> implements TypeConverter<T> {
     return checkFunction.andThen(singleTypeConverterFunction());
   }
 
+  /**
+   * @param contentType value of "Content-Type" header
+   * @return true if content type is present and matches one of allowed media types
+   */
+  protected boolean isSupportedContentType(@Nullable String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    try {
+      return isSupported(MediaTypes.parse(contentType));
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
   private Response checkContentType(Response r) throws Exception {
     String contentType = r.getHeader(HttpHeaders.CONTENT_TYPE);
     if (contentType == null) {
       throw new NoContentTypeException(r);
     }
-    MediaType mt = MediaType.parse(contentType);
-    if (getMediaTypes().stream().noneMatch(m -> mt.is(m))) {
+    MediaType mt = MediaTypes.parse(contentType);
+    if (!isSupported(mt)) {
       throw new UnexpectedContentTypeException(r, mt, getMediaTypes());
     }
     return r;
   }
 
+  private boolean isSupported(MediaType mediaType) {
+    for (MediaType supported : getMediaTypes()) {
+      if (mediaType.is(supported)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
 }
@@ -0,0 +1,22 @@
+package ru.hh.jclient.common.responseconverter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Converter of response body to a stream of elements that are published while the body is being received.
+ *
+ * @param <T> type of element
+ */
+public interface StreamingTypeConverter<T> extends TypeConverter<Flow.Publisher<T>> {
+
+  /**
+   * @param contentType value of "Content-Type" header of response
+   * @param executor executor to deliver elements to subscriber
+   * @return publisher of elements of the body with the given content type or null if the body must be buffered and converted as usual
+   */
+  @Nullable
+  ElementPublisher<T> createPublisher(@Nullable String contentType, Executor executor) throws IOException;
+}
@@ -0,0 +1,61 @@
+package ru.hh.jclient.common.responseconverter;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of unmarshallers of a JAXB context. Unmarshaller is expensive to create and can not be used concurrently, so idle ones are reused
+ * and a new one is created when all are in use. Pool is kept while its context is in use, pool and its unmarshallers reference the context,
+ * so pools are softly referenced and are released under memory pressure once the context is not used elsewhere.
+ */
+final class UnmarshallerPool {
+  static final int MAX_IDLE_UNMARSHALLERS = Runtime.getRuntime().availableProcessors() * 2;
+
+  private static final LoadingCache<JAXBContext, UnmarshallerPool> POOLS = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .build(CacheLoader.from(UnmarshallerPool::new));
+
+  // factory is configured once, but implementations are not required to be thread safe
+  private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(XMLInputFactory::newInstance);
+
+  private final JAXBContext context;
+  private final BlockingQueue<Unmarshaller> idle = new ArrayBlockingQueue<>(MAX_IDLE_UNMARSHALLERS);
+
+  private UnmarshallerPool(JAXBContext context) {
+    this.context = context;
+  }
+
+  static UnmarshallerPool of(JAXBContext context) {
+    return POOLS.getUnchecked(context);
+  }
+
+  static XMLStreamReader createXmlStreamReader(InputStream input) throws XMLStreamException {
+    return XML_INPUT_FACTORY.get().createXMLStreamReader(input);
+  }
+
+  /**
+   * Unmarshals the element the reader is positioned at. Unmarshaller that failed is not returned to the pool.
+   */
+  <T> JAXBElement<T> unmarshal(XMLStreamReader reader, Class<T> type) throws JAXBException {
+    Unmarshaller unmarshaller = idle.poll();
+    if (unmarshaller == null) {
+      unmarshaller = context.createUnmarshaller();
+    }
+    JAXBElement<T> element = unmarshaller.unmarshal(reader, type);
+    idle.offer(unmarshaller);
+    return element;
+  }
+}
@@ -0,0 +1,348 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
+
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Splits XML document into child elements of the root as body parts arrive. Every element is read as soon as its end tag is received and is
+ * passed to the consumer, so only the element being read is held in memory.
+ * <p>
+ * Markup is recognized on bytes, so the document must be in UTF-8 or other ASCII compatible encoding, see {@link #isSupportedEncoding}, and
+ * documents in UTF-16 or UTF-32 are rejected. Element is read with StAX in the context of XML declaration and root start tag of the document,
+ * so namespaces declared by the root are resolved. Entities declared in document type declaration are not supported.
+ */
+class XmlElementParser<T> implements BodyParser<Void> {
+  private enum Markup {
+    START_TAG, END_TAG, PROCESSING_INSTRUCTION, COMMENT, CDATA, DECLARATION
+  }
+
+  private static final byte[] XML_DECLARATION_START = "<?xml".getBytes(US_ASCII);
+  // characters of markup and whitespace, their bytes must be the same as in ASCII
+  private static final String ASCII_CHARACTERS = IntStream.rangeClosed(' ', '~')
+      .collect(() -> new StringBuilder("\t\n\r"), StringBuilder::appendCodePoint, StringBuilder::append)
+      .toString();
+
+  private final FailableFunction<XMLStreamReader, T, Exception> elementReader;
+  private final Consumer<? super T> consumer;
+  private final Bytes token = new Bytes();
+  private final Bytes element = new Bytes();
+  private byte[] xmlDeclaration = new byte[0];
+  private byte[] rootStartTag;
+  private byte[] rootEndTag;
+  private boolean rootEnded;
+  private int depth;
+  // state of markup being read, token is empty when text is read
+  private Markup markup;
+  private byte quote;
+  private int declarationDepth;
+
+  /**
+   * @param elementReader reads element the reader is positioned at
+   */
+  XmlElementParser(FailableFunction<XMLStreamReader, T, Exception> elementReader, Consumer<? super T> consumer) {
+    this.elementReader = elementReader;
+    this.consumer = consumer;
+  }
+
+  /**
+   * @return true if document in the encoding can be parsed
+   */
+  static boolean isSupportedEncoding(Charset charset) {
+    return charset.canEncode() && Arrays.equals(ASCII_CHARACTERS.getBytes(charset), ASCII_CHARACTERS.getBytes(US_ASCII));
+  }
+
+  @Override
+  public void parse(byte[] bodyPart) throws IOException {
+    if (rootStartTag == null && xmlDeclaration.length == 0 && token.isEmpty() && bodyPart.length > 0 && isUnsupportedEncodingStart(bodyPart[0])) {
+      throw new UnsupportedEncodingException("XML document is not in ASCII compatible encoding");
+    }
+    int i = 0;
+    while (i < bodyPart.length) {
+      if (token.isEmpty()) {
+        int textEnd = i;
+        while (textEnd < bodyPart.length && bodyPart[textEnd] != '<') {
+          textEnd++;
+        }
+        if (depth > 1) {
+          element.add(bodyPart, i, textEnd - i);
+        }
+        i = textEnd;
+        if (i < bodyPart.length) {
+          token.add(bodyPart[i++]);
+        }
+      } else {
+        byte b = bodyPart[i++];
+        token.add(b);
+        if (markup == null) {
+          markup = detectMarkup();
+        } else if (isMarkupEnd(b)) {
+          readMarkup();
+          token.clear();
+          markup = null;
+        }
+      }
+    }
+  }
+
+  @Override
+  public Void complete() throws IOException {
+    if (rootStartTag == null) {
+      throw new EOFException("Unexpected end of input: XML document has no root element");
+    }
+    if (!rootEnded || !token.isEmpty()) {
+      throw new EOFException("Unexpected end of input: XML root element is not closed");
+    }
+    return null;
+  }
+
+  // byte order mark or first character of document in UTF-16 or UTF-32
+  private static boolean isUnsupportedEncodingStart(byte first) {
+    return first == 0 || first == (byte) 0xFE || first == (byte) 0xFF;
+  }
+
+  private Markup detectMarkup() throws IOException {
+    byte second = token.at(1);
+    if (second == '/') {
+      return Markup.END_TAG;
+    }
+    if (second == '?') {
+      return Markup.PROCESSING_INSTRUCTION;
+    }
+    if (second != '!') {
+      return Markup.START_TAG;
+    }
+    if (token.length() < 3) {
+      return null;
+    }
+    byte third = token.at(2);
+    if (third == '-') {
+      if (token.length() < 4) {
+        return null;
+      }
+      return checkMarkupStart("<!--", Markup.COMMENT);
+    }
+    if (third == '[') {
+      if (token.length() < 9) {
+        return null;
+      }
+      return checkMarkupStart("<![CDATA[", Markup.CDATA);
+    }
+    return Markup.DECLARATION;
+  }
+
+  private Markup checkMarkupStart(String start, Markup result) throws IOException {
+    if (!token.startsWith(start.getBytes(US_ASCII))) {
+      throw new IOException("Malformed XML markup " + token);
+    }
+    return result;
+  }
+
+  private boolean isMarkupEnd(byte b) {
+    switch (markup) {
+      case START_TAG:
+        return isTagEnd(b);
+      case END_TAG:
+        return b == '>';
+      case PROCESSING_INSTRUCTION:
+        return token.length() >= 4 && token.endsWith("?>");
+      case COMMENT:
+        return token.length() >= 7 && token.endsWith("-->");
+      case CDATA:
+        return token.length() >= 12 && token.endsWith("]]>");
+      case DECLARATION:
+        if (quote == 0 && b == '[') {
+          declarationDepth++;
+        } else if (quote == 0 && b == ']') {
+          declarationDepth--;
+        }
+        return isTagEnd(b) && declarationDepth == 0;
+      default:
+        throw new IllegalStateException("Unknown markup " + markup);
+    }
+  }
+
+  private boolean isTagEnd(byte b) {
+    if (quote != 0) {
+      if (b == quote) {
+        quote = 0;
+      }
+      return false;
+    }
+    if (b == '"' || b == '\'') {
+      quote = b;
+      return false;
+    }
+    return b == '>';
+  }
+
+  private void readMarkup() throws IOException {
+    boolean emptyElement = markup == Markup.START_TAG && token.at(token.length() - 2) == '/';
+    if (depth > 1) {
+      element.add(token);
+      if (markup == Markup.START_TAG && !emptyElement) {
+        depth++;
+      } else if (markup == Markup.END_TAG && --depth == 1) {
+        readElement();
+      }
+    } else if (depth == 1) {
+      if (markup == Markup.START_TAG) {
+        element.clear();
+        element.add(token);
+        if (emptyElement) {
+          readElement();
+        } else {
+          depth++;
+        }
+      } else if (markup == Markup.END_TAG) {
+        depth--;
+        rootEnded = true;
+      } else if (markup == Markup.DECLARATION) {
+        throw new IOException("Unexpected XML markup " + token + " in root element");
+      }
+    } else if (rootEnded) {
+      if (markup != Markup.COMMENT && markup != Markup.PROCESSING_INSTRUCTION) {
+        throw new IOException("Unexpected XML markup " + token + " after end of root element");
+      }
+    } else if (markup == Markup.START_TAG) {
+      rootStartTag = token.toArray();
+      rootEndTag = ("</" + tagName(token) + ">").getBytes(US_ASCII);
+      if (emptyElement) {
+        rootEnded = true;
+      } else {
+        depth++;
+      }
+    } else if (markup == Markup.PROCESSING_INSTRUCTION && token.startsWith(XML_DECLARATION_START) && isWhitespace(token.at(5))) {
+      xmlDeclaration = token.toArray();
+    } else if (markup == Markup.END_TAG || markup == Markup.CDATA) {
+      throw new IOException("Unexpected XML markup " + token + " before root element");
+    }
+  }
+
+  private void readElement() throws IOException {
+    List<InputStream> document = List.of(
+        new ByteArrayInputStream(xmlDeclaration),
+        new ByteArrayInputStream(rootStartTag),
+        element.asStream(),
+        new ByteArrayInputStream(rootEndTag)
+    );
+    T value;
+    try {
+      XMLStreamReader reader = UnmarshallerPool.createXmlStreamReader(new SequenceInputStream(Collections.enumeration(document)));
+      reader.nextTag();
+      reader.nextTag();
+      value = elementReader.apply(reader);
+      reader.close();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Failed to read XML element: " + e.getMessage(), e);
+    }
+    element.clear();
+    if (value == null) {
+      throw new IOException("Null element of XML document can not be published");
+    }
+    consumer.accept(value);
+  }
+
+  private static String tagName(Bytes tag) {
+    int end = 1;
+    while (end < tag.length() && !isWhitespace(tag.at(end)) && tag.at(end) != '/' && tag.at(end) != '>') {
+      end++;
+    }
+    return tag.toString(1, end);
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+  }
+
+  /**
+   * Growable byte array, unlike {@link java.io.ByteArrayOutputStream} is not synchronized and gives access to its content.
+   */
+  private static final class Bytes {
+    private byte[] bytes = new byte[256];
+    private int length;
+
+    void add(byte b) {
+      ensureCapacity(1);
+      bytes[length++] = b;
+    }
+
+    void add(byte[] source, int offset, int count) {
+      ensureCapacity(count);
+      System.arraycopy(source, offset, bytes, length, count);
+      length += count;
+    }
+
+    void add(Bytes source) {
+      add(source.bytes, 0, source.length);
+    }
+
+    byte at(int index) {
+      return bytes[index];
+    }
+
+    int length() {
+      return length;
+    }
+
+    boolean isEmpty() {
+      return length == 0;
+    }
+
+    boolean startsWith(byte[] prefix) {
+      return length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    boolean endsWith(String suffix) {
+      for (int i = 0; i < suffix.length(); i++) {
+        if (bytes[length - suffix.length() + i] != suffix.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void clear() {
+      length = 0;
+    }
+
+    byte[] toArray() {
+      return Arrays.copyOf(bytes, length);
+    }
+
+    InputStream asStream() {
+      return new ByteArrayInputStream(bytes, 0, length);
+    }
+
+    String toString(int from, int to) {
+      return new String(bytes, from, to - from, US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+      return toString(0, Math.min(length, 64));
+    }
+
+    private void ensureCapacity(int count) {
+      if (length + count > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package ru.hh.jclient.common.responseconverter;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.net.HttpHeaders;
+import com.google.common.net.MediaType;
+import ru.hh.jclient.common.Response;
+import ru.hh.jclient.common.ResultWithResponse;
+import ru.hh.jclient.common.util.MediaTypes;
+import ru.hh.jclient.common.util.MoreFunctionalInterfaces.FailableFunction;
+
+import javax.annotation.Nullable;
+import javax.xml.bind.JAXBContext;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Converts child elements of XML document root to a publisher of unmarshalled elements, see {@link ElementPublisher} and {@link XmlElementParser}.
+ * Response that was buffered is parsed lazily as well, in parts requested by subscriber.
+ */
+public class XmlStreamConverter<T> extends SingleTypeConverter<Flow.Publisher<T>> implements StreamingTypeConverter<T> {
+
+  private final UnmarshallerPool unmarshallers;
+  private final Class<T> xmlClass;
+  private final int bufferSize;
+
+  public XmlStreamConverter(JAXBContext context, Class<T> xmlClass) {
+    this(context, xmlClass, JsonStreamConverter.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize number of unmarshalled elements to buffer before reading of the body is paused
+   */
+  public XmlStreamConverter(JAXBContext context, Class<T> xmlClass, int bufferSize) {
+    this.unmarshallers = UnmarshallerPool.of(requireNonNull(context, "context must not be null"));
+    this.xmlClass = requireNonNull(xmlClass, "xmlClass must not be null");
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public FailableFunction<Response, ResultWithResponse<Flow.Publisher<T>>, Exception> singleTypeConverterFunction() {
+    return r -> {
+      checkEncoding(r.getHeader(HttpHeaders.CONTENT_TYPE));
+      ElementPublisher<T> publisher = newPublisher(Runnable::run);
+      publisher.connect(new BufferedBodySource(r.getResponseBodyAsStream(), publisher));
+      return new ResultWithResponse<>(publisher, r);
+    };
+  }
+
+  @Override
+  public ElementPublisher<T> createPublisher(String contentType, Executor executor) {
+    if (!isSupportedContentType(contentType)) {
+      return null;
+    }
+    // body in unsupported encoding is buffered and rejected by converter function
+    try {
+      checkEncoding(contentType);
+    } catch (UnsupportedEncodingException e) {
+      return null;
+    }
+    return newPublisher(executor);
+  }
+
+  private static void checkEncoding(@Nullable String contentType) throws UnsupportedEncodingException {
+    if (contentType == null) {
+      return;
+    }
+    Charset charset;
+    try {
+      charset = MediaTypes.parse(contentType).charset().orNull();
+    } catch (IllegalArgumentException e) {
+      throw new UnsupportedEncodingException("Unsupported encoding of XML in " + contentType);
+    }
+    if (charset != null && !XmlElementParser.isSupportedEncoding(charset)) {
+      throw new UnsupportedEncodingException("XML in " + charset + " can not be streamed, encoding must be ASCII compatible");
+    }
+  }
+
+  private ElementPublisher<T> newPublisher(Executor executor) {
+    return new ElementPublisher<>(
+        consumer -> new XmlElementParser<>(reader -> unmarshallers.unmarshal(reader, xmlClass).getValue(), consumer),
+        executor,
+        bufferSize
+    );
+  }
+
+  @Override
+  protected Collection<MediaType> getMediaTypes() {
+    return XmlConverter.MEDIA_TYPES;
+  }
+}
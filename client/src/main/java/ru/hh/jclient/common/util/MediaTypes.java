@@ -0,0 +1,82 @@
+package ru.hh.jclient.common.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ForwardingSet;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.MediaType;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parsed "Content-Type" values cached by their source and sets of media types with joined "Accept" value. Parsing of media type is too
+ * expensive to be done for every response, while the set of content types servers respond with is small. Cache is bounded, so unexpected
+ * values do not accumulate.
+ */
+public final class MediaTypes {
+  private static final int MAX_CONTENT_TYPES = 1024;
+
+  private static final Cache<String, MediaType> CONTENT_TYPES = CacheBuilder.newBuilder()
+      .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+      .maximumSize(MAX_CONTENT_TYPES)
+      .build();
+
+  private MediaTypes() {
+  }
+
+  /**
+   * Same as {@link MediaType#parse(String)}, but value is parsed only once.
+   *
+   * @throws IllegalArgumentException if value is not a valid media type, invalid values are not cached
+   */
+  public static MediaType parse(String value) {
+    MediaType mediaType = CONTENT_TYPES.getIfPresent(value);
+    if (mediaType == null) {
+      mediaType = MediaType.parse(value);
+      CONTENT_TYPES.put(value, mediaType);
+    }
+    return mediaType;
+  }
+
+  /**
+   * Returns immutable set of media types, which "Accept" header value is joined once, for constants of converters.
+   */
+  public static Set<MediaType> setOf(MediaType... mediaTypes) {
+    return setOf(ImmutableSet.copyOf(mediaTypes));
+  }
+
+  public static Set<MediaType> setOf(Collection<MediaType> mediaTypes) {
+    return new HeaderValueSet(ImmutableSet.copyOf(mediaTypes));
+  }
+
+  /**
+   * @return comma separated media types as "Accept" header value, it is not joined again for sets created by {@link #setOf}
+   */
+  public static String toHeaderValue(Collection<MediaType> mediaTypes) {
+    if (mediaTypes instanceof HeaderValueSet) {
+      return ((HeaderValueSet) mediaTypes).headerValue;
+    }
+    return join(mediaTypes);
+  }
+
+  private static String join(Collection<MediaType> mediaTypes) {
+    return mediaTypes.stream().map(Object::toString).collect(Collectors.joining(","));
+  }
+
+  private static final class HeaderValueSet extends ForwardingSet<MediaType> {
+    private final Set<MediaType> mediaTypes;
+    private final String headerValue;
+
+    HeaderValueSet(ImmutableSet<MediaType> mediaTypes) {
+      this.mediaTypes = mediaTypes;
+      this.headerValue = join(mediaTypes);
+    }
+
+    @Override
+    protected Set<MediaType> delegate() {
+      return mediaTypes;
+    }
+  }
+}
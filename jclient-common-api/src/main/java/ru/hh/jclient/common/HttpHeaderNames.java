@@ -13,4 +13,5 @@ public class HttpHeaderNames {
   public static final String X_SOURCE = "X-Source";
   public static final String X_OUTER_TIMEOUT_MS = "X-Outer-Timeout-Ms";
   public static final String X_HH_ACCEPT_ERRORS = "X-HH-AcceptErrors";
+  public static final String X_HH_CRITICALITY = "X-Hh-Criticality";
 }
@@ -5,7 +5,10 @@ public final class HttpStatuses {
   public static final int CREATED = 201;
   public static final int NO_CONTENT = 204;
 
+  public static final int NOT_MODIFIED = 304;
+
   public static final int BAD_REQUEST = 400;
+  public static final int TOO_MANY_REQUESTS = 429;
 
   public static final int INTERNAL_SERVER_ERROR = 500;
   public static final int BAD_GATEWAY = 502;